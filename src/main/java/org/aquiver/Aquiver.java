@@ -29,12 +29,17 @@ import org.apex.Apex;
 import org.apex.ApexContext;
 import org.apex.Environment;
 import org.aquiver.common.banner.BannerFont;
+import org.aquiver.mvc.argument.AnnotationArgumentGetterResolver;
+import org.aquiver.mvc.argument.ArgumentConverter;
+import org.aquiver.mvc.argument.ArgumentConverters;
+import org.aquiver.mvc.argument.ArgumentGetterResolver;
 import org.aquiver.mvc.handler.RouteAdviceHandler;
 import org.aquiver.mvc.handler.RouteAdviceHandlerResolver;
 import org.aquiver.mvc.http.HttpMethod;
 import org.aquiver.mvc.interceptor.Interceptor;
 import org.aquiver.mvc.router.RestfulRouter;
 import org.aquiver.mvc.router.session.SessionManager;
+import org.aquiver.server.DispatchMode;
 import org.aquiver.server.Server;
 import org.aquiver.server.netty.NettyServer;
 import org.aquiver.websocket.WebSocketChannel;
@@ -64,19 +69,99 @@ import java.util.concurrent.atomic.LongAdder;
 import static io.netty.util.internal.PlatformDependent.isWindows;
 import static java.util.Objects.requireNonNull;
 import static org.aquiver.ServerSpec.BANNER_TEXT;
+import static org.aquiver.ServerSpec.DEFAULT_ASYNC_PUBLISHER_MAX_ELEMENTS;
+import static org.aquiver.ServerSpec.DEFAULT_BANNER_ENABLED;
+import static org.aquiver.ServerSpec.DEFAULT_COMPONENT_INDEX;
+import static org.aquiver.ServerSpec.DEFAULT_COMPRESSION_ALGORITHMS;
+import static org.aquiver.ServerSpec.DEFAULT_COMPRESSION_LEVEL;
+import static org.aquiver.ServerSpec.DEFAULT_COMPRESSION_MIME_TYPES;
+import static org.aquiver.ServerSpec.DEFAULT_COMPRESSION_MIN_SIZE;
+import static org.aquiver.ServerSpec.DEFAULT_CONCURRENCY_LIMIT;
+import static org.aquiver.ServerSpec.DEFAULT_CONCURRENCY_LIMIT_INITIAL;
+import static org.aquiver.ServerSpec.DEFAULT_CONCURRENCY_LIMIT_MAX;
+import static org.aquiver.ServerSpec.DEFAULT_CONCURRENCY_LIMIT_MIN;
+import static org.aquiver.ServerSpec.DEFAULT_CONCURRENCY_LIMIT_RETRY_AFTER;
+import static org.aquiver.ServerSpec.DEFAULT_DISPATCH_POOL_SIZE;
+import static org.aquiver.ServerSpec.DEFAULT_DISPATCH_QUEUE_SIZE;
+import static org.aquiver.ServerSpec.DEFAULT_GENERATED_ROUTE_HANDLERS;
+import static org.aquiver.ServerSpec.DEFAULT_KEEP_ALIVE_IDLE_TIMEOUT;
+import static org.aquiver.ServerSpec.DEFAULT_KEEP_ALIVE_MAX_REQUESTS;
+import static org.aquiver.ServerSpec.DEFAULT_RATE_LIMIT;
+import static org.aquiver.ServerSpec.DEFAULT_RATE_LIMIT_KEY;
+import static org.aquiver.ServerSpec.DEFAULT_RATE_LIMIT_MAX_KEYS;
+import static org.aquiver.ServerSpec.DEFAULT_RATE_LIMIT_RULES;
+import static org.aquiver.ServerSpec.DEFAULT_REQUEST_BODY_MAX_SIZE;
+import static org.aquiver.ServerSpec.DEFAULT_REQUEST_BODY_SPILL_THRESHOLD;
+import static org.aquiver.ServerSpec.DEFAULT_REQUEST_MAX_HEADER_SIZE;
+import static org.aquiver.ServerSpec.DEFAULT_REQUEST_MAX_INITIAL_LINE_LENGTH;
+import static org.aquiver.ServerSpec.DEFAULT_SHUTDOWN_TIMEOUT;
+import static org.aquiver.ServerSpec.DEFAULT_STATIC_CACHE_CHECK_INTERVAL;
+import static org.aquiver.ServerSpec.DEFAULT_STATIC_CACHE_MAX_FILE_SIZE;
+import static org.aquiver.ServerSpec.DEFAULT_STATIC_CACHE_MAX_SIZE;
+import static org.aquiver.ServerSpec.DEFAULT_STATIC_COMPRESSION;
+import static org.aquiver.ServerSpec.DEFAULT_STATIC_COMPRESSION_MAX_FILE_SIZE;
+import static org.aquiver.ServerSpec.DEFAULT_TIMEOUT_READ;
+import static org.aquiver.ServerSpec.DEFAULT_TIMEOUT_REQUEST;
+import static org.aquiver.ServerSpec.DEFAULT_TIMEOUT_REQUEST_HEADER;
+import static org.aquiver.ServerSpec.DEFAULT_TIMEOUT_ROUTE;
+import static org.aquiver.ServerSpec.DEFAULT_TIMEOUT_WRITE;
+import static org.aquiver.ServerSpec.PATH_APP_BANNER_ENABLED;
 import static org.aquiver.ServerSpec.PATH_APP_BANNER_FONT;
 import static org.aquiver.ServerSpec.PATH_APP_BANNER_TEXT;
+import static org.aquiver.ServerSpec.PATH_APP_COMPONENT_INDEX;
+import static org.aquiver.ServerSpec.PATH_APP_GENERATED_ROUTE_HANDLERS;
 import static org.aquiver.ServerSpec.PATH_CONFIG_PROPERTIES;
+import static org.aquiver.ServerSpec.PATH_SERVER_ASYNC_PUBLISHER_MAX_ELEMENTS;
+import static org.aquiver.ServerSpec.PATH_SERVER_COMPRESSION_ALGORITHMS;
+import static org.aquiver.ServerSpec.PATH_SERVER_COMPRESSION_LEVEL;
+import static org.aquiver.ServerSpec.PATH_SERVER_COMPRESSION_MIME_TYPES;
+import static org.aquiver.ServerSpec.PATH_SERVER_COMPRESSION_MIN_SIZE;
+import static org.aquiver.ServerSpec.PATH_SERVER_CONCURRENCY_LIMIT;
+import static org.aquiver.ServerSpec.PATH_SERVER_CONCURRENCY_LIMIT_INITIAL;
+import static org.aquiver.ServerSpec.PATH_SERVER_CONCURRENCY_LIMIT_MAX;
+import static org.aquiver.ServerSpec.PATH_SERVER_CONCURRENCY_LIMIT_MIN;
+import static org.aquiver.ServerSpec.PATH_SERVER_CONCURRENCY_LIMIT_RETRY_AFTER;
 import static org.aquiver.ServerSpec.PATH_SERVER_CONTENT_COMPRESSOR;
 import static org.aquiver.ServerSpec.PATH_SERVER_CORS;
+import static org.aquiver.ServerSpec.PATH_SERVER_DISPATCH_MODE;
+import static org.aquiver.ServerSpec.PATH_SERVER_DISPATCH_POOL_SIZE;
+import static org.aquiver.ServerSpec.PATH_SERVER_DISPATCH_QUEUE_SIZE;
+import static org.aquiver.ServerSpec.PATH_SERVER_HTTP2;
+import static org.aquiver.ServerSpec.PATH_SERVER_KEEP_ALIVE;
+import static org.aquiver.ServerSpec.PATH_SERVER_KEEP_ALIVE_IDLE_TIMEOUT;
+import static org.aquiver.ServerSpec.PATH_SERVER_KEEP_ALIVE_MAX_REQUESTS;
 import static org.aquiver.ServerSpec.PATH_SERVER_PORT;
+import static org.aquiver.ServerSpec.PATH_SERVER_RATE_LIMIT;
+import static org.aquiver.ServerSpec.PATH_SERVER_RATE_LIMIT_KEY;
+import static org.aquiver.ServerSpec.PATH_SERVER_RATE_LIMIT_MAX_KEYS;
+import static org.aquiver.ServerSpec.PATH_SERVER_RATE_LIMIT_RULES;
+import static org.aquiver.ServerSpec.PATH_SERVER_REQUEST_BODY_MAX_SIZE;
+import static org.aquiver.ServerSpec.PATH_SERVER_REQUEST_BODY_MODE;
+import static org.aquiver.ServerSpec.PATH_SERVER_REQUEST_BODY_SPILL_THRESHOLD;
+import static org.aquiver.ServerSpec.PATH_SERVER_REQUEST_MAX_HEADER_SIZE;
+import static org.aquiver.ServerSpec.PATH_SERVER_REQUEST_MAX_INITIAL_LINE_LENGTH;
 import static org.aquiver.ServerSpec.PATH_SERVER_SESSION_ENABLE;
 import static org.aquiver.ServerSpec.PATH_SERVER_SESSION_KEY;
 import static org.aquiver.ServerSpec.PATH_SERVER_SESSION_TIMEOUT;
+import static org.aquiver.ServerSpec.PATH_SERVER_SHUTDOWN_TIMEOUT;
+import static org.aquiver.ServerSpec.PATH_SERVER_STATIC_CACHE_CHECK_INTERVAL;
+import static org.aquiver.ServerSpec.PATH_SERVER_STATIC_CACHE_MAX_FILE_SIZE;
+import static org.aquiver.ServerSpec.PATH_SERVER_STATIC_CACHE_MAX_SIZE;
+import static org.aquiver.ServerSpec.PATH_SERVER_STATIC_COMPRESSION;
+import static org.aquiver.ServerSpec.PATH_SERVER_STATIC_COMPRESSION_MAX_FILE_SIZE;
 import static org.aquiver.ServerSpec.PATH_SERVER_TEMPLATES_FOLDER;
+import static org.aquiver.ServerSpec.PATH_SERVER_TIMEOUT_READ;
+import static org.aquiver.ServerSpec.PATH_SERVER_TIMEOUT_REQUEST;
+import static org.aquiver.ServerSpec.PATH_SERVER_TIMEOUT_REQUEST_HEADER;
+import static org.aquiver.ServerSpec.PATH_SERVER_TIMEOUT_ROUTE;
+import static org.aquiver.ServerSpec.PATH_SERVER_TIMEOUT_WRITE;
 import static org.aquiver.ServerSpec.PATH_SERVER_VIEW_SUFFIX;
 import static org.aquiver.ServerSpec.SERVER_CONTENT_COMPRESSOR;
 import static org.aquiver.ServerSpec.SERVER_CORS;
+import static org.aquiver.ServerSpec.SERVER_DISPATCH_MODE;
+import static org.aquiver.ServerSpec.SERVER_HTTP2;
+import static org.aquiver.ServerSpec.SERVER_KEEP_ALIVE;
+import static org.aquiver.ServerSpec.SERVER_REQUEST_BODY_MODE;
 import static org.aquiver.ServerSpec.SERVER_SESSION_ENABLE;
 import static org.aquiver.ServerSpec.SERVER_SESSION_KEY;
 import static org.aquiver.ServerSpec.SERVER_SESSION_TIMEOUT;
@@ -143,7 +228,11 @@ public class Aquiver {
   private final Apex apex = Apex.of();
   private final ApexContext apexContext = ApexContext.of();
 
-  // A series of components used
+  // A series of components used, the argument getter resolvers and converters must
+  // exist before any route is registered since routes resolve their getters eagerly
+  private final ArgumentConverters argumentConverters = apexContext.addBean(ArgumentConverters.class);
+  private final ArgumentGetterResolver argumentGetterResolver = apexContext.addBean(ArgumentGetterResolver.class);
+  private final AnnotationArgumentGetterResolver annotationArgumentGetterResolver = apexContext.addBean(AnnotationArgumentGetterResolver.class);
   private final RestfulRouter restfulRouter = apexContext.addBean(RestfulRouter.class);
   private final WebSocketResolver webSocketResolver = apexContext.addBean(WebSocketResolver.class);
   private final RouteAdviceHandlerResolver errorHandlerResolver = apexContext.addBean(RouteAdviceHandlerResolver.class);
@@ -458,6 +547,35 @@ public class Aquiver {
     return bannerFont;
   }
 
+  /**
+   * Get whether the banner is printed on startup
+   *
+   * @return true if the banner is printed
+   */
+  public boolean bannerEnabled() {
+    return this.environment().getBoolean(PATH_APP_BANNER_ENABLED, DEFAULT_BANNER_ENABLED);
+  }
+
+  /**
+   * Get whether components are loaded from the index generated at build
+   * time, the boot package is scanned if the classpath has no index
+   *
+   * @return true if the component index is used
+   */
+  public boolean componentIndex() {
+    return this.environment().getBoolean(PATH_APP_COMPONENT_INDEX, DEFAULT_COMPONENT_INDEX);
+  }
+
+  /**
+   * Get whether routes are called through the handlers generated at build
+   * time, routes without a generated handler bind their arguments reflectively
+   *
+   * @return true if generated route handlers are used
+   */
+  public boolean generatedRouteHandlers() {
+    return this.environment().getBoolean(PATH_APP_GENERATED_ROUTE_HANDLERS, DEFAULT_GENERATED_ROUTE_HANDLERS);
+  }
+
   /**
    * Get start up server config properties name
    *
@@ -548,6 +666,371 @@ public class Aquiver {
     return this.environment().getBoolean(PATH_SERVER_CONTENT_COMPRESSOR, SERVER_CONTENT_COMPRESSOR);
   }
 
+  /**
+   * Get HTTP/2 on status, h2 is negotiated through ALPN when ssl is on,
+   * cleartext connections accept h2c upgrade and prior knowledge
+   *
+   * @return HTTP/2 status
+   */
+  public boolean http2() {
+    return this.environment().getBoolean(PATH_SERVER_HTTP2, SERVER_HTTP2);
+  }
+
+  /**
+   * Get HTTP keep-alive on status
+   *
+   * @return keep-alive status
+   */
+  public boolean keepAlive() {
+    return this.environment().getBoolean(PATH_SERVER_KEEP_ALIVE, SERVER_KEEP_ALIVE);
+  }
+
+  /**
+   * Get the maximum number of requests served by one persistent connection,
+   * zero or negative means unlimited
+   *
+   * @return maximum requests per connection
+   */
+  public int keepAliveMaxRequests() {
+    return this.environment().getInt(PATH_SERVER_KEEP_ALIVE_MAX_REQUESTS, DEFAULT_KEEP_ALIVE_MAX_REQUESTS);
+  }
+
+  /**
+   * Get the number of seconds an idle persistent connection is kept open,
+   * zero or negative disables the idle check
+   *
+   * @return keep-alive idle timeout in seconds
+   */
+  public int keepAliveIdleTimeout() {
+    return this.environment().getInt(PATH_SERVER_KEEP_ALIVE_IDLE_TIMEOUT, DEFAULT_KEEP_ALIVE_IDLE_TIMEOUT);
+  }
+
+  /**
+   * Set where route handlers are executed by default, routes can
+   * override it with {@link org.aquiver.mvc.annotation.Dispatch}
+   *
+   * @param dispatchMode dispatch mode
+   * @return this
+   */
+  public Aquiver dispatchMode(DispatchMode dispatchMode) {
+    Validate.notNull(dispatchMode, "dispatchMode can't be null");
+    this.environment.add(PATH_SERVER_DISPATCH_MODE, dispatchMode.value());
+    return this;
+  }
+
+  /**
+   * Get where route handlers are executed by default
+   *
+   * @return dispatch mode
+   */
+  public DispatchMode dispatchMode() {
+    return DispatchMode.of(this.environment().getString(PATH_SERVER_DISPATCH_MODE, SERVER_DISPATCH_MODE));
+  }
+
+  /**
+   * Get the number of threads of the business pool
+   *
+   * @return business pool size
+   */
+  public int dispatchPoolSize() {
+    return this.environment().getInt(PATH_SERVER_DISPATCH_POOL_SIZE, DEFAULT_DISPATCH_POOL_SIZE);
+  }
+
+  /**
+   * Get the number of requests that can wait for a business pool thread,
+   * further requests are rejected with 503
+   *
+   * @return business pool queue size
+   */
+  public int dispatchQueueSize() {
+    return this.environment().getInt(PATH_SERVER_DISPATCH_QUEUE_SIZE, DEFAULT_DISPATCH_QUEUE_SIZE);
+  }
+
+  /**
+   * Get the maximum number of elements a publisher route result may emit,
+   * the route fails if its publisher emits more
+   *
+   * @return publisher element limit
+   */
+  public int publisherMaxElements() {
+    return this.environment().getInt(PATH_SERVER_ASYNC_PUBLISHER_MAX_ELEMENTS, DEFAULT_ASYNC_PUBLISHER_MAX_ELEMENTS);
+  }
+
+  /**
+   * Get the request body mode, {@code aggregate} keeps bodies in memory and
+   * {@code spill} moves bodies larger than the spill threshold to a temporary file
+   *
+   * @return request body mode
+   */
+  public String requestBodyMode() {
+    return this.environment().getString(PATH_SERVER_REQUEST_BODY_MODE, SERVER_REQUEST_BODY_MODE);
+  }
+
+  /**
+   * Get the largest accepted request body, larger requests are rejected with 413
+   *
+   * @return max request body size in bytes
+   */
+  public int requestBodyMaxSize() {
+    return this.environment().getInt(PATH_SERVER_REQUEST_BODY_MAX_SIZE, DEFAULT_REQUEST_BODY_MAX_SIZE);
+  }
+
+  /**
+   * Get the body size above which the spill mode writes the body to disk
+   *
+   * @return spill threshold in bytes
+   */
+  public int requestBodySpillThreshold() {
+    return this.environment().getInt(PATH_SERVER_REQUEST_BODY_SPILL_THRESHOLD, DEFAULT_REQUEST_BODY_SPILL_THRESHOLD);
+  }
+
+  /**
+   * Get the total size of static resource contents kept in memory
+   *
+   * @return static cache size in bytes
+   */
+  public int staticCacheMaxSize() {
+    return this.environment().getInt(PATH_SERVER_STATIC_CACHE_MAX_SIZE, DEFAULT_STATIC_CACHE_MAX_SIZE);
+  }
+
+  /**
+   * Get the size of the largest static resource whose content is kept in memory,
+   * larger files are sent from disk
+   *
+   * @return largest cached static resource in bytes
+   */
+  public int staticCacheMaxFileSize() {
+    return this.environment().getInt(PATH_SERVER_STATIC_CACHE_MAX_FILE_SIZE, DEFAULT_STATIC_CACHE_MAX_FILE_SIZE);
+  }
+
+  /**
+   * Get the number of seconds between checks whether a cached static file changed
+   *
+   * @return static cache check interval in seconds
+   */
+  public int staticCacheCheckInterval() {
+    return this.environment().getInt(PATH_SERVER_STATIC_CACHE_CHECK_INTERVAL, DEFAULT_STATIC_CACHE_CHECK_INTERVAL);
+  }
+
+  /**
+   * Whether compressible static resources are sent compressed, from a
+   * precompressed {@code .br} or {@code .gz} sibling or a cached gzip copy
+   *
+   * @return static compression status
+   */
+  public boolean staticCompression() {
+    return this.environment().getBoolean(PATH_SERVER_STATIC_COMPRESSION, DEFAULT_STATIC_COMPRESSION);
+  }
+
+  /**
+   * Get the size of the largest static resource compressed on demand,
+   * larger resources are only sent compressed from precompressed siblings
+   *
+   * @return largest static resource compressed on demand in bytes
+   */
+  public int staticCompressionMaxFileSize() {
+    return this.environment().getInt(PATH_SERVER_STATIC_COMPRESSION_MAX_FILE_SIZE, DEFAULT_STATIC_COMPRESSION_MAX_FILE_SIZE);
+  }
+
+  /**
+   * Get the response compression algorithms in order of preference
+   *
+   * @return comma separated compression algorithms
+   */
+  public String compressionAlgorithms() {
+    return this.environment().getString(PATH_SERVER_COMPRESSION_ALGORITHMS, DEFAULT_COMPRESSION_ALGORITHMS);
+  }
+
+  /**
+   * Get the response compression level, 0 to 9
+   *
+   * @return compression level
+   */
+  public int compressionLevel() {
+    return this.environment().getInt(PATH_SERVER_COMPRESSION_LEVEL, DEFAULT_COMPRESSION_LEVEL);
+  }
+
+  /**
+   * Get the size of the smallest response body that is compressed
+   *
+   * @return smallest compressed body in bytes
+   */
+  public int compressionMinSize() {
+    return this.environment().getInt(PATH_SERVER_COMPRESSION_MIN_SIZE, DEFAULT_COMPRESSION_MIN_SIZE);
+  }
+
+  /**
+   * Get the compressible content types, empty for the built-in ones
+   *
+   * @return comma separated content types
+   */
+  public String compressionMimeTypes() {
+    return this.environment().getString(PATH_SERVER_COMPRESSION_MIME_TYPES, DEFAULT_COMPRESSION_MIME_TYPES);
+  }
+
+  /**
+   * Get the maximum length of the request line
+   *
+   * @return longest request line in bytes
+   */
+  public int requestMaxInitialLineLength() {
+    return this.environment().getInt(PATH_SERVER_REQUEST_MAX_INITIAL_LINE_LENGTH, DEFAULT_REQUEST_MAX_INITIAL_LINE_LENGTH);
+  }
+
+  /**
+   * Get the maximum size of the request headers
+   *
+   * @return largest request headers in bytes
+   */
+  public int requestMaxHeaderSize() {
+    return this.environment().getInt(PATH_SERVER_REQUEST_MAX_HEADER_SIZE, DEFAULT_REQUEST_MAX_HEADER_SIZE);
+  }
+
+  /**
+   * Get the number of seconds a client may take to send the request line
+   * and headers, zero disables the timeout
+   *
+   * @return request header timeout in seconds
+   */
+  public int requestHeaderTimeout() {
+    return this.environment().getInt(PATH_SERVER_TIMEOUT_REQUEST_HEADER, DEFAULT_TIMEOUT_REQUEST_HEADER);
+  }
+
+  /**
+   * Get the number of seconds a client may take to send the whole request
+   * after its headers, zero disables the timeout
+   *
+   * @return request timeout in seconds
+   */
+  public int requestTimeout() {
+    return this.environment().getInt(PATH_SERVER_TIMEOUT_REQUEST, DEFAULT_TIMEOUT_REQUEST);
+  }
+
+  /**
+   * Get the number of seconds without data while a request is received,
+   * zero disables the timeout
+   *
+   * @return read timeout in seconds
+   */
+  public int readTimeout() {
+    return this.environment().getInt(PATH_SERVER_TIMEOUT_READ, DEFAULT_TIMEOUT_READ);
+  }
+
+  /**
+   * Get the number of seconds pending writes may make no progress before
+   * the connection is closed, zero disables the timeout
+   *
+   * @return write timeout in seconds
+   */
+  public int writeTimeout() {
+    return this.environment().getInt(PATH_SERVER_TIMEOUT_WRITE, DEFAULT_TIMEOUT_WRITE);
+  }
+
+  /**
+   * Get the number of seconds a route may run before its request is answered
+   * with 504, routes override it with {@code @Timeout} and zero disables it
+   *
+   * @return route timeout in seconds
+   */
+  public int routeTimeout() {
+    return this.environment().getInt(PATH_SERVER_TIMEOUT_ROUTE, DEFAULT_TIMEOUT_ROUTE);
+  }
+
+  /**
+   * Get the number of seconds in-flight requests and WebSocket sessions get
+   * to finish when the server stops, zero closes them right away
+   *
+   * @return shutdown timeout in seconds
+   */
+  public int shutdownTimeout() {
+    return this.environment().getInt(PATH_SERVER_SHUTDOWN_TIMEOUT, DEFAULT_SHUTDOWN_TIMEOUT);
+  }
+
+  /**
+   * Whether requests are admitted within a concurrency limit adapted from
+   * their latency
+   *
+   * @return concurrency limit status
+   */
+  public boolean concurrencyLimit() {
+    return this.environment().getBoolean(PATH_SERVER_CONCURRENCY_LIMIT, DEFAULT_CONCURRENCY_LIMIT);
+  }
+
+  /**
+   * Get the concurrency limit before any latency is measured
+   *
+   * @return initial concurrency limit
+   */
+  public int concurrencyLimitInitial() {
+    return this.environment().getInt(PATH_SERVER_CONCURRENCY_LIMIT_INITIAL, DEFAULT_CONCURRENCY_LIMIT_INITIAL);
+  }
+
+  /**
+   * Get the smallest concurrency limit
+   *
+   * @return minimum concurrency limit
+   */
+  public int concurrencyLimitMin() {
+    return this.environment().getInt(PATH_SERVER_CONCURRENCY_LIMIT_MIN, DEFAULT_CONCURRENCY_LIMIT_MIN);
+  }
+
+  /**
+   * Get the largest concurrency limit
+   *
+   * @return maximum concurrency limit
+   */
+  public int concurrencyLimitMax() {
+    return this.environment().getInt(PATH_SERVER_CONCURRENCY_LIMIT_MAX, DEFAULT_CONCURRENCY_LIMIT_MAX);
+  }
+
+  /**
+   * Get the number of seconds sent as {@code Retry-After} with requests
+   * rejected by the concurrency limit
+   *
+   * @return retry after in seconds
+   */
+  public int concurrencyLimitRetryAfter() {
+    return this.environment().getInt(PATH_SERVER_CONCURRENCY_LIMIT_RETRY_AFTER, DEFAULT_CONCURRENCY_LIMIT_RETRY_AFTER);
+  }
+
+  /**
+   * Whether clients are rate limited by {@code server.rate-limit.rules}
+   *
+   * @return rate limit status
+   */
+  public boolean rateLimit() {
+    return this.environment().getBoolean(PATH_SERVER_RATE_LIMIT, DEFAULT_RATE_LIMIT);
+  }
+
+  /**
+   * Get how rate limited clients are told apart, {@code remote-address},
+   * {@code header:<name>} or {@code api-key}. A header is only a safe key
+   * when a trusted proxy sets it, its last value is used.
+   *
+   * @return rate limit key
+   */
+  public String rateLimitKey() {
+    return this.environment().getString(PATH_SERVER_RATE_LIMIT_KEY, DEFAULT_RATE_LIMIT_KEY);
+  }
+
+  /**
+   * Get the rate limit rules, {@code pattern=permits/period} separated by {@code ;}
+   *
+   * @return rate limit rules
+   */
+  public String rateLimitRules() {
+    return this.environment().getString(PATH_SERVER_RATE_LIMIT_RULES, DEFAULT_RATE_LIMIT_RULES);
+  }
+
+  /**
+   * Get the maximum number of clients tracked per rate limit rule
+   *
+   * @return maximum tracked clients
+   */
+  public int rateLimitMaxKeys() {
+    return this.environment().getInt(PATH_SERVER_RATE_LIMIT_MAX_KEYS, DEFAULT_RATE_LIMIT_MAX_KEYS);
+  }
+
   /**
    * Register websocket route
    *
@@ -688,6 +1171,21 @@ public class Aquiver {
     return this;
   }
 
+  /**
+   * Register argument converter, used by the @Param, @PathVar and @Header
+   * arguments of the type. Register before the routes, converters are
+   * resolved when the route is registered
+   *
+   * @param type      converted type
+   * @param converter argument converter
+   * @param <T>       converted type
+   * @return this
+   */
+  public <T> Aquiver converter(Class<T> type, ArgumentConverter<? extends T> converter) {
+    this.argumentConverters.register(type, converter);
+    return this;
+  }
+
   /**
    * Get apex instance
    *
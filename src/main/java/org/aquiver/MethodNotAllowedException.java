@@ -0,0 +1,55 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver;
+
+import org.aquiver.mvc.http.HttpMethod;
+
+import java.util.Set;
+
+/**
+ * This exception is thrown when the request path matches a route,
+ * but no route is registered for the request method
+ *
+ * @author WangYi
+ * @since 2021/2/22
+ */
+public class MethodNotAllowedException extends RuntimeException {
+  private final Set<HttpMethod> allowedMethods;
+
+  /**
+   * Constructor for MethodNotAllowedException.
+   *
+   * @param httpMethod     the HTTP method
+   * @param requestURL     the HTTP request URL
+   * @param allowedMethods the HTTP methods registered for the request URL
+   */
+  public MethodNotAllowedException(String httpMethod, String requestURL, Set<HttpMethod> allowedMethods) {
+    super(String.format("Method %s not allowed for %s", httpMethod, requestURL));
+    this.allowedMethods = allowedMethods;
+  }
+
+  public Set<HttpMethod> getAllowedMethods() {
+    return allowedMethods;
+  }
+}
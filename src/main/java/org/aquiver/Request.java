@@ -25,10 +25,12 @@ package org.aquiver;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.handler.codec.http.multipart.FileUpload;
+import org.aquiver.mvc.http.BodyStream;
 import org.aquiver.mvc.http.Cookie;
 import org.aquiver.mvc.http.Header;
 import org.aquiver.mvc.router.session.Session;
 
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -47,6 +49,8 @@ public interface Request {
 
   <T> T body(Class<T> type);
 
+  BodyStream bodyStream();
+
   Session session();
 
   String method();
@@ -61,6 +65,8 @@ public interface Request {
 
   String param(String key);
 
+  List<String> params(String key);
+
   Set<String> paramNames();
 
   Set<String> headerNames();
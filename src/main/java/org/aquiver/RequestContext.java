@@ -32,13 +32,17 @@ import io.netty.handler.codec.http.FullHttpRequest;
 import io.netty.handler.codec.http.FullHttpResponse;
 import io.netty.handler.codec.http.multipart.FileUpload;
 import org.apache.commons.lang3.Validate;
+import org.aquiver.mvc.http.BodyStream;
 import org.aquiver.mvc.http.Cookie;
 import org.aquiver.mvc.http.Header;
+import org.aquiver.mvc.http.HttpConst;
 import org.aquiver.mvc.http.HttpRequest;
 import org.aquiver.mvc.http.HttpResponse;
 import org.aquiver.mvc.router.RouteInfo;
+import org.aquiver.mvc.router.RouteMatch;
 import org.aquiver.mvc.router.session.Session;
 
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -49,12 +53,14 @@ import static java.util.Objects.requireNonNull;
  * @since 2020/6/27
  */
 public class RequestContext implements Request, Response, RequestChannel{
-  private final static ThreadLocal<RequestContext> threadContext = new InheritableThreadLocal<>();
+  private final static ThreadLocal<RequestContext> threadContext = new ThreadLocal<>();
   private final HttpRequest httpRequest;
   private final HttpResponse response;
   private final ChannelHandlerContext context;
   private Throwable throwable;
   private RouteInfo routeInfo;
+  private RouteMatch routeMatch;
+  private volatile long deadline;
 
   public RequestContext(FullHttpRequest httpRequest, ChannelHandlerContext context) {
     Validate.notNull(httpRequest, "FullHttpRequest can't be null");
@@ -65,15 +71,40 @@ public class RequestContext implements Request, Response, RequestChannel{
     this.response = HttpResponse.of(this.context);
   }
 
+  /**
+   * Get the request context bound to the current thread
+   *
+   * @return current request context, or null outside of a request
+   */
   public static RequestContext current() {
     return threadContext.get();
   }
 
+  /**
+   * Bind the request context to the current thread while the request
+   * is handled on it, a null context clears the binding
+   *
+   * @param requestContext request context
+   */
+  public static void current(RequestContext requestContext) {
+    if (requestContext == null) {
+      threadContext.remove();
+    } else {
+      threadContext.set(requestContext);
+    }
+  }
+
   public void routeInfo(RouteInfo routeInfo) {
     Validate.notNull(routeInfo, "RouteInfo can't be null");
     this.routeInfo = requireNonNull(routeInfo);
   }
 
+  public void routeMatch(RouteMatch routeMatch) {
+    Validate.notNull(routeMatch, "RouteMatch can't be null");
+    this.routeMatch = routeMatch;
+    this.routeInfo(routeMatch.getRouteInfo());
+  }
+
   public void throwable(Throwable throwable) {
     Validate.notNull(throwable, "throwable can't be null");
     this.throwable = requireNonNull(throwable);
@@ -87,6 +118,46 @@ public class RequestContext implements Request, Response, RequestChannel{
     return routeInfo;
   }
 
+  /**
+   * Get the value of a path variable captured by the route lookup
+   *
+   * @param name path variable name
+   * @return path variable value, or null if the route has no such variable
+   */
+  public String pathVariable(String name) {
+    return routeMatch == null ? null : routeMatch.getPathVariable(name);
+  }
+
+  /**
+   * Get the value of a path variable by its position in the route url
+   *
+   * @param index path variable position
+   * @return path variable value, or null if the route has no such variable
+   */
+  public String pathVariable(int index) {
+    return routeMatch == null ? null : routeMatch.getPathVariable(index);
+  }
+
+  /**
+   * Get a path variable as a view of the request path, without copying it
+   *
+   * @param name path variable name
+   * @return path variable value, or null if the route has no such variable
+   */
+  public CharSequence pathVariableView(String name) {
+    return routeMatch == null ? null : routeMatch.getPathVariableView(name);
+  }
+
+  /**
+   * Get a path variable as a view of the request path, without copying it
+   *
+   * @param index path variable position
+   * @return path variable value, or null if the route has no such variable
+   */
+  public CharSequence pathVariableView(int index) {
+    return routeMatch == null ? null : routeMatch.getPathVariableView(index);
+  }
+
   public Request request() {
     return httpRequest;
   }
@@ -99,6 +170,54 @@ public class RequestContext implements Request, Response, RequestChannel{
     return throwable;
   }
 
+  /**
+   * Set the deadline of the request, it is propagated to the route as the
+   * {@code X-Request-Deadline} header so that downstream calls can be budgeted
+   *
+   * @param deadline deadline in epoch milliseconds
+   */
+  public void deadline(long deadline) {
+    this.deadline = deadline;
+    this.httpRequest.replaceHeader(HttpConst.REQUEST_DEADLINE, String.valueOf(deadline));
+  }
+
+  /**
+   * Get the deadline of the request
+   *
+   * @return deadline in epoch milliseconds, or zero if the request has none
+   */
+  public long deadline() {
+    return deadline;
+  }
+
+  /**
+   * Get the time left until the deadline of the request
+   *
+   * @return remaining milliseconds, zero once expired, {@link Long#MAX_VALUE} without a deadline
+   */
+  public long remainingTime() {
+    final long deadline = this.deadline;
+    return deadline == 0 ? Long.MAX_VALUE : Math.max(0, deadline - System.currentTimeMillis());
+  }
+
+  /**
+   * Whether the response head has been written, only consistent on the
+   * channel event loop
+   *
+   * @return true if the response is committed
+   */
+  public boolean isCommitted() {
+    return this.response.isCommitted();
+  }
+
+  /**
+   * Drop every following write of the response, once the request has been
+   * answered on behalf of its route
+   */
+  public void discardResponse() {
+    this.response.discard();
+  }
+
   @Override
   public ChannelHandlerContext nettyContext() {
     return this.context;
@@ -254,6 +373,11 @@ public class RequestContext implements Request, Response, RequestChannel{
     return this.request().body();
   }
 
+  @Override
+  public BodyStream bodyStream() {
+    return this.request().bodyStream();
+  }
+
   @Override
   public <T> T body(Class<T> type) {
     return this.request().body(type);
@@ -294,6 +418,11 @@ public class RequestContext implements Request, Response, RequestChannel{
     return this.request().param(key);
   }
 
+  @Override
+  public List<String> params(String key) {
+    return this.request().params(key);
+  }
+
   @Override
   public Set<String> paramNames() {
     return this.request().paramNames();
@@ -31,10 +31,10 @@ import io.netty.handler.codec.http.FullHttpResponse;
 import io.netty.handler.codec.http.HttpHeaderNames;
 import io.netty.handler.codec.http.HttpHeaders;
 import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpUtil;
 import io.netty.handler.codec.http.HttpVersion;
 import io.netty.handler.codec.http.cookie.Cookie;
 import io.netty.handler.codec.http.cookie.DefaultCookie;
-import io.netty.util.CharsetUtil;
 import org.apache.commons.lang3.Validate;
 import org.aquiver.mvc.http.HttpStatus;
 
@@ -47,14 +47,11 @@ import java.util.Set;
  * @since 2020/8/27
  */
 public class ResponseBuilder {
-  private static final ByteBuf EMPTY_BUF =
-          Unpooled.copiedBuffer("", CharsetUtil.UTF_8);
-
   private final Set<Cookie> cookies = new HashSet<>();
   private final HttpHeaders httpHeaders = new DefaultHttpHeaders();
   private int httpStatus = HttpStatus.OK;
-  private HttpVersion version = HttpVersion.HTTP_1_0;
-  private ByteBuf byteBuf = EMPTY_BUF;
+  private HttpVersion version = HttpVersion.HTTP_1_1;
+  private ByteBuf byteBuf = Unpooled.EMPTY_BUFFER;
 
   public static ResponseBuilder builder() {
     return new ResponseBuilder();
@@ -113,6 +110,9 @@ public class ResponseBuilder {
       httpHeaders.set(HttpHeaderNames.COOKIE, cookies);
     }
     fullHttpResponse.headers().setAll(httpHeaders);
+    if (!HttpUtil.isContentLengthSet(fullHttpResponse)) {
+      HttpUtil.setContentLength(fullHttpResponse, byteBuf.readableBytes());
+    }
     return fullHttpResponse;
   }
 }
@@ -36,6 +36,8 @@ public interface ServerSpec {
   Boolean SERVER_CORS = false;
   Boolean SERVER_CONTENT_COMPRESSOR = false;
   Boolean SERVER_SESSION_ENABLE = true;
+  Boolean SERVER_KEEP_ALIVE = true;
+  Boolean SERVER_HTTP2 = true;
 
   String SERVER_ADDRESS = "localhost";
   String AQUIVER_VERSION = "(v1.0.0 RELEASE)";
@@ -59,6 +61,43 @@ public interface ServerSpec {
   String PATH_SERVER_SESSION_TIMEOUT = "server.session.timeout";
   String PATH_SERVER_SESSION_ENABLE = "server.session.enable";
   String PATH_SERVER_TEMPLATES_FOLDER = "server.template.folder";
+  String PATH_SERVER_KEEP_ALIVE = "server.keep-alive";
+  String PATH_SERVER_KEEP_ALIVE_MAX_REQUESTS = "server.keep-alive.max-requests";
+  String PATH_SERVER_KEEP_ALIVE_IDLE_TIMEOUT = "server.keep-alive.idle-timeout";
+  String PATH_SERVER_HTTP2 = "server.http2";
+  String PATH_SERVER_DISPATCH_MODE = "server.dispatch.mode";
+  String PATH_SERVER_DISPATCH_POOL_SIZE = "server.dispatch.pool-size";
+  String PATH_SERVER_DISPATCH_QUEUE_SIZE = "server.dispatch.queue-size";
+  String PATH_SERVER_ASYNC_PUBLISHER_MAX_ELEMENTS = "server.async.publisher-max-elements";
+  String PATH_SERVER_REQUEST_BODY_MODE = "server.request.body.mode";
+  String PATH_SERVER_REQUEST_BODY_MAX_SIZE = "server.request.body.max-size";
+  String PATH_SERVER_REQUEST_BODY_SPILL_THRESHOLD = "server.request.body.spill-threshold";
+  String PATH_SERVER_STATIC_CACHE_MAX_SIZE = "server.static.cache.max-size";
+  String PATH_SERVER_STATIC_CACHE_MAX_FILE_SIZE = "server.static.cache.max-file-size";
+  String PATH_SERVER_STATIC_CACHE_CHECK_INTERVAL = "server.static.cache.check-interval";
+  String PATH_SERVER_STATIC_COMPRESSION = "server.static.compression";
+  String PATH_SERVER_STATIC_COMPRESSION_MAX_FILE_SIZE = "server.static.compression.max-file-size";
+  String PATH_SERVER_COMPRESSION_ALGORITHMS = "server.compression.algorithms";
+  String PATH_SERVER_COMPRESSION_LEVEL = "server.compression.level";
+  String PATH_SERVER_COMPRESSION_MIN_SIZE = "server.compression.min-size";
+  String PATH_SERVER_COMPRESSION_MIME_TYPES = "server.compression.mime-types";
+  String PATH_SERVER_REQUEST_MAX_INITIAL_LINE_LENGTH = "server.request.max-initial-line-length";
+  String PATH_SERVER_REQUEST_MAX_HEADER_SIZE = "server.request.max-header-size";
+  String PATH_SERVER_TIMEOUT_REQUEST_HEADER = "server.timeout.request-header";
+  String PATH_SERVER_TIMEOUT_REQUEST = "server.timeout.request";
+  String PATH_SERVER_TIMEOUT_READ = "server.timeout.read";
+  String PATH_SERVER_TIMEOUT_WRITE = "server.timeout.write";
+  String PATH_SERVER_TIMEOUT_ROUTE = "server.timeout.route";
+  String PATH_SERVER_SHUTDOWN_TIMEOUT = "server.shutdown.timeout";
+  String PATH_SERVER_CONCURRENCY_LIMIT = "server.concurrency-limit";
+  String PATH_SERVER_CONCURRENCY_LIMIT_INITIAL = "server.concurrency-limit.initial";
+  String PATH_SERVER_CONCURRENCY_LIMIT_MIN = "server.concurrency-limit.min";
+  String PATH_SERVER_CONCURRENCY_LIMIT_MAX = "server.concurrency-limit.max";
+  String PATH_SERVER_CONCURRENCY_LIMIT_RETRY_AFTER = "server.concurrency-limit.retry-after";
+  String PATH_SERVER_RATE_LIMIT = "server.rate-limit";
+  String PATH_SERVER_RATE_LIMIT_KEY = "server.rate-limit.key";
+  String PATH_SERVER_RATE_LIMIT_RULES = "server.rate-limit.rules";
+  String PATH_SERVER_RATE_LIMIT_MAX_KEYS = "server.rate-limit.max-keys";
 
   // netty setting
   String PATH_SERVER_SSL_CERT = "server.ssl.cert-path";
@@ -66,14 +105,116 @@ public interface ServerSpec {
   String PATH_SERVER_SSL_PRIVATE_KEY_PASS = "server.ssl.private-key-pass";
   String PATH_SERVER_NETTY_ACCEPT_THREAD_COUNT = "server.netty.accept-thread-count";
   String PATH_SERVER_NETTY_IO_THREAD_COUNT = "server.netty.io-thread-count";
+  String PATH_SERVER_NETTY_REUSE_PORT = "server.netty.reuse-port";
+  String PATH_SERVER_NETTY_LISTENER_COUNT = "server.netty.listener-count";
+  String PATH_SERVER_NETTY_SO_BACKLOG = "server.netty.so-backlog";
+  String PATH_SERVER_NETTY_TCP_NODELAY = "server.netty.tcp-nodelay";
+  String PATH_SERVER_NETTY_SO_KEEPALIVE = "server.netty.so-keepalive";
+  String PATH_SERVER_NETTY_SO_RCVBUF = "server.netty.so-rcvbuf";
+  String PATH_SERVER_NETTY_SO_SNDBUF = "server.netty.so-sndbuf";
+  String PATH_SERVER_NETTY_WRITE_BUFFER_LOW_WATER_MARK = "server.netty.write-buffer.low-water-mark";
+  String PATH_SERVER_NETTY_WRITE_BUFFER_HIGH_WATER_MARK = "server.netty.write-buffer.high-water-mark";
+  String PATH_SERVER_NETTY_RECV_BUFFER_MIN = "server.netty.recv-buffer.min";
+  String PATH_SERVER_NETTY_RECV_BUFFER_INITIAL = "server.netty.recv-buffer.initial";
+  String PATH_SERVER_NETTY_RECV_BUFFER_MAX = "server.netty.recv-buffer.max";
+  String PATH_SERVER_NETTY_TCP_FASTOPEN = "server.netty.tcp-fastopen";
+  String PATH_SERVER_NETTY_TCP_DEFER_ACCEPT = "server.netty.tcp-defer-accept";
+  String PATH_SERVER_NETTY_EPOLL_MODE = "server.netty.epoll-mode";
 
   // netty default property
   Integer DEFAULT_ACCEPT_THREAD_COUNT = 1;
   Integer DEFAULT_IO_THREAD_COUNT = 0;
+  Boolean DEFAULT_REUSE_PORT = false;
+  // zero means one listener per available processor
+  Integer DEFAULT_LISTENER_COUNT = 0;
+
+  // netty socket options, zero buffer sizes keep the operating system defaults
+  Integer DEFAULT_SO_BACKLOG = 1024;
+  Boolean DEFAULT_TCP_NODELAY = true;
+  Boolean DEFAULT_SO_KEEPALIVE = true;
+  Integer DEFAULT_SO_RCVBUF = 0;
+  Integer DEFAULT_SO_SNDBUF = 0;
+  Integer DEFAULT_WRITE_BUFFER_LOW_WATER_MARK = 32 * 1024;
+  Integer DEFAULT_WRITE_BUFFER_HIGH_WATER_MARK = 64 * 1024;
+  Integer DEFAULT_RECV_BUFFER_MIN = 64;
+  Integer DEFAULT_RECV_BUFFER_INITIAL = 2048;
+  Integer DEFAULT_RECV_BUFFER_MAX = 64 * 1024;
+  Integer DEFAULT_TCP_FASTOPEN = 0;
+  Integer DEFAULT_TCP_DEFER_ACCEPT = 0;
+  String DEFAULT_EPOLL_MODE = "edge-triggered";
+
+  // keep-alive default property, zero means unlimited
+  Integer DEFAULT_KEEP_ALIVE_MAX_REQUESTS = 0;
+  Integer DEFAULT_KEEP_ALIVE_IDLE_TIMEOUT = 60;
+
+  // dispatch default property, one of event-loop, pool or virtual
+  String SERVER_DISPATCH_MODE = "pool";
+  Integer DEFAULT_DISPATCH_POOL_SIZE = 200;
+  Integer DEFAULT_DISPATCH_QUEUE_SIZE = 1024;
+
+  // publisher route results collect at most this many elements
+  Integer DEFAULT_ASYNC_PUBLISHER_MAX_ELEMENTS = 10000;
+
+  // request body default property, mode is aggregate or spill
+  String SERVER_REQUEST_BODY_MODE = "spill";
+  Integer DEFAULT_REQUEST_BODY_MAX_SIZE = 10 * 1024 * 1024;
+  Integer DEFAULT_REQUEST_BODY_SPILL_THRESHOLD = 1024 * 1024;
+
+  // static resource cache default property, the check interval is in seconds
+  Integer DEFAULT_STATIC_CACHE_MAX_SIZE = 32 * 1024 * 1024;
+  Integer DEFAULT_STATIC_CACHE_MAX_FILE_SIZE = 256 * 1024;
+  Integer DEFAULT_STATIC_CACHE_CHECK_INTERVAL = 2;
+  Boolean DEFAULT_STATIC_COMPRESSION = true;
+  Integer DEFAULT_STATIC_COMPRESSION_MAX_FILE_SIZE = 4 * 1024 * 1024;
+
+  // response compression default property, algorithms in order of preference,
+  // empty mime types use the built-in compressible types
+  String DEFAULT_COMPRESSION_ALGORITHMS = "gzip,deflate";
+  Integer DEFAULT_COMPRESSION_LEVEL = 6;
+  Integer DEFAULT_COMPRESSION_MIN_SIZE = 1024;
+  String DEFAULT_COMPRESSION_MIME_TYPES = "";
+
+  // request limits default property, timeouts are in seconds and zero disables them
+  Integer DEFAULT_REQUEST_MAX_INITIAL_LINE_LENGTH = 4096;
+  Integer DEFAULT_REQUEST_MAX_HEADER_SIZE = 8192;
+  Integer DEFAULT_TIMEOUT_REQUEST_HEADER = 10;
+  Integer DEFAULT_TIMEOUT_REQUEST = 60;
+  Integer DEFAULT_TIMEOUT_READ = 30;
+  Integer DEFAULT_TIMEOUT_WRITE = 30;
+  Integer DEFAULT_TIMEOUT_ROUTE = 0;
+
+  // seconds in-flight requests and websocket sessions get to finish on shutdown
+  Integer DEFAULT_SHUTDOWN_TIMEOUT = 30;
+
+  // adaptive concurrency limit default property, retry-after is in seconds
+  Boolean DEFAULT_CONCURRENCY_LIMIT = true;
+  Integer DEFAULT_CONCURRENCY_LIMIT_INITIAL = 100;
+  Integer DEFAULT_CONCURRENCY_LIMIT_MIN = 10;
+  Integer DEFAULT_CONCURRENCY_LIMIT_MAX = 1000;
+  Integer DEFAULT_CONCURRENCY_LIMIT_RETRY_AFTER = 1;
+
+  // rate limit default property, key is remote-address, header:<name> or api-key,
+  // rules are pattern=permits/period separated by ';'
+  Boolean DEFAULT_RATE_LIMIT = false;
+  String DEFAULT_RATE_LIMIT_KEY = "remote-address";
+  String DEFAULT_RATE_LIMIT_RULES = "";
+  Integer DEFAULT_RATE_LIMIT_MAX_KEYS = 100_000;
+
+  // banner default property, turn the banner off to skip rendering its font
+  Boolean DEFAULT_BANNER_ENABLED = true;
+
+  // load components from the build time index instead of scanning the boot package
+  Boolean DEFAULT_COMPONENT_INDEX = true;
+
+  // call routes through the handlers generated at build time instead of reflective binding
+  Boolean DEFAULT_GENERATED_ROUTE_HANDLERS = true;
 
   // app setting
   String PATH_APP_BANNER_TEXT = "app.banner.text";
   String PATH_APP_BANNER_FONT = "app.banner.font";
+  String PATH_APP_BANNER_ENABLED = "app.banner.enabled";
+  String PATH_APP_COMPONENT_INDEX = "app.component-index";
+  String PATH_APP_GENERATED_ROUTE_HANDLERS = "app.generated-route-handlers";
   String PATH_APP_THREAD_NAME = "app.thread.name";
 
   // full property file name
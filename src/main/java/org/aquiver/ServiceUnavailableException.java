@@ -0,0 +1,62 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver;
+
+/**
+ * Thrown when the server can't accept more requests at the moment
+ *
+ * @author WangYi
+ * @since 2021/3/6
+ */
+public class ServiceUnavailableException extends RuntimeException {
+  private final int retryAfter;
+
+  public ServiceUnavailableException(String message) {
+    this(message, 0);
+  }
+
+  public ServiceUnavailableException(String message, Throwable cause) {
+    super(message, cause);
+    this.retryAfter = 0;
+  }
+
+  /**
+   * @param message    detail message
+   * @param retryAfter seconds the client should wait before retrying, zero if unknown
+   */
+  public ServiceUnavailableException(String message, int retryAfter) {
+    super(message);
+    this.retryAfter = retryAfter;
+  }
+
+  /**
+   * Get the number of seconds the client should wait before retrying,
+   * sent as {@code Retry-After}
+   *
+   * @return seconds to wait, zero if unknown
+   */
+  public int getRetryAfter() {
+    return retryAfter;
+  }
+}
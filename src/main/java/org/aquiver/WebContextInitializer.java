@@ -29,12 +29,11 @@ import org.apex.annotation.ConfigBean;
 import org.apex.annotation.PropertyBean;
 import org.apex.annotation.Scheduled;
 import org.apex.annotation.Singleton;
+import org.aquiver.index.ComponentIndex;
 import org.aquiver.mvc.annotation.HandleAdvice;
 import org.aquiver.mvc.annotation.Path;
 import org.aquiver.mvc.annotation.RestPath;
 import org.aquiver.mvc.annotation.RouteAdvice;
-import org.aquiver.mvc.argument.AnnotationArgumentGetterResolver;
-import org.aquiver.mvc.argument.ArgumentGetterResolver;
 import org.aquiver.mvc.handler.RouteAdviceHandlerResolver;
 import org.aquiver.mvc.handler.RouteAdviceHandlerWrapper;
 import org.aquiver.mvc.router.RestfulRouter;
@@ -43,7 +42,9 @@ import org.aquiver.websocket.WebSocketResolver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.lang.reflect.Method;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 
@@ -73,99 +74,111 @@ public class WebContextInitializer {
     apex.typeAnnotation(PropertyBean.class);
     apex.typeAnnotation(Scheduled.class);
 
-    apex.packages().add(scanPath);
+    final List<Class<?>> components = aquiver.componentIndex() ? indexedComponents(aquiver.bootCls(), scanPath) : null;
+    if (Objects.isNull(components)) {
+      log.info("Scanning package {} for components", scanPath);
+      apex.packages().add(scanPath);
+    }
     apex.mainArgs(aquiver.mainArgs());
 
     context.init(apex);
+    if (Objects.nonNull(components)) {
+      for (Class<?> component : components) {
+        context.addBean(component);
+      }
+    }
     context.addBean(ResultHandlerResolver.class);
     context.addBean(ViewHandlerResolver.class);
-    context.addBean(ArgumentGetterResolver.class);
-    context.addBean(AnnotationArgumentGetterResolver.class);
 
-    this.initRestfulRoute();
-    this.initWebSocket();
-    this.initRouteAdvice();
+    this.initComponents();
   }
 
   /**
-   * Filter out the classes marked with Web Socket annotations
-   * from the scan result set and reduce them to the Web Socket
-   * list of the routing manager
+   * Resolve the components of the scanned package from the component index
    *
-   * @param instances Scanned result
+   * @param bootCls  boot class of the application
+   * @param scanPath scanned package
+   * @return component classes, or null if the package has to be scanned
+   * @throws IOException if an index can't be read
    */
-  public void initWebSocket() {
-    for (Object object : instances.values()) {
-      Class<?> cls = object.getClass();
-      Method[] declaredMethods = cls.getDeclaredMethods();
-      if (!ReflectionHelper.isNormal(cls)
-              || !cls.isAnnotationPresent(WebSocket.class)
-              || declaredMethods.length == 0) continue;
-      context.getBean(WebSocketResolver.class).registerWebSocket(cls);
+  private static List<Class<?>> indexedComponents(Class<?> bootCls, String scanPath) throws IOException {
+    final ComponentIndex componentIndex = ComponentIndex.load(bootCls, scanPath);
+    if (Objects.isNull(componentIndex)) {
+      log.info("No component index of the application found");
+      return null;
+    }
+    try {
+      final List<Class<?>> components = componentIndex.classes(bootCls.getClassLoader(), scanPath);
+      log.info("Loaded {} components of package {} from the component index {}",
+              components.size(), scanPath, componentIndex.sources());
+      return components;
+    } catch (ClassNotFoundException | LinkageError e) {
+      log.warn("The component index is stale, an indexed class can't be loaded: {}", e.getMessage());
+      return null;
     }
   }
 
   /**
-   * Filter the Advice class from the scanned result
-   * set and add it to the Advice Manager
-   *
-   * @param instances Scanned result
+   * Register the routes, WebSockets and route advices of the scanned
+   * beans in a single pass, declared methods are only read for advices
    */
-  public void initRouteAdvice() {
-    for (Object object : instances.values()) {
-      Class<?> cls = object.getClass();
-      Method[] declaredMethods = cls.getDeclaredMethods();
-      if (!ReflectionHelper.isNormal(cls)
-              || !cls.isAnnotationPresent(RouteAdvice.class)
-              || declaredMethods.length == 0) {
+  private void initComponents() {
+    final RestfulRouter restfulRouter = context.getBean(RestfulRouter.class);
+    final WebSocketResolver webSocketResolver = context.getBean(WebSocketResolver.class);
+    final RouteAdviceHandlerResolver adviceHandlerResolver = context.getBean(RouteAdviceHandlerResolver.class);
+    for (Object bean : instances.values()) {
+      final Class<?> cls = bean.getClass();
+      if (!ReflectionHelper.isNormal(cls)) {
         continue;
       }
-      for (Method method : declaredMethods) {
-        HandleAdvice handler = method.getDeclaredAnnotation(HandleAdvice.class);
-        if (Objects.isNull(handler)) {
-          continue;
-        }
-        RouteAdviceHandlerWrapper errorHandlerWrapper = new RouteAdviceHandlerWrapper();
-        errorHandlerWrapper.initialize(cls);
-        context.getBean(RouteAdviceHandlerResolver.class)
-                .registerAdviceHandler(handler.value(), errorHandlerWrapper);
+      if (cls.isAnnotationPresent(Path.class) || cls.isAnnotationPresent(RestPath.class)) {
+        this.registerRoute(restfulRouter, cls, bean);
+      }
+      if (cls.isAnnotationPresent(WebSocket.class)) {
+        webSocketResolver.registerWebSocket(cls);
+      }
+      if (cls.isAnnotationPresent(RouteAdvice.class)) {
+        this.registerRouteAdvice(adviceHandlerResolver, cls);
       }
     }
   }
 
   /**
-   * Filter out the routing class from the scanned
-   * result set and add it to the routing manager
+   * Add the handle advice methods of a route advice class to the advice manager
    *
-   * @param instances Scanned result
-   * @param aquiver   aquiver
+   * @param adviceHandlerResolver advice manager
+   * @param cls                   route advice class
    */
-  public void initRestfulRoute() {
-    for (Map.Entry<String, Object> entry : instances.entrySet()) {
-      Class<?> next = entry.getValue().getClass();
-      String url = "/";
-      boolean normal = ReflectionHelper.isNormal(next);
-      if (!normal) {
-        continue;
-      }
-      if (log.isDebugEnabled()) {
-        log.debug("Is this class normal: {}", next.getSimpleName());
-      }
-      if (!next.isAnnotationPresent(Path.class) &&
-              !next.isAnnotationPresent(RestPath.class)) {
+  private void registerRouteAdvice(RouteAdviceHandlerResolver adviceHandlerResolver, Class<?> cls) {
+    for (Method method : cls.getDeclaredMethods()) {
+      HandleAdvice handler = method.getDeclaredAnnotation(HandleAdvice.class);
+      if (Objects.isNull(handler)) {
         continue;
       }
-      if (next.isAnnotationPresent(Path.class) &&
-              next.isAnnotationPresent(RestPath.class)) {
-        throw new IllegalArgumentException("There are duplicate annotations in "
-                + next.getName() + ": @" + Path.class.getSimpleName() + " @" + RestPath.class.getSimpleName());
-      }
-      url = url(next, url);
-      if (!url.startsWith("/")) {
-        url = "/" + url;
-      }
-      context.getBean(RestfulRouter.class).registerRoute(url, entry.getValue());
+      RouteAdviceHandlerWrapper errorHandlerWrapper = new RouteAdviceHandlerWrapper();
+      errorHandlerWrapper.initialize(cls);
+      adviceHandlerResolver.registerAdviceHandler(handler.value(), errorHandlerWrapper);
+    }
+  }
+
+  /**
+   * Add a routing class to the routing manager
+   *
+   * @param restfulRouter routing manager
+   * @param cls           route class
+   * @param bean          route instance
+   */
+  private void registerRoute(RestfulRouter restfulRouter, Class<?> cls, Object bean) {
+    if (cls.isAnnotationPresent(Path.class) &&
+            cls.isAnnotationPresent(RestPath.class)) {
+      throw new IllegalArgumentException("There are duplicate annotations in "
+              + cls.getName() + ": @" + Path.class.getSimpleName() + " @" + RestPath.class.getSimpleName());
+    }
+    String url = url(cls, "/");
+    if (!url.startsWith("/")) {
+      url = "/" + url;
     }
+    restfulRouter.registerRoute(url, bean);
   }
 
   /**
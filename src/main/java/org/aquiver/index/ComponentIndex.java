@@ -0,0 +1,222 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.index;
+
+import org.apex.annotation.ConfigBean;
+import org.apex.annotation.PropertyBean;
+import org.apex.annotation.Scheduled;
+import org.apex.annotation.Singleton;
+import org.aquiver.mvc.annotation.Path;
+import org.aquiver.mvc.annotation.RestPath;
+import org.aquiver.mvc.annotation.RouteAdvice;
+import org.aquiver.websocket.WebSocket;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.annotation.Annotation;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Index of the component classes of an application, generated at build time
+ * by {@link ComponentIndexProcessor}. Every line maps a class name to the
+ * component annotations declared on it, for example
+ * {@code com.example.UserController=RestPath}.
+ * <p>
+ * Only indexes that belong to the application are used: the index next to
+ * the boot class, or one listing classes of the scanned package. An index
+ * shipped in a dependency jar can't turn the package scan off.
+ *
+ * @author WangYi
+ * @since 2021/3/18
+ */
+public final class ComponentIndex {
+  public static final String LOCATION = "META-INF/aquiver/components.idx";
+
+  /**
+   * Indexed annotations by name, mapped to the component name written to the index
+   */
+  static final Map<String, String> ANNOTATIONS = annotations(Path.class, RestPath.class,
+          WebSocket.class, RouteAdvice.class, Singleton.class, ConfigBean.class, PropertyBean.class, Scheduled.class);
+
+  private final Map<String, Set<String>> entries;
+  private final List<URL> sources;
+
+  private ComponentIndex(Map<String, Set<String>> entries, List<URL> sources) {
+    this.entries = entries;
+    this.sources = sources;
+  }
+
+  /**
+   * Load and merge the component indexes of the application, indexes of
+   * other code sources without classes of the package are skipped
+   *
+   * @param bootCls     boot class of the application
+   * @param packageName scanned package
+   * @return component index, or null if the application has none
+   * @throws IOException if an index can't be read
+   */
+  public static ComponentIndex load(Class<?> bootCls, String packageName) throws IOException {
+    final String codeSource = codeSource(bootCls);
+    final String prefix = packageName.isEmpty() ? "" : packageName + ".";
+    final Enumeration<URL> resources = bootCls.getClassLoader().getResources(LOCATION);
+    final Map<String, Set<String>> entries = new LinkedHashMap<>();
+    final List<URL> sources = new ArrayList<>();
+    while (resources.hasMoreElements()) {
+      final URL url = resources.nextElement();
+      final ComponentIndex index;
+      try (InputStream in = url.openStream()) {
+        index = read(in);
+      }
+      if (!isFrom(url, codeSource) && !index.hasClasses(prefix)) {
+        continue;
+      }
+      sources.add(url);
+      for (Map.Entry<String, Set<String>> entry : index.entries.entrySet()) {
+        entries.computeIfAbsent(entry.getKey(), key -> new LinkedHashSet<>()).addAll(entry.getValue());
+      }
+    }
+    return sources.isEmpty() ? null : new ComponentIndex(entries, sources);
+  }
+
+  /**
+   * @return location of the boot class without the {@code jar:} scheme, or null if unknown
+   */
+  private static String codeSource(Class<?> bootCls) {
+    final CodeSource codeSource = bootCls.getProtectionDomain().getCodeSource();
+    if (codeSource == null || codeSource.getLocation() == null) {
+      return null;
+    }
+    return withoutJarScheme(codeSource.getLocation().toExternalForm());
+  }
+
+  private static boolean isFrom(URL url, String codeSource) {
+    if (codeSource == null) {
+      return false;
+    }
+    final String location = withoutJarScheme(url.toExternalForm());
+    return location.startsWith(codeSource)
+            && (codeSource.endsWith("/") || location.startsWith("!/", codeSource.length()));
+  }
+
+  private static String withoutJarScheme(String location) {
+    return location.startsWith("jar:") ? location.substring(4) : location;
+  }
+
+  private boolean hasClasses(String prefix) {
+    for (String className : entries.keySet()) {
+      if (className.startsWith(prefix)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  static ComponentIndex read(InputStream in) throws IOException {
+    final Map<String, Set<String>> entries = new LinkedHashMap<>();
+    final BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+    String line;
+    while ((line = reader.readLine()) != null) {
+      line = line.trim();
+      final int separator = line.indexOf('=');
+      if (line.isEmpty() || line.startsWith("#") || separator <= 0) {
+        continue;
+      }
+      entries.put(line.substring(0, separator).trim(), new TreeSet<>(
+              Arrays.asList(line.substring(separator + 1).trim().split("\\s*,\\s*"))));
+    }
+    return new ComponentIndex(entries, Collections.emptyList());
+  }
+
+  static void write(Map<String, Set<String>> entries, OutputStream out) throws IOException {
+    final Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+    writer.write("# Aquiver component index, generated by " + ComponentIndexProcessor.class.getName() + "\n");
+    for (Map.Entry<String, Set<String>> entry : entries.entrySet()) {
+      writer.write(entry.getKey() + "=" + String.join(",", entry.getValue()) + "\n");
+    }
+    writer.flush();
+  }
+
+  /**
+   * Get the indexed classes and their component annotations
+   *
+   * @return component annotation names by class name
+   */
+  public Map<String, Set<String>> entries() {
+    return Collections.unmodifiableMap(entries);
+  }
+
+  /**
+   * Get the index files this index was loaded from
+   *
+   * @return index urls
+   */
+  public List<URL> sources() {
+    return Collections.unmodifiableList(sources);
+  }
+
+  /**
+   * Load the indexed classes of a package and its sub packages
+   *
+   * @param classLoader class loader of the application
+   * @param packageName package name
+   * @return component classes in index order
+   * @throws ClassNotFoundException if an indexed class no longer exists
+   */
+  public List<Class<?>> classes(ClassLoader classLoader, String packageName) throws ClassNotFoundException {
+    final String prefix = packageName.isEmpty() ? "" : packageName + ".";
+    final List<Class<?>> classes = new ArrayList<>();
+    for (String className : entries.keySet()) {
+      if (className.startsWith(prefix)) {
+        classes.add(Class.forName(className, false, classLoader));
+      }
+    }
+    return classes;
+  }
+
+  @SafeVarargs
+  private static Map<String, String> annotations(Class<? extends Annotation>... annotationTypes) {
+    final Map<String, String> annotations = new LinkedHashMap<>();
+    for (Class<? extends Annotation> annotationType : annotationTypes) {
+      annotations.put(annotationType.getName(), annotationType.getSimpleName());
+    }
+    return Collections.unmodifiableMap(annotations);
+  }
+}
@@ -0,0 +1,131 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.index;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Annotation processor writing the {@link ComponentIndex} of the compiled
+ * classes, so that the application starts without scanning the classpath.
+ * It is registered as a service of this artifact and runs whenever an
+ * application is compiled against it.
+ * <p>
+ * On incremental builds the entries of the previous index are kept for
+ * the classes that still exist and were not compiled again.
+ *
+ * @author WangYi
+ * @since 2021/3/18
+ */
+public class ComponentIndexProcessor extends AbstractProcessor {
+  private final Map<String, Set<String>> entries = new TreeMap<>();
+  private final Set<String> compiled = new HashSet<>();
+
+  @Override
+  public Set<String> getSupportedAnnotationTypes() {
+    return ComponentIndex.ANNOTATIONS.keySet();
+  }
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+    for (Element element : roundEnv.getRootElements()) {
+      if (element instanceof TypeElement) {
+        this.compiled.add(processingEnv.getElementUtils().getBinaryName((TypeElement) element).toString());
+      }
+    }
+    for (TypeElement annotation : annotations) {
+      final String component = ComponentIndex.ANNOTATIONS.get(annotation.getQualifiedName().toString());
+      for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+        if (element.getKind() != ElementKind.CLASS || element.getModifiers().contains(Modifier.ABSTRACT)) {
+          continue;
+        }
+        final String className = processingEnv.getElementUtils().getBinaryName((TypeElement) element).toString();
+        this.entries.computeIfAbsent(className, key -> new TreeSet<>()).add(component);
+      }
+    }
+    if (roundEnv.processingOver() && !entries.isEmpty()) {
+      this.writeIndex();
+    }
+    return false;
+  }
+
+  private void writeIndex() {
+    final ComponentIndex previous = this.readIndex();
+    final Map<String, Set<String>> merged = new TreeMap<>();
+    if (previous != null) {
+      previous.entries().forEach((className, components) -> {
+        final int nested = className.indexOf('$');
+        final String topLevel = nested < 0 ? className : className.substring(0, nested);
+        if (!compiled.contains(topLevel)
+                && processingEnv.getElementUtils().getTypeElement(className.replace('$', '.')) != null) {
+          merged.put(className, components);
+        }
+      });
+    }
+    merged.putAll(entries);
+    try {
+      final FileObject file = processingEnv.getFiler()
+              .createResource(StandardLocation.CLASS_OUTPUT, "", ComponentIndex.LOCATION);
+      try (OutputStream out = file.openOutputStream()) {
+        ComponentIndex.write(merged, out);
+      }
+    } catch (IOException e) {
+      processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+              "Unable to write " + ComponentIndex.LOCATION + ": " + e.getMessage());
+    }
+  }
+
+  private ComponentIndex readIndex() {
+    try {
+      final FileObject file = processingEnv.getFiler()
+              .getResource(StandardLocation.CLASS_OUTPUT, "", ComponentIndex.LOCATION);
+      try (InputStream in = file.openInputStream()) {
+        return ComponentIndex.read(in);
+      }
+    } catch (IOException e) {
+      return null;
+    }
+  }
+}
@@ -23,10 +23,12 @@
  */
 package org.aquiver.mvc.argument;
 
+import org.aquiver.RequestContext;
+
 /**
  * @author WangYi
  * @since 2020/8/26
  */
 public interface AnnotationArgumentGetter {
-  Object get(ArgumentContext context) throws Exception;
+  Object get(ArgumentContext context, RequestContext requestContext) throws Exception;
 }
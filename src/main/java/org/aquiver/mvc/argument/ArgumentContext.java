@@ -23,24 +23,72 @@
  */
 package org.aquiver.mvc.argument;
 
-import org.aquiver.RequestContext;
-
 import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
 import java.lang.reflect.Parameter;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
 
 /**
+ * Binding metadata of a method parameter, resolved once when the
+ * route is registered. The name, default value and required flag
+ * are read from the {@code value}, {@code defaultValue} and
+ * {@code required} attributes of the binding annotation if present,
+ * the converter is resolved from the generic parameter type.
+ *
  * @author WangYi
  * @since 2020/8/27
  */
 public final class ArgumentContext {
   private final Parameter parameter;
   private final Annotation annotation;
-  private final RequestContext context;
+  private final Class<?> type;
+  private final String name;
+  private final String defaultValue;
+  private final boolean required;
+  private final boolean multiValued;
+  private final int pathVariableIndex;
+  private final ArgumentConverter<?> converter;
 
-  public ArgumentContext(Parameter parameter, Annotation annotation, RequestContext requestContext) {
+  public ArgumentContext(Parameter parameter, Annotation annotation,
+                         ArgumentConverters converters, String[] pathVariableNames) {
     this.parameter = parameter;
     this.annotation = annotation;
-    this.context = requestContext;
+    this.type = parameter.getType();
+    this.multiValued = type.isArray() || Collection.class.isAssignableFrom(type) || type == Iterable.class;
+    this.converter = Objects.isNull(converters) ? null : converters.resolve(parameter.getParameterizedType());
+
+    final String value = attribute(annotation, "value", String.class);
+    this.name = Objects.isNull(value) || value.isEmpty() ? parameter.getName() : value;
+
+    final String defaultValue = attribute(annotation, "defaultValue", String.class);
+    this.defaultValue = Objects.isNull(defaultValue) || defaultValue.isEmpty() ? null : defaultValue;
+
+    final Boolean required = attribute(annotation, "required", Boolean.class);
+    this.required = Objects.nonNull(required) && required;
+
+    int pathVariableIndex = -1;
+    for (int i = 0; Objects.nonNull(pathVariableNames) && i < pathVariableNames.length; i++) {
+      if (pathVariableNames[i].equals(this.name)) {
+        pathVariableIndex = i;
+        break;
+      }
+    }
+    this.pathVariableIndex = pathVariableIndex;
+  }
+
+  private static <T> T attribute(Annotation annotation, String name, Class<T> type) {
+    if (Objects.isNull(annotation)) {
+      return null;
+    }
+    try {
+      final Method method = annotation.annotationType().getMethod(name);
+      final Object value = method.invoke(annotation);
+      return type.isInstance(value) ? type.cast(value) : null;
+    } catch (ReflectiveOperationException e) {
+      return null;
+    }
   }
 
   public Parameter getParameter() {
@@ -51,7 +99,87 @@ public final class ArgumentContext {
     return annotation;
   }
 
-  public RequestContext getContext() {
-    return context;
+  public Class<?> getType() {
+    return type;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public String getDefaultValue() {
+    return defaultValue;
+  }
+
+  public boolean isRequired() {
+    return required;
+  }
+
+  /**
+   * @return whether the parameter is an array or a collection of values
+   */
+  public boolean isMultiValued() {
+    return multiValued;
+  }
+
+  /**
+   * @return position of the argument name among the path variables of the
+   * route url, or -1 if the route has no such variable or isn't known
+   */
+  public int getPathVariableIndex() {
+    return pathVariableIndex;
+  }
+
+  public ArgumentConverter<?> getConverter() {
+    return converter;
+  }
+
+  /**
+   * Convert a request value to the parameter type
+   *
+   * @param value request value
+   * @return converted value, or null if the value is null
+   * @throws IllegalArgumentException if the value isn't valid for the parameter type,
+   *                                  or a primitive parameter has no value
+   */
+  public Object convert(CharSequence value) {
+    if (Objects.isNull(value)) {
+      if (type.isPrimitive()) {
+        throw new IllegalArgumentException("No value for primitive argument: " + name);
+      }
+      return null;
+    }
+    if (Objects.isNull(converter)) {
+      throw new IllegalArgumentException("No converter for argument " + name
+              + " of type " + parameter.getParameterizedType().getTypeName());
+    }
+    try {
+      return converter.convert(value);
+    } catch (RuntimeException e) {
+      throw new IllegalArgumentException("Argument " + name + " isn't a valid "
+              + parameter.getParameterizedType().getTypeName() + ": " + value, e);
+    }
+  }
+
+  /**
+   * Convert the values of a repeated request value to the array or
+   * collection parameter type, one element per value
+   *
+   * @param values request values
+   * @return converted value
+   * @throws IllegalArgumentException if a value isn't valid for the element type,
+   *                                  or the parameter isn't multi valued
+   */
+  public Object convert(List<String> values) {
+    if (!(converter instanceof MultiValueArgumentConverter)) {
+      throw new IllegalArgumentException("No multi value converter for argument " + name
+              + " of type " + parameter.getParameterizedType().getTypeName());
+    }
+    try {
+      return ((MultiValueArgumentConverter<?>) converter).convert(values);
+    } catch (RuntimeException e) {
+      throw new IllegalArgumentException("Argument " + name + " isn't a valid "
+              + parameter.getParameterizedType().getTypeName() + ": " + values, e);
+    }
   }
 }
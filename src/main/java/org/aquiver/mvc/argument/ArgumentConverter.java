@@ -0,0 +1,47 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.mvc.argument;
+
+/**
+ * Converts a request value of a {@link org.aquiver.mvc.annotation.bind.Param},
+ * {@link org.aquiver.mvc.annotation.bind.PathVar} or {@link org.aquiver.mvc.annotation.bind.Header}
+ * argument to the declared parameter type. Register custom converters with
+ * {@link org.aquiver.Aquiver#converter(Class, ArgumentConverter)}.
+ *
+ * @param <T> converted type
+ * @author WangYi
+ * @since 2021/3/20
+ */
+@FunctionalInterface
+public interface ArgumentConverter<T> {
+
+  /**
+   * Convert a request value
+   *
+   * @param value request value, never null
+   * @return converted value
+   * @throws IllegalArgumentException if the value isn't valid for the type
+   */
+  T convert(CharSequence value);
+}
@@ -0,0 +1,370 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.mvc.argument;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Validate;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Registry of the argument converters. A converter is resolved once per
+ * route parameter when the route is registered, built in converters parse
+ * the request value straight from the {@link CharSequence}.
+ *
+ * <p>Built in types are {@code String}, {@code CharSequence}, the primitives
+ * and their wrappers, {@code BigDecimal}, {@code BigInteger}, {@code UUID},
+ * enums, the {@code java.time} types with a {@code parse(CharSequence)}
+ * method, and arrays, {@code List}, {@code Collection} and {@code Set} of
+ * any of them. A repeated value gives one element per value, commas
+ * included, a single value is split at commas.
+ *
+ * @author WangYi
+ * @since 2021/3/20
+ */
+public final class ArgumentConverters {
+  private final Map<Class<?>, ArgumentConverter<?>> converters = new ConcurrentHashMap<>();
+  private final Map<Class<?>, Class<?>> primitives = new HashMap<>();
+  private final Set<Class<?>> builtIns;
+  private volatile boolean builtInsReplaced;
+
+  public ArgumentConverters() {
+    this.converters.put(String.class, CharSequence::toString);
+    this.converters.put(CharSequence.class, value -> value);
+    this.builtIn(int.class, Integer.class, ArgumentConverters::parseInt);
+    this.builtIn(long.class, Long.class, ArgumentConverters::parseLong);
+    this.builtIn(short.class, Short.class, ArgumentConverters::parseShort);
+    this.builtIn(byte.class, Byte.class, ArgumentConverters::parseByte);
+    this.builtIn(double.class, Double.class, ArgumentConverters::parseDouble);
+    this.builtIn(float.class, Float.class, ArgumentConverters::parseFloat);
+    this.builtIn(boolean.class, Boolean.class, ArgumentConverters::parseBoolean);
+    this.builtIn(char.class, Character.class, ArgumentConverters::parseChar);
+    this.converters.put(BigDecimal.class, value -> new BigDecimal(value.toString()));
+    this.converters.put(BigInteger.class, value -> new BigInteger(value.toString()));
+    this.converters.put(UUID.class, ArgumentConverters::parseUuid);
+    this.converters.put(LocalDate.class, (ArgumentConverter<LocalDate>) LocalDate::parse);
+    this.converters.put(LocalTime.class, (ArgumentConverter<LocalTime>) LocalTime::parse);
+    this.converters.put(LocalDateTime.class, (ArgumentConverter<LocalDateTime>) LocalDateTime::parse);
+    this.converters.put(OffsetDateTime.class, (ArgumentConverter<OffsetDateTime>) OffsetDateTime::parse);
+    this.converters.put(ZonedDateTime.class, (ArgumentConverter<ZonedDateTime>) ZonedDateTime::parse);
+    this.converters.put(Instant.class, (ArgumentConverter<Instant>) Instant::parse);
+    this.converters.put(Duration.class, (ArgumentConverter<Duration>) Duration::parse);
+    this.builtIns = new HashSet<>(this.converters.keySet());
+  }
+
+  private <T> void builtIn(Class<?> primitive, Class<T> wrapper, ArgumentConverter<T> converter) {
+    this.primitives.put(wrapper, primitive);
+    this.converters.put(primitive, converter);
+    this.converters.put(wrapper, converter);
+  }
+
+  /**
+   * Register a converter, replacing the converter of the type. A converter
+   * of a primitive wrapper converts the primitive too.
+   *
+   * @param type      converted type
+   * @param converter converter
+   * @param <T>       converted type
+   */
+  public <T> void register(Class<T> type, ArgumentConverter<? extends T> converter) {
+    Validate.notNull(type, "type can't be null");
+    Validate.notNull(converter, "converter can't be null");
+    final Class<?> primitive = this.primitives.get(type);
+    if (Objects.nonNull(primitive)) {
+      this.converters.put(primitive, converter);
+    }
+    if (this.builtIns.contains(type)) {
+      this.builtInsReplaced = true;
+    }
+    this.converters.put(type, converter);
+  }
+
+  /**
+   * @return whether a built in converter was replaced by a registered one
+   */
+  public boolean builtInsReplaced() {
+    return builtInsReplaced;
+  }
+
+  /**
+   * Resolve the converter of a parameter type
+   *
+   * @param type generic parameter type
+   * @return converter, or null if the type can't be converted
+   */
+  public ArgumentConverter<?> resolve(Type type) {
+    if (type instanceof Class) {
+      final Class<?> clazz = (Class<?>) type;
+      final ArgumentConverter<?> converter = this.converters.get(clazz);
+      if (Objects.nonNull(converter)) {
+        return converter;
+      }
+      if (clazz.isEnum()) {
+        return this.converters.computeIfAbsent(clazz, ArgumentConverters::enumConverter);
+      }
+      if (clazz.isArray()) {
+        final ArgumentConverter<?> element = resolve(clazz.getComponentType());
+        return Objects.isNull(element) ? null : arrayConverter(clazz.getComponentType(), element);
+      }
+      return collectionConverter(clazz, String.class);
+    }
+    if (type instanceof ParameterizedType) {
+      final ParameterizedType parameterizedType = (ParameterizedType) type;
+      if (parameterizedType.getRawType() instanceof Class) {
+        return collectionConverter((Class<?>) parameterizedType.getRawType(),
+                parameterizedType.getActualTypeArguments()[0]);
+      }
+    }
+    return null;
+  }
+
+  private ArgumentConverter<?> collectionConverter(Class<?> rawType, Type elementType) {
+    final Function<List<Object>, Object> collector;
+    if (rawType == List.class || rawType == Collection.class || rawType == Iterable.class) {
+      collector = elements -> elements;
+    } else if (rawType == Set.class) {
+      collector = LinkedHashSet::new;
+    } else {
+      return null;
+    }
+    final ArgumentConverter<?> element = resolve(elementType);
+    if (Objects.isNull(element)) {
+      return null;
+    }
+    return new ElementsConverter(element, collector);
+  }
+
+  private static ArgumentConverter<?> arrayConverter(Class<?> componentType, ArgumentConverter<?> element) {
+    return new ElementsConverter(element, elements -> {
+      final Object array = Array.newInstance(componentType, elements.size());
+      for (int i = 0; i < elements.size(); i++) {
+        Array.set(array, i, elements.get(i));
+      }
+      return array;
+    });
+  }
+
+  private static List<Object> split(CharSequence value, ArgumentConverter<?> element) {
+    final List<Object> elements = new ArrayList<>();
+    final int length = value.length();
+    int start = 0;
+    for (int i = 0; i <= length; i++) {
+      if (i < length && value.charAt(i) != ',') {
+        continue;
+      }
+      int from = start;
+      int to = i;
+      while (from < to && Character.isWhitespace(value.charAt(from))) {
+        from++;
+      }
+      while (to > from && Character.isWhitespace(value.charAt(to - 1))) {
+        to--;
+      }
+      if (from < to) {
+        elements.add(element.convert(value.subSequence(from, to)));
+      }
+      start = i + 1;
+    }
+    return elements;
+  }
+
+  /**
+   * Converter of the arrays and collections, converting the elements and
+   * collecting them to the parameter type
+   */
+  private static final class ElementsConverter implements MultiValueArgumentConverter<Object> {
+    private final ArgumentConverter<?> element;
+    private final Function<List<Object>, Object> collector;
+
+    private ElementsConverter(ArgumentConverter<?> element, Function<List<Object>, Object> collector) {
+      this.element = element;
+      this.collector = collector;
+    }
+
+    @Override
+    public Object convert(CharSequence value) {
+      return collector.apply(split(value, element));
+    }
+
+    @Override
+    public Object convert(List<? extends CharSequence> values) {
+      final List<Object> elements = new ArrayList<>(values.size());
+      for (CharSequence value : values) {
+        elements.add(element.convert(value));
+      }
+      return collector.apply(elements);
+    }
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static ArgumentConverter<?> enumConverter(Class<?> type) {
+    return enumConverter0((Class) type);
+  }
+
+  private static <E extends Enum<E>> ArgumentConverter<E> enumConverter0(Class<E> type) {
+    final Map<String, E> constants = new HashMap<>();
+    for (E constant : type.getEnumConstants()) {
+      constants.put(constant.name(), constant);
+    }
+    return value -> {
+      final E constant = constants.get(value.toString());
+      if (Objects.nonNull(constant)) {
+        return constant;
+      }
+      for (E candidate : constants.values()) {
+        if (StringUtils.equalsIgnoreCase(candidate.name(), value)) {
+          return candidate;
+        }
+      }
+      throw new IllegalArgumentException("No enum constant " + type.getName() + "." + value);
+    };
+  }
+
+  public static int parseInt(CharSequence value) {
+    return (int) parse(value, Integer.MIN_VALUE, Integer.MAX_VALUE);
+  }
+
+  public static long parseLong(CharSequence value) {
+    return parse(value, Long.MIN_VALUE, Long.MAX_VALUE);
+  }
+
+  public static short parseShort(CharSequence value) {
+    return (short) parse(value, Short.MIN_VALUE, Short.MAX_VALUE);
+  }
+
+  public static byte parseByte(CharSequence value) {
+    return (byte) parse(value, Byte.MIN_VALUE, Byte.MAX_VALUE);
+  }
+
+  public static double parseDouble(CharSequence value) {
+    return Double.parseDouble(value.toString());
+  }
+
+  public static float parseFloat(CharSequence value) {
+    return Float.parseFloat(value.toString());
+  }
+
+  public static boolean parseBoolean(CharSequence value) {
+    if (StringUtils.equalsIgnoreCase(value, "true")) {
+      return true;
+    }
+    if (StringUtils.equalsIgnoreCase(value, "false")) {
+      return false;
+    }
+    throw new IllegalArgumentException("For input string: \"" + value + "\"");
+  }
+
+  public static char parseChar(CharSequence value) {
+    if (value.length() != 1) {
+      throw new IllegalArgumentException("For input string: \"" + value + "\"");
+    }
+    return value.charAt(0);
+  }
+
+  /**
+   * Parse a UUID in the canonical {@code 8-4-4-4-12} hex form
+   *
+   * @param value UUID value
+   * @return UUID
+   */
+  public static UUID parseUuid(CharSequence value) {
+    if (value.length() != 36 || value.charAt(8) != '-' || value.charAt(13) != '-'
+            || value.charAt(18) != '-' || value.charAt(23) != '-') {
+      throw new IllegalArgumentException("Invalid UUID string: " + value);
+    }
+    final long mostSigBits = hex(value, 0, 8) << 32 | hex(value, 9, 13) << 16 | hex(value, 14, 18);
+    final long leastSigBits = hex(value, 19, 23) << 48 | hex(value, 24, 36);
+    return new UUID(mostSigBits, leastSigBits);
+  }
+
+  private static long hex(CharSequence value, int from, int to) {
+    long result = 0;
+    for (int i = from; i < to; i++) {
+      final int digit = Character.digit(value.charAt(i), 16);
+      if (digit < 0) {
+        throw new IllegalArgumentException("Invalid UUID string: " + value);
+      }
+      result = result << 4 | digit;
+    }
+    return result;
+  }
+
+  /**
+   * Parse a decimal integer, accumulating negatively so that the minimum
+   * value doesn't overflow, like {@link Long#parseLong(String)}.
+   */
+  private static long parse(CharSequence value, long min, long max) {
+    final int length = value.length();
+    if (length == 0) {
+      throw new NumberFormatException("For input string: \"\"");
+    }
+    int i = 0;
+    boolean negative = false;
+    final char first = value.charAt(0);
+    if (first == '-' || first == '+') {
+      negative = first == '-';
+      if (++i == length) {
+        throw new NumberFormatException("For input string: \"" + value + "\"");
+      }
+    }
+    final long limit = negative ? min : -max;
+    final long multiplyLimit = limit / 10;
+    long result = 0;
+    for (; i < length; i++) {
+      final int digit = Character.digit(value.charAt(i), 10);
+      if (digit < 0 || result < multiplyLimit) {
+        throw new NumberFormatException("For input string: \"" + value + "\"");
+      }
+      result *= 10;
+      if (result < limit + digit) {
+        throw new NumberFormatException("For input string: \"" + value + "\"");
+      }
+      result -= digit;
+    }
+    return negative ? result : -result;
+  }
+}
@@ -28,6 +28,7 @@ import org.apex.ApexContext;
 import org.aquiver.Request;
 import org.aquiver.RequestContext;
 import org.aquiver.Response;
+import org.aquiver.mvc.http.BodyStream;
 import org.aquiver.mvc.router.multipart.MultipartFile;
 import org.aquiver.mvc.router.session.Session;
 import org.aquiver.websocket.WebSocketContext;
@@ -58,6 +59,7 @@ public final class ArgumentGetterResolver implements GetterResolver<ArgumentGett
     this.registerArgumentGetter(Session.class, SessionArgumentGetter.class);
     this.registerArgumentGetter(Response.class, ResponseArgumentGetter.class);
     this.registerArgumentGetter(Throwable.class, ThrowableArgumentGetter.class);
+    this.registerArgumentGetter(BodyStream.class, BodyStreamArgumentGetter.class);
     this.registerArgumentGetter(MultipartFile.class, MultipartFileArgumentGetter.class);
     this.registerArgumentGetter(RequestContext.class, RequestContextArgumentGetter.class);
     this.registerArgumentGetter(WebSocketContext.class, WebSocketContextArgumentGetter.class);
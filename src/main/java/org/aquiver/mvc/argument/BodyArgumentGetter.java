@@ -32,8 +32,7 @@ import org.aquiver.RequestContext;
 public final class BodyArgumentGetter implements AnnotationArgumentGetter {
 
   @Override
-  public Object get(ArgumentContext context) throws Exception {
-    RequestContext requestContext = context.getContext();
-    return requestContext.body(context.getParameter().getType());
+  public Object get(ArgumentContext context, RequestContext requestContext) throws Exception {
+    return requestContext.body(context.getType());
   }
 }
@@ -26,8 +26,8 @@ package org.aquiver.mvc.argument;
 import org.aquiver.RequestContext;
 import org.aquiver.mvc.http.Cookie;
 
-import java.lang.reflect.Parameter;
 import java.util.Map;
+import java.util.Objects;
 
 /**
  * @author WangYi
@@ -36,10 +36,12 @@ import java.util.Map;
 public final class CookiesArgumentGetter implements AnnotationArgumentGetter {
 
   @Override
-  public Object get(ArgumentContext context) {
-    RequestContext requestContext = context.getContext();
+  public Object get(ArgumentContext context, RequestContext requestContext) {
     Map<String, Cookie> cookies = requestContext.request().cookies();
-    Parameter parameter = context.getParameter();
-    return parameter.getType().cast(cookies.get(parameter.getName()).getValue());
+    Cookie cookie = cookies.get(context.getName());
+    if (Objects.isNull(cookie)) {
+      return null;
+    }
+    return context.getType().cast(cookie.getValue());
   }
 }
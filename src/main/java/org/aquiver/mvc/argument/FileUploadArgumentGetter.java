@@ -28,7 +28,6 @@ import org.aquiver.RequestContext;
 import org.aquiver.mvc.router.multipart.MultipartFile;
 import org.aquiver.mvc.router.multipart.MultipartFileUtils;
 
-import java.lang.reflect.Parameter;
 import java.util.Map;
 
 /**
@@ -37,12 +36,10 @@ import java.util.Map;
  */
 public final class FileUploadArgumentGetter implements AnnotationArgumentGetter {
   @Override
-  public Object get(ArgumentContext context) throws Exception {
-    RequestContext requestContext = context.getContext();
+  public Object get(ArgumentContext context, RequestContext requestContext) throws Exception {
     Map<String, FileUpload> fileUploads = requestContext.request().fileUploads();
-    Parameter parameter = context.getParameter();
-    String name = parameter.getName();
-    if (MultipartFile.class.isAssignableFrom(parameter.getType()) && fileUploads.containsKey(name)) {
+    String name = context.getName();
+    if (MultipartFile.class.isAssignableFrom(context.getType()) && fileUploads.containsKey(name)) {
       io.netty.handler.codec.http.multipart.FileUpload fileUpload = fileUploads.get(name);
       return MultipartFileUtils.createMultipartFile(fileUpload, requestContext.nettyContext());
     }
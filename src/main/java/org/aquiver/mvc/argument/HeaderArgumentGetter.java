@@ -24,10 +24,6 @@
 package org.aquiver.mvc.argument;
 
 import org.aquiver.RequestContext;
-import org.aquiver.mvc.http.Header;
-
-import java.lang.reflect.Parameter;
-import java.util.Objects;
 
 /**
  * @author WangYi
@@ -36,13 +32,7 @@ import java.util.Objects;
 public final class HeaderArgumentGetter implements AnnotationArgumentGetter {
 
   @Override
-  public Object get(ArgumentContext context) {
-    RequestContext requestContext = context.getContext();
-    Parameter parameter = context.getParameter();
-    Header header = requestContext.header(parameter.getName());
-    if(Objects.isNull(header) || Objects.isNull(header.getValue())){
-      return null;
-    }
-    return parameter.getType().cast(header.getValue());
+  public Object get(ArgumentContext context, RequestContext requestContext) {
+    return context.convert(RouteArguments.header(requestContext, context.getName()));
   }
 }
@@ -0,0 +1,131 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.mvc.argument;
+
+import org.apache.commons.lang3.Validate;
+import org.apex.ApexContext;
+import org.aquiver.RequestContext;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.util.Objects;
+
+/**
+ * Argument binding plan of a method. Every parameter is resolved to
+ * its getter and binding metadata once, so binding the arguments of
+ * a request is a plain loop over the bindings. A parameter no getter
+ * can bind is rejected when the plan is resolved.
+ *
+ * @author WangYi
+ * @since 2021/3/4
+ */
+public final class MethodArgumentBinder {
+  private final ArgumentBinding[] bindings;
+
+  private MethodArgumentBinder(ArgumentBinding[] bindings) {
+    this.bindings = bindings;
+  }
+
+  public static MethodArgumentBinder of(Method method) {
+    return of(method, new String[0]);
+  }
+
+  /**
+   * Resolve the binding plan of a route method, path variable arguments
+   * are bound by their position in the route url
+   *
+   * @param method            route method
+   * @param pathVariableNames path variable names of the route url, in order
+   * @return binding plan
+   * @throws IllegalArgumentException if no argument getter binds a parameter
+   */
+  public static MethodArgumentBinder of(Method method, String[] pathVariableNames) {
+    Validate.notNull(method, "method can't be null");
+    final ApexContext context = ApexContext.of();
+    final AnnotationArgumentGetterResolver annotationResolver =
+            resolver(context, AnnotationArgumentGetterResolver.class);
+    final ArgumentGetterResolver argumentGetterResolver =
+            resolver(context, ArgumentGetterResolver.class);
+    final ArgumentConverters converters = resolver(context, ArgumentConverters.class);
+
+    final Parameter[] parameters = method.getParameters();
+    final ArgumentBinding[] bindings = new ArgumentBinding[parameters.length];
+    for (int i = 0; i < parameters.length; i++) {
+      bindings[i] = resolve(method, parameters[i], annotationResolver,
+              argumentGetterResolver, converters, pathVariableNames);
+    }
+    return new MethodArgumentBinder(bindings);
+  }
+
+  private static <T> T resolver(ApexContext context, Class<T> resolverClass) {
+    final T resolver = context.getBean(resolverClass);
+    return Objects.nonNull(resolver) ? resolver : context.addBean(resolverClass);
+  }
+
+  private static ArgumentBinding resolve(Method method, Parameter parameter,
+                                         AnnotationArgumentGetterResolver annotationResolver,
+                                         ArgumentGetterResolver argumentGetterResolver,
+                                         ArgumentConverters converters,
+                                         String[] pathVariableNames) {
+    for (Annotation annotation : parameter.getAnnotations()) {
+      final AnnotationArgumentGetter getter = annotationResolver.lookup(annotation.annotationType());
+      if (Objects.nonNull(getter)) {
+        final ArgumentContext argumentContext = new ArgumentContext(parameter, annotation, converters, pathVariableNames);
+        return requestContext -> getter.get(argumentContext, requestContext);
+      }
+    }
+    final ArgumentGetter<?> getter = argumentGetterResolver.lookup(parameter.getType());
+    if (Objects.nonNull(getter)) {
+      return getter::get;
+    }
+    throw new IllegalArgumentException("No argument getter for parameter '" + parameter.getName()
+            + "' of type " + parameter.getType().getName() + " of method " + method);
+  }
+
+  /**
+   * Bind the arguments of the method from the request
+   *
+   * @param requestContext current request
+   * @return invoke arguments, in parameter order
+   * @throws Exception getter exception
+   */
+  public Object[] bind(RequestContext requestContext) throws Exception {
+    final ArgumentBinding[] bindings = this.bindings;
+    final Object[] arguments = new Object[bindings.length];
+    for (int i = 0; i < bindings.length; i++) {
+      arguments[i] = bindings[i].bind(requestContext);
+    }
+    return arguments;
+  }
+
+  public int size() {
+    return bindings.length;
+  }
+
+  @FunctionalInterface
+  private interface ArgumentBinding {
+    Object bind(RequestContext requestContext) throws Exception;
+  }
+}
@@ -28,7 +28,6 @@ import org.aquiver.RequestContext;
 import org.aquiver.mvc.router.multipart.MultipartFile;
 import org.aquiver.mvc.router.multipart.MultipartFileUtils;
 
-import java.lang.reflect.Parameter;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -40,12 +39,10 @@ import java.util.Map;
 public final class MultiFileUploadArgumentGetter implements AnnotationArgumentGetter {
 
   @Override
-  public Object get(ArgumentContext context) throws Exception {
-    RequestContext requestContext = context.getContext();
+  public Object get(ArgumentContext context, RequestContext requestContext) throws Exception {
     Map<String, FileUpload> fileUploads = requestContext.request().fileUploads();
     List<MultipartFile> multipartFiles = new ArrayList<>();
-    Parameter parameter = context.getParameter();
-    if (List.class.isAssignableFrom(parameter.getType())) {
+    if (List.class.isAssignableFrom(context.getType())) {
       for (Map.Entry<String, FileUpload> entry : fileUploads.entrySet()) {
         FileUpload value = entry.getValue();
         MultipartFile multipartFile = MultipartFileUtils.createMultipartFile(
@@ -23,9 +23,9 @@
  */
 package org.aquiver.mvc.argument;
 
-import org.apache.commons.lang3.StringUtils;
 import org.aquiver.RequestContext;
-import org.aquiver.mvc.annotation.bind.Param;
+
+import java.util.List;
 
 /**
  * @author WangYi
@@ -34,26 +34,14 @@ import org.aquiver.mvc.annotation.bind.Param;
 public final class ParamArgumentGetter implements AnnotationArgumentGetter {
 
   @Override
-  public Object get(ArgumentContext context) {
-    RequestContext requestContext = context.getContext();
-    Param param = (Param) context.getAnnotation();
-    String paramKey = context.getParameter().getName();
-    if (!"".equals(param.value())) {
-      paramKey = param.value();
-    }
-    String requestParam = requestContext.param(paramKey);
-    if (StringUtils.isEmpty(requestParam) || "null".equals(requestParam)) {
-      if (!"".equals(param.defaultValue())) {
-        return context.getParameter().getType().cast(param.defaultValue());
-      } else{
-        if (param.required()) {
-          throw new IllegalArgumentException("This parameter is required: "
-                  + context.getParameter().getName());
-        }
+  public Object get(ArgumentContext context, RequestContext requestContext) {
+    if (context.isMultiValued() && context.getConverter() instanceof MultiValueArgumentConverter) {
+      final List<String> values = requestContext.params(context.getName());
+      if (values.size() > 1) {
+        return context.convert(values);
       }
-    } else {
-      return context.getParameter().getType().cast(requestParam);
     }
-    return null;
+    return context.convert(RouteArguments.param(requestContext, context.getName(),
+            context.getDefaultValue(), context.isRequired()));
   }
 }
@@ -24,7 +24,6 @@
 package org.aquiver.mvc.argument;
 
 import org.aquiver.RequestContext;
-import org.aquiver.mvc.router.PathVarMatcher;
 
 /**
  * @author WangYi
@@ -33,9 +32,9 @@ import org.aquiver.mvc.router.PathVarMatcher;
 public final class PathVarArgumentGetter implements AnnotationArgumentGetter {
 
   @Override
-  public Object get(ArgumentContext context) {
-    RequestContext requestContext = context.getContext();
-    return PathVarMatcher.getPathVariable(requestContext.uri(),
-            requestContext.routeInfo().getUrl(), context.getParameter().getName());
+  public Object get(ArgumentContext context, RequestContext requestContext) {
+    final int index = context.getPathVariableIndex();
+    return context.convert(index < 0 ? requestContext.pathVariableView(context.getName())
+            : requestContext.pathVariableView(index));
   }
 }
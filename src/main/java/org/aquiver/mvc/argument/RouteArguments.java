@@ -0,0 +1,238 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.mvc.argument;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apex.ApexContext;
+import org.aquiver.RequestContext;
+import org.aquiver.mvc.http.Header;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Request argument decoding shared by the annotation argument getters and
+ * the generated route handlers. The primitive variants decode the request
+ * value without boxing, so that a generated handler passes it straight to
+ * the route method.
+ *
+ * @author WangYi
+ * @since 2021/3/19
+ */
+public final class RouteArguments {
+
+  private RouteArguments() {
+  }
+
+  /**
+   * Get a request parameter, an empty or {@code "null"} value is missing
+   *
+   * @param requestContext current request
+   * @param name           parameter name
+   * @param defaultValue   value of a missing parameter, or null
+   * @param required       whether a missing parameter without default value is an error
+   * @return parameter value, or null if missing
+   * @throws IllegalArgumentException if a required parameter is missing
+   */
+  public static String param(RequestContext requestContext, String name, String defaultValue, boolean required) {
+    final String value = requestContext.param(name);
+    if (StringUtils.isEmpty(value) || "null".equals(value)) {
+      if (Objects.nonNull(defaultValue)) {
+        return defaultValue;
+      }
+      if (required) {
+        throw new IllegalArgumentException("This parameter is required: " + name);
+      }
+      return null;
+    }
+    return value;
+  }
+
+  /**
+   * Get an array request parameter. A repeated parameter gives one element
+   * per value, a single value is split at commas.
+   *
+   * @param requestContext current request
+   * @param name           parameter name
+   * @param defaultValue   value of a missing parameter, or null
+   * @param required       whether a missing parameter without default value is an error
+   * @param converter      converter of the array type
+   * @return converted parameter, or null if missing
+   * @throws IllegalArgumentException if a required parameter is missing or a value isn't valid
+   */
+  public static Object params(RequestContext requestContext, String name, String defaultValue,
+                              boolean required, ArgumentConverter<?> converter) {
+    final List<String> values = requestContext.params(name);
+    if (values.size() > 1 && converter instanceof MultiValueArgumentConverter) {
+      try {
+        return ((MultiValueArgumentConverter<?>) converter).convert(values);
+      } catch (RuntimeException e) {
+        throw new IllegalArgumentException("Argument " + name + " isn't valid: " + values, e);
+      }
+    }
+    final String value = param(requestContext, name, defaultValue, required);
+    if (Objects.isNull(value)) {
+      return null;
+    }
+    try {
+      return converter.convert(value);
+    } catch (RuntimeException e) {
+      throw new IllegalArgumentException("Argument " + name + " isn't valid: " + value, e);
+    }
+  }
+
+  /**
+   * Resolve the converter of a parameter type from the registered converters,
+   * called once when a generated route handler is created
+   *
+   * @param type parameter type
+   * @return converter
+   * @throws IllegalArgumentException if the type can't be converted
+   */
+  public static ArgumentConverter<?> converter(Class<?> type) {
+    final ArgumentConverters registered = ApexContext.of().getBean(ArgumentConverters.class);
+    final ArgumentConverters converters = Objects.isNull(registered) ? new ArgumentConverters() : registered;
+    final ArgumentConverter<?> converter = converters.resolve(type);
+    if (Objects.isNull(converter)) {
+      throw new IllegalArgumentException("No converter for type " + type.getTypeName());
+    }
+    return converter;
+  }
+
+  /**
+   * Get a request header
+   *
+   * @param requestContext current request
+   * @param name           header name
+   * @return header value, or null if the request has no such header
+   */
+  public static String header(RequestContext requestContext, String name) {
+    final Header header = requestContext.header(name);
+    if (Objects.isNull(header) || Objects.isNull(header.getValue())) {
+      return null;
+    }
+    return header.getString();
+  }
+
+  public static int toInt(CharSequence value, String name) {
+    present(value, name);
+    try {
+      return ArgumentConverters.parseInt(value);
+    } catch (IllegalArgumentException e) {
+      throw invalid(value, name, int.class);
+    }
+  }
+
+  public static long toLong(CharSequence value, String name) {
+    present(value, name);
+    try {
+      return ArgumentConverters.parseLong(value);
+    } catch (IllegalArgumentException e) {
+      throw invalid(value, name, long.class);
+    }
+  }
+
+  public static short toShort(CharSequence value, String name) {
+    present(value, name);
+    try {
+      return ArgumentConverters.parseShort(value);
+    } catch (IllegalArgumentException e) {
+      throw invalid(value, name, short.class);
+    }
+  }
+
+  public static byte toByte(CharSequence value, String name) {
+    present(value, name);
+    try {
+      return ArgumentConverters.parseByte(value);
+    } catch (IllegalArgumentException e) {
+      throw invalid(value, name, byte.class);
+    }
+  }
+
+  public static double toDouble(CharSequence value, String name) {
+    present(value, name);
+    try {
+      return ArgumentConverters.parseDouble(value);
+    } catch (IllegalArgumentException e) {
+      throw invalid(value, name, double.class);
+    }
+  }
+
+  public static float toFloat(CharSequence value, String name) {
+    present(value, name);
+    try {
+      return ArgumentConverters.parseFloat(value);
+    } catch (IllegalArgumentException e) {
+      throw invalid(value, name, float.class);
+    }
+  }
+
+  public static boolean toBoolean(CharSequence value, String name) {
+    present(value, name);
+    try {
+      return ArgumentConverters.parseBoolean(value);
+    } catch (IllegalArgumentException e) {
+      throw invalid(value, name, boolean.class);
+    }
+  }
+
+  public static Integer toInteger(CharSequence value, String name) {
+    return Objects.isNull(value) ? null : toInt(value, name);
+  }
+
+  public static Long toLongObject(CharSequence value, String name) {
+    return Objects.isNull(value) ? null : toLong(value, name);
+  }
+
+  public static Short toShortObject(CharSequence value, String name) {
+    return Objects.isNull(value) ? null : toShort(value, name);
+  }
+
+  public static Byte toByteObject(CharSequence value, String name) {
+    return Objects.isNull(value) ? null : toByte(value, name);
+  }
+
+  public static Double toDoubleObject(CharSequence value, String name) {
+    return Objects.isNull(value) ? null : toDouble(value, name);
+  }
+
+  public static Float toFloatObject(CharSequence value, String name) {
+    return Objects.isNull(value) ? null : toFloat(value, name);
+  }
+
+  public static Boolean toBooleanObject(CharSequence value, String name) {
+    return Objects.isNull(value) ? null : toBoolean(value, name);
+  }
+
+  private static void present(CharSequence value, String name) {
+    if (Objects.isNull(value)) {
+      throw new IllegalArgumentException("No value for primitive argument: " + name);
+    }
+  }
+
+  private static IllegalArgumentException invalid(CharSequence value, String name, Class<?> type) {
+    return new IllegalArgumentException("Argument " + name + " isn't a valid " + type.getName() + ": " + value);
+  }
+}
@@ -37,10 +37,6 @@ public final class ThrowableArgumentGetter implements TypeArgumentGetter<Throwab
 
   @Override
   public boolean support(Class<?> cls) {
-    try {
-      return cls.newInstance() instanceof Throwable;
-    } catch (InstantiationException | IllegalAccessException e) {
-      return false;
-    }
+    return Throwable.class.isAssignableFrom(cls);
   }
 }
@@ -23,6 +23,8 @@
  */
 package org.aquiver.mvc.handler;
 
+import org.aquiver.RequestContext;
+
 /**
  * @author WangYi
  * @since 2020/8/29
@@ -30,4 +32,16 @@ package org.aquiver.mvc.handler;
 @FunctionalInterface
 public interface RouteAdviceHandler {
   void handle(Throwable throwable) throws Exception;
+
+  /**
+   * Handle the exception of the given request, handlers that bind
+   * arguments from the request should override this method
+   *
+   * @param throwable      request exception
+   * @param requestContext request that raised the exception
+   * @throws Exception handler exception
+   */
+  default void handle(Throwable throwable, RequestContext requestContext) throws Exception {
+    handle(throwable);
+  }
 }
@@ -23,13 +23,21 @@
  */
 package org.aquiver.mvc.handler;
 
+import io.netty.handler.codec.http.HttpHeaderNames;
 import org.apache.commons.lang3.Validate;
 import org.apex.ApexContext;
+import org.aquiver.DeadlineExceededException;
+import org.aquiver.MethodNotAllowedException;
+import org.aquiver.NoRouteFoundException;
 import org.aquiver.RequestContext;
+import org.aquiver.ResponseBuilder;
+import org.aquiver.ServiceUnavailableException;
 import org.aquiver.mvc.http.HttpStatus;
+import org.aquiver.mvc.http.MediaType;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * @author WangYi
@@ -46,15 +54,53 @@ public class RouteAdviceHandlerResolver {
 
   public void handleException(Throwable throwable, RequestContext requestContext) {
     if (exceptionHandlerMap.isEmpty() || !exceptionHandlerMap.containsKey(throwable.getClass())) {
-      requestContext.error(HttpStatus.INTERNAL_SERVER_ERROR, throwable.getLocalizedMessage());
+      this.handleDefault(throwable, requestContext);
     }
     try {
       final RouteAdviceHandler routeAdviceHandler = exceptionHandlerMap.get(throwable.getClass());
       if (null != routeAdviceHandler) {
-        routeAdviceHandler.handle(throwable);
+        routeAdviceHandler.handle(throwable, requestContext);
       }
     } catch (Exception e) {
       handleException(e, requestContext);
     }
   }
+
+  /**
+   * Write the default error response when no advice handler is registered
+   *
+   * @param throwable      request exception
+   * @param requestContext request context
+   */
+  private void handleDefault(Throwable throwable, RequestContext requestContext) {
+    final String errorMsg = String.valueOf(throwable.getLocalizedMessage());
+    if (throwable instanceof MethodNotAllowedException) {
+      final String allow = ((MethodNotAllowedException) throwable).getAllowedMethods()
+              .stream().map(Enum::name).collect(Collectors.joining(", "));
+      requestContext.tryPush(ResponseBuilder.builder()
+              .header(HttpHeaderNames.CONTENT_TYPE, MediaType.TEXT_PLAIN_VALUE)
+              .header(HttpHeaderNames.ALLOW, allow)
+              .status(HttpStatus.METHOD_NOT_ALLOWED)
+              .body(errorMsg)
+              .build());
+    } else if (throwable instanceof NoRouteFoundException) {
+      requestContext.error(HttpStatus.NOT_FOUND, errorMsg);
+    } else if (throwable instanceof ServiceUnavailableException) {
+      final int retryAfter = ((ServiceUnavailableException) throwable).getRetryAfter();
+      if (retryAfter > 0) {
+        requestContext.tryPush(ResponseBuilder.builder()
+                .header(HttpHeaderNames.CONTENT_TYPE, MediaType.TEXT_PLAIN_VALUE)
+                .header(HttpHeaderNames.RETRY_AFTER, String.valueOf(retryAfter))
+                .status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body(errorMsg)
+                .build());
+      } else {
+        requestContext.error(HttpStatus.SERVICE_UNAVAILABLE, errorMsg);
+      }
+    } else if (throwable instanceof DeadlineExceededException) {
+      requestContext.error(HttpStatus.GATEWAY_TIMEOUT, errorMsg);
+    } else {
+      requestContext.error(HttpStatus.INTERNAL_SERVER_ERROR, errorMsg);
+    }
+  }
 }
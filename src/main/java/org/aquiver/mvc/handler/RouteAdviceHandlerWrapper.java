@@ -23,16 +23,15 @@
  */
 package org.aquiver.mvc.handler;
 
-import org.apex.ApexContext;
+import org.aquiver.RequestContext;
 import org.aquiver.mvc.annotation.HandleAdvice;
 import org.aquiver.mvc.annotation.RouteAdvice;
-import org.aquiver.mvc.argument.MethodArgumentGetter;
+import org.aquiver.mvc.argument.MethodArgumentBinder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.lang.invoke.MethodHandles;
 import java.lang.reflect.Method;
-import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
@@ -44,8 +43,8 @@ import java.util.concurrent.ConcurrentHashMap;
 public class RouteAdviceHandlerWrapper implements RouteAdviceHandler {
   private static final Logger log = LoggerFactory.getLogger(RouteAdviceHandlerWrapper.class);
 
-  private final ApexContext context = ApexContext.of();
   private final Map<Class<? extends Throwable>, Method> handlerMethod = new ConcurrentHashMap<>();
+  private final Map<Method, MethodArgumentBinder> argumentBinders = new ConcurrentHashMap<>();
   private final MethodHandles.Lookup lookup = MethodHandles.lookup();
   private Class<?> exceptionHandler;
 
@@ -65,14 +64,19 @@ public class RouteAdviceHandlerWrapper implements RouteAdviceHandler {
       }
       final HandleAdvice handleAdvice = method.getAnnotation(HandleAdvice.class);
       this.handlerMethod.put(handleAdvice.value(), method);
+      this.argumentBinders.put(method, MethodArgumentBinder.of(method));
     }
   }
 
   @Override
   public void handle(Throwable throwable) {
-    final MethodArgumentGetter methodArgumentGetter = context.getBean(MethodArgumentGetter.class);
-    if (Objects.isNull(methodArgumentGetter)) {
-      throw new IllegalArgumentException("methodArgumentGetter can't be null");
+    this.handle(throwable, RequestContext.current());
+  }
+
+  @Override
+  public void handle(Throwable throwable, RequestContext requestContext) {
+    if (Objects.isNull(requestContext)) {
+      throw new IllegalArgumentException("requestContext can't be null");
     }
     final Method method = handlerMethod.get(throwable.getClass());
     if (handlerMethod.isEmpty() || !handlerMethod.containsKey(throwable.getClass())
@@ -80,7 +84,7 @@ public class RouteAdviceHandlerWrapper implements RouteAdviceHandler {
       return;
     }
     try {
-      final List<Object> invokeArguments = methodArgumentGetter.getParams(method.getParameters());
+      final Object[] invokeArguments = argumentBinders.get(method).bind(requestContext);
       this.lookup.unreflect(method).bindTo(exceptionHandler.newInstance())
               .invokeWithArguments(invokeArguments);
     } catch (Throwable e) {
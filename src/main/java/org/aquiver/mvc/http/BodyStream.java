@@ -0,0 +1,197 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.mvc.http;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import org.aquiver.server.netty.ChannelReads;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Request body delivered chunk by chunk while it is being received. Routes
+ * declaring a parameter of this type are invoked as soon as the request
+ * headers arrive and read the body from a business thread, reading stops
+ * when more than {@link #HIGH_WATER_MARK} bytes are buffered and resumes
+ * once the reader catches up.
+ *
+ * @author WangYi
+ * @since 2021/3/6
+ */
+public class BodyStream extends InputStream {
+  public static final int HIGH_WATER_MARK = 256 * 1024;
+  public static final int LOW_WATER_MARK = 64 * 1024;
+
+  private static final ByteBuf END = Unpooled.unreleasableBuffer(Unpooled.buffer(0, 0));
+
+  private final BlockingQueue<ByteBuf> chunks = new LinkedBlockingQueue<>();
+  private final AtomicLong buffered = new AtomicLong();
+  private final Channel channel;
+  private volatile Throwable failure;
+  private volatile boolean closed;
+  private ByteBuf current;
+  private boolean finished;
+
+  public BodyStream(Channel channel) {
+    this.channel = channel;
+  }
+
+  /**
+   * Add a received chunk, called from the channel event loop
+   *
+   * @param chunk body chunk, released by this stream
+   */
+  public void offer(ByteBuf chunk) {
+    if (closed || !chunk.isReadable()) {
+      chunk.release();
+      return;
+    }
+    this.chunks.add(chunk);
+    if (closed) {
+      this.discard();
+      return;
+    }
+    if (buffered.addAndGet(chunk.readableBytes()) > HIGH_WATER_MARK) {
+      ChannelReads.suspend(channel, ChannelReads.BODY_STREAM);
+    }
+  }
+
+  /**
+   * Mark the end of the body, called from the channel event loop
+   */
+  public void complete() {
+    this.chunks.add(END);
+  }
+
+  /**
+   * Abort the body, pending and further reads throw the cause
+   *
+   * @param cause the reason the body could not be received
+   */
+  public void fail(Throwable cause) {
+    this.failure = cause;
+    this.chunks.add(END);
+  }
+
+  @Override
+  public int read() throws IOException {
+    final byte[] single = new byte[1];
+    final int read = this.read(single, 0, 1);
+    return read < 0 ? -1 : single[0] & 0xFF;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    if (len == 0) {
+      return 0;
+    }
+    final ByteBuf chunk = this.nextChunk();
+    if (chunk == null) {
+      return -1;
+    }
+    final int read = Math.min(len, chunk.readableBytes());
+    chunk.readBytes(b, off, read);
+    this.consumed(read);
+    return read;
+  }
+
+  @Override
+  public int available() {
+    return current == null ? 0 : current.readableBytes();
+  }
+
+  /**
+   * Discard the rest of the body, called when the request is complete so
+   * that unread chunks do not keep the connection paused
+   */
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+    this.closed = true;
+    if (current != null) {
+      this.current.release();
+      this.current = null;
+    }
+    this.discard();
+    ChannelReads.resume(channel, ChannelReads.BODY_STREAM);
+  }
+
+  private ByteBuf nextChunk() throws IOException {
+    if (closed) {
+      throw new IOException("Body stream is closed");
+    }
+    if (current != null && current.isReadable()) {
+      return current;
+    }
+    if (current != null) {
+      this.current.release();
+      this.current = null;
+    }
+    if (finished) {
+      return this.endOfBody();
+    }
+    final ByteBuf chunk;
+    try {
+      chunk = chunks.take();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for the request body");
+    }
+    if (chunk == END) {
+      this.finished = true;
+      return this.endOfBody();
+    }
+    this.current = chunk;
+    return chunk;
+  }
+
+  private ByteBuf endOfBody() throws IOException {
+    if (failure != null) {
+      throw new IOException("Request body was not fully received", failure);
+    }
+    return null;
+  }
+
+  private void discard() {
+    ByteBuf chunk;
+    while ((chunk = chunks.poll()) != null) {
+      chunk.release();
+    }
+    this.buffered.set(0);
+  }
+
+  private void consumed(int read) {
+    if (buffered.addAndGet(-read) < LOW_WATER_MARK && ChannelReads.isSuspended(channel, ChannelReads.BODY_STREAM)) {
+      ChannelReads.resume(channel, ChannelReads.BODY_STREAM);
+    }
+  }
+}
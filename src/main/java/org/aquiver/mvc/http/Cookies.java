@@ -36,12 +36,18 @@ import java.util.Map;
  * @since 2020/10/20
  */
 public class Cookies {
-  private static final Map<String, Cookie> cookies = new HashMap<>();
 
+  /**
+   * Parse the cookie header into a map owned by the request
+   *
+   * @param headers netty request headers
+   * @return request cookies
+   */
   protected static Map<String, Cookie> parse(HttpHeaders headers) {
+    final Map<String, Cookie> cookies = new HashMap<>();
     String cookie = headers.get("Cookie");
     if(StringUtils.isNotBlank(cookie)){
-      ServerCookieDecoder.LAX.decode(cookie).forEach(Cookies::parseCookie);
+      ServerCookieDecoder.LAX.decode(cookie).forEach(nettyCookie -> parseCookie(cookies, nettyCookie));
     }
     return cookies;
   }
@@ -49,9 +55,11 @@ public class Cookies {
   /**
    * Parse netty cookie to {@link Cookie}.
    *
+   * @param cookies     request cookies
    * @param nettyCookie netty raw cookie instance
    */
-  private static void parseCookie(io.netty.handler.codec.http.cookie.Cookie nettyCookie) {
+  private static void parseCookie(Map<String, Cookie> cookies,
+                                  io.netty.handler.codec.http.cookie.Cookie nettyCookie) {
     Cookie cookie = new Cookie(nettyCookie.name(), nettyCookie.value());
     cookie.setDomain(nettyCookie.domain());
     cookie.setExpires(LocalDateTime.now());
@@ -59,6 +67,6 @@ public class Cookies {
     cookie.setMaxAge(nettyCookie.maxAge());
     cookie.setPath(nettyCookie.path());
     cookie.setSecure(nettyCookie.isSecure());
-    Cookies.cookies.put(cookie.getName(), cookie);
+    cookies.put(cookie.getName(), cookie);
   }
 }
@@ -33,20 +33,24 @@ import java.util.Map;
  * @since 2020/10/20
  */
 public class Headers {
-  private static final Map<String, Header> headerMap = new HashMap<>();
 
+  /**
+   * Parse the request headers into a map owned by the request,
+   * the cookie header is excluded and parsed by {@link Cookies}
+   *
+   * @param headers netty request headers
+   * @return request headers
+   */
   public static Map<String, Header> parse(HttpHeaders headers) {
-    if (headers.isEmpty()){
-      return Headers.headerMap;
-    }
+    final Map<String, Header> headerMap = new HashMap<>(Math.max(16, headers.size() * 2));
     for (Map.Entry<String, String> header : headers) {
       final String key = header.getKey();
       final String value = header.getValue();
       if (key.equals("Cookie")) {
         continue;
       }
-      Headers.headerMap.put(key, Header.init(key, value));
+      headerMap.put(key, Header.init(key, value));
     }
-    return Headers.headerMap;
+    return headerMap;
   }
 }
@@ -35,4 +35,5 @@ public interface HttpConst {
   String REFERER = HttpHeaderNames.REFERER.toString();
   String CONNECTION = HttpHeaderNames.CONNECTION.toString();
   String HOST = HttpHeaderNames.HOST.toString();
+  String REQUEST_DEADLINE = "X-Request-Deadline";
 }
@@ -23,6 +23,9 @@
  */
 package org.aquiver.mvc.http;
 
+import java.util.HashMap;
+import java.util.Map;
+
 public enum HttpMethod {
   GET,
   HEAD,
@@ -31,5 +34,23 @@ public enum HttpMethod {
   PATCH,
   DELETE,
   OPTIONS,
-  TRACE
+  TRACE;
+
+  private static final Map<String, HttpMethod> METHODS = new HashMap<>();
+
+  static {
+    for (HttpMethod httpMethod : values()) {
+      METHODS.put(httpMethod.name(), httpMethod);
+    }
+  }
+
+  /**
+   * Get the http method of the request method name
+   *
+   * @param name request method name
+   * @return http method, or null if the method is not supported
+   */
+  public static HttpMethod of(String name) {
+    return METHODS.get(name);
+  }
 }
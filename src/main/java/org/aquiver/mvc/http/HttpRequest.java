@@ -24,9 +24,9 @@
 package org.aquiver.mvc.http;
 
 import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONException;
 import com.alibaba.fastjson.JSONObject;
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.http.FullHttpRequest;
 import io.netty.handler.codec.http.HttpUtil;
@@ -38,7 +38,6 @@ import io.netty.handler.codec.http.multipart.FileUpload;
 import io.netty.handler.codec.http.multipart.HttpDataFactory;
 import io.netty.handler.codec.http.multipart.HttpPostRequestDecoder;
 import io.netty.handler.codec.http.multipart.InterfaceHttpData;
-import io.netty.util.CharsetUtil;
 import org.apache.commons.lang3.Validate;
 import org.aquiver.Aquiver;
 import org.aquiver.Request;
@@ -47,49 +46,43 @@ import org.aquiver.mvc.router.session.Session;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 
-import static java.util.Objects.requireNonNull;
-
 /**
- * Request class based on netty-based Full Http Request secondary packaging
+ * Request class based on netty-based Full Http Request secondary packaging.
+ * <p>
+ * Headers, cookies, query string, body parameters, file uploads and the
+ * session are parsed on first access and kept for the rest of the request,
+ * a request that reads none of them costs little more than the netty request.
+ * Like the netty request, an instance is used by one thread at a time and
+ * must not be read after the request was released.
  *
  * @author WangYi
  * @since 2020/6/25
  */
 public class HttpRequest implements Request {
 
-  private static final ByteBuf EMPTY_BUF =
-          Unpooled.copiedBuffer("", CharsetUtil.UTF_8);
-
   private static final HttpDataFactory HTTP_DATA_FACTORY =
           new DefaultHttpDataFactory(true); // Disk if size exceed
 
-  private final Map<String, Object> httpData = new HashMap<>();
-  private final String sessionKey = Aquiver.of().sessionKey();
   private final FullHttpRequest nettyRequest;
   private final ChannelHandlerContext context;
-  private final Map<String, Cookie> cookies;
-  private final Map<String, Header> headers;
-  private final Map<String, FileUpload> fileUploads;
-  private final QueryStringDecoder paramDecoder;
-  private final HttpPostRequestDecoder postDecoder;
-  private ByteBuf body = EMPTY_BUF;
+  private Map<String, Object> httpData;
+  private Map<String, Cookie> cookies;
+  private Map<String, Header> headers;
+  private Map<String, FileUpload> fileUploads;
+  private QueryStringDecoder paramDecoder;
+  private HttpPostRequestDecoder postDecoder;
   private Session session;
 
   private HttpRequest(FullHttpRequest fullHttpRequest, ChannelHandlerContext context) {
     this.nettyRequest = fullHttpRequest;
     this.context = context;
-    this.cookies = Cookies.parse(nettyRequest.headers());
-    this.headers = Headers.parse(nettyRequest.headers());
-    this.fileUploads = new HashMap<>();
-    this.paramDecoder = new QueryStringDecoder(nettyRequest.uri());
-    this.postDecoder = new HttpPostRequestDecoder(HTTP_DATA_FACTORY, nettyRequest);
-    this.init();
   }
 
   public static HttpRequest of(FullHttpRequest fullHttpRequest, ChannelHandlerContext context) {
@@ -99,51 +92,68 @@ public class HttpRequest implements Request {
     return new HttpRequest(fullHttpRequest, context);
   }
 
-  private void init() {
-    final Map<String, List<String>> parameters = this.paramDecoder.parameters();
-    for (Map.Entry<String, List<String>> entry : parameters.entrySet()) {
-      final String key = entry.getKey();
-      final List<String> value = entry.getValue();
-      httpData.put(key, value.size() == 0 ? null : value.get(0));
+  private QueryStringDecoder paramDecoder() {
+    if (Objects.isNull(this.paramDecoder)) {
+      this.paramDecoder = new QueryStringDecoder(nettyRequest.uri());
     }
+    return this.paramDecoder;
+  }
 
-    if (Aquiver.of().sessionEnable()) {
-      this.session = Aquiver.of().sessionManager()
-              .createSession(this, context);
+  /**
+   * The request parameters, the first value of each query string parameter
+   * followed by the fields of a json body and the form body attributes
+   */
+  private Map<String, Object> httpData() {
+    if (Objects.nonNull(this.httpData)) {
+      return this.httpData;
+    }
+    final Map<String, Object> httpData = new HashMap<>();
+    for (Map.Entry<String, List<String>> entry : this.paramDecoder().parameters().entrySet()) {
+      final List<String> value = entry.getValue();
+      httpData.put(entry.getKey(), value.size() == 0 ? null : value.get(0));
     }
-    this.body = nettyRequest.content();
-
-    final Object contentType = header("Content-Type");
-    if (Objects.nonNull(contentType) && Objects.nonNull(body)
-            && String.valueOf(contentType)
-            .equals(MediaType.APPLICATION_JSON_VALUE)) {
-
-      final byte[] reqContent = new byte[body.readableBytes()];
-      this.body.readBytes(reqContent);
-      final String bodyContent = new String(reqContent, StandardCharsets.UTF_8);
 
-      final JSONObject jsonParams = JSONObject.parseObject(bodyContent);
-      for (Object key : jsonParams.keySet()) {
-        jsonParams.put(key.toString(), jsonParams.get(key.toString()));
+    final ByteBuf body = nettyRequest.content();
+    if (body.isReadable()) {
+      if (MediaType.APPLICATION_JSON_VALUE.equalsIgnoreCase(String.valueOf(HttpUtil.getMimeType(nettyRequest)))) {
+        try {
+          final JSONObject jsonParams = JSON.parseObject(
+                  body.toString(body.readerIndex(), body.readableBytes(), StandardCharsets.UTF_8));
+          if (Objects.nonNull(jsonParams)) {
+            httpData.putAll(jsonParams);
+          }
+        } catch (JSONException e) {
+          throw new IllegalArgumentException("resolver request json body exception", e);
+        }
+      } else {
+        this.decodeBody(httpData);
       }
-      this.httpData.putAll(jsonParams);
     }
+    this.httpData = httpData;
+    return httpData;
+  }
 
+  /**
+   * Decode the form or multipart body, the decoder reads the whole
+   * content of the full request when it is created
+   */
+  private void decodeBody(Map<String, Object> httpData) {
+    final Map<String, FileUpload> fileUploads = new HashMap<>();
     try {
-      this.postDecoder.offer(nettyRequest);
-      final List<InterfaceHttpData> bodyHttpDatas = postDecoder.getBodyHttpDatas();
-      for (InterfaceHttpData httpData : bodyHttpDatas) {
-        if (InterfaceHttpData.HttpDataType.FileUpload.equals(httpData.getHttpDataType())) {
-          final FileUpload fileUpload = (FileUpload) httpData;
-          this.fileUploads.put(fileUpload.getName(), fileUpload);
-        } else {
-          final Attribute data = (Attribute) httpData;
-          this.httpData.put(data.getName(), data.getValue());
+      this.postDecoder = new HttpPostRequestDecoder(HTTP_DATA_FACTORY, nettyRequest);
+      for (InterfaceHttpData bodyData : postDecoder.getBodyHttpDatas()) {
+        if (InterfaceHttpData.HttpDataType.FileUpload.equals(bodyData.getHttpDataType())) {
+          final FileUpload fileUpload = (FileUpload) bodyData;
+          fileUploads.put(fileUpload.getName(), fileUpload);
+        } else if (InterfaceHttpData.HttpDataType.Attribute.equals(bodyData.getHttpDataType())) {
+          final Attribute data = (Attribute) bodyData;
+          httpData.put(data.getName(), data.getValue());
         }
       }
-    } catch (IOException e) {
+    } catch (IOException | HttpPostRequestDecoder.ErrorDataDecoderException e) {
       throw new IllegalArgumentException("resolver request exception", e);
     }
+    this.fileUploads = fileUploads;
   }
 
   private InetSocketAddress getInetSocketAddress() {
@@ -156,7 +166,8 @@ public class HttpRequest implements Request {
 
   @Override
   public Map<String, FileUpload> fileUploads() {
-    return this.fileUploads;
+    this.httpData();
+    return Objects.isNull(this.fileUploads) ? Collections.emptyMap() : this.fileUploads;
   }
 
   @Override
@@ -166,16 +177,28 @@ public class HttpRequest implements Request {
 
   @Override
   public Boolean isMultipart() {
-    return this.postDecoder.isMultipart();
+    return HttpPostRequestDecoder.isMultipart(nettyRequest);
   }
 
   @Override
   public ByteBuf body() {
-    return this.body;
+    return this.nettyRequest.content();
+  }
+
+  /**
+   * Get the body of a request whose route reads it while it is received
+   *
+   * @return body stream, or null if the body was aggregated
+   */
+  @Override
+  public BodyStream bodyStream() {
+    return nettyRequest instanceof StreamingHttpRequest
+            ? ((StreamingHttpRequest) nettyRequest).bodyStream() : null;
   }
 
   @Override
   public <T> T body(Class<T> type) {
+    final Map<String, Object> httpData = this.httpData();
     String jsonString = JSON.toJSONString(httpData);
     if (httpData.isEmpty() || !JSONObject.isValid(jsonString)) {
       return null;
@@ -185,6 +208,9 @@ public class HttpRequest implements Request {
 
   @Override
   public Session session() {
+    if (Objects.isNull(this.session) && Aquiver.of().sessionEnable()) {
+      this.session = Aquiver.of().sessionManager().createSession(this, context);
+    }
     return this.session;
   }
 
@@ -215,12 +241,23 @@ public class HttpRequest implements Request {
 
   @Override
   public String param(String key) {
-    return String.valueOf(httpData.get(key));
+    final Object value = this.httpData().get(key);
+    return Objects.isNull(value) ? null : String.valueOf(value);
+  }
+
+  @Override
+  public List<String> params(String key) {
+    final List<String> values = this.paramDecoder().parameters().get(key);
+    if (Objects.nonNull(values) && values.size() > 1) {
+      return values;
+    }
+    final String value = param(key);
+    return Objects.isNull(value) ? Collections.emptyList() : Collections.singletonList(value);
   }
 
   @Override
   public Set<String> paramNames() {
-    return this.paramDecoder.parameters().keySet();
+    return this.paramDecoder().parameters().keySet();
   }
 
   @Override
@@ -235,17 +272,17 @@ public class HttpRequest implements Request {
 
   @Override
   public String path() {
-    return this.paramDecoder.path();
+    return this.paramDecoder().path();
   }
 
   @Override
   public String rawPath() {
-    return this.paramDecoder.rawPath();
+    return this.paramDecoder().rawPath();
   }
 
   @Override
   public String rawQuery() {
-    return this.paramDecoder.rawQuery();
+    return this.paramDecoder().rawQuery();
   }
 
   @Override
@@ -287,7 +324,27 @@ public class HttpRequest implements Request {
 
   @Override
   public Map<String, Header> header() {
-    return requireNonNull(this.headers);
+    if (Objects.isNull(this.headers)) {
+      this.headers = Headers.parse(nettyRequest.headers());
+    }
+    return this.headers;
+  }
+
+  /**
+   * Replace a request header with a value computed by the server, so that
+   * the route reads it like any header sent by the client
+   *
+   * @param key   header name
+   * @param value header value
+   */
+  public void replaceHeader(String key, String value) {
+    Validate.notNull(key, "Header key can't be null");
+    Validate.notNull(value, "Header value can't be null");
+    if (Objects.nonNull(this.headers)) {
+      this.headers.keySet().removeIf(key::equalsIgnoreCase);
+      this.headers.put(key, Header.init(key, value));
+    }
+    this.nettyRequest.headers().set(key, value);
   }
 
   @Override
@@ -302,6 +359,9 @@ public class HttpRequest implements Request {
 
   @Override
   public Map<String, Cookie> cookies() {
+    if (Objects.isNull(this.cookies)) {
+      this.cookies = Cookies.parse(nettyRequest.headers());
+    }
     return this.cookies;
   }
 
@@ -312,7 +372,7 @@ public class HttpRequest implements Request {
 
   @Override
   public String sessionKey() {
-    return this.sessionKey;
+    return Aquiver.of().sessionKey();
   }
 
   @Override
@@ -321,7 +381,6 @@ public class HttpRequest implements Request {
             "httpData=" + httpData +
             ", nettyRequest=" + nettyRequest +
             ", context=" + context +
-            ", sessionKey='" + sessionKey + '\'' +
             ", cookies=" + cookies +
             ", header=" + headers +
             ", queryStringDecoder=" + paramDecoder +
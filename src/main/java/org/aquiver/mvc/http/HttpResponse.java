@@ -27,12 +27,13 @@ import com.alibaba.fastjson.JSONObject;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelFuture;
-import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelPromise;
 import io.netty.handler.codec.http.FullHttpResponse;
 import io.netty.handler.codec.http.HttpResponseStatus;
 import io.netty.handler.codec.http.cookie.DefaultCookie;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.EventExecutor;
 import org.apache.commons.lang3.Validate;
 import org.aquiver.Response;
 import org.aquiver.ResponseBuilder;
@@ -41,6 +42,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
 
 import static io.netty.handler.codec.http.HttpHeaderNames.CONTENT_TYPE;
 import static io.netty.handler.codec.http.HttpHeaderNames.LOCATION;
@@ -62,6 +64,12 @@ public class HttpResponse implements Response {
   private final Set<io.netty.handler.codec.http.cookie.Cookie> cookies = new HashSet<>();
   private final ChannelHandlerContext context;
 
+  /**
+   * Write state, only accessed from the channel event loop
+   */
+  private boolean committed;
+  private boolean discarded;
+
   private HttpResponse(ChannelHandlerContext context) {
     Validate.notNull(context, "ChannelHandlerContext can't be null");
     this.context = context;
@@ -100,27 +108,81 @@ public class HttpResponse implements Response {
 
   @Override
   public void tryPush(FullHttpResponse response) {
-    this.context.writeAndFlush(response.retain()).addListener(ChannelFutureListener.CLOSE);
+    this.write(response, context.newPromise(), true);
   }
 
   @Override
   public ChannelFuture tryPush(Object msg) {
-    return this.context.writeAndFlush(msg);
+    return this.write(msg, context.newPromise(), true);
   }
 
   @Override
   public ChannelFuture tryWrite(Object msg) {
-    return this.context.write(msg);
+    return this.write(msg, context.newPromise(), false);
   }
 
   @Override
   public ChannelFuture tryWrite(Object msg, ChannelPromise promise) {
-    return this.context.write(msg, promise);
+    return this.write(msg, promise, false);
   }
 
   @Override
   public ChannelFuture tryPush(Object msg, ChannelPromise promise) {
-    return this.context.writeAndFlush(msg, promise);
+    return this.write(msg, promise, true);
+  }
+
+  /**
+   * Whether the response head has been written, only consistent on the
+   * channel event loop
+   *
+   * @return true if the response is committed
+   */
+  public boolean isCommitted() {
+    return committed;
+  }
+
+  /**
+   * Drop every following write of this response, must be called on the
+   * channel event loop. Writes of other threads are handed to the event loop
+   * first, so a write that is still on its way is dropped as well
+   */
+  public void discard() {
+    this.discarded = true;
+  }
+
+  private ChannelFuture write(Object msg, ChannelPromise promise, boolean flush) {
+    final EventExecutor executor = context.executor();
+    if (executor.inEventLoop()) {
+      this.write0(msg, promise, flush);
+      return promise;
+    }
+    try {
+      executor.execute(() -> this.write0(msg, promise, flush));
+    } catch (RejectedExecutionException e) {
+      ReferenceCountUtil.release(msg);
+      if (!promise.isVoid()) {
+        promise.tryFailure(e);
+      }
+    }
+    return promise;
+  }
+
+  private void write0(Object msg, ChannelPromise promise, boolean flush) {
+    if (discarded) {
+      ReferenceCountUtil.release(msg);
+      if (!promise.isVoid()) {
+        promise.tryFailure(new IllegalStateException("Response is discarded"));
+      }
+      return;
+    }
+    if (msg instanceof io.netty.handler.codec.http.HttpResponse) {
+      this.committed = true;
+    }
+    if (flush) {
+      this.context.writeAndFlush(msg, promise);
+    } else {
+      this.context.write(msg, promise);
+    }
   }
 
   @Override
@@ -0,0 +1,161 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.mvc.http;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Content types of static resources by file extension
+ *
+ * @author WangYi
+ * @since 2021/3/7
+ */
+public final class MimeTypes {
+  private static final String UTF_8 = "; charset=UTF-8";
+  private static final Map<String, String> TYPES = new HashMap<>(128);
+
+  static {
+    // text
+    text("html", "text/html");
+    text("htm", "text/html");
+    text("css", "text/css");
+    text("csv", "text/csv");
+    text("txt", "text/plain");
+    text("text", "text/plain");
+    text("log", "text/plain");
+    text("md", "text/markdown");
+    text("xml", "text/xml");
+    text("ics", "text/calendar");
+    text("vtt", "text/vtt");
+    text("js", "application/javascript");
+    text("mjs", "application/javascript");
+    text("json", "application/json");
+    text("map", "application/json");
+    text("webmanifest", "application/manifest+json");
+    text("xhtml", "application/xhtml+xml");
+    text("rss", "application/rss+xml");
+    text("atom", "application/atom+xml");
+    text("svg", "image/svg+xml");
+    // images
+    TYPES.put("png", "image/png");
+    TYPES.put("jpg", "image/jpeg");
+    TYPES.put("jpeg", "image/jpeg");
+    TYPES.put("gif", "image/gif");
+    TYPES.put("webp", "image/webp");
+    TYPES.put("avif", "image/avif");
+    TYPES.put("bmp", "image/bmp");
+    TYPES.put("ico", "image/x-icon");
+    TYPES.put("tif", "image/tiff");
+    TYPES.put("tiff", "image/tiff");
+    // fonts
+    TYPES.put("woff", "font/woff");
+    TYPES.put("woff2", "font/woff2");
+    TYPES.put("ttf", "font/ttf");
+    TYPES.put("otf", "font/otf");
+    TYPES.put("eot", "application/vnd.ms-fontobject");
+    // audio and video
+    TYPES.put("mp3", "audio/mpeg");
+    TYPES.put("ogg", "audio/ogg");
+    TYPES.put("oga", "audio/ogg");
+    TYPES.put("wav", "audio/wav");
+    TYPES.put("weba", "audio/webm");
+    TYPES.put("aac", "audio/aac");
+    TYPES.put("flac", "audio/flac");
+    TYPES.put("mp4", "video/mp4");
+    TYPES.put("m4v", "video/mp4");
+    TYPES.put("webm", "video/webm");
+    TYPES.put("ogv", "video/ogg");
+    TYPES.put("mov", "video/quicktime");
+    TYPES.put("avi", "video/x-msvideo");
+    TYPES.put("m3u8", "application/vnd.apple.mpegurl");
+    TYPES.put("ts", "video/mp2t");
+    // archives and documents
+    TYPES.put("pdf", "application/pdf");
+    TYPES.put("zip", "application/zip");
+    TYPES.put("gz", "application/gzip");
+    TYPES.put("tar", "application/x-tar");
+    TYPES.put("7z", "application/x-7z-compressed");
+    TYPES.put("jar", "application/java-archive");
+    TYPES.put("wasm", "application/wasm");
+    TYPES.put("doc", "application/msword");
+    TYPES.put("docx", "application/vnd.openxmlformats-officedocument.wordprocessingml.document");
+    TYPES.put("xls", "application/vnd.ms-excel");
+    TYPES.put("xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+    TYPES.put("ppt", "application/vnd.ms-powerpoint");
+    TYPES.put("pptx", "application/vnd.openxmlformats-officedocument.presentationml.presentation");
+  }
+
+  private MimeTypes() {
+  }
+
+  private static void text(String extension, String type) {
+    TYPES.put(extension, type + UTF_8);
+  }
+
+  /**
+   * Get the content type of a file
+   *
+   * @param fileName file name or path
+   * @return content type, {@link MediaType#APPLICATION_OCTET_STREAM_VALUE} if the extension is unknown
+   */
+  public static String of(String fileName) {
+    final int dot = fileName.lastIndexOf('.');
+    if (dot < 0 || dot < fileName.lastIndexOf('/')) {
+      return MediaType.APPLICATION_OCTET_STREAM_VALUE;
+    }
+    final String type = TYPES.get(fileName.substring(dot + 1).toLowerCase(Locale.ROOT));
+    return type == null ? MediaType.APPLICATION_OCTET_STREAM_VALUE : type;
+  }
+
+  /**
+   * Whether content of a type gets smaller when compressed, images, media
+   * and archives are compressed already
+   *
+   * @param contentType content type
+   * @return true for text based types
+   */
+  public static boolean isCompressible(String contentType) {
+    if (contentType == null) {
+      return false;
+    }
+    final String type = contentType.toLowerCase(Locale.ROOT);
+    return type.startsWith("text/") || type.contains("javascript") || type.contains("json")
+            || type.contains("xml") || type.startsWith("application/wasm")
+            || type.startsWith("application/vnd.ms-fontobject") || type.startsWith("font/ttf")
+            || type.startsWith("font/otf");
+  }
+
+  /**
+   * Register or replace the content type of an extension, registrations
+   * must happen before the server starts
+   *
+   * @param extension   file extension without the dot
+   * @param contentType content type
+   */
+  public static void register(String extension, String contentType) {
+    TYPES.put(extension.toLowerCase(Locale.ROOT), contentType);
+  }
+}
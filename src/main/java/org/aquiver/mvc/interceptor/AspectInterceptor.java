@@ -38,6 +38,6 @@ public abstract class AspectInterceptor implements Interceptor {
   public void intercept(RequestContext ctx, InterceptorChain chain) throws Throwable {
     before(ctx);
     chain.invoke();
-    after(ctx);
+    chain.onComplete(() -> after(ctx));
   }
 }
@@ -23,38 +23,77 @@
  */
 package org.aquiver.mvc.interceptor;
 
-import org.apex.ApexContext;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.ScheduledFuture;
+import org.aquiver.DeadlineExceededException;
 import org.aquiver.RequestContext;
+import org.aquiver.ServiceUnavailableException;
 import org.aquiver.mvc.RequestResult;
-import org.aquiver.mvc.argument.MethodArgumentGetter;
+import org.aquiver.mvc.result.AsyncResults;
 import org.aquiver.mvc.router.RouteInfo;
 
-import java.lang.invoke.MethodHandles;
 import java.lang.reflect.Method;
-import java.lang.reflect.Parameter;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 /**
+ * Run the interceptors and the route of a request. If the request has a
+ * deadline, from the route timeout or the {@code X-Request-Deadline} header
+ * of the client, the chain answers it through the timeout handler once the
+ * deadline expires before the response is committed: the route future is
+ * cancelled, the thread running the route is interrupted, and whatever the
+ * route writes or returns afterwards is discarded.
+ *
  * @author WangYi
  * @since 2020/9/1
  */
 public class AspectInterceptorChain implements InterceptorChain {
+  private static final int RUNNING = 0;
+  private static final int COMPLETED = 1;
+  private static final int EXPIRED = 2;
+
   private final List<Interceptor> interceptors;
   private final RequestContext ctx;
-  private final ApexContext apexContext = ApexContext.of();
-  private final MethodHandles.Lookup lookup = MethodHandles.lookup();
-  private final MethodArgumentGetter methodArgumentGetter = apexContext.getBean(MethodArgumentGetter.class);
+  private final long timeout;
+  private final Consumer<Throwable> timeoutHandler;
+  private final AtomicInteger state = new AtomicInteger(RUNNING);
   private int currentIndex = 0;
+  private boolean started;
   private RequestResult result;
+  private CompletionStage<Object> completion;
+  private CompletionStage<Object> future;
+  private ScheduledFuture<?> expiry;
+  private Thread thread;
 
   public AspectInterceptorChain(List<Interceptor> interceptors, RequestContext ctx) {
+    this(interceptors, ctx, 0, null);
+  }
+
+  /**
+   * @param interceptors   request interceptors
+   * @param ctx            current request
+   * @param timeout        route timeout in milliseconds for routes without {@code @Timeout}, zero for none
+   * @param timeoutHandler writes the response of a request whose deadline expired, on the event loop
+   */
+  public AspectInterceptorChain(List<Interceptor> interceptors, RequestContext ctx,
+                                long timeout, Consumer<Throwable> timeoutHandler) {
     this.interceptors = interceptors;
     this.ctx = ctx;
+    this.timeout = timeout;
+    this.timeoutHandler = timeoutHandler;
   }
 
   @Override
   public void invoke() throws Throwable {
-    if (currentIndex < interceptors.size()) {
+    if (!started) {
+      this.started = true;
+      this.invokeWithDeadline();
+    } else if (currentIndex < interceptors.size()) {
       Interceptor interceptor = interceptors.get(currentIndex++);
       interceptor.intercept(ctx, this);
     } else {
@@ -62,23 +101,177 @@ public class AspectInterceptorChain implements InterceptorChain {
     }
   }
 
+  @Override
+  public void onComplete(Runnable callback) {
+    if (Objects.isNull(completion)) {
+      callback.run();
+      return;
+    }
+    this.completion = completion.thenApply(value -> {
+      final RequestContext previous = RequestContext.current();
+      RequestContext.current(ctx);
+      try {
+        callback.run();
+      } finally {
+        RequestContext.current(previous);
+      }
+      return value;
+    });
+  }
+
+  /**
+   * Result of a synchronous route
+   *
+   * @return route result, or null once the deadline of the request expired
+   */
   public RequestResult result() {
-    return result;
+    return state.get() == EXPIRED ? null : result;
+  }
+
+  /**
+   * Result of an asynchronous route, completed after the interceptors
+   * have run their completion callbacks
+   *
+   * @return completion of the route result, or null if the route is synchronous
+   */
+  public CompletionStage<RequestResult> completion() {
+    if (Objects.isNull(completion)) {
+      return null;
+    }
+    final Method method = result.getMethod();
+    return completion.handle((value, throwable) -> {
+      if (!this.complete()) {
+        throw new CompletionException(this.deadlineExceeded(throwable));
+      }
+      if (Objects.nonNull(throwable)) {
+        throw throwable instanceof CompletionException
+                ? (CompletionException) throwable : new CompletionException(throwable);
+      }
+      return new RequestResult(Objects.isNull(value) ? Void.TYPE : value.getClass(), value, method);
+    });
+  }
+
+  /**
+   * Run the chain within the deadline of the request
+   */
+  private void invokeWithDeadline() throws Throwable {
+    final long deadline = this.deadline();
+    if (deadline == 0) {
+      this.invoke();
+      return;
+    }
+    final long remaining = deadline - System.currentTimeMillis();
+    if (remaining <= 0) {
+      throw new ServiceUnavailableException("Deadline of " + ctx.method() + " " + ctx.uri()
+              + " expired before the route was invoked");
+    }
+    this.ctx.deadline(deadline);
+
+    final EventExecutor executor = ctx.nettyContext().executor();
+    final boolean inEventLoop = executor.inEventLoop();
+    if (!inEventLoop) {
+      synchronized (this) {
+        this.thread = Thread.currentThread();
+      }
+    }
+    this.expiry = executor.schedule(this::expire, remaining, TimeUnit.MILLISECONDS);
+    try {
+      this.invoke();
+    } catch (Throwable throwable) {
+      if (!this.complete()) {
+        throw this.deadlineExceeded(throwable);
+      }
+      throw throwable;
+    } finally {
+      synchronized (this) {
+        this.thread = null;
+      }
+      if (state.get() == EXPIRED) {
+        Thread.interrupted();
+      }
+    }
+
+    if (Objects.isNull(completion)) {
+      if (inEventLoop && System.currentTimeMillis() >= deadline) {
+        // the event loop was blocked by the route, the expiry couldn't run in time
+        this.expire();
+      }
+      this.complete();
+    }
+  }
+
+  /**
+   * The earlier of the deadline sent by the client and the deadline of the route timeout
+   *
+   * @return deadline in epoch milliseconds, or zero if the request has none
+   */
+  private long deadline() {
+    final RouteInfo routeInfo = ctx.routeInfo();
+    final long routeTimeout = Objects.isNull(routeInfo) || routeInfo.getTimeout() < 0
+            ? timeout : routeInfo.getTimeout();
+    final long requested = ctx.deadline();
+    if (routeTimeout <= 0) {
+      return requested;
+    }
+    final long deadline = System.currentTimeMillis() + routeTimeout;
+    return requested > 0 ? Math.min(requested, deadline) : deadline;
+  }
+
+  /**
+   * Answer the request with the timeout response unless the route has
+   * already committed its own, then cancel the route and discard what it
+   * writes afterwards. Runs on the channel event loop
+   */
+  private void expire() {
+    if (ctx.isCommitted() || !state.compareAndSet(RUNNING, EXPIRED)) {
+      return;
+    }
+    final DeadlineExceededException exception = new DeadlineExceededException("Deadline of "
+            + ctx.method() + " " + ctx.uri() + " expired before the route completed");
+    if (Objects.nonNull(timeoutHandler)) {
+      this.timeoutHandler.accept(exception);
+    }
+    this.ctx.discardResponse();
+    synchronized (this) {
+      if (Objects.nonNull(thread)) {
+        this.thread.interrupt();
+      }
+    }
+    if (Objects.nonNull(future)) {
+      try {
+        this.future.toCompletableFuture().cancel(true);
+      } catch (UnsupportedOperationException e) {
+        // the stage can't be cancelled, its result is discarded on completion
+      }
+    }
+  }
+
+  /**
+   * Complete the route within its deadline
+   *
+   * @return false if the deadline expired first
+   */
+  private boolean complete() {
+    if (state.compareAndSet(RUNNING, COMPLETED)) {
+      if (Objects.nonNull(expiry)) {
+        this.expiry.cancel(false);
+      }
+      return true;
+    }
+    return state.get() != EXPIRED;
+  }
+
+  private DeadlineExceededException deadlineExceeded(Throwable cause) {
+    return new DeadlineExceededException("Deadline of " + ctx.method() + " "
+            + ctx.uri() + " expired before the route completed", AsyncResults.unwrap(cause));
   }
 
   private void executeAction(RequestContext ctx) throws Throwable {
     final RouteInfo routeInfo = ctx.routeInfo();
     final Method method = routeInfo.getMethod();
-    final Parameter[] parameters = method.getParameters();
-    final List<Object> invokeArguments = methodArgumentGetter.getParams(parameters);
-    Object invokeResult;
-    try {
-      invokeResult = lookup.unreflect(method).bindTo(routeInfo.getBean())
-              .invokeWithArguments(invokeArguments);
-    } catch (IllegalAccessException e) {
-      Method lambdaMethod = routeInfo.getClazz().getMethod(method.getName(), method.getParameterTypes());
-      invokeResult = lookup.unreflect(lambdaMethod).bindTo(routeInfo.getBean()).invokeWithArguments(invokeArguments);
-    }
+    final Object invokeResult = routeInfo.getHandler().handle(ctx);
+    this.completion = AsyncResults.toCompletionStage(invokeResult);
+    this.future = completion;
     this.result = new RequestResult(method.getReturnType(), invokeResult, method);
   }
 }
@@ -29,4 +29,15 @@ package org.aquiver.mvc.interceptor;
  */
 public interface InterceptorChain {
   void invoke() throws Throwable;
+
+  /**
+   * Run the callback once the route result is available, right away for
+   * synchronous routes and on completion for asynchronous ones. The
+   * callback is skipped if the route fails.
+   *
+   * @param callback callback to run
+   */
+  default void onComplete(Runnable callback) {
+    callback.run();
+  }
 }
@@ -0,0 +1,234 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.mvc.result;
+
+import org.aquiver.Aquiver;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Adapt asynchronous route results to a {@link CompletionStage}. Besides
+ * {@link CompletionStage}, Reactive Streams {@code org.reactivestreams.Publisher}
+ * and {@code java.util.concurrent.Flow.Publisher} results are supported.
+ * Publishers are looked up reflectively, so neither has to be on the
+ * classpath. A publisher always completes with the list of its elements,
+ * at most {@code server.async.publisher-max-elements} of them are requested
+ * and the result fails if the publisher emits more. The subscription is
+ * cancelled when the result is cancelled, e.g. by the route deadline.
+ *
+ * @author WangYi
+ * @since 2021/3/8
+ */
+public final class AsyncResults {
+  private static final PublisherType[] PUBLISHER_TYPES = {
+          PublisherType.of("org.reactivestreams.Publisher",
+                  "org.reactivestreams.Subscriber", "org.reactivestreams.Subscription"),
+          PublisherType.of("java.util.concurrent.Flow$Publisher",
+                  "java.util.concurrent.Flow$Subscriber", "java.util.concurrent.Flow$Subscription")
+  };
+
+  private AsyncResults() {
+  }
+
+  /**
+   * Adapt an asynchronous route result to a completion stage
+   *
+   * @param result route result
+   * @return completion stage of the result value, or null if the result isn't asynchronous
+   */
+  @SuppressWarnings("unchecked")
+  public static CompletionStage<Object> toCompletionStage(Object result) {
+    if (result instanceof CompletionStage) {
+      return (CompletionStage<Object>) result;
+    }
+    final PublisherType publisherType = publisherType(result);
+    return Objects.isNull(publisherType) ? null
+            : publisherType.subscribe(result, Aquiver.of().publisherMaxElements());
+  }
+
+  /**
+   * Unwrap the exception a completion stage completed with
+   *
+   * @param throwable completion exception
+   * @return the exception thrown by the route
+   */
+  public static Throwable unwrap(Throwable throwable) {
+    Throwable cause = throwable;
+    while ((cause instanceof CompletionException || cause instanceof ExecutionException)
+            && Objects.nonNull(cause.getCause())) {
+      cause = cause.getCause();
+    }
+    return cause;
+  }
+
+  private static PublisherType publisherType(Object result) {
+    if (Objects.isNull(result)) {
+      return null;
+    }
+    for (PublisherType publisherType : PUBLISHER_TYPES) {
+      if (Objects.nonNull(publisherType) && publisherType.publisherClass.isInstance(result)) {
+        return publisherType;
+      }
+    }
+    return null;
+  }
+
+  private static final class PublisherType {
+    private final Class<?> publisherClass;
+    private final Class<?> subscriberClass;
+    private final Method subscribe;
+    private final Method request;
+    private final Method cancel;
+
+    private PublisherType(Class<?> publisherClass, Class<?> subscriberClass,
+                          Method subscribe, Method request, Method cancel) {
+      this.publisherClass = publisherClass;
+      this.subscriberClass = subscriberClass;
+      this.subscribe = subscribe;
+      this.request = request;
+      this.cancel = cancel;
+    }
+
+    static PublisherType of(String publisherName, String subscriberName, String subscriptionName) {
+      try {
+        final ClassLoader classLoader = AsyncResults.class.getClassLoader();
+        final Class<?> publisherClass = Class.forName(publisherName, false, classLoader);
+        final Class<?> subscriberClass = Class.forName(subscriberName, false, classLoader);
+        final Class<?> subscriptionClass = Class.forName(subscriptionName, false, classLoader);
+        return new PublisherType(publisherClass, subscriberClass,
+                publisherClass.getMethod("subscribe", subscriberClass),
+                subscriptionClass.getMethod("request", long.class),
+                subscriptionClass.getMethod("cancel"));
+      } catch (ClassNotFoundException | NoSuchMethodException | LinkageError e) {
+        return null;
+      }
+    }
+
+    CompletionStage<Object> subscribe(Object publisher, int maxElements) {
+      final CompletableFuture<Object> future = new CompletableFuture<>();
+      final Subscriber handler = new Subscriber(future, request, cancel, maxElements);
+      future.whenComplete((value, throwable) -> {
+        if (future.isCancelled()) {
+          handler.cancel();
+        }
+      });
+      final Object subscriber = Proxy.newProxyInstance(subscriberClass.getClassLoader(),
+              new Class<?>[]{subscriberClass}, handler);
+      try {
+        subscribe.invoke(publisher, subscriber);
+      } catch (InvocationTargetException e) {
+        future.completeExceptionally(e.getCause());
+      } catch (IllegalAccessException e) {
+        future.completeExceptionally(e);
+      }
+      return future;
+    }
+  }
+
+  /**
+   * Subscriber that requests one element more than the limit and completes
+   * the future with the list of elements when the publisher terminates.
+   * Signals are serial per the spec, cancellation may come from any thread
+   */
+  private static final class Subscriber implements InvocationHandler {
+    private final CompletableFuture<Object> future;
+    private final Method request;
+    private final Method cancel;
+    private final int maxElements;
+    private final List<Object> values = new ArrayList<>();
+    private volatile Object subscription;
+
+    Subscriber(CompletableFuture<Object> future, Method request, Method cancel, int maxElements) {
+      this.future = future;
+      this.request = request;
+      this.cancel = cancel;
+      this.maxElements = maxElements;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      switch (method.getName()) {
+        case "onSubscribe":
+          this.subscription = args[0];
+          if (future.isDone()) {
+            this.cancel();
+          } else {
+            this.request.invoke(args[0], (long) maxElements + 1);
+          }
+          return null;
+        case "onNext":
+          if (future.isDone()) {
+            return null;
+          }
+          if (values.size() >= maxElements) {
+            this.cancel();
+            this.future.completeExceptionally(new IllegalStateException(
+                    "Publisher emitted more than " + maxElements + " elements"));
+            return null;
+          }
+          this.values.add(args[0]);
+          return null;
+        case "onError":
+          this.future.completeExceptionally((Throwable) args[0]);
+          return null;
+        case "onComplete":
+          this.future.complete(values);
+          return null;
+        case "equals":
+          return proxy == args[0];
+        case "hashCode":
+          return System.identityHashCode(proxy);
+        case "toString":
+          return "AsyncResults.Subscriber@" + Integer.toHexString(System.identityHashCode(proxy));
+        default:
+          throw new UnsupportedOperationException(method.getName());
+      }
+    }
+
+    /**
+     * Cancel the subscription, a subscription that arrives later is cancelled on arrival
+     */
+    void cancel() {
+      final Object subscription = this.subscription;
+      if (Objects.isNull(subscription)) {
+        return;
+      }
+      try {
+        this.cancel.invoke(subscription);
+      } catch (IllegalAccessException | InvocationTargetException e) {
+        // the publisher is abandoned either way
+      }
+    }
+  }
+}
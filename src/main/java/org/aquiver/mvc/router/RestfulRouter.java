@@ -34,9 +34,7 @@ import org.slf4j.LoggerFactory;
 import java.lang.annotation.Annotation;
 import java.lang.invoke.MethodHandles;
 import java.lang.reflect.Method;
-import java.util.Map;
 import java.util.Objects;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @author WangYi
@@ -45,8 +43,9 @@ import java.util.concurrent.ConcurrentHashMap;
 public class RestfulRouter implements Router {
   private static final Logger log = LoggerFactory.getLogger(RestfulRouter.class);
 
-  private final Map<String, RouteInfo> routes = new ConcurrentHashMap<>(64);
+  private final RouteTree routes = new RouteTree();
   private final MethodHandles.Lookup lookup = MethodHandles.lookup();
+  private boolean bodyStreamRoutes;
 
   @Override
   public void registerRoute(String path, Object object) {
@@ -67,34 +66,29 @@ public class RestfulRouter implements Router {
   }
 
   @Override
-  public RouteInfo lookup(String url) {
-    String lookupPath = url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
-    int paramStartIndex = lookupPath.indexOf("?");
-    if (paramStartIndex > 0) {
+  public RouteMatch lookup(HttpMethod httpMethod, String url) {
+    String lookupPath = url;
+    int paramStartIndex = lookupPath.indexOf('?');
+    if (paramStartIndex >= 0) {
       lookupPath = lookupPath.substring(0, paramStartIndex);
     }
-
-    if (lookupPath.equals("")) {
-      lookupPath = "/";
+    if (lookupPath.endsWith("/")) {
+      lookupPath = lookupPath.substring(0, lookupPath.length() - 1);
     }
-
-    RouteInfo routeInfo = routes.get(url);
-    if (Objects.nonNull(routeInfo)) {
-      return routeInfo;
+    if (!lookupPath.startsWith("/")) {
+      lookupPath = "/" + lookupPath;
     }
+    return routes.match(httpMethod, lookupPath);
+  }
 
-    for (Map.Entry<String, RouteInfo> entry : routes.entrySet()) {
-      String[] lookupPathSplit = lookupPath.split("/");
-      String[] mappingUrlSplit = entry.getKey().split("/");
-      String matcher = PathVarMatcher.getMatch(entry.getKey());
-      if (!lookupPath.startsWith(matcher) || lookupPathSplit.length != mappingUrlSplit.length) {
-        continue;
-      }
-      if (PathVarMatcher.checkMatch(lookupPathSplit, mappingUrlSplit)) {
-        return entry.getValue();
-      }
-    }
-    return routeInfo;
+  /**
+   * Whether any route reads its body as a stream, requests only need to be
+   * routed before their body is received if there is one
+   *
+   * @return true if a body stream route is registered
+   */
+  public boolean hasBodyStreamRoutes() {
+    return bodyStreamRoutes;
   }
 
   @Override
@@ -153,14 +147,13 @@ public class RestfulRouter implements Router {
       return;
     }
     RouteInfo routeInfo = createRoute(clazz, bean, method, httpMethod, completeUrl);
-    if (this.routes.containsKey(completeUrl)) {
+    if (!this.routes.add(routeInfo)) {
       if (log.isDebugEnabled()) {
-        log.debug("Registered request route URL is duplicated :{}", completeUrl);
+        log.debug("Registered request route URL is duplicated :{} {}", httpMethod, completeUrl);
       }
-      throw new RouteRepeatException("Registered request route URL is duplicated : " + completeUrl);
-    } else {
-      this.registerRoute(completeUrl, routeInfo);
+      throw new RouteRepeatException("Registered request route URL is duplicated : " + httpMethod + " " + completeUrl);
     }
+    this.bodyStreamRoutes |= routeInfo.isBodyStream();
   }
 
   /**
@@ -176,16 +169,6 @@ public class RestfulRouter implements Router {
     return RouteInfo.create(completeUrl, clazz, bean, method, httpMethod);
   }
 
-  /**
-   * add route
-   *
-   * @param url       url
-   * @param routeInfo Route info
-   */
-  private void registerRoute(String url, RouteInfo routeInfo) {
-    this.routes.put(url, routeInfo);
-  }
-
   /**
    * Get the complete mapped address
    *
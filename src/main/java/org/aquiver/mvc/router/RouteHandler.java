@@ -0,0 +1,49 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.mvc.router;
+
+import org.aquiver.RequestContext;
+
+/**
+ * Bind the arguments of a route from the request and invoke it. Routes
+ * compiled with {@link RouteHandlerProcessor} get a generated handler that
+ * calls the route method directly, the others bind the arguments through
+ * their {@link org.aquiver.mvc.argument.MethodArgumentBinder} and invoke the
+ * method through their {@link RouteInvoker}.
+ *
+ * @author WangYi
+ * @since 2021/3/19
+ */
+@FunctionalInterface
+public interface RouteHandler {
+
+  /**
+   * Handle the request
+   *
+   * @param requestContext current request
+   * @return route method return value, null for void methods
+   * @throws Throwable exception thrown by the argument binding or the route method
+   */
+  Object handle(RequestContext requestContext) throws Throwable;
+}
@@ -0,0 +1,308 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.mvc.router;
+
+import org.aquiver.Request;
+import org.aquiver.RequestContext;
+import org.aquiver.Response;
+import org.aquiver.mvc.annotation.Path;
+import org.aquiver.mvc.annotation.RestPath;
+import org.aquiver.mvc.annotation.bind.Header;
+import org.aquiver.mvc.annotation.bind.Param;
+import org.aquiver.mvc.annotation.bind.PathVar;
+import org.aquiver.mvc.argument.ArgumentConverter;
+import org.aquiver.mvc.argument.RouteArguments;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Annotation processor generating a {@link RouteHandler} for every route
+ * method of the compiled {@code @Path} and {@code @RestPath} classes. The
+ * generated handler decodes {@code @Param}, {@code @PathVar} and
+ * {@code @Header} arguments with {@link RouteArguments}, primitives without
+ * boxing and {@code @Param} arrays with the registered converter, and calls the route method directly, so the JIT can inline the
+ * whole call from the request to the route.
+ * <p>
+ * Routes with other arguments are skipped and keep binding reflectively.
+ *
+ * @author WangYi
+ * @since 2021/3/19
+ */
+public class RouteHandlerProcessor extends AbstractProcessor {
+  private static final String ARGUMENTS = RouteArguments.class.getName();
+  private static final String CONVERTER = ArgumentConverter.class.getName();
+  private static final Map<String, String> CONVERSIONS = new HashMap<>();
+  private static final Map<String, String> TYPE_ARGUMENTS = new HashMap<>();
+
+  static {
+    CONVERSIONS.put("int", "toInt");
+    CONVERSIONS.put("long", "toLong");
+    CONVERSIONS.put("short", "toShort");
+    CONVERSIONS.put("byte", "toByte");
+    CONVERSIONS.put("double", "toDouble");
+    CONVERSIONS.put("float", "toFloat");
+    CONVERSIONS.put("boolean", "toBoolean");
+    CONVERSIONS.put(Integer.class.getName(), "toInteger");
+    CONVERSIONS.put(Long.class.getName(), "toLongObject");
+    CONVERSIONS.put(Short.class.getName(), "toShortObject");
+    CONVERSIONS.put(Byte.class.getName(), "toByteObject");
+    CONVERSIONS.put(Double.class.getName(), "toDoubleObject");
+    CONVERSIONS.put(Float.class.getName(), "toFloatObject");
+    CONVERSIONS.put(Boolean.class.getName(), "toBooleanObject");
+
+    TYPE_ARGUMENTS.put(RequestContext.class.getName(), "requestContext");
+    TYPE_ARGUMENTS.put(Request.class.getName(), "requestContext.request()");
+    TYPE_ARGUMENTS.put(Response.class.getName(), "requestContext.response()");
+  }
+
+  private final Set<String> generated = new HashSet<>();
+
+  @Override
+  public Set<String> getSupportedAnnotationTypes() {
+    return new HashSet<>(Arrays.asList(Path.class.getName(), RestPath.class.getName()));
+  }
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+    for (TypeElement annotation : annotations) {
+      for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+        if (element.getKind() == ElementKind.CLASS && accessible(element)) {
+          this.generateHandlers((TypeElement) element);
+        }
+      }
+    }
+    return false;
+  }
+
+  private void generateHandlers(TypeElement routeClass) {
+    for (Element member : routeClass.getEnclosedElements()) {
+      if (member.getKind() != ElementKind.METHOD || member.getModifiers().contains(Modifier.PRIVATE)
+              || !isRoute(member)) {
+        continue;
+      }
+      final ExecutableElement method = (ExecutableElement) member;
+      final List<String> arguments = new ArrayList<>();
+      final List<String> fields = new ArrayList<>();
+      for (VariableElement parameter : method.getParameters()) {
+        final String argument = this.argument(parameter, arguments.size(), fields);
+        if (argument == null) {
+          break;
+        }
+        arguments.add(argument);
+      }
+      if (arguments.size() == method.getParameters().size()) {
+        this.generateHandler(routeClass, method, arguments, fields);
+      }
+    }
+  }
+
+  private void generateHandler(TypeElement routeClass, ExecutableElement method,
+                               List<String> arguments, List<String> fields) {
+    final List<String> parameterTypes = new ArrayList<>();
+    for (VariableElement parameter : method.getParameters()) {
+      parameterTypes.add(this.typeName(processingEnv.getTypeUtils().erasure(parameter.asType())));
+    }
+    final String routeClassName = processingEnv.getElementUtils().getBinaryName(routeClass).toString();
+    final String handlerClassName = RouteHandlers.generatedClassName(
+            routeClassName, method.getSimpleName().toString(), parameterTypes);
+    if (!generated.add(handlerClassName)) {
+      return;
+    }
+    final String packageName = processingEnv.getElementUtils().getPackageOf(routeClass).getQualifiedName().toString();
+    final String simpleName = packageName.isEmpty() ? handlerClassName : handlerClassName.substring(packageName.length() + 1);
+    final String routeType = routeClass.getQualifiedName().toString();
+    final boolean isStatic = method.getModifiers().contains(Modifier.STATIC);
+    final String call = (isStatic ? routeType : "bean") + "." + method.getSimpleName()
+            + "(" + String.join(",\n            ", arguments) + ")";
+
+    final StringBuilder source = new StringBuilder();
+    if (!packageName.isEmpty()) {
+      source.append("package ").append(packageName).append(";\n\n");
+    }
+    source.append("/**\n * Generated by ").append(RouteHandlerProcessor.class.getName())
+            .append(" for ").append(routeType).append("#").append(method.getSimpleName()).append(", do not edit\n */\n")
+            .append("public final class ").append(simpleName).append(" implements ").append(RouteHandler.class.getName()).append(" {\n")
+            .append("  private final ").append(routeType).append(" bean;\n");
+    for (String field : fields) {
+      source.append(field);
+    }
+    source.append("\n")
+            .append("  public ").append(simpleName).append("(Object bean) {\n")
+            .append("    this.bean = (").append(routeType).append(") bean;\n")
+            .append("  }\n\n")
+            .append("  @Override\n")
+            .append("  public Object handle(").append(RequestContext.class.getName()).append(" requestContext) throws Throwable {\n");
+    if (method.getReturnType().getKind() == TypeKind.VOID) {
+      source.append("    ").append(call).append(";\n    return null;\n");
+    } else {
+      source.append("    return ").append(call).append(";\n");
+    }
+    source.append("  }\n}\n");
+
+    try (Writer writer = processingEnv.getFiler().createSourceFile(handlerClassName, routeClass).openWriter()) {
+      writer.write(source.toString());
+    } catch (IOException e) {
+      processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+              "Unable to generate the route handler " + handlerClassName + ": " + e.getMessage(), method);
+    }
+  }
+
+  /**
+   * Source of the expression binding a route argument
+   *
+   * @param parameter route method parameter
+   * @param index     parameter position
+   * @param fields    field declarations of the handler, an argument may add the one it needs
+   * @return argument expression, or null if the argument needs a reflective getter
+   */
+  private String argument(VariableElement parameter, int index, List<String> fields) {
+    final String type = this.typeName(parameter.asType());
+    final String parameterName = parameter.getSimpleName().toString();
+    final List<? extends AnnotationMirror> annotations = parameter.getAnnotationMirrors();
+    if (annotations.isEmpty()) {
+      return TYPE_ARGUMENTS.get(type);
+    }
+    if (annotations.size() > 1) {
+      return null;
+    }
+    final String value;
+    final Param param = parameter.getAnnotation(Param.class);
+    final PathVar pathVar = parameter.getAnnotation(PathVar.class);
+    final Header header = parameter.getAnnotation(Header.class);
+    if (param != null) {
+      final String name = param.value().isEmpty() ? parameterName : param.value();
+      final String defaultValue = param.defaultValue().isEmpty() ? "null" : literal(param.defaultValue());
+      if (parameter.asType().getKind() == TypeKind.ARRAY) {
+        // arrays are converted by the registered converter, resolved once per handler
+        final String sourceType = processingEnv.getTypeUtils().erasure(parameter.asType()).toString();
+        final String converter = "converter" + index;
+        fields.add("  private final " + CONVERTER + "<?> " + converter + " = "
+                + ARGUMENTS + ".converter(" + sourceType + ".class);\n");
+        return "(" + sourceType + ") " + ARGUMENTS + ".params(requestContext, " + literal(name) + ", "
+                + defaultValue + ", " + param.required() + ", " + converter + ")";
+      }
+      value = ARGUMENTS + ".param(requestContext, " + literal(name) + ", "
+              + defaultValue + ", " + param.required() + ")";
+      return this.convert(value, type, name);
+    }
+    if (pathVar != null) {
+      final String name = pathVar.value().isEmpty() ? parameterName : pathVar.value();
+      final String accessor = String.class.getName().equals(type) ? "pathVariable" : "pathVariableView";
+      return this.convert("requestContext." + accessor + "(" + literal(name) + ")", type, name);
+    }
+    if (header != null) {
+      final String name = header.value().isEmpty() ? parameterName : header.value();
+      return this.convert(ARGUMENTS + ".header(requestContext, " + literal(name) + ")", type, name);
+    }
+    return null;
+  }
+
+  private String convert(String value, String type, String name) {
+    if (String.class.getName().equals(type)) {
+      return value;
+    }
+    final String conversion = CONVERSIONS.get(type);
+    return conversion == null ? null : ARGUMENTS + "." + conversion + "(" + value + ", " + literal(name) + ")";
+  }
+
+  private boolean isRoute(Element method) {
+    if (method.getAnnotation(Path.class) != null) {
+      return true;
+    }
+    for (AnnotationMirror annotation : method.getAnnotationMirrors()) {
+      if (annotation.getAnnotationType().asElement().getAnnotation(Path.class) != null) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Whether the generated handler in the same package can reference the class
+   */
+  private static boolean accessible(Element element) {
+    for (Element current = element; current instanceof TypeElement; current = current.getEnclosingElement()) {
+      if (current.getModifiers().contains(Modifier.PRIVATE)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Type name as returned by {@link Class#getTypeName()}
+   */
+  private String typeName(TypeMirror type) {
+    if (type.getKind() == TypeKind.ARRAY) {
+      return this.typeName(((ArrayType) type).getComponentType()) + "[]";
+    }
+    if (type.getKind() == TypeKind.DECLARED) {
+      return processingEnv.getElementUtils()
+              .getBinaryName((TypeElement) ((DeclaredType) type).asElement()).toString();
+    }
+    return type.toString();
+  }
+
+  private static String literal(String value) {
+    final StringBuilder literal = new StringBuilder("\"");
+    for (char c : value.toCharArray()) {
+      if (c == '"' || c == '\\') {
+        literal.append('\\').append(c);
+      } else if (c < 0x20 || c > 0x7e) {
+        literal.append(String.format("\\u%04x", (int) c));
+      } else {
+        literal.append(c);
+      }
+    }
+    return literal.append('"').toString();
+  }
+}
@@ -0,0 +1,124 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.mvc.router;
+
+import org.apex.ApexContext;
+import org.aquiver.Aquiver;
+import org.aquiver.Request;
+import org.aquiver.RequestContext;
+import org.aquiver.Response;
+import org.aquiver.mvc.annotation.bind.Header;
+import org.aquiver.mvc.annotation.bind.Param;
+import org.aquiver.mvc.annotation.bind.PathVar;
+import org.aquiver.mvc.argument.AnnotationArgumentGetterResolver;
+import org.aquiver.mvc.argument.ArgumentConverters;
+import org.aquiver.mvc.argument.ArgumentGetterResolver;
+import org.aquiver.mvc.argument.HeaderArgumentGetter;
+import org.aquiver.mvc.argument.ParamArgumentGetter;
+import org.aquiver.mvc.argument.PathVarArgumentGetter;
+import org.aquiver.mvc.argument.RequestArgumentGetter;
+import org.aquiver.mvc.argument.RequestContextArgumentGetter;
+import org.aquiver.mvc.argument.ResponseArgumentGetter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Lookup of the route handlers generated by {@link RouteHandlerProcessor}
+ *
+ * @author WangYi
+ * @since 2021/3/19
+ */
+final class RouteHandlers {
+  private static final Logger log = LoggerFactory.getLogger(RouteHandlers.class);
+  private static final String GENERATED_SUFFIX = "$$RouteHandler$";
+
+  private RouteHandlers() {
+  }
+
+  /**
+   * Name of the handler class generated for a route method, derived from
+   * the signature so that overloaded methods get their own handler
+   *
+   * @param className      binary name of the route class
+   * @param methodName     route method name
+   * @param parameterTypes type names of the erased parameter types
+   * @return binary name of the generated handler class
+   */
+  static String generatedClassName(String className, String methodName, List<String> parameterTypes) {
+    final String signature = methodName + "(" + String.join(",", parameterTypes) + ")";
+    return className + GENERATED_SUFFIX + methodName + "$" + Integer.toHexString(signature.hashCode());
+  }
+
+  /**
+   * Create the generated handler of a route method bound to its bean. The
+   * generated handler isn't used if the argument getters it replaces were
+   * overridden, because it decodes the arguments itself.
+   *
+   * @param clazz  route class
+   * @param bean   route bean
+   * @param method route method
+   * @return generated handler, or null if the route has none
+   */
+  static RouteHandler generated(Class<?> clazz, Object bean, Method method) {
+    if (method.getDeclaringClass() != clazz || !Aquiver.of().generatedRouteHandlers() || !defaultGetters()) {
+      return null;
+    }
+    final List<String> parameterTypes = Arrays.stream(method.getParameterTypes())
+            .map(Class::getTypeName).collect(Collectors.toList());
+    final String className = generatedClassName(clazz.getName(), method.getName(), parameterTypes);
+    try {
+      final Class<?> handlerClass = Class.forName(className, true, clazz.getClassLoader());
+      if (!RouteHandler.class.isAssignableFrom(handlerClass)) {
+        return null;
+      }
+      return (RouteHandler) handlerClass.getConstructor(Object.class).newInstance(bean);
+    } catch (ClassNotFoundException e) {
+      return null;
+    } catch (ReflectiveOperationException | LinkageError e) {
+      log.warn("Generated route handler {} can't be created, binding {} reflectively", className, method, e);
+      return null;
+    }
+  }
+
+  private static boolean defaultGetters() {
+    final ApexContext context = ApexContext.of();
+    final AnnotationArgumentGetterResolver annotationResolver = context.getBean(AnnotationArgumentGetterResolver.class);
+    final ArgumentGetterResolver argumentGetterResolver = context.getBean(ArgumentGetterResolver.class);
+    final ArgumentConverters converters = context.getBean(ArgumentConverters.class);
+    return Objects.nonNull(annotationResolver) && Objects.nonNull(argumentGetterResolver)
+            && (Objects.isNull(converters) || !converters.builtInsReplaced())
+            && annotationResolver.lookup(Param.class) instanceof ParamArgumentGetter
+            && annotationResolver.lookup(PathVar.class) instanceof PathVarArgumentGetter
+            && annotationResolver.lookup(Header.class) instanceof HeaderArgumentGetter
+            && argumentGetterResolver.lookup(RequestContext.class) instanceof RequestContextArgumentGetter
+            && argumentGetterResolver.lookup(Request.class) instanceof RequestArgumentGetter
+            && argumentGetterResolver.lookup(Response.class) instanceof ResponseArgumentGetter;
+  }
+}
@@ -24,9 +24,20 @@
 package org.aquiver.mvc.router;
 
 import org.apache.commons.lang3.Validate;
+import org.aquiver.mvc.annotation.Dispatch;
+import org.aquiver.mvc.annotation.Priority;
+import org.aquiver.mvc.annotation.Timeout;
+import org.aquiver.mvc.argument.MethodArgumentBinder;
+import org.aquiver.mvc.http.BodyStream;
 import org.aquiver.mvc.http.HttpMethod;
+import org.aquiver.server.DispatchMode;
+import org.aquiver.server.RequestPriority;
 
 import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
 
 public class RouteInfo {
   private final String url;
@@ -34,6 +45,15 @@ public class RouteInfo {
   private final Method method;
   private final Object bean;
   private final HttpMethod httpMethod;
+  private final String[] pathVariableNames;
+  private final Parameter[] parameters;
+  private final RouteInvoker invoker;
+  private final MethodArgumentBinder argumentBinder;
+  private final RouteHandler handler;
+  private final DispatchMode dispatchMode;
+  private final RequestPriority priority;
+  private final long timeout;
+  private final boolean bodyStream;
 
   private RouteInfo(String url, Class<?> clazz, Object bean, Method method, HttpMethod httpMethod) {
     this.url = url;
@@ -41,6 +61,84 @@ public class RouteInfo {
     this.method = method;
     this.httpMethod = httpMethod;
     this.bean = bean;
+    this.pathVariableNames = parsePathVariableNames(url);
+    this.parameters = method.getParameters();
+    this.invoker = RouteInvoker.create(clazz, bean, method);
+    try {
+      this.argumentBinder = MethodArgumentBinder.of(method, pathVariableNames);
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Route " + httpMethod + " " + url + " can't be registered: "
+              + e.getMessage(), e);
+    }
+    final RouteHandler generatedHandler = RouteHandlers.generated(clazz, bean, method);
+    this.handler = Objects.nonNull(generatedHandler) ? generatedHandler
+            : requestContext -> invoker.invoke(argumentBinder.bind(requestContext));
+    this.dispatchMode = parseDispatchMode(clazz, method);
+    this.priority = parsePriority(clazz, method);
+    this.timeout = parseTimeout(clazz, method);
+    this.bodyStream = Arrays.stream(parameters)
+            .anyMatch(parameter -> BodyStream.class.equals(parameter.getType()));
+  }
+
+  /**
+   * Path variable names in the order they appear in the url,
+   * a trailing wildcard is named {@code *}
+   *
+   * @param url route url
+   * @return path variable names
+   */
+  private static String[] parsePathVariableNames(String url) {
+    final List<String> segments = RouteTree.segments(url);
+    return segments.stream()
+            .filter(segment -> RouteTree.isVariable(segment) || RouteTree.WILDCARD.equals(segment))
+            .map(segment -> RouteTree.WILDCARD.equals(segment)
+                    ? segment : segment.substring(1, segment.length() - 1))
+            .toArray(String[]::new);
+  }
+
+  /**
+   * The dispatch mode declared on the method, or else on the class
+   *
+   * @param clazz  route class
+   * @param method route method
+   * @return dispatch mode, or null to use the configured default
+   */
+  private static DispatchMode parseDispatchMode(Class<?> clazz, Method method) {
+    Dispatch dispatch = method.getAnnotation(Dispatch.class);
+    if (dispatch == null) {
+      dispatch = clazz.getAnnotation(Dispatch.class);
+    }
+    return dispatch == null ? null : dispatch.value();
+  }
+
+  /**
+   * The priority declared on the method, or else on the class
+   *
+   * @param clazz  route class
+   * @param method route method
+   * @return request priority, {@link RequestPriority#NORMAL} if none is declared
+   */
+  private static RequestPriority parsePriority(Class<?> clazz, Method method) {
+    Priority priority = method.getAnnotation(Priority.class);
+    if (priority == null) {
+      priority = clazz.getAnnotation(Priority.class);
+    }
+    return priority == null ? RequestPriority.NORMAL : priority.value();
+  }
+
+  /**
+   * The timeout declared on the method, or else on the class
+   *
+   * @param clazz  route class
+   * @param method route method
+   * @return timeout in milliseconds, or -1 to use the configured route timeout
+   */
+  private static long parseTimeout(Class<?> clazz, Method method) {
+    Timeout timeout = method.getAnnotation(Timeout.class);
+    if (timeout == null) {
+      timeout = clazz.getAnnotation(Timeout.class);
+    }
+    return timeout == null ? -1 : timeout.unit().toMillis(Math.max(0, timeout.value()));
   }
 
   public static RouteInfo create(String url, Class<?> clazz, Object bean, Method method, HttpMethod httpMethod) {
@@ -67,6 +165,79 @@ public class RouteInfo {
     return bean;
   }
 
+  public Parameter[] getParameters() {
+    return parameters;
+  }
+
+  public RouteInvoker getInvoker() {
+    return invoker;
+  }
+
+  public MethodArgumentBinder getArgumentBinder() {
+    return argumentBinder;
+  }
+
+  /**
+   * Handler binding the arguments and invoking the route, generated by
+   * {@link RouteHandlerProcessor} if the route was compiled with it
+   *
+   * @return route handler
+   */
+  public RouteHandler getHandler() {
+    return handler;
+  }
+
+  public DispatchMode getDispatchMode() {
+    return dispatchMode;
+  }
+
+  public RequestPriority getPriority() {
+    return priority;
+  }
+
+  /**
+   * Maximum execution time declared by {@link Timeout}, zero if the
+   * route runs without a deadline
+   *
+   * @return timeout in milliseconds, or -1 if none is declared
+   */
+  public long getTimeout() {
+    return timeout;
+  }
+
+  /**
+   * Whether the route reads the request body as a {@link BodyStream}
+   * while it is being received
+   *
+   * @return true if the route declares a body stream parameter
+   */
+  public boolean isBodyStream() {
+    return bodyStream;
+  }
+
+  public HttpMethod getHttpMethod() {
+    return httpMethod;
+  }
+
+  public String[] getPathVariableNames() {
+    return pathVariableNames;
+  }
+
+  /**
+   * Get the position of a path variable in the url
+   *
+   * @param name path variable name
+   * @return path variable position, or -1 if the url has no such variable
+   */
+  public int getPathVariableIndex(String name) {
+    for (int i = 0; i < pathVariableNames.length; i++) {
+      if (pathVariableNames[i].equals(name)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
   @Override
   public String toString() {
     return "Route{" +
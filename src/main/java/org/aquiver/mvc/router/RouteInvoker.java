@@ -0,0 +1,101 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.mvc.router;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * Route method invoker, resolved once when the route is registered.
+ * <p>
+ * The method handle is bound to the route bean and adapted to the exact type
+ * {@code (Object[])Object}, so that each request is a single
+ * {@link MethodHandle#invokeExact} call without reflection lookups,
+ * argument lists or varargs adaptation.
+ * <p>
+ * The handle is held by an instance field, one per route, so the JIT can't
+ * treat it as a constant and inline the route method into the caller, the
+ * call still goes through the method handle chain. Routes that need direct
+ * calls use the handlers generated by {@link RouteHandlerProcessor}, this
+ * invoker is the fallback for the routes those can't bind.
+ *
+ * @author WangYi
+ * @since 2021/2/23
+ */
+public final class RouteInvoker {
+  private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+  private final MethodHandle handle;
+
+  private RouteInvoker(MethodHandle handle) {
+    this.handle = handle;
+  }
+
+  /**
+   * Create the invoker of the route method
+   *
+   * @param clazz  route class, used when the method is declared by an inaccessible class
+   * @param bean   route bean, ignored for static methods
+   * @param method route method
+   * @return route invoker
+   */
+  public static RouteInvoker create(Class<?> clazz, Object bean, Method method) {
+    MethodHandle handle = unreflect(clazz, method);
+    if (!Modifier.isStatic(method.getModifiers())) {
+      handle = handle.bindTo(bean);
+    }
+    final int parameterCount = method.getParameterCount();
+    handle = handle.asType(MethodType.genericMethodType(parameterCount))
+            .asSpreader(Object[].class, parameterCount);
+    return new RouteInvoker(handle);
+  }
+
+  private static MethodHandle unreflect(Class<?> clazz, Method method) {
+    try {
+      return LOOKUP.unreflect(method);
+    } catch (IllegalAccessException e) {
+      // Lambda and anonymous classes are not accessible, use the method of the public type
+      try {
+        final Method publicMethod = clazz.getMethod(method.getName(), method.getParameterTypes());
+        return LOOKUP.unreflect(publicMethod);
+      } catch (NoSuchMethodException | IllegalAccessException ex) {
+        throw new IllegalArgumentException("Route method can't be accessed: " + method, ex);
+      }
+    }
+  }
+
+  /**
+   * Invoke the route method
+   *
+   * @param args method arguments, one element per parameter
+   * @return method return value, null for void methods
+   * @throws Throwable exception thrown by the route method
+   */
+  public Object invoke(Object[] args) throws Throwable {
+    return (Object) handle.invokeExact(args);
+  }
+}
@@ -0,0 +1,134 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.mvc.router;
+
+import org.aquiver.mvc.http.HttpMethod;
+
+import java.nio.CharBuffer;
+import java.util.Collections;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Result of a route lookup, holds the matched route and the offsets of the
+ * path variable segments captured while walking the route tree. A path
+ * variable is only copied out of the request path when it's read as a
+ * string, {@link #getPathVariableView(int)} reads it without copying.
+ *
+ * @author WangYi
+ * @since 2021/2/22
+ */
+public final class RouteMatch {
+  static final int[] NO_PATH_VARIABLES = new int[0];
+
+  private final RouteInfo routeInfo;
+  private final String path;
+  // start and end offset in the path of every path variable, by position
+  private final int[] pathVariables;
+  private final Set<HttpMethod> allowedMethods;
+
+  private RouteMatch(RouteInfo routeInfo, String path, int[] pathVariables, Set<HttpMethod> allowedMethods) {
+    this.routeInfo = routeInfo;
+    this.path = path;
+    this.pathVariables = pathVariables;
+    this.allowedMethods = allowedMethods;
+  }
+
+  static RouteMatch matched(RouteInfo routeInfo, String path, int[] pathVariables) {
+    return new RouteMatch(routeInfo, path, pathVariables, Collections.singleton(routeInfo.getHttpMethod()));
+  }
+
+  static RouteMatch methodNotAllowed(Set<HttpMethod> allowedMethods) {
+    return new RouteMatch(null, null, NO_PATH_VARIABLES, allowedMethods);
+  }
+
+  /**
+   * Whether the path matched a route registered for the request method
+   *
+   * @return false if the path only matched routes of other methods
+   */
+  public boolean isMethodAllowed() {
+    return Objects.nonNull(routeInfo);
+  }
+
+  public RouteInfo getRouteInfo() {
+    return routeInfo;
+  }
+
+  public Set<HttpMethod> getAllowedMethods() {
+    return allowedMethods;
+  }
+
+  public int getPathVariableCount() {
+    return Objects.isNull(routeInfo) ? 0 : routeInfo.getPathVariableNames().length;
+  }
+
+  /**
+   * Get the value of a path variable by its position in the route url
+   *
+   * @param index path variable position
+   * @return path variable value, or null if the route has no such variable
+   */
+  public String getPathVariable(int index) {
+    if (index < 0 || index >= getPathVariableCount()) {
+      return null;
+    }
+    return path.substring(pathVariables[index << 1], pathVariables[(index << 1) + 1]);
+  }
+
+  /**
+   * Get the value of a path variable by its name in the route url
+   *
+   * @param name path variable name
+   * @return path variable value, or null if the route has no such variable
+   */
+  public String getPathVariable(String name) {
+    return Objects.isNull(routeInfo) ? null : getPathVariable(routeInfo.getPathVariableIndex(name));
+  }
+
+  /**
+   * Get a path variable by its position in the route url, as a view
+   * of the request path that doesn't copy the characters
+   *
+   * @param index path variable position
+   * @return path variable value, or null if the route has no such variable
+   */
+  public CharSequence getPathVariableView(int index) {
+    if (index < 0 || index >= getPathVariableCount()) {
+      return null;
+    }
+    return CharBuffer.wrap(path, pathVariables[index << 1], pathVariables[(index << 1) + 1]);
+  }
+
+  /**
+   * Get a path variable by its name in the route url, as a view
+   * of the request path that doesn't copy the characters
+   *
+   * @param name path variable name
+   * @return path variable value, or null if the route has no such variable
+   */
+  public CharSequence getPathVariableView(String name) {
+    return Objects.isNull(routeInfo) ? null : getPathVariableView(routeInfo.getPathVariableIndex(name));
+  }
+}
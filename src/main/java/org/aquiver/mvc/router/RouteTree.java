@@ -0,0 +1,243 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.mvc.router;
+
+import org.aquiver.mvc.http.HttpMethod;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Prefix tree of the registered routes, one node per path segment.
+ * <p>
+ * A segment is either static text, a path variable written as {@code {name}}
+ * or a trailing {@code *} wildcard that matches the rest of the path. Static
+ * segments take precedence over variables, variables over the wildcard, and
+ * the lookup backtracks when a more specific branch does not lead to a route.
+ * Every node keeps its own http method table, so the lookup cost depends on
+ * the depth of the path rather than on the number of routes.
+ *
+ * @author WangYi
+ * @since 2021/2/22
+ */
+final class RouteTree {
+  static final String WILDCARD = "*";
+
+  private final Node root = new Node();
+  private int maxPathVariables;
+
+  /**
+   * Add a route to the tree
+   *
+   * @param routeInfo route to add
+   * @return false if a route with the same path and method already exists
+   */
+  boolean add(RouteInfo routeInfo) {
+    Node node = root;
+    final List<String> segments = segments(routeInfo.getUrl());
+    for (int i = 0; i < segments.size(); i++) {
+      final String segment = segments.get(i);
+      if (WILDCARD.equals(segment)) {
+        if (i != segments.size() - 1) {
+          throw new IllegalArgumentException("Wildcard must be the last segment of route: " + routeInfo.getUrl());
+        }
+        node = node.wildcardChild();
+      } else if (isVariable(segment)) {
+        node = node.variableChild();
+      } else {
+        node = node.staticChild(segment);
+      }
+    }
+    if (node.routes.containsKey(routeInfo.getHttpMethod())) {
+      return false;
+    }
+    node.routes.put(routeInfo.getHttpMethod(), routeInfo);
+    this.maxPathVariables = Math.max(maxPathVariables, routeInfo.getPathVariableNames().length);
+    return true;
+  }
+
+  /**
+   * Find the route of the path and http method
+   *
+   * @param httpMethod request http method, may be null if the method is unknown
+   * @param path       normalized request path, without query string and trailing slash
+   * @return matched route, a match without route if only the method is not
+   * allowed, or null if no route matches the path
+   */
+  RouteMatch match(HttpMethod httpMethod, String path) {
+    final int[] pathVariables = maxPathVariables == 0
+            ? RouteMatch.NO_PATH_VARIABLES : new int[maxPathVariables << 1];
+
+    if (Objects.nonNull(httpMethod)) {
+      final Node node = find(root, path, 1, pathVariables, 0, httpMethod);
+      if (Objects.nonNull(node)) {
+        return RouteMatch.matched(node.route(httpMethod), path, pathVariables);
+      }
+    }
+    final Set<HttpMethod> allowedMethods = EnumSet.noneOf(HttpMethod.class);
+    this.collectAllowedMethods(root, path, 1, allowedMethods);
+    if (allowedMethods.isEmpty()) {
+      return null;
+    }
+    return RouteMatch.methodNotAllowed(Collections.unmodifiableSet(allowedMethods));
+  }
+
+  /**
+   * Walk the tree along the path, recording the start and end offset of
+   * every path variable segment instead of copying it out of the path
+   */
+  private Node find(Node node, String path, int start, int[] pathVariables,
+                    int variableIndex, HttpMethod httpMethod) {
+    if (start >= path.length()) {
+      return node.accept(httpMethod) ? node : null;
+    }
+    int end = path.indexOf('/', start);
+    if (end < 0) {
+      end = path.length();
+    }
+
+    if (!node.staticChildren.isEmpty()) {
+      final Node child = node.staticChildren.get(path.substring(start, end));
+      if (Objects.nonNull(child)) {
+        final Node found = find(child, path, end + 1, pathVariables, variableIndex, httpMethod);
+        if (Objects.nonNull(found)) {
+          return found;
+        }
+      }
+    }
+
+    if (Objects.nonNull(node.variableChild) && end > start) {
+      final Node found = find(node.variableChild, path, end + 1, pathVariables, variableIndex + 1, httpMethod);
+      if (Objects.nonNull(found)) {
+        pathVariables[variableIndex << 1] = start;
+        pathVariables[(variableIndex << 1) + 1] = end;
+        return found;
+      }
+    }
+
+    if (Objects.nonNull(node.wildcardChild) && node.wildcardChild.accept(httpMethod)) {
+      pathVariables[variableIndex << 1] = start;
+      pathVariables[(variableIndex << 1) + 1] = path.length();
+      return node.wildcardChild;
+    }
+    return null;
+  }
+
+  /**
+   * Collect the methods of every route matching the path, used
+   * to answer a request whose method is not allowed
+   */
+  private void collectAllowedMethods(Node node, String path, int start, Set<HttpMethod> allowedMethods) {
+    if (start >= path.length()) {
+      node.addAllowedMethods(allowedMethods);
+      return;
+    }
+    int end = path.indexOf('/', start);
+    if (end < 0) {
+      end = path.length();
+    }
+    final Node child = node.staticChildren.get(path.substring(start, end));
+    if (Objects.nonNull(child)) {
+      this.collectAllowedMethods(child, path, end + 1, allowedMethods);
+    }
+    if (Objects.nonNull(node.variableChild) && end > start) {
+      this.collectAllowedMethods(node.variableChild, path, end + 1, allowedMethods);
+    }
+    if (Objects.nonNull(node.wildcardChild)) {
+      node.wildcardChild.addAllowedMethods(allowedMethods);
+    }
+  }
+
+  /**
+   * Split the route url into segments, ignoring empty segments
+   *
+   * @param url route url
+   * @return path segments
+   */
+  static List<String> segments(String url) {
+    final List<String> segments = new ArrayList<>();
+    for (String segment : url.split("/")) {
+      if (!segment.isEmpty()) {
+        segments.add(segment);
+      }
+    }
+    return segments;
+  }
+
+  static boolean isVariable(String segment) {
+    return segment.length() > 2 && segment.charAt(0) == '{'
+            && segment.charAt(segment.length() - 1) == '}';
+  }
+
+  private static final class Node {
+    private final Map<String, Node> staticChildren = new HashMap<>(4);
+    private final Map<HttpMethod, RouteInfo> routes = new EnumMap<>(HttpMethod.class);
+    private Node variableChild;
+    private Node wildcardChild;
+
+    private Node staticChild(String segment) {
+      return staticChildren.computeIfAbsent(segment, key -> new Node());
+    }
+
+    private Node variableChild() {
+      if (Objects.isNull(variableChild)) {
+        this.variableChild = new Node();
+      }
+      return variableChild;
+    }
+
+    private Node wildcardChild() {
+      if (Objects.isNull(wildcardChild)) {
+        this.wildcardChild = new Node();
+      }
+      return wildcardChild;
+    }
+
+    private boolean accept(HttpMethod httpMethod) {
+      return Objects.nonNull(route(httpMethod));
+    }
+
+    private RouteInfo route(HttpMethod httpMethod) {
+      final RouteInfo routeInfo = routes.get(httpMethod);
+      if (Objects.isNull(routeInfo) && httpMethod == HttpMethod.HEAD) {
+        return routes.get(HttpMethod.GET);
+      }
+      return routeInfo;
+    }
+
+    private void addAllowedMethods(Set<HttpMethod> allowedMethods) {
+      allowedMethods.addAll(routes.keySet());
+      if (routes.containsKey(HttpMethod.GET)) {
+        allowedMethods.add(HttpMethod.HEAD);
+      }
+    }
+  }
+}
@@ -35,5 +35,5 @@ public interface Router {
 
   void registerRoute(String path, RequestHandler handler, HttpMethod httpMethod) throws Exception;
 
-  RouteInfo lookup(String url);
+  RouteMatch lookup(HttpMethod httpMethod, String url);
 }
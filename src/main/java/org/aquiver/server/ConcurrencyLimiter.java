@@ -0,0 +1,203 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.server;
+
+import org.apache.commons.lang3.Validate;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Limit the number of requests handled at once to a value adapted from
+ * their measured latency, in the manner of the gradient algorithm. Latency
+ * samples are collected in windows of about one round trip, as many samples
+ * as the limit. A long term average of the latency is compared with the
+ * average of every window: while windows stay within the tolerance of the
+ * long term average the limit grows by about its square root, when they get
+ * slower the limit shrinks in proportion, down to half of it per window.
+ * Changes are smoothed and the limit only grows while at least half of it
+ * is in use.
+ * <p>
+ * Requests are admitted while the number in flight is below the share of
+ * the limit of their {@link RequestPriority}.
+ * <p>
+ * Completed requests add their sample to the window without locking, the
+ * request completing a window updates the limit while requests completing
+ * at the same time only add their samples to the next window.
+ *
+ * @author WangYi
+ * @since 2021/3/15
+ */
+public final class ConcurrencyLimiter {
+  private static final double SMOOTHING = 0.2;
+  private static final double RTT_TOLERANCE = 1.5;
+  private static final double LONG_RTT_WINDOW = 600;
+  private static final int MIN_WINDOW_SAMPLES = 10;
+
+  private final int minLimit;
+  private final int maxLimit;
+  private final LongSupplier clock;
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final AtomicInteger windowSamples = new AtomicInteger();
+  private final LongAdder windowRttSum = new LongAdder();
+  private final AtomicInteger windowMaxInFlight = new AtomicInteger();
+  private final AtomicBoolean updating = new AtomicBoolean();
+  private volatile int limit;
+
+  // guarded by updating
+  private double estimatedLimit;
+  private double longRtt;
+
+  /**
+   * @param initialLimit limit before any latency is measured
+   * @param minLimit     smallest limit
+   * @param maxLimit     largest limit
+   */
+  public ConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit) {
+    this(initialLimit, minLimit, maxLimit, System::nanoTime);
+  }
+
+  /**
+   * @param initialLimit limit before any latency is measured
+   * @param minLimit     smallest limit
+   * @param maxLimit     largest limit
+   * @param clock        nanosecond clock measuring the latency
+   */
+  ConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, LongSupplier clock) {
+    Validate.isTrue(minLimit > 0, "Concurrency limit min must be greater than zero: %d", minLimit);
+    Validate.isTrue(minLimit <= initialLimit && initialLimit <= maxLimit,
+            "Concurrency limits must satisfy min <= initial <= max, got %d, %d, %d", minLimit, initialLimit, maxLimit);
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+    this.clock = clock;
+    this.limit = initialLimit;
+    this.estimatedLimit = initialLimit;
+  }
+
+  /**
+   * Admit a request if the limit allows requests of its priority
+   *
+   * @param priority request priority
+   * @return permit to release when the request completes, or null if the
+   * request is rejected
+   */
+  public Permit acquire(RequestPriority priority) {
+    final int threshold = priority.threshold(limit);
+    int current;
+    do {
+      current = inFlight.get();
+      if (current >= threshold) {
+        return null;
+      }
+    } while (!inFlight.compareAndSet(current, current + 1));
+    return new Permit(clock.getAsLong());
+  }
+
+  /**
+   * Get the current concurrency limit
+   *
+   * @return concurrency limit
+   */
+  public int limit() {
+    return limit;
+  }
+
+  /**
+   * Get the number of admitted requests that haven't completed
+   *
+   * @return requests in flight
+   */
+  public int inFlight() {
+    return inFlight.get();
+  }
+
+  private void release(long startTime) {
+    final int current = inFlight.getAndDecrement();
+    this.windowRttSum.add(clock.getAsLong() - startTime);
+    this.windowMaxInFlight.accumulateAndGet(current, Math::max);
+    if (windowSamples.incrementAndGet() >= Math.max(MIN_WINDOW_SAMPLES, limit)
+            && updating.compareAndSet(false, true)) {
+      try {
+        this.update();
+      } finally {
+        this.updating.set(false);
+      }
+    }
+  }
+
+  /**
+   * Close the window and update the limit from its samples
+   */
+  private void update() {
+    final int samples = windowSamples.getAndSet(0);
+    if (samples < Math.max(MIN_WINDOW_SAMPLES, limit)) {
+      // another request closed the window meanwhile
+      this.windowSamples.addAndGet(samples);
+      return;
+    }
+    final double rtt = (double) windowRttSum.sumThenReset() / samples;
+    final int maxInFlight = windowMaxInFlight.getAndSet(0);
+    if (rtt <= 0) {
+      return;
+    }
+    if (longRtt == 0) {
+      this.longRtt = rtt;
+    } else {
+      this.longRtt += (rtt - longRtt) * Math.min(1.0, limit / LONG_RTT_WINDOW);
+      // recover quickly after an overload inflated the average
+      if (longRtt / rtt > 2) {
+        this.longRtt *= 0.95;
+      }
+    }
+    if (maxInFlight < estimatedLimit / 2) {
+      return;
+    }
+    final double gradient = Math.max(0.5, Math.min(1.0, RTT_TOLERANCE * longRtt / rtt));
+    final double newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+    this.estimatedLimit = Math.max(minLimit, Math.min(maxLimit,
+            estimatedLimit * (1 - SMOOTHING) + newLimit * SMOOTHING));
+    this.limit = (int) estimatedLimit;
+  }
+
+  /**
+   * Admission of one request, released exactly once when the request
+   * completes
+   */
+  public final class Permit {
+    private final long startTime;
+
+    private Permit(long startTime) {
+      this.startTime = startTime;
+    }
+
+    /**
+     * Release the permit and sample the latency of the request
+     */
+    public void release() {
+      ConcurrencyLimiter.this.release(startTime);
+    }
+  }
+}
@@ -0,0 +1,75 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.server;
+
+import java.util.Objects;
+
+/**
+ * Where route handlers are executed
+ *
+ * @author WangYi
+ * @since 2021/3/6
+ */
+public enum DispatchMode {
+  /**
+   * Run the handler inline on the channel event loop, only suitable
+   * for handlers that never block
+   */
+  EVENT_LOOP("event-loop"),
+  /**
+   * Run the handler on the bounded business thread pool
+   */
+  POOL("pool"),
+  /**
+   * Run every request on its own virtual thread, requires JDK 21 or
+   * newer and falls back to {@link #POOL} on older runtimes
+   */
+  VIRTUAL("virtual");
+
+  private final String value;
+
+  DispatchMode(String value) {
+    this.value = value;
+  }
+
+  public String value() {
+    return value;
+  }
+
+  /**
+   * Get the dispatch mode of a configuration value
+   *
+   * @param value configuration value, e.g. {@code event-loop}
+   * @return dispatch mode
+   */
+  public static DispatchMode of(String value) {
+    Objects.requireNonNull(value, "dispatch mode can't be null");
+    for (DispatchMode mode : values()) {
+      if (mode.value.equalsIgnoreCase(value) || mode.name().equalsIgnoreCase(value)) {
+        return mode;
+      }
+    }
+    throw new IllegalArgumentException("Unknown dispatch mode: " + value);
+  }
+}
@@ -0,0 +1,266 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.server;
+
+import org.apache.commons.lang3.Validate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-client rate limits of route patterns. Every client key gets a token
+ * bucket per rule, kept as the theoretical arrival time of the generic cell
+ * rate algorithm in one {@link AtomicLong}, so a check is a map lookup and
+ * a compare-and-set without any lock.
+ * <p>
+ * Rules are written as {@code pattern=permits/period}, separated by
+ * {@code ;}, e.g. {@code /login=5/1m;/api/**=100/1s}. A {@code *} segment
+ * matches one path segment, a trailing {@code **} the rest of the path, the
+ * first matching rule applies. The bucket holds as many permits as the rule
+ * allows per period and refills evenly over the period. Periods are
+ * written with a {@code ms}, {@code s}, {@code m} or {@code h} unit.
+ * <p>
+ * The number of tracked keys of a rule is bounded. When the bound is
+ * reached a tenth of the keys is dropped in one pass, the fullest buckets
+ * first since they differ the least from new ones, so a flood of new keys
+ * costs one scan per batch rather than one per key.
+ *
+ * @author WangYi
+ * @since 2021/3/16
+ */
+public final class RateLimiter {
+  private static final int EVICTION_DIVISOR = 10;
+
+  private final List<Rule> rules;
+  private final int maxKeys;
+
+  private RateLimiter(List<Rule> rules, int maxKeys) {
+    this.rules = rules;
+    this.maxKeys = maxKeys;
+  }
+
+  /**
+   * Parse the rate limit rules
+   *
+   * @param rules   rules separated by {@code ;}
+   * @param maxKeys maximum number of client keys tracked per rule
+   * @return rate limiter
+   * @throws IllegalArgumentException if a rule is invalid
+   */
+  public static RateLimiter parse(String rules, int maxKeys) {
+    Validate.isTrue(maxKeys > 0, "Rate limit max keys must be greater than zero: %d", maxKeys);
+    final List<Rule> parsed = new ArrayList<>();
+    for (String rule : rules.split(";")) {
+      rule = rule.trim();
+      if (!rule.isEmpty()) {
+        parsed.add(Rule.parse(rule));
+      }
+    }
+    return new RateLimiter(Collections.unmodifiableList(parsed), maxKeys);
+  }
+
+  /**
+   * Whether any rule is configured
+   *
+   * @return true if requests may be limited
+   */
+  public boolean hasRules() {
+    return !rules.isEmpty();
+  }
+
+  /**
+   * Take a permit of the first rule matching the path for the client
+   *
+   * @param path request path without the query string
+   * @param key  client key
+   * @return zero if the request is allowed, otherwise the nanoseconds until
+   * the next permit of the client
+   */
+  public long acquire(String path, Object key) {
+    for (Rule rule : rules) {
+      if (rule.matches(path)) {
+        return rule.acquire(key, maxKeys);
+      }
+    }
+    return 0;
+  }
+
+  private static final class Rule {
+    private final String pattern;
+    private final String[] segments;
+    private final boolean prefix;
+    private final long emissionInterval;
+    private final long burstTolerance;
+    private final Map<Object, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    private Rule(String pattern, long permits, long periodNanos) {
+      this.pattern = pattern;
+      final String trimmed = pattern.startsWith("/") ? pattern.substring(1) : pattern;
+      this.prefix = trimmed.equals("**") || trimmed.endsWith("/**");
+      final String fixed = prefix ? trimmed.substring(0, Math.max(0, trimmed.length() - 3)) : trimmed;
+      this.segments = fixed.isEmpty() ? new String[0] : fixed.split("/");
+      this.emissionInterval = Math.max(1, periodNanos / permits);
+      this.burstTolerance = emissionInterval * (permits - 1);
+    }
+
+    static Rule parse(String rule) {
+      final int equals = rule.lastIndexOf('=');
+      final int slash = rule.lastIndexOf('/');
+      Validate.isTrue(equals > 0 && slash > equals, "Rate limit rule must be pattern=permits/period: %s", rule);
+      final String pattern = rule.substring(0, equals).trim();
+      final long permits;
+      try {
+        permits = Long.parseLong(rule.substring(equals + 1, slash).trim());
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException("Invalid permits of rate limit rule: " + rule, e);
+      }
+      Validate.isTrue(permits > 0, "Permits of rate limit rule must be greater than zero: %s", rule);
+      return new Rule(pattern, permits, period(rule, rule.substring(slash + 1).trim()));
+    }
+
+    private static long period(String rule, String period) {
+      int unit = 0;
+      while (unit < period.length() && Character.isDigit(period.charAt(unit))) {
+        unit++;
+      }
+      final long amount = unit == 0 ? 1 : Long.parseLong(period.substring(0, unit));
+      final TimeUnit timeUnit;
+      switch (period.substring(unit)) {
+        case "ms":
+          timeUnit = TimeUnit.MILLISECONDS;
+          break;
+        case "s":
+          timeUnit = TimeUnit.SECONDS;
+          break;
+        case "m":
+          timeUnit = TimeUnit.MINUTES;
+          break;
+        case "h":
+          timeUnit = TimeUnit.HOURS;
+          break;
+        default:
+          throw new IllegalArgumentException("Invalid period of rate limit rule: " + rule);
+      }
+      Validate.isTrue(amount > 0, "Period of rate limit rule must be greater than zero: %s", rule);
+      return timeUnit.toNanos(amount);
+    }
+
+    boolean matches(String path) {
+      int index = path.startsWith("/") ? 1 : 0;
+      for (String segment : segments) {
+        if (index > path.length()) {
+          return false;
+        }
+        int end = path.indexOf('/', index);
+        if (end < 0) {
+          end = path.length();
+        }
+        if (!"*".equals(segment) && (end - index != segment.length()
+                || !path.regionMatches(index, segment, 0, segment.length()))) {
+          return false;
+        }
+        index = end + 1;
+      }
+      return prefix || index >= path.length();
+    }
+
+    long acquire(Object key, int maxKeys) {
+      AtomicLong bucket = buckets.get(key);
+      if (bucket == null) {
+        if (buckets.size() >= maxKeys) {
+          this.evict(maxKeys);
+        }
+        bucket = buckets.computeIfAbsent(key, k -> new AtomicLong(System.nanoTime()));
+      }
+      final long now = System.nanoTime();
+      while (true) {
+        final long arrival = bucket.get();
+        final long theoretical = arrival - now < 0 ? now : arrival;
+        final long wait = theoretical - now - burstTolerance;
+        if (wait > 0) {
+          return wait;
+        }
+        if (bucket.compareAndSet(arrival, theoretical + emissionInterval)) {
+          return 0;
+        }
+      }
+    }
+
+    /**
+     * Drop a batch of the fullest buckets, those with the earliest
+     * theoretical arrival time. Only one thread evicts at a time, the
+     * others go on without waiting.
+     */
+    private void evict(int maxKeys) {
+      if (!evicting.compareAndSet(false, true)) {
+        return;
+      }
+      try {
+        final int batch = Math.max(1, maxKeys / EVICTION_DIVISOR);
+        // Max-heap of the batch, its head is the least full candidate
+        final PriorityQueue<Candidate> fullest = new PriorityQueue<>(batch + 1,
+                (a, b) -> Long.signum(b.arrival - a.arrival));
+        for (Map.Entry<Object, AtomicLong> entry : buckets.entrySet()) {
+          final long arrival = entry.getValue().get();
+          if (fullest.size() < batch) {
+            fullest.add(new Candidate(entry.getKey(), entry.getValue(), arrival));
+          } else if (arrival - fullest.peek().arrival < 0) {
+            fullest.poll();
+            fullest.add(new Candidate(entry.getKey(), entry.getValue(), arrival));
+          }
+        }
+        for (Candidate candidate : fullest) {
+          this.buckets.remove(candidate.key, candidate.bucket);
+        }
+      } finally {
+        this.evicting.set(false);
+      }
+    }
+
+    @Override
+    public String toString() {
+      return pattern;
+    }
+  }
+
+  private static final class Candidate {
+    private final Object key;
+    private final AtomicLong bucket;
+    private final long arrival;
+
+    private Candidate(Object key, AtomicLong bucket, long arrival) {
+      this.key = key;
+      this.bucket = bucket;
+      this.arrival = arrival;
+    }
+  }
+}
@@ -0,0 +1,65 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.server;
+
+/**
+ * How important the requests of a route are when the server is overloaded.
+ * Each priority may use a share of the concurrency limit, so less important
+ * requests are shed first while the limit adapts.
+ *
+ * @author WangYi
+ * @since 2021/3/15
+ */
+public enum RequestPriority {
+  /**
+   * Requests that may use the whole concurrency limit, e.g. health checks
+   * or payments
+   */
+  CRITICAL(1.0),
+  /**
+   * Requests of routes without a priority
+   */
+  NORMAL(0.9),
+  /**
+   * Requests shed first, e.g. prefetching or reporting
+   */
+  SHEDDABLE(0.75);
+
+  private final double share;
+
+  RequestPriority(double share) {
+    this.share = share;
+  }
+
+  /**
+   * Get the number of requests in flight up to which requests of this
+   * priority are admitted
+   *
+   * @param limit current concurrency limit
+   * @return admission threshold, at least one
+   */
+  public int threshold(int limit) {
+    return Math.max(1, (int) Math.ceil(limit * share));
+  }
+}
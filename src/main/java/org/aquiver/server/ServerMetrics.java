@@ -0,0 +1,127 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.server;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of the server, shared by all connections. Counters only grow,
+ * rates are left to whoever polls them.
+ *
+ * @author WangYi
+ * @since 2021/3/13
+ */
+public final class ServerMetrics {
+  private static final ServerMetrics INSTANCE = new ServerMetrics();
+
+  private final Map<CloseReason, LongAdder> closedConnections = new EnumMap<>(CloseReason.class);
+  private final Map<RejectReason, LongAdder> rejectedRequests = new EnumMap<>(RejectReason.class);
+
+  private ServerMetrics() {
+    for (CloseReason reason : CloseReason.values()) {
+      this.closedConnections.put(reason, new LongAdder());
+    }
+    for (RejectReason reason : RejectReason.values()) {
+      this.rejectedRequests.put(reason, new LongAdder());
+    }
+  }
+
+  public static ServerMetrics of() {
+    return INSTANCE;
+  }
+
+  /**
+   * Count a connection closed by the server
+   *
+   * @param reason why the connection was closed
+   */
+  public void connectionClosed(CloseReason reason) {
+    this.closedConnections.get(reason).increment();
+  }
+
+  /**
+   * Get the number of connections closed by the server for a reason
+   *
+   * @param reason why the connections were closed
+   * @return closed connections
+   */
+  public long closedConnections(CloseReason reason) {
+    return closedConnections.get(reason).sum();
+  }
+
+  /**
+   * Count a request rejected before its handler ran
+   *
+   * @param reason why the request was rejected
+   */
+  public void requestRejected(RejectReason reason) {
+    this.rejectedRequests.get(reason).increment();
+  }
+
+  /**
+   * Get the number of requests rejected for a reason
+   *
+   * @param reason why the requests were rejected
+   * @return rejected requests
+   */
+  public long rejectedRequests(RejectReason reason) {
+    return rejectedRequests.get(reason).sum();
+  }
+
+  /**
+   * Why the server closed a connection
+   */
+  public enum CloseReason {
+    /** no request within the keep-alive idle timeout */
+    IDLE,
+    /** request line and headers not received within the header timeout */
+    REQUEST_HEADER_TIMEOUT,
+    /** request not fully received within the request timeout */
+    REQUEST_TIMEOUT,
+    /** no data received within the read timeout while receiving a request */
+    READ_TIMEOUT,
+    /** a write not completed within the write timeout */
+    WRITE_TIMEOUT,
+    /** request line or headers larger than the configured limits */
+    REQUEST_HEADER_TOO_LARGE,
+    /** request that could not be decoded */
+    MALFORMED_REQUEST
+  }
+
+  /**
+   * Why the server rejected a request
+   */
+  public enum RejectReason {
+    /** the concurrency limit of the request priority was reached */
+    CONCURRENCY_LIMIT,
+    /** the dispatch executor queue was full */
+    EXECUTOR_SATURATED,
+    /** the client exceeded its rate limit */
+    RATE_LIMIT,
+    /** too many pipelined requests were queued on the connection */
+    PIPELINE_LIMIT
+  }
+}
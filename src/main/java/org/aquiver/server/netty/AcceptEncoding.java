@@ -0,0 +1,100 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.server.netty;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The content codings of an {@code Accept-Encoding} request header with
+ * their quality values. A coding the header doesn't name gets the quality
+ * of {@code *}, {@code x-gzip} is the same coding as {@code gzip}.
+ *
+ * @author WangYi
+ * @since 2021/3/21
+ */
+final class AcceptEncoding {
+  private static final AcceptEncoding NONE = new AcceptEncoding(new HashMap<>(0));
+  private static final String WILDCARD = "*";
+
+  private final Map<String, Float> qualities;
+
+  private AcceptEncoding(Map<String, Float> qualities) {
+    this.qualities = qualities;
+  }
+
+  /**
+   * Parse an accept-encoding header value
+   *
+   * @param acceptEncoding header value, may be null
+   * @return accepted codings
+   */
+  static AcceptEncoding parse(String acceptEncoding) {
+    if (acceptEncoding == null || acceptEncoding.isEmpty()) {
+      return NONE;
+    }
+    final Map<String, Float> qualities = new HashMap<>(4);
+    for (String coding : acceptEncoding.split(",")) {
+      float quality = 1;
+      final int semicolon = coding.indexOf(';');
+      if (semicolon >= 0) {
+        quality = parseQuality(coding.substring(semicolon + 1));
+        coding = coding.substring(0, semicolon);
+      }
+      coding = coding.trim().toLowerCase(Locale.ROOT);
+      if (!coding.isEmpty()) {
+        qualities.put("x-gzip".equals(coding) ? "gzip" : coding, quality);
+      }
+    }
+    return new AcceptEncoding(qualities);
+  }
+
+  private static float parseQuality(String parameters) {
+    for (String parameter : parameters.split(";")) {
+      parameter = parameter.trim();
+      if (parameter.startsWith("q=") || parameter.startsWith("Q=")) {
+        try {
+          final float quality = Float.parseFloat(parameter.substring(2).trim());
+          return quality > 0 ? Math.min(quality, 1) : 0;
+        } catch (NumberFormatException e) {
+          return 0;
+        }
+      }
+    }
+    return 1;
+  }
+
+  /**
+   * @param coding lower case content coding
+   * @return quality of the coding between 0 and 1, 0 if it isn't acceptable
+   */
+  float quality(String coding) {
+    Float quality = qualities.get(coding);
+    if (quality == null) {
+      quality = qualities.get(WILDCARD);
+    }
+    return quality == null ? 0 : quality;
+  }
+}
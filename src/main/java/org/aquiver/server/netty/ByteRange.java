@@ -0,0 +1,171 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.server.netty;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A satisfiable range of a {@code Range: bytes=...} request header.
+ * Overlapping and adjacent ranges are coalesced, and a header asking for
+ * more bytes than the resource has is answered with the whole resource,
+ * so a client can't make the server send a small file many times over.
+ *
+ * @author WangYi
+ * @since 2021/3/7
+ */
+final class ByteRange {
+  /**
+   * Requests asking for more ranges are answered with the whole resource
+   */
+  static final int MAX_RANGES = 16;
+
+  private static final String BYTES_UNIT = "bytes=";
+  private static final ByteRange INVALID = new ByteRange(-1, -1);
+
+  private final long start;
+  private final long end;
+
+  private ByteRange(long start, long end) {
+    this.start = start;
+    this.end = end;
+  }
+
+  /**
+   * Parse the range header of a resource
+   *
+   * @param header range header value
+   * @param length resource length
+   * @return the satisfiable ranges in ascending order without overlaps,
+   * empty if no range is satisfiable, or null if the header is invalid or
+   * too expensive and the whole resource should be sent
+   */
+  static List<ByteRange> parse(String header, long length) {
+    if (!header.startsWith(BYTES_UNIT)) {
+      return null;
+    }
+    final String[] specs = header.substring(BYTES_UNIT.length()).split(",");
+    if (specs.length > MAX_RANGES) {
+      return null;
+    }
+    final List<ByteRange> ranges = new ArrayList<>(specs.length);
+    long requested = 0;
+    for (String spec : specs) {
+      spec = spec.trim();
+      final int dash = spec.indexOf('-');
+      if (dash < 0) {
+        return null;
+      }
+      try {
+        final ByteRange range = dash == 0 ? suffix(spec, length) : range(spec, dash, length);
+        if (range == INVALID) {
+          return null;
+        }
+        if (range != null) {
+          ranges.add(range);
+          requested += range.length();
+        }
+      } catch (NumberFormatException e) {
+        return null;
+      }
+      if (requested > length) {
+        return null;
+      }
+    }
+    return coalesce(ranges);
+  }
+
+  /**
+   * Parse a {@code -suffix} range spec
+   *
+   * @return range of the last bytes, null if it isn't satisfiable, or {@link #INVALID}
+   */
+  private static ByteRange suffix(String spec, long length) {
+    final long suffix = Long.parseLong(spec.substring(1));
+    if (suffix < 0) {
+      return INVALID;
+    }
+    if (suffix == 0 || length <= 0) {
+      return null;
+    }
+    return new ByteRange(Math.max(0, length - suffix), length - 1);
+  }
+
+  /**
+   * Parse a {@code first-last} or {@code first-} range spec
+   *
+   * @return range, null if it isn't satisfiable, or {@link #INVALID}
+   */
+  private static ByteRange range(String spec, int dash, long length) {
+    final long first = Long.parseLong(spec.substring(0, dash));
+    final long last = dash == spec.length() - 1 ? Long.MAX_VALUE : Long.parseLong(spec.substring(dash + 1));
+    if (first < 0 || last < first) {
+      return INVALID;
+    }
+    return first < length ? new ByteRange(first, Math.min(last, length - 1)) : null;
+  }
+
+  /**
+   * Merge overlapping and adjacent ranges
+   *
+   * @param ranges satisfiable ranges
+   * @return ranges sorted by start, none overlapping or adjacent to another
+   */
+  private static List<ByteRange> coalesce(List<ByteRange> ranges) {
+    if (ranges.size() < 2) {
+      return ranges;
+    }
+    ranges.sort(Comparator.comparingLong(ByteRange::start));
+    final List<ByteRange> merged = new ArrayList<>(ranges.size());
+    ByteRange current = ranges.get(0);
+    for (int i = 1; i < ranges.size(); i++) {
+      final ByteRange next = ranges.get(i);
+      if (next.start <= current.end + 1) {
+        current = new ByteRange(current.start, Math.max(current.end, next.end));
+      } else {
+        merged.add(current);
+        current = next;
+      }
+    }
+    merged.add(current);
+    return merged;
+  }
+
+  long start() {
+    return start;
+  }
+
+  long end() {
+    return end;
+  }
+
+  long length() {
+    return end - start + 1;
+  }
+
+  String contentRange(long total) {
+    return "bytes " + start + "-" + end + "/" + total;
+  }
+}
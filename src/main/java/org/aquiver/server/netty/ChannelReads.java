@@ -0,0 +1,102 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.server.netty;
+
+import io.netty.channel.Channel;
+import io.netty.util.AttributeKey;
+
+/**
+ * Suspends the reads of a channel for independent reasons. Reads resume
+ * only when every reason that suspended them was lifted, so a component
+ * resuming reads can't undo the backpressure of another one.
+ *
+ * @author WangYi
+ * @since 2021/3/21
+ */
+public final class ChannelReads {
+  /** A streamed body has more unread chunks than its high water mark */
+  public static final int BODY_STREAM = 1;
+  /** Requests of the channel wait for the running route handler */
+  public static final int PIPELINE = 1 << 1;
+  /** A spilled request body waits for its pending disk write */
+  public static final int BODY_SPILL = 1 << 2;
+
+  private static final AttributeKey<Suspension> SUSPENSION =
+          AttributeKey.valueOf(ChannelReads.class, "suspension");
+
+  private ChannelReads() {
+  }
+
+  /**
+   * Suspend the reads of the channel, may be called from any thread
+   *
+   * @param channel channel
+   * @param reason  suspension reason
+   */
+  public static void suspend(Channel channel, int reason) {
+    suspension(channel).update(channel, reason, true);
+  }
+
+  /**
+   * Lift a suspension reason, reads resume if no other reason is left
+   *
+   * @param channel channel
+   * @param reason  suspension reason
+   */
+  public static void resume(Channel channel, int reason) {
+    suspension(channel).update(channel, reason, false);
+  }
+
+  /**
+   * @param channel channel
+   * @param reason  suspension reason
+   * @return whether the reads are suspended for the reason
+   */
+  public static boolean isSuspended(Channel channel, int reason) {
+    return (suspension(channel).reasons & reason) != 0;
+  }
+
+  private static Suspension suspension(Channel channel) {
+    final Suspension suspension = channel.attr(SUSPENSION).get();
+    if (suspension != null) {
+      return suspension;
+    }
+    final Suspension created = new Suspension();
+    final Suspension existing = channel.attr(SUSPENSION).setIfAbsent(created);
+    return existing == null ? created : existing;
+  }
+
+  private static final class Suspension {
+    private volatile int reasons;
+
+    private synchronized void update(Channel channel, int reason, boolean suspend) {
+      final int reasons = suspend ? this.reasons | reason : this.reasons & ~reason;
+      if (reasons == this.reasons) {
+        return;
+      }
+      this.reasons = reasons;
+      channel.config().setAutoRead(reasons == 0);
+    }
+  }
+}
@@ -0,0 +1,182 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.server.netty;
+
+import org.aquiver.server.DispatchMode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executors that route handlers are dispatched to. The business pool is
+ * bounded and rejects requests once its queue is full, the virtual thread
+ * executor is only available on JDK 21 or newer. Both are created when
+ * a route first needs them.
+ * <p>
+ * Blocking file work of the server itself, such as writing spilled request
+ * bodies or compressing static resources, runs on a separate small pool so
+ * that it neither blocks an event loop nor competes with route handlers
+ * for the bounded business queue.
+ *
+ * @author WangYi
+ * @since 2021/3/6
+ */
+public class DispatchExecutors {
+  private static final Logger log = LoggerFactory.getLogger(DispatchExecutors.class);
+  private static final long POOL_KEEP_ALIVE_SECONDS = 60;
+
+  private final DispatchMode defaultMode;
+  private final int poolSize;
+  private final int queueSize;
+  private volatile ExecutorService pool;
+  private volatile ExecutorService virtual;
+  private volatile ExecutorService io;
+  private volatile boolean virtualResolved;
+
+  public DispatchExecutors(DispatchMode defaultMode, int poolSize, int queueSize) {
+    this.defaultMode = Objects.requireNonNull(defaultMode, "defaultMode can't be null");
+    this.poolSize = Math.max(1, poolSize);
+    this.queueSize = Math.max(1, queueSize);
+  }
+
+  public DispatchMode defaultMode() {
+    return defaultMode;
+  }
+
+  /**
+   * Get the executor of a dispatch mode
+   *
+   * @param mode dispatch mode, null means the configured default
+   * @return executor, or null if the handler runs on the event loop
+   */
+  public Executor executor(DispatchMode mode) {
+    switch (Objects.isNull(mode) ? defaultMode : mode) {
+      case POOL:
+        return pool();
+      case VIRTUAL:
+        final ExecutorService virtual = virtual();
+        return Objects.nonNull(virtual) ? virtual : pool();
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Get the executor of blocking file work. Callers bound the queued work
+   * themselves, typically by suspending the reads of the channel.
+   *
+   * @return file work executor
+   */
+  public Executor io() {
+    ExecutorService io = this.io;
+    if (Objects.isNull(io)) {
+      synchronized (this) {
+        io = this.io;
+        if (Objects.isNull(io)) {
+          final int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+          final ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads,
+                  POOL_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                  new NettyThreadFactory("io@"));
+          executor.allowCoreThreadTimeOut(true);
+          this.io = io = executor;
+        }
+      }
+    }
+    return io;
+  }
+
+  private ExecutorService pool() {
+    ExecutorService pool = this.pool;
+    if (Objects.isNull(pool)) {
+      synchronized (this) {
+        pool = this.pool;
+        if (Objects.isNull(pool)) {
+          final ThreadPoolExecutor executor = new ThreadPoolExecutor(poolSize, poolSize,
+                  POOL_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queueSize),
+                  new NettyThreadFactory("dispatch@"), new ThreadPoolExecutor.AbortPolicy());
+          executor.allowCoreThreadTimeOut(true);
+          this.pool = pool = executor;
+        }
+      }
+    }
+    return pool;
+  }
+
+  private ExecutorService virtual() {
+    if (!virtualResolved) {
+      synchronized (this) {
+        if (!virtualResolved) {
+          this.virtual = newVirtualThreadPerTaskExecutor();
+          this.virtualResolved = true;
+        }
+      }
+    }
+    return virtual;
+  }
+
+  /**
+   * Looked up reflectively so the framework keeps running on JDK 8
+   *
+   * @return virtual thread executor, or null if the runtime has no virtual threads
+   */
+  private static ExecutorService newVirtualThreadPerTaskExecutor() {
+    try {
+      final MethodHandle factory = MethodHandles.publicLookup().findStatic(Executors.class,
+              "newVirtualThreadPerTaskExecutor", MethodType.methodType(ExecutorService.class));
+      return (ExecutorService) factory.invoke();
+    } catch (NoSuchMethodException e) {
+      log.warn("Virtual threads require JDK 21 or newer, dispatching to the business pool instead");
+      return null;
+    } catch (Throwable e) {
+      log.warn("Virtual threads are not available, dispatching to the business pool instead", e);
+      return null;
+    }
+  }
+
+  /**
+   * Stop accepting new tasks, running handlers are allowed to finish
+   */
+  public void shutdown() {
+    if (Objects.nonNull(pool)) {
+      pool.shutdown();
+    }
+    if (Objects.nonNull(virtual)) {
+      virtual.shutdown();
+    }
+    if (Objects.nonNull(io)) {
+      io.shutdown();
+    }
+  }
+}
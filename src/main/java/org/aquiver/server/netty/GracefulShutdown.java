@@ -0,0 +1,172 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.server.netty;
+
+import io.netty.channel.Channel;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.channel.group.DefaultChannelGroup;
+import io.netty.handler.codec.http.websocketx.CloseWebSocketFrame;
+import io.netty.handler.codec.http2.Http2FrameCodec;
+import io.netty.util.concurrent.GlobalEventExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Track the connections, in-flight requests and WebSocket sessions of the
+ * server so that it can stop without cutting them off. Once the listeners
+ * are closed, {@link #drain(long)} asks every connection to finish: HTTP/1
+ * connections answer their pending requests with {@code Connection: close}
+ * and idle ones are closed at once, HTTP/2 connections send a GOAWAY and
+ * finish their open streams. WebSocket sessions are left to end on their
+ * own. Whatever is still open at the deadline is closed.
+ *
+ * @author WangYi
+ * @since 2021/3/14
+ */
+public final class GracefulShutdown {
+  private static final Logger log = LoggerFactory.getLogger(GracefulShutdown.class);
+
+  /**
+   * User event fired on HTTP/1 connections when the server starts draining
+   */
+  public static final Object DRAIN = new Object() {
+    @Override
+    public String toString() {
+      return "GracefulShutdown.DRAIN";
+    }
+  };
+
+  private final ChannelGroup connections = new DefaultChannelGroup("connections", GlobalEventExecutor.INSTANCE);
+  private final ChannelGroup sessions = new DefaultChannelGroup("websocket-sessions", GlobalEventExecutor.INSTANCE);
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private volatile boolean draining;
+
+  /**
+   * Track an accepted connection, connections accepted while draining are
+   * closed right away
+   *
+   * @param channel accepted connection
+   */
+  void connectionOpened(Channel channel) {
+    this.connections.add(channel);
+    if (draining) {
+      channel.close();
+    }
+  }
+
+  /**
+   * Count a request being served until {@link #requestCompleted()}
+   */
+  public void requestStarted() {
+    this.inFlight.incrementAndGet();
+  }
+
+  /**
+   * Count a request whose response has been written or whose connection
+   * has been closed
+   */
+  public void requestCompleted() {
+    if (inFlight.decrementAndGet() == 0 && draining) {
+      synchronized (this) {
+        this.notifyAll();
+      }
+    }
+  }
+
+  /**
+   * Count a WebSocket session until its channel is closed
+   *
+   * @param channel session channel
+   */
+  public void sessionOpened(Channel channel) {
+    this.requestStarted();
+    this.sessions.add(channel);
+    channel.closeFuture().addListener(future -> requestCompleted());
+  }
+
+  /**
+   * Whether the server is draining, responses should close their
+   * connection
+   *
+   * @return draining status
+   */
+  public boolean isDraining() {
+    return draining;
+  }
+
+  /**
+   * Get the number of requests and WebSocket sessions in flight
+   *
+   * @return in-flight requests and sessions
+   */
+  public int inFlight() {
+    return inFlight.get();
+  }
+
+  /**
+   * Ask every connection to finish and wait for the in-flight requests and
+   * sessions, then close the connections still open. The listeners must be
+   * closed first.
+   *
+   * @param timeoutMillis longest wait for in-flight requests and sessions
+   * @return whether everything finished before the deadline
+   */
+  boolean drain(long timeoutMillis) {
+    this.draining = true;
+    for (Channel channel : connections) {
+      if (channel.pipeline().get(Http2FrameCodec.class) != null) {
+        // sends a GOAWAY and closes once the open streams are done
+        channel.close();
+      } else {
+        channel.pipeline().fireUserEventTriggered(DRAIN);
+      }
+    }
+    final boolean drained = awaitInFlight(timeoutMillis);
+    if (!drained) {
+      log.warn("{} requests or WebSocket sessions still in flight after {} ms, closing them",
+              inFlight.get(), timeoutMillis);
+      this.sessions.writeAndFlush(new CloseWebSocketFrame(1001, "Server shutting down"));
+    }
+    this.connections.close().awaitUninterruptibly(timeoutMillis, TimeUnit.MILLISECONDS);
+    return drained;
+  }
+
+  private synchronized boolean awaitInFlight(long timeoutMillis) {
+    final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    long remaining = timeoutMillis;
+    while (inFlight.get() > 0 && remaining > 0) {
+      try {
+        this.wait(remaining);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return false;
+      }
+      remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+    }
+    return inFlight.get() == 0;
+  }
+}
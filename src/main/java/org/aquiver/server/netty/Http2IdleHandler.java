@@ -0,0 +1,70 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.server.netty;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http2.Http2FrameCodec;
+import io.netty.handler.timeout.IdleState;
+import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.handler.timeout.IdleStateHandler;
+import org.aquiver.server.ServerMetrics;
+import org.aquiver.server.ServerMetrics.CloseReason;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Close HTTP/2 connections that neither read nor write for the idle
+ * timeout while no stream is open. Closing goes through the frame codec,
+ * which sends {@code GOAWAY} first. The timeouts of a request being
+ * received are enforced per stream by {@link HttpTimeoutHandler}.
+ *
+ * @author WangYi
+ * @since 2021/3/21
+ */
+final class Http2IdleHandler extends IdleStateHandler {
+  private static final Logger log = LoggerFactory.getLogger(Http2IdleHandler.class);
+
+  /**
+   * @param idleTimeout seconds without reads and writes before the connection is closed
+   */
+  Http2IdleHandler(int idleTimeout) {
+    super(0, 0, idleTimeout, TimeUnit.SECONDS);
+  }
+
+  @Override
+  protected void channelIdle(ChannelHandlerContext ctx, IdleStateEvent evt) {
+    if (evt.state() != IdleState.ALL_IDLE) {
+      return;
+    }
+    final Http2FrameCodec frameCodec = ctx.pipeline().get(Http2FrameCodec.class);
+    if (frameCodec != null && frameCodec.connection().numActiveStreams() > 0) {
+      return;
+    }
+    ServerMetrics.of().connectionClosed(CloseReason.IDLE);
+    log.debug("Closing connection {}: {}", ctx.channel().remoteAddress(), CloseReason.IDLE);
+    ctx.close();
+  }
+}
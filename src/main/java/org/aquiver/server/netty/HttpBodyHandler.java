@@ -0,0 +1,310 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.server.netty;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpExpectationFailedEvent;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.util.ReferenceCountUtil;
+import org.apache.commons.lang3.Validate;
+import org.apex.ApexContext;
+import org.aquiver.mvc.http.BodyStream;
+import org.aquiver.mvc.http.HttpMethod;
+import org.aquiver.mvc.http.StreamingHttpRequest;
+import org.aquiver.mvc.router.RestfulRouter;
+import org.aquiver.mvc.router.RouteMatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Turn the request head and its content chunks into one request for the
+ * handlers behind it. Bodies are aggregated in memory or, above the spill
+ * threshold, in a temporary file. Routes that declare a {@link BodyStream}
+ * parameter get the request right after its head and receive the chunks
+ * through the stream instead, the size limit does not apply to them.
+ * <p>
+ * Requests whose body exceeds the size limit are answered with 413 as soon
+ * as it is known, from the {@code Content-Length} header before the client
+ * is told to continue, or while the body is received.
+ * <p>
+ * A spilled body is written on the file work executor, until the last write
+ * finished the messages that follow it are held back so that pipelined
+ * requests keep their order.
+ *
+ * @author WangYi
+ * @since 2021/3/6
+ */
+public class HttpBodyHandler extends ChannelInboundHandlerAdapter {
+  private static final Logger log = LoggerFactory.getLogger(HttpBodyHandler.class);
+
+  private final int maxSize;
+  private final int spillThreshold;
+  private final RestfulRouter restfulRouter;
+  private final Executor executor;
+  private final Queue<Object> held = new ArrayDeque<>();
+  private HttpRequest head;
+  private RequestBodyBuffer body;
+  private BodyStream bodyStream;
+  private boolean discarding;
+  private boolean completing;
+
+  /**
+   * @param maxSize        largest accepted body in bytes
+   * @param spillThreshold body size above which the body is written to
+   *                       disk, negative to always keep bodies in memory
+   */
+  public HttpBodyHandler(int maxSize, int spillThreshold) {
+    Validate.isTrue(maxSize > 0, "Request body max size must be positive: %d", maxSize);
+    this.maxSize = maxSize;
+    this.spillThreshold = spillThreshold;
+    this.restfulRouter = ApexContext.of().getBean(RestfulRouter.class);
+    final DispatchExecutors dispatchExecutors = ApexContext.of().getBean(DispatchExecutors.class);
+    this.executor = Objects.isNull(dispatchExecutors) ? Runnable::run : dispatchExecutors.io();
+  }
+
+  @Override
+  public void channelRead(ChannelHandlerContext ctx, Object msg) {
+    if (completing) {
+      this.held.add(msg);
+    } else if (msg instanceof HttpRequest) {
+      this.readHead(ctx, (HttpRequest) msg);
+    } else if (msg instanceof HttpContent) {
+      this.readContent(ctx, (HttpContent) msg);
+    } else {
+      ctx.fireChannelRead(msg);
+    }
+  }
+
+  @Override
+  public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+    this.reset();
+    this.releaseHeld();
+    super.channelInactive(ctx);
+  }
+
+  @Override
+  public void handlerRemoved(ChannelHandlerContext ctx) {
+    this.reset();
+    this.releaseHeld();
+  }
+
+  private void readHead(ChannelHandlerContext ctx, HttpRequest request) {
+    this.reset();
+    if (this.isBodyStreamRoute(request)) {
+      this.stream(ctx, request);
+      return;
+    }
+    if (isUnsupportedExpectation(request)) {
+      ReferenceCountUtil.release(request);
+      this.discarding = !(request instanceof LastHttpContent);
+      this.respond(ctx, request.protocolVersion(), HttpResponseStatus.EXPECTATION_FAILED, true);
+      return;
+    }
+    if (HttpUtil.getContentLength(request, -1L) > maxSize
+            || (request instanceof FullHttpRequest && ((FullHttpRequest) request).content().readableBytes() > maxSize)) {
+      final boolean expectContinue = HttpUtil.is100ContinueExpected(request);
+      ReferenceCountUtil.release(request);
+      if (expectContinue) {
+        // The client waits for the verdict, the decoder is told to skip the announced body
+        ctx.pipeline().fireUserEventTriggered(HttpExpectationFailedEvent.INSTANCE);
+      } else {
+        this.discarding = !(request instanceof LastHttpContent);
+      }
+      this.respond(ctx, request.protocolVersion(), HttpResponseStatus.REQUEST_ENTITY_TOO_LARGE, !expectContinue);
+      return;
+    }
+    if (request instanceof FullHttpRequest) {
+      ctx.fireChannelRead(request);
+      return;
+    }
+    if (HttpUtil.is100ContinueExpected(request)) {
+      ctx.writeAndFlush(new DefaultFullHttpResponse(request.protocolVersion(),
+              HttpResponseStatus.CONTINUE, Unpooled.EMPTY_BUFFER));
+      request.headers().remove(HttpHeaderNames.EXPECT);
+    }
+    this.head = request;
+    this.body = new RequestBodyBuffer(ctx.channel(), ctx.alloc(), spillThreshold, executor);
+  }
+
+  private void readContent(ChannelHandlerContext ctx, HttpContent content) {
+    final boolean last = content instanceof LastHttpContent;
+    try {
+      if (discarding) {
+        this.discarding = !last;
+      } else if (Objects.nonNull(bodyStream)) {
+        this.bodyStream.offer(content.content().retain());
+        if (last) {
+          this.bodyStream.complete();
+          this.bodyStream = null;
+        }
+      } else if (Objects.nonNull(head)) {
+        this.aggregate(ctx, content, last);
+      }
+    } finally {
+      content.release();
+    }
+  }
+
+  private void aggregate(ChannelHandlerContext ctx, HttpContent content, boolean last) {
+    final HttpVersion version = head.protocolVersion();
+    if ((long) body.size() + content.content().readableBytes() > maxSize) {
+      this.reset();
+      this.discarding = !last;
+      this.respond(ctx, version, HttpResponseStatus.REQUEST_ENTITY_TOO_LARGE, true);
+      return;
+    }
+    this.body.append(content.content());
+    if (last) {
+      this.complete(ctx, (LastHttpContent) content);
+    }
+  }
+
+  private void complete(ChannelHandlerContext ctx, LastHttpContent last) {
+    final HttpRequest head = this.head;
+    final HttpHeaders trailingHeaders = last.trailingHeaders();
+    final CompletableFuture<ByteBuf> content = body.content();
+    this.body = null;
+    this.head = null;
+    if (content.isDone() && !content.isCompletedExceptionally()) {
+      this.fire(ctx, head, trailingHeaders, content.join());
+      return;
+    }
+    this.completing = true;
+    content.whenComplete((buf, e) -> ctx.executor().execute(() -> {
+      this.completing = false;
+      if (Objects.nonNull(e)) {
+        log.error("Failed to buffer the request body", e);
+        this.releaseHeld();
+        this.respond(ctx, head.protocolVersion(), HttpResponseStatus.INTERNAL_SERVER_ERROR, true);
+        return;
+      }
+      if (!ctx.channel().isActive()) {
+        buf.release();
+        return;
+      }
+      this.fire(ctx, head, trailingHeaders, buf);
+      Object msg;
+      while (!completing && (msg = held.poll()) != null) {
+        this.channelRead(ctx, msg);
+      }
+    }));
+  }
+
+  private void fire(ChannelHandlerContext ctx, HttpRequest head, HttpHeaders trailingHeaders, ByteBuf content) {
+    final FullHttpRequest request = new DefaultFullHttpRequest(head.protocolVersion(),
+            head.method(), head.uri(), content, head.headers(), trailingHeaders);
+    request.setDecoderResult(head.decoderResult());
+    if (HttpUtil.isTransferEncodingChunked(request)) {
+      HttpUtil.setTransferEncodingChunked(request, false);
+    }
+    HttpUtil.setContentLength(request, content.readableBytes());
+    ctx.fireChannelRead(request);
+  }
+
+  private boolean isBodyStreamRoute(HttpRequest request) {
+    if (Objects.isNull(restfulRouter) || !restfulRouter.hasBodyStreamRoutes()) {
+      return false;
+    }
+    final HttpMethod httpMethod = HttpMethod.of(request.method().name());
+    if (Objects.isNull(httpMethod)) {
+      return false;
+    }
+    final RouteMatch routeMatch = restfulRouter.lookup(httpMethod, request.uri());
+    return Objects.nonNull(routeMatch) && routeMatch.isMethodAllowed()
+            && routeMatch.getRouteInfo().isBodyStream();
+  }
+
+  private void stream(ChannelHandlerContext ctx, HttpRequest request) {
+    final BodyStream stream = new BodyStream(ctx.channel());
+    if (request instanceof FullHttpRequest) {
+      stream.offer(((FullHttpRequest) request).content().retain());
+      stream.complete();
+      ReferenceCountUtil.release(request);
+    } else {
+      if (HttpUtil.is100ContinueExpected(request)) {
+        ctx.writeAndFlush(new DefaultFullHttpResponse(request.protocolVersion(),
+                HttpResponseStatus.CONTINUE, Unpooled.EMPTY_BUFFER));
+        request.headers().remove(HttpHeaderNames.EXPECT);
+      }
+      this.bodyStream = stream;
+    }
+    ctx.fireChannelRead(new StreamingHttpRequest(request, stream));
+  }
+
+  private static boolean isUnsupportedExpectation(HttpRequest request) {
+    return request.headers().contains(HttpHeaderNames.EXPECT) && !HttpUtil.is100ContinueExpected(request);
+  }
+
+  private void respond(ChannelHandlerContext ctx, HttpVersion version, HttpResponseStatus status, boolean close) {
+    final FullHttpResponse response = new DefaultFullHttpResponse(version, status, Unpooled.EMPTY_BUFFER);
+    HttpUtil.setContentLength(response, 0);
+    if (close) {
+      HttpUtil.setKeepAlive(response, false);
+    }
+    ctx.writeAndFlush(response).addListener(close
+            ? ChannelFutureListener.CLOSE : ChannelFutureListener.CLOSE_ON_FAILURE);
+  }
+
+  private void reset() {
+    if (Objects.nonNull(body)) {
+      this.body.release();
+      this.body = null;
+    }
+    if (Objects.nonNull(bodyStream)) {
+      this.bodyStream.fail(new ClosedChannelException());
+      this.bodyStream = null;
+    }
+    this.head = null;
+    this.discarding = false;
+  }
+
+  private void releaseHeld() {
+    Object msg;
+    while ((msg = held.poll()) != null) {
+      ReferenceCountUtil.release(msg);
+    }
+  }
+}
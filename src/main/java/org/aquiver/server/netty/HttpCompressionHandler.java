@@ -0,0 +1,209 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.server.netty;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.compression.ZlibWrapper;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpContentCompressor;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpUtil;
+import org.apache.commons.lang3.Validate;
+import org.aquiver.mvc.http.MimeTypes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Response compression stage, placed after the http codec so that it sees
+ * requests and responses as http objects. The encoding is negotiated from
+ * {@code Accept-Encoding}, the client's quality values first and the
+ * configured algorithm order on ties.
+ * <p>
+ * Responses are sent as they are when they already carry a
+ * {@code Content-Encoding}, their content type isn't compressible, their
+ * body is smaller than the minimum size, or they announce a
+ * {@code Content-Length} without being full responses, since such bodies may
+ * be written as file regions this stage can't see. Requests that arrive
+ * compressed get uncompressed responses.
+ *
+ * @author WangYi
+ * @since 2021/3/12
+ */
+final class HttpCompressionHandler extends HttpContentCompressor {
+  private static final Logger log = LoggerFactory.getLogger(HttpCompressionHandler.class);
+
+  private final List<ZlibWrapper> algorithms;
+  private final Set<String> mimeTypes;
+
+  /**
+   * @param algorithms algorithms in order of preference, from {@link #algorithms(String)}
+   * @param level      compression level, 0 to 9
+   * @param minSize    smallest body compressed in bytes
+   * @param mimeTypes  compressible content types from {@link #mimeTypes(String)},
+   *                   empty to use {@link MimeTypes#isCompressible(String)}
+   */
+  HttpCompressionHandler(List<ZlibWrapper> algorithms, int level, int minSize, Set<String> mimeTypes) {
+    super(level, 15, 8, minSize);
+    this.algorithms = algorithms;
+    this.mimeTypes = mimeTypes;
+  }
+
+  /**
+   * Parse the configured algorithms, brotli and zstd are skipped with a
+   * warning since no encoder for them is available
+   *
+   * @param value comma separated algorithms in order of preference
+   * @return supported algorithms in order of preference
+   */
+  static List<ZlibWrapper> algorithms(String value) {
+    final List<ZlibWrapper> algorithms = new ArrayList<>(2);
+    for (String algorithm : value.split(",")) {
+      algorithm = algorithm.trim().toLowerCase(Locale.ROOT);
+      switch (algorithm) {
+        case "":
+          break;
+        case "gzip":
+          addAlgorithm(algorithms, ZlibWrapper.GZIP);
+          break;
+        case "deflate":
+          addAlgorithm(algorithms, ZlibWrapper.ZLIB);
+          break;
+        case "br":
+        case "zstd":
+          log.warn("No {} encoder is available, responses are not compressed with it", algorithm);
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown compression algorithm: " + algorithm);
+      }
+    }
+    Validate.isTrue(!algorithms.isEmpty(), "No supported compression algorithm in: %s", value);
+    return Collections.unmodifiableList(algorithms);
+  }
+
+  private static void addAlgorithm(List<ZlibWrapper> algorithms, ZlibWrapper algorithm) {
+    if (!algorithms.contains(algorithm)) {
+      algorithms.add(algorithm);
+    }
+  }
+
+  /**
+   * Parse the configured compressible content types, a type ending with
+   * {@code /*} matches all its subtypes
+   *
+   * @param value comma separated content types
+   * @return lower case content types
+   */
+  static Set<String> mimeTypes(String value) {
+    final Set<String> mimeTypes = new HashSet<>();
+    for (String mimeType : value.split(",")) {
+      mimeType = mimeType.trim().toLowerCase(Locale.ROOT);
+      if (!mimeType.isEmpty()) {
+        mimeTypes.add(mimeType);
+      }
+    }
+    return Collections.unmodifiableSet(mimeTypes);
+  }
+
+  @Override
+  protected void decode(ChannelHandlerContext ctx, HttpRequest msg, List<Object> out) throws Exception {
+    final HttpHeaders headers = msg.headers();
+    final String contentEncoding = headers.get(HttpHeaderNames.CONTENT_ENCODING);
+    if (contentEncoding == null || HttpHeaderValues.IDENTITY.contentEqualsIgnoreCase(contentEncoding)
+            || !headers.contains(HttpHeaderNames.ACCEPT_ENCODING)) {
+      super.decode(ctx, msg, out);
+      return;
+    }
+    // the negotiated encoding is taken from the request here, the handlers
+    // after this one still see the original header
+    final List<String> acceptEncoding = headers.getAll(HttpHeaderNames.ACCEPT_ENCODING);
+    headers.remove(HttpHeaderNames.ACCEPT_ENCODING);
+    try {
+      super.decode(ctx, msg, out);
+    } finally {
+      headers.set(HttpHeaderNames.ACCEPT_ENCODING, acceptEncoding);
+    }
+  }
+
+  @Override
+  protected Result beginEncode(HttpResponse response, String acceptEncoding) throws Exception {
+    if (!compressible(response)) {
+      return null;
+    }
+    return super.beginEncode(response, acceptEncoding);
+  }
+
+  private boolean compressible(HttpResponse response) {
+    final HttpHeaders headers = response.headers();
+    if (headers.contains(HttpHeaderNames.CONTENT_ENCODING)) {
+      return false;
+    }
+    if (!(response instanceof FullHttpResponse)) {
+      final long contentLength = HttpUtil.getContentLength(response, -1L);
+      if (contentLength >= 0) {
+        return false;
+      }
+    }
+    final String contentType = headers.get(HttpHeaderNames.CONTENT_TYPE);
+    if (mimeTypes.isEmpty()) {
+      return MimeTypes.isCompressible(contentType);
+    }
+    if (contentType == null) {
+      return false;
+    }
+    final int semicolon = contentType.indexOf(';');
+    final String type = (semicolon < 0 ? contentType : contentType.substring(0, semicolon))
+            .trim().toLowerCase(Locale.ROOT);
+    if (mimeTypes.contains(type)) {
+      return true;
+    }
+    final int slash = type.indexOf('/');
+    return slash > 0 && mimeTypes.contains(type.substring(0, slash) + "/*");
+  }
+
+  @Override
+  protected ZlibWrapper determineWrapper(String acceptEncoding) {
+    final AcceptEncoding accepted = AcceptEncoding.parse(acceptEncoding);
+    ZlibWrapper wrapper = null;
+    float best = 0;
+    for (ZlibWrapper algorithm : algorithms) {
+      final float quality = accepted.quality(algorithm == ZlibWrapper.GZIP ? "gzip" : "deflate");
+      if (quality > best) {
+        best = quality;
+        wrapper = algorithm;
+      }
+    }
+    return wrapper;
+  }
+}
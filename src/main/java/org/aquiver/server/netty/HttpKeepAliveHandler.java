@@ -0,0 +1,214 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.server.netty;
+
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpServerUpgradeHandler;
+import io.netty.handler.codec.http.HttpStatusClass;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.handler.codec.http2.CleartextHttp2ServerUpgradeHandler;
+import io.netty.handler.timeout.IdleStateEvent;
+import org.aquiver.server.ServerMetrics;
+import org.aquiver.server.ServerMetrics.CloseReason;
+
+/**
+ * Manage HTTP/1.x persistent connections. The connection stays open until
+ * the client sends {@code Connection: close}, a HTTP/1.0 client does not ask
+ * for keep-alive, the maximum number of requests per connection is reached
+ * or the connection stays idle with no response pending. While the server
+ * drains, responses close the connection and idle connections are closed
+ * on {@link GracefulShutdown#DRAIN}.
+ * <p>
+ * Responses without framing information get a {@code Content-Length} when
+ * they are complete, otherwise the connection is closed after the response
+ * so that the client can detect the end of the body.
+ *
+ * @author WangYi
+ * @since 2021/2/20
+ */
+public class HttpKeepAliveHandler extends ChannelDuplexHandler {
+  public static final String IDLE_HANDLER_NAME = "keepAliveIdle";
+
+  private final boolean keepAlive;
+  private final int maxRequests;
+  private final GracefulShutdown shutdown;
+  private boolean persistentConnection = true;
+  private HttpVersion requestVersion = HttpVersion.HTTP_1_1;
+  private int receivedRequests;
+  private int pendingResponses;
+  private int inFlightRequests;
+  private boolean responding;
+
+  /**
+   * @param keepAlive   whether persistent connections are enabled
+   * @param maxRequests maximum number of requests served by one
+   *                    connection, zero or negative means unlimited
+   * @param shutdown    in-flight request tracking of the server
+   */
+  public HttpKeepAliveHandler(boolean keepAlive, int maxRequests, GracefulShutdown shutdown) {
+    this.keepAlive = keepAlive;
+    this.maxRequests = maxRequests;
+    this.shutdown = shutdown;
+  }
+
+  @Override
+  public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+    if (msg instanceof HttpRequest) {
+      final HttpRequest request = (HttpRequest) msg;
+      this.inFlightRequests++;
+      this.shutdown.requestStarted();
+      if (shutdown.isDraining()) {
+        this.persistentConnection = false;
+      }
+      if (persistentConnection) {
+        this.receivedRequests++;
+        this.pendingResponses++;
+        this.requestVersion = request.protocolVersion();
+        this.persistentConnection = keepAlive && HttpUtil.isKeepAlive(request) && !exceedMaxRequests();
+      }
+    }
+    super.channelRead(ctx, msg);
+  }
+
+  @Override
+  public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+    if (msg instanceof HttpResponse) {
+      final HttpResponse response = (HttpResponse) msg;
+      if (HttpResponseStatus.SWITCHING_PROTOCOLS.equals(response.status())) {
+        this.removeFromPipeline(ctx);
+      } else if (!isInformational(response)) {
+        this.responding = true;
+        this.trackResponse(response);
+      }
+    }
+    if (msg instanceof LastHttpContent && responding) {
+      this.responding = false;
+      promise = promise.unvoid().addListener(future -> requestCompleted());
+      if (!shouldKeepAlive()) {
+        promise.addListener(ChannelFutureListener.CLOSE);
+      }
+    }
+    super.write(ctx, msg, promise);
+  }
+
+  @Override
+  public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+    if (evt instanceof IdleStateEvent && pendingResponses == 0) {
+      ServerMetrics.of().connectionClosed(CloseReason.IDLE);
+      ctx.close();
+      return;
+    }
+    if (evt instanceof HttpServerUpgradeHandler.UpgradeEvent
+            || evt instanceof CleartextHttp2ServerUpgradeHandler.PriorKnowledgeUpgradeEvent) {
+      // HTTP/2 connections have their own idle handling
+      this.removeFromPipeline(ctx);
+    } else if (evt == GracefulShutdown.DRAIN) {
+      this.persistentConnection = false;
+      if (pendingResponses == 0) {
+        ctx.close();
+      }
+      return;
+    }
+    super.userEventTriggered(ctx, evt);
+  }
+
+  @Override
+  public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+    this.releaseRequests();
+    super.channelInactive(ctx);
+  }
+
+  @Override
+  public void handlerRemoved(ChannelHandlerContext ctx) {
+    this.releaseRequests();
+  }
+
+  private void requestCompleted() {
+    if (inFlightRequests > 0) {
+      this.inFlightRequests--;
+      this.shutdown.requestCompleted();
+    }
+  }
+
+  private void releaseRequests() {
+    while (inFlightRequests > 0) {
+      this.requestCompleted();
+    }
+  }
+
+  private void trackResponse(HttpResponse response) {
+    this.pendingResponses--;
+    if (response instanceof FullHttpResponse) {
+      this.setContentLengthIfAbsent((FullHttpResponse) response);
+    } else if (!HttpUtil.isContentLengthSet(response) && !HttpUtil.isTransferEncodingChunked(response)) {
+      this.persistentConnection = false;
+    }
+    if (shouldKeepAlive()) {
+      if (HttpVersion.HTTP_1_0.equals(requestVersion)) {
+        HttpUtil.setKeepAlive(response.headers(), requestVersion, true);
+      }
+    } else {
+      HttpUtil.setKeepAlive(response, false);
+    }
+  }
+
+  private void setContentLengthIfAbsent(FullHttpResponse response) {
+    if (HttpUtil.isContentLengthSet(response) || HttpUtil.isTransferEncodingChunked(response)) {
+      return;
+    }
+    final int code = response.status().code();
+    if (code == HttpResponseStatus.NO_CONTENT.code() || code == HttpResponseStatus.NOT_MODIFIED.code()) {
+      return;
+    }
+    HttpUtil.setContentLength(response, response.content().readableBytes());
+  }
+
+  private boolean shouldKeepAlive() {
+    return persistentConnection || pendingResponses != 0;
+  }
+
+  private boolean exceedMaxRequests() {
+    return maxRequests > 0 && receivedRequests >= maxRequests;
+  }
+
+  private void removeFromPipeline(ChannelHandlerContext ctx) {
+    if (ctx.pipeline().get(IDLE_HANDLER_NAME) != null) {
+      ctx.pipeline().remove(IDLE_HANDLER_NAME);
+    }
+    ctx.pipeline().remove(this);
+  }
+
+  private static boolean isInformational(HttpResponse response) {
+    return response.status().codeClass() == HttpStatusClass.INFORMATIONAL;
+  }
+}
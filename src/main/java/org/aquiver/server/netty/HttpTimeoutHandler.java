@@ -0,0 +1,350 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.server.netty;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.DecoderResult;
+import io.netty.handler.codec.TooLongFrameException;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpObject;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpServerUpgradeHandler;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.handler.codec.http2.CleartextHttp2ServerUpgradeHandler;
+import io.netty.handler.codec.http2.Http2StreamFrame;
+import io.netty.handler.timeout.IdleState;
+import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.handler.timeout.IdleStateHandler;
+import io.netty.util.ReferenceCountUtil;
+import org.aquiver.server.ServerMetrics;
+import org.aquiver.server.ServerMetrics.CloseReason;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bound the time HTTP clients may take to send a request. The request
+ * line and headers must arrive within the header timeout, counted from the
+ * connection being opened or the first byte of the request, the whole
+ * request within the request timeout, counted from the headers, and no gap
+ * between reads of a request may exceed the read timeout. Time spent
+ * waiting for the next request is left to the keep-alive idle timeout, time
+ * spent producing the response isn't limited.
+ * <p>
+ * The handler goes right after the http codec, its {@link #readHandler()}
+ * right before the codec to see the first bytes of each request. Requests
+ * the codec rejects, because they're too large or malformed, are answered
+ * with an error status instead of being dispatched. Connections closed by
+ * these limits are counted in {@link ServerMetrics}. Both handlers leave
+ * the pipeline when the connection switches protocols.
+ * <p>
+ * HTTP/2 streams get their own instance around the frame to http object
+ * codec, a stream whose request isn't received in time is reset instead
+ * of closing the connection.
+ *
+ * @author WangYi
+ * @since 2021/3/13
+ */
+final class HttpTimeoutHandler extends ChannelDuplexHandler {
+  private static final Logger log = LoggerFactory.getLogger(HttpTimeoutHandler.class);
+
+  private final long headerTimeoutNanos;
+  private final long requestTimeoutNanos;
+  private final long readTimeoutNanos;
+  private final ReadHandler readHandler = new ReadHandler();
+
+  private ChannelHandlerContext ctx;
+  private State state = State.AWAIT_REQUEST;
+  private long headerDeadline;
+  private long requestDeadline;
+  private long lastReadTime;
+  private ScheduledFuture<?> timeout;
+
+  /**
+   * @param headerTimeout  seconds to receive the request line and headers, zero to disable
+   * @param requestTimeout seconds to receive the whole request, zero to disable
+   * @param readTimeout    seconds between reads of a request, zero to disable
+   */
+  HttpTimeoutHandler(int headerTimeout, int requestTimeout, int readTimeout) {
+    this.headerTimeoutNanos = TimeUnit.SECONDS.toNanos(headerTimeout);
+    this.requestTimeoutNanos = TimeUnit.SECONDS.toNanos(requestTimeout);
+    this.readTimeoutNanos = TimeUnit.SECONDS.toNanos(readTimeout);
+  }
+
+  /**
+   * The handler that goes right before the http codec
+   *
+   * @return read handler of this connection
+   */
+  ChannelHandler readHandler() {
+    return readHandler;
+  }
+
+  @Override
+  public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+    if (msg instanceof HttpObject && ((HttpObject) msg).decoderResult().isFailure()) {
+      this.rejectRequest(ctx, (HttpObject) msg);
+      return;
+    }
+    if (msg instanceof HttpRequest) {
+      final long now = System.nanoTime();
+      this.state = State.READ_BODY;
+      this.requestDeadline = now + requestTimeoutNanos;
+      if (timeout == null) {
+        this.scheduleTimeout(nextCheckDelay(now));
+      }
+    }
+    if (msg instanceof LastHttpContent) {
+      this.state = State.AWAIT_REQUEST;
+      this.cancelTimeout();
+    }
+    super.channelRead(ctx, msg);
+  }
+
+  @Override
+  public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+    if (msg instanceof HttpResponse
+            && HttpResponseStatus.SWITCHING_PROTOCOLS.equals(((HttpResponse) msg).status())) {
+      this.removeFromPipeline();
+    }
+    super.write(ctx, msg, promise);
+  }
+
+  @Override
+  public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+    if (evt instanceof HttpServerUpgradeHandler.UpgradeEvent
+            || evt instanceof CleartextHttp2ServerUpgradeHandler.PriorKnowledgeUpgradeEvent) {
+      this.removeFromPipeline();
+    }
+    super.userEventTriggered(ctx, evt);
+  }
+
+  @Override
+  public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+    this.cancelTimeout();
+    super.channelInactive(ctx);
+  }
+
+  @Override
+  public void handlerRemoved(ChannelHandlerContext ctx) {
+    this.cancelTimeout();
+  }
+
+  private void rejectRequest(ChannelHandlerContext ctx, HttpObject msg) {
+    final DecoderResult result = msg.decoderResult();
+    ReferenceCountUtil.release(msg);
+    this.cancelTimeout();
+    if (state == State.CLOSED || !ctx.channel().isActive()) {
+      // the codec flags the partial request of a closed connection
+      this.state = State.CLOSED;
+      return;
+    }
+    this.state = State.CLOSED;
+
+    final boolean tooLarge = result.cause() instanceof TooLongFrameException;
+    ServerMetrics.of().connectionClosed(tooLarge ? CloseReason.REQUEST_HEADER_TOO_LARGE : CloseReason.MALFORMED_REQUEST);
+    log.debug("Rejected request from {}: {}", ctx.channel().remoteAddress(), result.cause().getMessage());
+    if (!(msg instanceof HttpRequest)) {
+      ctx.close();
+      return;
+    }
+    final HttpResponseStatus status;
+    if (!tooLarge) {
+      status = HttpResponseStatus.BAD_REQUEST;
+    } else if (result.cause().getMessage().startsWith("An HTTP line")) {
+      status = HttpResponseStatus.REQUEST_URI_TOO_LONG;
+    } else {
+      status = HttpResponseStatus.REQUEST_HEADER_FIELDS_TOO_LARGE;
+    }
+    final FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, status, Unpooled.EMPTY_BUFFER);
+    response.headers().set(HttpHeaderNames.CONTENT_LENGTH, HttpHeaderValues.ZERO);
+    response.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.CLOSE);
+    ctx.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
+  }
+
+  private void requestStarted() {
+    this.lastReadTime = System.nanoTime();
+    if (state == State.AWAIT_REQUEST) {
+      this.state = State.READ_HEADERS;
+      this.headerDeadline = lastReadTime + headerTimeoutNanos;
+    }
+    if (timeout == null && state != State.CLOSED) {
+      this.scheduleTimeout(nextCheckDelay(lastReadTime));
+    }
+  }
+
+  private long nextCheckDelay(long now) {
+    long delay = Long.MAX_VALUE;
+    if (state == State.READ_HEADERS && headerTimeoutNanos > 0) {
+      delay = headerDeadline - now;
+    }
+    if (state == State.READ_BODY && requestTimeoutNanos > 0) {
+      delay = Math.min(delay, requestDeadline - now);
+    }
+    if (readTimeoutNanos > 0) {
+      delay = Math.min(delay, lastReadTime + readTimeoutNanos - now);
+    }
+    return delay;
+  }
+
+  private void scheduleTimeout(long delay) {
+    if (delay != Long.MAX_VALUE) {
+      this.timeout = ctx.executor().schedule(this::checkTimeout, Math.max(delay, 0), TimeUnit.NANOSECONDS);
+    }
+  }
+
+  private void checkTimeout() {
+    this.timeout = null;
+    if (state == State.AWAIT_REQUEST || state == State.CLOSED || !ctx.channel().isOpen()) {
+      return;
+    }
+    final long now = System.nanoTime();
+    if (!ctx.channel().config().isAutoRead()) {
+      // reads are suspended by a slow body consumer, not by the client
+      this.lastReadTime = now;
+    }
+    if (state == State.READ_HEADERS && headerTimeoutNanos > 0 && now - headerDeadline >= 0) {
+      this.closeOnTimeout(CloseReason.REQUEST_HEADER_TIMEOUT);
+    } else if (state == State.READ_BODY && requestTimeoutNanos > 0 && now - requestDeadline >= 0) {
+      this.closeOnTimeout(CloseReason.REQUEST_TIMEOUT);
+    } else if (readTimeoutNanos > 0 && now - lastReadTime >= readTimeoutNanos) {
+      this.closeOnTimeout(CloseReason.READ_TIMEOUT);
+    } else {
+      this.scheduleTimeout(nextCheckDelay(now));
+    }
+  }
+
+  private void closeOnTimeout(CloseReason reason) {
+    this.state = State.CLOSED;
+    ServerMetrics.of().connectionClosed(reason);
+    log.debug("Closing connection {}: {}", ctx.channel().remoteAddress(), reason);
+    this.ctx.close();
+  }
+
+  private void cancelTimeout() {
+    if (timeout != null) {
+      this.timeout.cancel(false);
+      this.timeout = null;
+    }
+  }
+
+  private void removeFromPipeline() {
+    this.cancelTimeout();
+    this.state = State.CLOSED;
+    if (ctx != null && ctx.pipeline().context(readHandler) != null) {
+      this.ctx.pipeline().remove(readHandler);
+    }
+    if (ctx != null && ctx.pipeline().context(this) != null) {
+      this.ctx.pipeline().remove(this);
+    }
+  }
+
+  private enum State {
+    AWAIT_REQUEST, READ_HEADERS, READ_BODY, CLOSED
+  }
+
+  /**
+   * Start the header timeout on the first bytes of a request, and when the
+   * connection is opened for the first one
+   */
+  private final class ReadHandler extends ChannelInboundHandlerAdapter {
+    private boolean started;
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) {
+      HttpTimeoutHandler.this.ctx = ctx;
+      if (ctx.channel().isActive()) {
+        this.start();
+      }
+    }
+
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+      this.start();
+      super.channelActive(ctx);
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+      if ((msg instanceof ByteBuf && ((ByteBuf) msg).isReadable()) || msg instanceof Http2StreamFrame) {
+        requestStarted();
+      }
+      super.channelRead(ctx, msg);
+    }
+
+    private void start() {
+      if (!started) {
+        this.started = true;
+        requestStarted();
+      }
+    }
+  }
+
+  /**
+   * Close connections whose pending writes make no progress for the write
+   * timeout, a client that stops reading otherwise keeps the response
+   * buffered forever. Progress is observed on the outbound buffer, so a
+   * large file region or chunked download that keeps moving is never cut
+   * off however long it takes.
+   */
+  static final class WriteTimeout extends IdleStateHandler {
+    private boolean closed;
+
+    WriteTimeout(int timeout) {
+      super(true, 0, timeout, 0, TimeUnit.SECONDS);
+    }
+
+    @Override
+    protected void channelIdle(ChannelHandlerContext ctx, IdleStateEvent evt) {
+      if (evt.state() != IdleState.WRITER_IDLE || closed || !hasPendingWrites(ctx)) {
+        return;
+      }
+      this.closed = true;
+      ServerMetrics.of().connectionClosed(CloseReason.WRITE_TIMEOUT);
+      log.debug("Closing connection {}: {}", ctx.channel().remoteAddress(), CloseReason.WRITE_TIMEOUT);
+      ctx.close();
+    }
+
+    private static boolean hasPendingWrites(ChannelHandlerContext ctx) {
+      final ChannelOutboundBuffer buffer = ctx.channel().unsafe().outboundBuffer();
+      return buffer != null && buffer.totalPendingWriteBytes() > 0;
+    }
+  }
+}
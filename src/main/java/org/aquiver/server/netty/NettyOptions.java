@@ -0,0 +1,201 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.server.netty;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.AdaptiveRecvByteBufAllocator;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollMode;
+import org.apex.Environment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.aquiver.ServerSpec.DEFAULT_EPOLL_MODE;
+import static org.aquiver.ServerSpec.DEFAULT_RECV_BUFFER_INITIAL;
+import static org.aquiver.ServerSpec.DEFAULT_RECV_BUFFER_MAX;
+import static org.aquiver.ServerSpec.DEFAULT_RECV_BUFFER_MIN;
+import static org.aquiver.ServerSpec.DEFAULT_SO_BACKLOG;
+import static org.aquiver.ServerSpec.DEFAULT_SO_KEEPALIVE;
+import static org.aquiver.ServerSpec.DEFAULT_SO_RCVBUF;
+import static org.aquiver.ServerSpec.DEFAULT_SO_SNDBUF;
+import static org.aquiver.ServerSpec.DEFAULT_TCP_DEFER_ACCEPT;
+import static org.aquiver.ServerSpec.DEFAULT_TCP_FASTOPEN;
+import static org.aquiver.ServerSpec.DEFAULT_TCP_NODELAY;
+import static org.aquiver.ServerSpec.DEFAULT_WRITE_BUFFER_HIGH_WATER_MARK;
+import static org.aquiver.ServerSpec.DEFAULT_WRITE_BUFFER_LOW_WATER_MARK;
+import static org.aquiver.ServerSpec.PATH_SERVER_NETTY_EPOLL_MODE;
+import static org.aquiver.ServerSpec.PATH_SERVER_NETTY_RECV_BUFFER_INITIAL;
+import static org.aquiver.ServerSpec.PATH_SERVER_NETTY_RECV_BUFFER_MAX;
+import static org.aquiver.ServerSpec.PATH_SERVER_NETTY_RECV_BUFFER_MIN;
+import static org.aquiver.ServerSpec.PATH_SERVER_NETTY_SO_BACKLOG;
+import static org.aquiver.ServerSpec.PATH_SERVER_NETTY_SO_KEEPALIVE;
+import static org.aquiver.ServerSpec.PATH_SERVER_NETTY_SO_RCVBUF;
+import static org.aquiver.ServerSpec.PATH_SERVER_NETTY_SO_SNDBUF;
+import static org.aquiver.ServerSpec.PATH_SERVER_NETTY_TCP_DEFER_ACCEPT;
+import static org.aquiver.ServerSpec.PATH_SERVER_NETTY_TCP_FASTOPEN;
+import static org.aquiver.ServerSpec.PATH_SERVER_NETTY_TCP_NODELAY;
+import static org.aquiver.ServerSpec.PATH_SERVER_NETTY_WRITE_BUFFER_HIGH_WATER_MARK;
+import static org.aquiver.ServerSpec.PATH_SERVER_NETTY_WRITE_BUFFER_LOW_WATER_MARK;
+
+/**
+ * Socket and channel options of the server, loaded from {@code server.netty.*}
+ * and validated when the server starts. Options of the listening socket are
+ * set on the parent channel, options of accepted connections on the child
+ * channels. Zero socket buffer sizes keep the operating system defaults.
+ *
+ * @author WangYi
+ * @since 2021/3/10
+ */
+public final class NettyOptions {
+  private static final Logger log = LoggerFactory.getLogger(NettyOptions.class);
+
+  // listening socket
+  private final int soBacklog;
+  private final int tcpFastOpen;
+  private final int tcpDeferAccept;
+
+  // accepted connections
+  private final boolean tcpNoDelay;
+  private final boolean soKeepAlive;
+  private final int soRcvBuf;
+  private final int soSndBuf;
+  private final int writeBufferLowWaterMark;
+  private final int writeBufferHighWaterMark;
+  private final int recvBufferMin;
+  private final int recvBufferInitial;
+  private final int recvBufferMax;
+
+  // both, epoll only
+  private final EpollMode epollMode;
+
+  private NettyOptions(Environment environment) {
+    this.soBacklog = positive(environment, PATH_SERVER_NETTY_SO_BACKLOG, DEFAULT_SO_BACKLOG);
+    this.tcpFastOpen = notNegative(environment, PATH_SERVER_NETTY_TCP_FASTOPEN, DEFAULT_TCP_FASTOPEN);
+    this.tcpDeferAccept = notNegative(environment, PATH_SERVER_NETTY_TCP_DEFER_ACCEPT, DEFAULT_TCP_DEFER_ACCEPT);
+    this.tcpNoDelay = environment.getBoolean(PATH_SERVER_NETTY_TCP_NODELAY, DEFAULT_TCP_NODELAY);
+    this.soKeepAlive = environment.getBoolean(PATH_SERVER_NETTY_SO_KEEPALIVE, DEFAULT_SO_KEEPALIVE);
+    this.soRcvBuf = notNegative(environment, PATH_SERVER_NETTY_SO_RCVBUF, DEFAULT_SO_RCVBUF);
+    this.soSndBuf = notNegative(environment, PATH_SERVER_NETTY_SO_SNDBUF, DEFAULT_SO_SNDBUF);
+    this.writeBufferLowWaterMark = positive(environment,
+            PATH_SERVER_NETTY_WRITE_BUFFER_LOW_WATER_MARK, DEFAULT_WRITE_BUFFER_LOW_WATER_MARK);
+    this.writeBufferHighWaterMark = positive(environment,
+            PATH_SERVER_NETTY_WRITE_BUFFER_HIGH_WATER_MARK, DEFAULT_WRITE_BUFFER_HIGH_WATER_MARK);
+    this.recvBufferMin = positive(environment, PATH_SERVER_NETTY_RECV_BUFFER_MIN, DEFAULT_RECV_BUFFER_MIN);
+    this.recvBufferInitial = positive(environment, PATH_SERVER_NETTY_RECV_BUFFER_INITIAL, DEFAULT_RECV_BUFFER_INITIAL);
+    this.recvBufferMax = positive(environment, PATH_SERVER_NETTY_RECV_BUFFER_MAX, DEFAULT_RECV_BUFFER_MAX);
+    this.epollMode = epollMode(environment.getString(PATH_SERVER_NETTY_EPOLL_MODE, DEFAULT_EPOLL_MODE));
+
+    if (writeBufferLowWaterMark > writeBufferHighWaterMark) {
+      throw new IllegalArgumentException(PATH_SERVER_NETTY_WRITE_BUFFER_LOW_WATER_MARK + " ("
+              + writeBufferLowWaterMark + ") can't be greater than "
+              + PATH_SERVER_NETTY_WRITE_BUFFER_HIGH_WATER_MARK + " (" + writeBufferHighWaterMark + ")");
+    }
+    if (recvBufferMin > recvBufferInitial || recvBufferInitial > recvBufferMax) {
+      throw new IllegalArgumentException("Receive buffer sizes must satisfy " + PATH_SERVER_NETTY_RECV_BUFFER_MIN
+              + " <= " + PATH_SERVER_NETTY_RECV_BUFFER_INITIAL + " <= " + PATH_SERVER_NETTY_RECV_BUFFER_MAX
+              + ", got " + recvBufferMin + ", " + recvBufferInitial + ", " + recvBufferMax);
+    }
+  }
+
+  /**
+   * Load and validate the options
+   *
+   * @param environment configuration environment
+   * @return netty options
+   * @throws IllegalArgumentException if an option has an invalid value
+   */
+  public static NettyOptions load(Environment environment) {
+    return new NettyOptions(environment);
+  }
+
+  private static int positive(Environment environment, String key, int defaultValue) {
+    final int value = environment.getInt(key, defaultValue);
+    if (value <= 0) {
+      throw new IllegalArgumentException(key + " must be greater than zero: " + value);
+    }
+    return value;
+  }
+
+  private static int notNegative(Environment environment, String key, int defaultValue) {
+    final int value = environment.getInt(key, defaultValue);
+    if (value < 0) {
+      throw new IllegalArgumentException(key + " can't be negative: " + value);
+    }
+    return value;
+  }
+
+  private static EpollMode epollMode(String value) {
+    switch (value.trim().toLowerCase()) {
+      case "edge-triggered":
+        return EpollMode.EDGE_TRIGGERED;
+      case "level-triggered":
+        return EpollMode.LEVEL_TRIGGERED;
+      default:
+        throw new IllegalArgumentException(PATH_SERVER_NETTY_EPOLL_MODE
+                + " must be edge-triggered or level-triggered: " + value);
+    }
+  }
+
+  /**
+   * Set the options on the bootstrap
+   *
+   * @param bootstrap server bootstrap
+   * @param epoll     whether the epoll transport is used, epoll only options are skipped otherwise
+   */
+  public void apply(ServerBootstrap bootstrap, boolean epoll) {
+    bootstrap.option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+            .option(ChannelOption.SO_BACKLOG, soBacklog);
+
+    bootstrap.childOption(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+            .childOption(ChannelOption.TCP_NODELAY, tcpNoDelay)
+            .childOption(ChannelOption.SO_KEEPALIVE, soKeepAlive)
+            .childOption(ChannelOption.WRITE_BUFFER_WATER_MARK,
+                    new WriteBufferWaterMark(writeBufferLowWaterMark, writeBufferHighWaterMark))
+            .childOption(ChannelOption.RCVBUF_ALLOCATOR,
+                    new AdaptiveRecvByteBufAllocator(recvBufferMin, recvBufferInitial, recvBufferMax));
+    if (soRcvBuf > 0) {
+      bootstrap.childOption(ChannelOption.SO_RCVBUF, soRcvBuf);
+    }
+    if (soSndBuf > 0) {
+      bootstrap.childOption(ChannelOption.SO_SNDBUF, soSndBuf);
+    }
+
+    if (epoll) {
+      bootstrap.option(EpollChannelOption.EPOLL_MODE, epollMode)
+              .childOption(EpollChannelOption.EPOLL_MODE, epollMode);
+      if (tcpFastOpen > 0) {
+        bootstrap.option(EpollChannelOption.TCP_FASTOPEN, tcpFastOpen);
+      }
+      if (tcpDeferAccept > 0) {
+        bootstrap.option(EpollChannelOption.TCP_DEFER_ACCEPT, tcpDeferAccept);
+      }
+    } else if (tcpFastOpen > 0 || tcpDeferAccept > 0) {
+      log.warn("{} and {} require the epoll transport and are ignored",
+              PATH_SERVER_NETTY_TCP_FASTOPEN, PATH_SERVER_NETTY_TCP_DEFER_ACCEPT);
+    }
+  }
+}
@@ -24,16 +24,22 @@
 package org.aquiver.server.netty;
 
 import io.netty.bootstrap.ServerBootstrap;
-import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.channel.Channel;
-import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.EpollChannelOption;
 import io.netty.channel.epoll.EpollEventLoopGroup;
 import io.netty.channel.epoll.EpollServerSocketChannel;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.http2.Http2SecurityUtil;
+import io.netty.handler.ssl.ApplicationProtocolConfig;
+import io.netty.handler.ssl.ApplicationProtocolConfig.Protocol;
+import io.netty.handler.ssl.ApplicationProtocolConfig.SelectedListenerFailureBehavior;
+import io.netty.handler.ssl.ApplicationProtocolConfig.SelectorFailureBehavior;
+import io.netty.handler.ssl.ApplicationProtocolNames;
 import io.netty.handler.ssl.SslContext;
 import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SupportedCipherSuiteFilter;
 import io.netty.handler.ssl.util.SelfSignedCertificate;
 import io.netty.util.ResourceLeakDetector;
 import org.apache.commons.lang3.JavaVersion;
@@ -45,6 +51,8 @@ import org.aquiver.common.banner.Banner;
 import org.aquiver.common.watcher.GlobalEnvListener;
 import org.aquiver.common.watcher.GlobalEnvTask;
 import org.aquiver.common.banner.SimpleBanner;
+import org.aquiver.server.DispatchMode;
+import org.aquiver.server.ConcurrencyLimiter;
 import org.aquiver.server.Server;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -54,14 +62,24 @@ import java.io.File;
 import java.lang.management.ManagementFactory;
 import java.nio.file.Paths;
 import java.security.cert.CertificateException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
 
 import static org.aquiver.ServerSpec.DEFAULT_ACCEPT_THREAD_COUNT;
 import static org.aquiver.ServerSpec.DEFAULT_IO_THREAD_COUNT;
+import static org.aquiver.ServerSpec.DEFAULT_LISTENER_COUNT;
+import static org.aquiver.ServerSpec.DEFAULT_REUSE_PORT;
 import static org.aquiver.ServerSpec.PATH_ENV_WATCHER;
 import static org.aquiver.ServerSpec.PATH_SERVER_ADDRESS;
 import static org.aquiver.ServerSpec.PATH_SERVER_NETTY_ACCEPT_THREAD_COUNT;
 import static org.aquiver.ServerSpec.PATH_SERVER_NETTY_IO_THREAD_COUNT;
+import static org.aquiver.ServerSpec.PATH_SERVER_NETTY_LISTENER_COUNT;
+import static org.aquiver.ServerSpec.PATH_SERVER_NETTY_REUSE_PORT;
 import static org.aquiver.ServerSpec.PATH_SERVER_PORT;
 import static org.aquiver.ServerSpec.PATH_SERVER_SSL;
 import static org.aquiver.ServerSpec.PATH_SERVER_SSL_CERT;
@@ -86,9 +104,8 @@ public class NettyServer implements Server {
   private static final Logger log = LoggerFactory.getLogger(NettyServer.class);
 
   /**
-   * Banner and bootstrap when service starts.
+   * Bootstrap when service starts.
    */
-  private final Banner defaultBanner = new SimpleBanner();
   private final ServerBootstrap serverBootstrap = new ServerBootstrap();
   private final WebContextInitializer initializer = new WebContextInitializer();
 
@@ -99,8 +116,17 @@ public class NettyServer implements Server {
   private EventLoopGroup workerGroup;
   private Environment environment;
   private Aquiver aquiver;
-  private Channel channel;
+  private final List<Channel> channels = new ArrayList<>();
   private SslContext sslContext;
+  private DispatchExecutors dispatchExecutors;
+  private StaticFileServerHandler staticFileServerHandler;
+  private GracefulShutdown gracefulShutdown;
+  private NettyOptions nettyOptions;
+
+  /**
+   * Elapsed milliseconds of each startup phase, in startup order
+   */
+  private final Map<String, Long> startupPhases = new LinkedHashMap<>();
 
   /**
    * Service startup status, using volatile to ensure threads are visible.
@@ -116,11 +142,20 @@ public class NettyServer implements Server {
   @Override
   public void start(Aquiver aquiver) throws Exception {
     long startMs = System.currentTimeMillis();
+    long phaseStart = System.nanoTime();
 
     this.aquiver = aquiver;
     this.environment = this.aquiver.environment();
+    this.nettyOptions = NettyOptions.load(environment);
     this.initializer.initialize(aquiver);
+    phaseStart = this.phase("context", phaseStart);
+    this.initDispatchExecutors();
+    this.initConcurrencyLimiter();
+    this.initStaticFileServer();
+    this.initGracefulShutdown();
+    phaseStart = this.phase("components", phaseStart);
     this.printBanner();
+    phaseStart = this.phase("banner", phaseStart);
 
     final String bootClsName = this.aquiver.bootClsName();
     final String bootConfName = this.aquiver.bootConfName();
@@ -140,13 +175,78 @@ public class NettyServer implements Server {
     log.info("The configuration file loaded by this application startup is {}", bootConfName);
 
     this.initSsl();
+    phaseStart = this.phase("ssl", phaseStart);
     this.startServer(startMs);
+    this.phase("bind", phaseStart);
     this.watchEnv();
     this.shutdownHook();
+
+    final StringJoiner phases = new StringJoiner(", ");
+    this.startupPhases.forEach((name, elapsed) -> phases.add(name + " " + elapsed + " ms"));
+    log.info("Startup phases: {}", phases);
+  }
+
+  /**
+   * Record the elapsed time of a startup phase
+   *
+   * @param name       phase name
+   * @param phaseStart nano time the phase started at
+   * @return nano time the next phase starts at
+   */
+  private long phase(String name, long phaseStart) {
+    final long now = System.nanoTime();
+    this.startupPhases.put(name, TimeUnit.NANOSECONDS.toMillis(now - phaseStart));
+    return now;
+  }
+
+  /**
+   * Create the executors route handlers are dispatched to, configured by
+   * {@code server.dispatch.mode}, {@code server.dispatch.pool-size} and
+   * {@code server.dispatch.queue-size}
+   */
+  private void initDispatchExecutors() {
+    final DispatchMode dispatchMode = aquiver.dispatchMode();
+    this.dispatchExecutors = new DispatchExecutors(dispatchMode,
+            aquiver.dispatchPoolSize(), aquiver.dispatchQueueSize());
+    this.aquiver.apexContext().addBean(dispatchExecutors);
+    log.info("Route handlers are dispatched to: {}", dispatchMode.value());
+  }
+
+  /**
+   * Create the concurrency limiter shared by all connections when
+   * {@code server.concurrency-limit} is on
+   */
+  private void initConcurrencyLimiter() {
+    if (!aquiver.concurrencyLimit()) {
+      return;
+    }
+    final ConcurrencyLimiter limiter = new ConcurrencyLimiter(aquiver.concurrencyLimitInitial(),
+            aquiver.concurrencyLimitMin(), aquiver.concurrencyLimitMax());
+    this.aquiver.apexContext().addBean(limiter);
+    log.info("Requests are admitted within an adaptive concurrency limit, initially {}", limiter.limit());
+  }
+
+  /**
+   * Create the static file server shared by all connections, so that
+   * every connection is served from the same resource cache
+   */
+  private void initStaticFileServer() {
+    this.staticFileServerHandler = new StaticFileServerHandler();
+    this.aquiver.apexContext().addBean(staticFileServerHandler);
+  }
+
+  /**
+   * Create the tracking of connections, in-flight requests and WebSocket
+   * sessions that lets {@link #stop()} drain them
+   */
+  private void initGracefulShutdown() {
+    this.gracefulShutdown = new GracefulShutdown();
+    this.aquiver.apexContext().addBean(gracefulShutdown);
   }
 
   /**
-   * init ssl connection
+   * init ssl connection, a self-signed certificate is only generated when
+   * ssl is enabled without a configured certificate or private key
    *
    * @throws CertificateException This exception indicates one of a variety of certificate problems.
    * @throws SSLException         Indicates some kind of error detected by an SSL subsystem.
@@ -157,7 +257,6 @@ public class NettyServer implements Server {
     log.info("Check if the ssl configuration is enabled.");
 
     final Boolean ssl = environment.getBoolean(PATH_SERVER_SSL, SERVER_SSL);
-    final SelfSignedCertificate ssc = new SelfSignedCertificate();
 
     if (ssl) {
       log.info("Ssl configuration takes effect :{}", true);
@@ -170,12 +269,28 @@ public class NettyServer implements Server {
       log.info("SSL PrivateKeyFile Path: {}", sslPrivateKey);
       log.info("SSL PrivateKey Pass: {}", sslPrivateKeyPass);
 
-      sslContext = SslContextBuilder.forServer(setKeyCertFileAndPriKey(sslCert, ssc.certificate()),
-          setKeyCertFileAndPriKey(sslPrivateKey, ssc.privateKey()), sslPrivateKeyPass).build();
+      SelfSignedCertificate ssc = null;
+      if (Objects.isNull(sslCert) || Objects.isNull(sslPrivateKey)) {
+        log.warn("No ssl certificate or private key is configured, using a self-signed certificate");
+        ssc = new SelfSignedCertificate();
+      }
+      final SslContextBuilder sslContextBuilder = SslContextBuilder.forServer(
+          setKeyCertFileAndPriKey(sslCert, Objects.isNull(ssc) ? null : ssc.certificate()),
+          setKeyCertFileAndPriKey(sslPrivateKey, Objects.isNull(ssc) ? null : ssc.privateKey()), sslPrivateKeyPass);
+      if (aquiver.http2()) {
+        // Offer h2 through ALPN, falling back to http/1.1 for clients without it
+        sslContextBuilder.ciphers(Http2SecurityUtil.CIPHERS, SupportedCipherSuiteFilter.INSTANCE)
+            .applicationProtocolConfig(new ApplicationProtocolConfig(Protocol.ALPN,
+                SelectorFailureBehavior.NO_ADVERTISE, SelectedListenerFailureBehavior.ACCEPT,
+                ApplicationProtocolNames.HTTP_2, ApplicationProtocolNames.HTTP_1_1));
+      }
+      sslContext = sslContextBuilder.build();
     }
 
     log.info("Current netty server ssl startup status: {}", ssl);
-    log.info("A valid ssl connection configuration is not configured and is rolled back to the default connection state.");
+    if (!ssl) {
+      log.info("A valid ssl connection configuration is not configured and is rolled back to the default connection state.");
+    }
   }
 
   /**
@@ -198,7 +313,8 @@ public class NettyServer implements Server {
    * <p>
    * Bootstrap configuration parameter, specify a pooled Allocator, PooledByteBufAllocator pooled multiplexingIn
    * IO operation, direct memory is allocated instead of JVM heap space, to avoid copying from JVM to direct memory
-   * when sending data
+   * when sending data. The remaining socket and channel options are configured under
+   * {@code server.netty.*}, see {@link NettyOptions}
    * </p>
    *
    * @param startTime Startup time for calculating start time
@@ -207,29 +323,42 @@ public class NettyServer implements Server {
   private void startServer(long startTime) throws Exception {
     ResourceLeakDetector.setLevel(ResourceLeakDetector.Level.DISABLED);
 
-    this.serverBootstrap.childHandler(new NettyServerInitializer(sslContext));
+    this.serverBootstrap.childHandler(new NettyServerInitializer(sslContext, gracefulShutdown));
 
-    final int acceptThreadCount = environment.getInt(PATH_SERVER_NETTY_ACCEPT_THREAD_COUNT, DEFAULT_ACCEPT_THREAD_COUNT);
     final int ioThreadCount = environment.getInt(PATH_SERVER_NETTY_IO_THREAD_COUNT, DEFAULT_IO_THREAD_COUNT);
+    final int listenerCount = this.listenerCount();
+    final int acceptThreadCount = listenerCount > 1 ? listenerCount
+        : environment.getInt(PATH_SERVER_NETTY_ACCEPT_THREAD_COUNT, DEFAULT_ACCEPT_THREAD_COUNT);
 
     if (aquiver.epollIsAvailable()) {
       this.bossGroup = new EpollEventLoopGroup(acceptThreadCount, withThreadName("epoll-boss@"));
       this.workerGroup = new EpollEventLoopGroup(ioThreadCount, withThreadName("epoll-worker@"));
       this.serverBootstrap.channel(EpollServerSocketChannel.class);
+      if (listenerCount > 1) {
+        this.serverBootstrap.option(EpollChannelOption.SO_REUSEPORT, true);
+      }
     } else {
       this.bossGroup = new NioEventLoopGroup(acceptThreadCount, withThreadName("nio-boss@"));
       this.workerGroup = new NioEventLoopGroup(ioThreadCount, withThreadName("nio-worker@"));
       this.serverBootstrap.channel(NioServerSocketChannel.class);
     }
 
-    this.serverBootstrap.group(bossGroup, workerGroup).option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT);
+    this.serverBootstrap.group(bossGroup, workerGroup);
+    this.nettyOptions.apply(serverBootstrap, aquiver.epollIsAvailable());
     log.info("The IO mode of the application startup is: {}", aquiver.epollIsAvailable() ? "Epoll" : "Nio");
 
     this.stop = false;
 
     final int port = this.environment.getInt(PATH_SERVER_PORT, SERVER_PORT);
     final String address = this.environment.get(PATH_SERVER_ADDRESS, SERVER_ADDRESS);
-    this.channel = serverBootstrap.bind(address, port).sync().channel();
+    // Every bind takes the next boss event loop, so with SO_REUSEPORT each
+    // listener accepts on its own thread and the kernel spreads connections
+    for (int i = 0; i < listenerCount; i++) {
+      this.channels.add(serverBootstrap.bind(address, port).sync().channel());
+    }
+    if (listenerCount > 1) {
+      log.info("Bound {} listeners with SO_REUSEPORT", listenerCount);
+    }
 
     long endTime = System.currentTimeMillis();
     long startUpTime = (endTime - startTime);
@@ -244,7 +373,9 @@ public class NettyServer implements Server {
   }
 
   /**
-   * stop http server
+   * stop http server. The listeners are closed first, then in-flight
+   * requests and WebSocket sessions get {@code server.shutdown.timeout}
+   * seconds to finish before the event loops are released.
    */
   @Override
   public void stop() {
@@ -254,12 +385,28 @@ public class NettyServer implements Server {
     }
     stop = true;
     try {
+      for (Channel channel : channels) {
+        channel.close().awaitUninterruptibly();
+      }
+      if (Objects.nonNull(gracefulShutdown)) {
+        final long timeoutMillis = TimeUnit.SECONDS.toMillis(aquiver.shutdownTimeout());
+        log.info("Draining {} in-flight requests and WebSocket sessions", gracefulShutdown.inFlight());
+        if (gracefulShutdown.drain(timeoutMillis)) {
+          log.info("All in-flight requests and WebSocket sessions finished");
+        }
+      }
       if (Objects.nonNull(bossGroup)) {
         this.bossGroup.shutdownGracefully();
       }
       if (Objects.nonNull(workerGroup)) {
         this.workerGroup.shutdownGracefully();
       }
+      if (Objects.nonNull(dispatchExecutors)) {
+        this.dispatchExecutors.shutdown();
+      }
+      if (Objects.nonNull(staticFileServerHandler)) {
+        this.staticFileServerHandler.clear();
+      }
       log.info("The netty service is gracefully closed");
     } catch (Exception e) {
       log.error("An exception occurred while the Netty Http service was down", e);
@@ -269,12 +416,36 @@ public class NettyServer implements Server {
   @Override
   public void join() {
     try {
-      this.channel.closeFuture().sync();
+      for (Channel channel : channels) {
+        channel.closeFuture().sync();
+      }
+      // the listeners close first on stop, wait for the drain to finish
+      if (stop && Objects.nonNull(workerGroup)) {
+        this.workerGroup.terminationFuture().sync();
+      }
     } catch (InterruptedException e) {
       log.error("Channel close future fail", e);
     }
   }
 
+  /**
+   * The number of listeners bound to the server port, more than one only
+   * when {@code server.netty.reuse-port} is on and epoll is available
+   *
+   * @return listener count
+   */
+  private int listenerCount() {
+    if (!environment.getBoolean(PATH_SERVER_NETTY_REUSE_PORT, DEFAULT_REUSE_PORT)) {
+      return 1;
+    }
+    if (!aquiver.epollIsAvailable()) {
+      log.warn("SO_REUSEPORT requires the epoll transport, binding a single listener");
+      return 1;
+    }
+    final int listenerCount = environment.getInt(PATH_SERVER_NETTY_LISTENER_COUNT, DEFAULT_LISTENER_COUNT);
+    return listenerCount > 0 ? listenerCount : Runtime.getRuntime().availableProcessors();
+  }
+
   /**
    * Observe the environment class, which can be opened by configuration.
    * After opening, it will perform various operations through the log
@@ -302,7 +473,11 @@ public class NettyServer implements Server {
    * print default banner
    */
   private void printBanner() {
-    this.defaultBanner.printBanner(System.out, aquiver.bannerText(), aquiver.bannerFont());
+    if (!aquiver.bannerEnabled()) {
+      return;
+    }
+    final Banner banner = new SimpleBanner();
+    banner.printBanner(System.out, aquiver.bannerText(), aquiver.bannerFont());
   }
 
   /**
@@ -23,48 +23,96 @@
  */
 package org.aquiver.server.netty;
 
-import io.netty.channel.ChannelHandler;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.EmptyHttpHeaders;
 import io.netty.handler.codec.http.FullHttpRequest;
 import io.netty.handler.codec.http.HttpMessage;
 import io.netty.handler.codec.http.HttpRequest;
 import org.apex.ApexContext;
 import org.aquiver.Aquiver;
+import org.aquiver.DeadlineExceededException;
+import org.aquiver.MethodNotAllowedException;
 import org.aquiver.NoRouteFoundException;
 import org.aquiver.RequestContext;
 import org.aquiver.ResultHandler;
 import org.aquiver.ResultHandlerResolver;
+import org.aquiver.ServiceUnavailableException;
 import org.aquiver.mvc.RequestResult;
-import org.aquiver.mvc.argument.MethodArgumentGetter;
 import org.aquiver.mvc.handler.RouteAdviceHandlerResolver;
-import org.aquiver.mvc.http.HttpStatus;
+import org.aquiver.mvc.http.HttpConst;
+import org.aquiver.mvc.http.HttpMethod;
+import org.aquiver.mvc.http.StreamingHttpRequest;
 import org.aquiver.mvc.interceptor.AspectInterceptorChain;
 import org.aquiver.mvc.interceptor.Interceptor;
+import org.aquiver.mvc.result.AsyncResults;
 import org.aquiver.mvc.router.RestfulRouter;
 import org.aquiver.mvc.router.RouteInfo;
+import org.aquiver.mvc.router.RouteMatch;
+import org.aquiver.server.ConcurrencyLimiter;
+import org.aquiver.server.DispatchMode;
+import org.aquiver.server.ServerMetrics;
+import org.aquiver.server.ServerMetrics.RejectReason;
 import org.aquiver.urls.BypassRequestUrls;
 import org.aquiver.urls.RegexBypassRequestUrls;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayDeque;
 import java.util.List;
 import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 /**
+ * Dispatch requests to route handlers. Requests of one channel are handled
+ * in arrival order: while a handler runs off the event loop or an asynchronous
+ * result is pending, following requests of the same channel are queued so
+ * that pipelined responses can't be reordered. Handlers running on a business thread write through the
+ * channel context, netty hands those writes back to the channel's event loop.
+ * <p>
+ * Reads of the channel are suspended while a request is dispatched, only the
+ * requests already received are queued. Past {@link #MAX_PENDING_REQUESTS}
+ * queued requests, the content of a request is released at once and it is
+ * answered with 503 in its turn. The handler keeps the state of its channel
+ * and is created for every channel.
+ * <p>
+ * A request whose deadline expires gives up the channel as soon as its
+ * timeout response is written, the queued requests go on while the stuck
+ * route runs to its end and has whatever it writes discarded.
+ *
  * @author WangYi
  * @since 2020/5/26
  */
-@ChannelHandler.Sharable
 public class NettyServerHandler extends SimpleChannelInboundHandler<Object> {
+  static final int MAX_PENDING_REQUESTS = 32;
+
   private static final Logger log = LoggerFactory.getLogger(NettyServerHandler.class);
   private final RestfulRouter restfulRouter;
   private final RouteAdviceHandlerResolver routeAdviceHandlerResolver;
   private final ResultHandlerResolver resultHandlerResolver;
   private final ApexContext context = ApexContext.of();
   private final StaticFileServerHandler fileServerHandler;
-  private FullHttpRequest request;
+  private final DispatchExecutors dispatchExecutors;
+  private final ConcurrencyLimiter concurrencyLimiter;
+  private final int retryAfter;
+  private final long routeTimeout;
+
+  /**
+   * Requests waiting for the running handler of this channel,
+   * only accessed from the channel event loop
+   */
+  private final Queue<PendingRequest> pendingRequests = new ArrayDeque<>();
+  /**
+   * Token of the dispatched request the channel waits for, null if none,
+   * only accessed from the channel event loop
+   */
+  private Object dispatchSlot;
   private RequestContext requestContext;
   private BypassRequestUrls bypassRequestUrls;
 
@@ -73,7 +121,12 @@ public class NettyServerHandler extends SimpleChannelInboundHandler<Object> {
     this.restfulRouter = context.getBean(RestfulRouter.class);
     this.resultHandlerResolver = context.getBean(ResultHandlerResolver.class);
     this.bypassRequestUrls = context.getBean(BypassRequestUrls.class);
-    this.fileServerHandler = new StaticFileServerHandler();
+    this.dispatchExecutors = context.getBean(DispatchExecutors.class);
+    this.concurrencyLimiter = context.getBean(ConcurrencyLimiter.class);
+    this.retryAfter = Aquiver.of().concurrencyLimitRetryAfter();
+    this.routeTimeout = TimeUnit.SECONDS.toMillis(Aquiver.of().routeTimeout());
+    final StaticFileServerHandler fileServerHandler = context.getBean(StaticFileServerHandler.class);
+    this.fileServerHandler = Objects.isNull(fileServerHandler) ? new StaticFileServerHandler() : fileServerHandler;
   }
 
   @Override
@@ -81,6 +134,18 @@ public class NettyServerHandler extends SimpleChannelInboundHandler<Object> {
     return msg instanceof HttpMessage;
   }
 
+  /**
+   * Release the requests still queued when the connection closes
+   */
+  @Override
+  public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+    PendingRequest pending;
+    while ((pending = pendingRequests.poll()) != null) {
+      this.releaseRequest(pending.request);
+    }
+    super.channelInactive(ctx);
+  }
+
   @Override
   public void channelReadComplete(ChannelHandlerContext ctx) {
     ctx.flush();
@@ -88,69 +153,350 @@ public class NettyServerHandler extends SimpleChannelInboundHandler<Object> {
 
   @Override
   public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
-    log.error("An exception occurred when calling the mapping method", cause);
-    this.requestContext.throwable(cause);
-    this.routeAdviceHandlerResolver.handleException(cause, requestContext);
+    if (Objects.nonNull(requestContext)) {
+      this.handleException(requestContext, cause);
+    } else {
+      log.error("An exception occurred when calling the mapping method", cause);
+    }
     ctx.close();
   }
 
+  /**
+   * Write the error response of a failed request, the connection
+   * is kept open so that it can be reused by the next request.
+   *
+   * @param requestContext failed request
+   * @param cause          request exception
+   */
+  private void handleException(RequestContext requestContext, Throwable cause) {
+    if (!(cause instanceof NoRouteFoundException) && !(cause instanceof MethodNotAllowedException)
+            && !(cause instanceof ServiceUnavailableException) && !(cause instanceof DeadlineExceededException)) {
+      log.error("An exception occurred when calling the mapping method", cause);
+    }
+    requestContext.throwable(cause);
+    this.routeAdviceHandlerResolver.handleException(cause, requestContext);
+  }
+
   @Override
   protected void channelRead0(ChannelHandlerContext ctx, Object msg) {
-    if (msg instanceof HttpRequest) {
-      HttpRequest request = (HttpRequest) msg;
-      this.request = new DefaultFullHttpRequest(
-              request.protocolVersion(),
-              request.method(), request.uri());
+    final FullHttpRequest request;
+    if (msg instanceof FullHttpRequest) {
+      request = ((FullHttpRequest) msg).retain();
+    } else {
+      final HttpRequest httpRequest = (HttpRequest) msg;
+      request = new DefaultFullHttpRequest(httpRequest.protocolVersion(),
+              httpRequest.method(), httpRequest.uri());
     }
 
-    if (msg instanceof FullHttpRequest) {
-      this.request = (FullHttpRequest) msg;
+    if (Objects.isNull(dispatchSlot)) {
+      this.handleRequest(ctx, request);
+    } else if (pendingRequests.size() < MAX_PENDING_REQUESTS) {
+      this.pendingRequests.add(new PendingRequest(request, false));
+    } else {
+      final FullHttpRequest rejected = new DefaultFullHttpRequest(request.protocolVersion(),
+              request.method(), request.uri(), Unpooled.EMPTY_BUFFER,
+              request.headers().copy(), EmptyHttpHeaders.INSTANCE);
+      this.releaseRequest(request);
+      this.pendingRequests.add(new PendingRequest(rejected, true));
     }
+  }
 
+  /**
+   * Answer a request that arrived while the pending queue was full, in its turn
+   */
+  private void rejectRequest(ChannelHandlerContext ctx, FullHttpRequest request) {
+    ServerMetrics.of().requestRejected(RejectReason.PIPELINE_LIMIT);
+    final RequestContext requestContext = new RequestContext(request, ctx);
     try {
-      this.requestContext = new RequestContext(request, ctx);
-      final MethodArgumentGetter methodArgumentGetter
-              = new MethodArgumentGetter(requestContext);
+      this.handleException(requestContext, new ServiceUnavailableException("Too many pipelined requests, "
+              + request.method().name() + " " + request.uri() + " was rejected", retryAfter));
+    } finally {
+      request.release();
+    }
+  }
 
-      this.context.addBean(methodArgumentGetter);
+  /**
+   * Mark the channel busy with a dispatched request, requests received from
+   * now on are queued and no more are read until the request completes
+   */
+  private void startDispatching(ChannelHandlerContext ctx, Object slot) {
+    this.dispatchSlot = slot;
+    ChannelReads.suspend(ctx.channel(), ChannelReads.PIPELINE);
+  }
+
+  /**
+   * Route the request on the event loop, then run the handler inline or
+   * hand it to the executor selected by the dispatch mode of the route
+   *
+   * @param ctx     Netty channel context
+   * @param request full http request, released once the request is handled
+   */
+  private void handleRequest(ChannelHandlerContext ctx, FullHttpRequest request) {
+    RequestContext requestContext = null;
+    ConcurrencyLimiter.Permit permit = null;
+    boolean dispatched = false;
+    try {
+      requestContext = new RequestContext(request, ctx);
+      this.requestContext = requestContext;
+      RequestContext.current(requestContext);
 
       if (Objects.isNull(bypassRequestUrls)) {
         this.bypassRequestUrls = new RegexBypassRequestUrls();
       }
 
       if (this.bypassRequestUrls.accept(requestContext.request(), request.uri())) {
-        this.fileServerHandler.handle(requestContext);
+        this.fileServerHandler.handle(requestContext, request);
         return;
       }
 
-      final RouteInfo routeInfo = restfulRouter.lookup(request.uri());
-      if (Objects.isNull(routeInfo)) {
-        throw handlerException();
+      final HttpMethod httpMethod = HttpMethod.of(request.method().name());
+      final RouteMatch routeMatch = restfulRouter.lookup(httpMethod, request.uri());
+      if (Objects.isNull(routeMatch)) {
+        throw handlerException(requestContext);
+      }
+      if (!routeMatch.isMethodAllowed()) {
+        throw new MethodNotAllowedException(request.method().name(),
+                request.uri(), routeMatch.getAllowedMethods());
+      }
+      requestContext.routeMatch(routeMatch);
+      final long deadline = requestDeadline(request);
+      if (deadline > 0) {
+        requestContext.deadline(deadline);
+      }
+      permit = this.admit(request, routeMatch.getRouteInfo());
+
+      final Executor executor = this.executor(routeMatch.getRouteInfo());
+      if (Objects.isNull(executor)) {
+        final Object slot = new Object();
+        final CompletionStage<?> completion = this.invokeRoute(requestContext, () -> this.releaseSlot(ctx, slot));
+        if (Objects.nonNull(completion)) {
+          this.startDispatching(ctx, slot);
+          final ConcurrencyLimiter.Permit admission = permit;
+          completion.whenComplete((value, throwable) -> this.completeRequest(ctx, request, admission, slot));
+          dispatched = true;
+        }
       } else {
-        this.requestContext.routeInfo(routeInfo);
+        dispatched = this.dispatch(ctx, request, requestContext, executor, permit);
+      }
+    } catch (Throwable throwable) {
+      if (Objects.nonNull(requestContext)) {
+        this.handleException(requestContext, throwable);
+      } else {
+        log.error("An exception occurred when parsing the request", throwable);
+        ctx.close();
+      }
+    } finally {
+      RequestContext.current(null);
+      if (!dispatched) {
+        this.releaseRequest(request);
+        if (Objects.nonNull(permit)) {
+          permit.release();
+        }
+      }
+    }
+  }
+
+  /**
+   * Admit the request within the concurrency limit of its priority, before
+   * any interceptor or handler work is done
+   *
+   * @param request   current request
+   * @param routeInfo matched route
+   * @return permit to release once the request completes, or null without a limiter
+   * @throws ServiceUnavailableException if the limit of the priority is reached
+   */
+  private ConcurrencyLimiter.Permit admit(FullHttpRequest request, RouteInfo routeInfo) {
+    if (Objects.isNull(concurrencyLimiter)) {
+      return null;
+    }
+    final ConcurrencyLimiter.Permit permit = concurrencyLimiter.acquire(routeInfo.getPriority());
+    if (Objects.isNull(permit)) {
+      ServerMetrics.of().requestRejected(RejectReason.CONCURRENCY_LIMIT);
+      throw new ServiceUnavailableException("Server is overloaded, concurrency limit "
+              + concurrencyLimiter.limit() + " reached for " + request.method().name() + " " + request.uri(), retryAfter);
+    }
+    return permit;
+  }
+
+  /**
+   * Deadline the client sent as {@code X-Request-Deadline}, the route
+   * timeout can only shorten it
+   *
+   * @param request current request
+   * @return deadline in epoch milliseconds, or zero if absent or malformed
+   */
+  private static long requestDeadline(FullHttpRequest request) {
+    final String value = request.headers().get(HttpConst.REQUEST_DEADLINE);
+    if (Objects.isNull(value)) {
+      return 0;
+    }
+    try {
+      return Math.max(0, Long.parseLong(value.trim()));
+    } catch (NumberFormatException e) {
+      return 0;
+    }
+  }
+
+  /**
+   * Select the executor of the route, routes reading a body stream block
+   * until the body arrives and never run on the event loop
+   *
+   * @param routeInfo matched route
+   * @return route executor, or null to run on the event loop
+   */
+  private Executor executor(RouteInfo routeInfo) {
+    if (Objects.isNull(dispatchExecutors)) {
+      return null;
+    }
+    final Executor executor = dispatchExecutors.executor(routeInfo.getDispatchMode());
+    if (Objects.isNull(executor) && routeInfo.isBodyStream()) {
+      return dispatchExecutors.executor(DispatchMode.POOL);
+    }
+    return executor;
+  }
+
+  /**
+   * Run the route handler on a business thread, requests arriving in the
+   * meantime are queued until it completes
+   *
+   * @return true if the executor accepted the handler
+   */
+  private boolean dispatch(ChannelHandlerContext ctx, FullHttpRequest request,
+                           RequestContext requestContext, Executor executor, ConcurrencyLimiter.Permit permit) {
+    final Object slot = new Object();
+    this.startDispatching(ctx, slot);
+    try {
+      executor.execute(() -> {
+        CompletionStage<?> completion = null;
+        RequestContext.current(requestContext);
+        try {
+          completion = this.invokeRoute(requestContext, () -> this.releaseSlot(ctx, slot));
+        } catch (Throwable throwable) {
+          this.handleException(requestContext, throwable);
+        } finally {
+          RequestContext.current(null);
+          if (Objects.isNull(completion)) {
+            this.completeRequest(ctx, request, permit, slot);
+          } else {
+            completion.whenComplete((value, throwable) -> this.completeRequest(ctx, request, permit, slot));
+          }
+        }
+      });
+      return true;
+    } catch (RejectedExecutionException e) {
+      this.dispatchSlot = null;
+      if (pendingRequests.isEmpty()) {
+        ChannelReads.resume(ctx.channel(), ChannelReads.PIPELINE);
       }
+      ServerMetrics.of().requestRejected(RejectReason.EXECUTOR_SATURATED);
+      throw new ServiceUnavailableException("Server is too busy to handle "
+              + request.method().name() + " " + request.uri(), e);
+    }
+  }
 
-      final List<Interceptor> interceptors = Aquiver.interceptors();
-      final AspectInterceptorChain chain
-              = new AspectInterceptorChain(interceptors, requestContext);
+  /**
+   * Release the request and its admission once its response is written
+   * and continue with the queued requests on the event loop
+   */
+  private void completeRequest(ChannelHandlerContext ctx, FullHttpRequest request,
+                               ConcurrencyLimiter.Permit permit, Object slot) {
+    this.releaseRequest(request);
+    if (Objects.nonNull(permit)) {
+      permit.release();
+    }
+    this.releaseSlot(ctx, slot);
+  }
 
-      chain.invoke();
-      final RequestResult result = chain.result();
+  /**
+   * Continue with the queued requests if the channel still waits for the
+   * request of the slot, either when it completes or when its deadline
+   * expired, whichever comes first
+   */
+  private void releaseSlot(ChannelHandlerContext ctx, Object slot) {
+    if (!ctx.executor().inEventLoop()) {
+      ctx.executor().execute(() -> this.releaseSlot(ctx, slot));
+      return;
+    }
+    if (dispatchSlot == slot) {
+      this.dispatchPending(ctx);
+    }
+  }
 
-      this.handleResult(result);
-    } catch (Throwable throwable) {
-      this.exceptionCaught(ctx, throwable);
+  /**
+   * Release the request content, the unread rest of a streamed body is discarded
+   */
+  private void releaseRequest(FullHttpRequest request) {
+    if (request instanceof StreamingHttpRequest) {
+      ((StreamingHttpRequest) request).bodyStream().close();
     }
+    request.release();
   }
 
-  private NoRouteFoundException handlerException() {
-    final NoRouteFoundException exception = new NoRouteFoundException
-            (requestContext.request().method(), requestContext.uri());
-    this.requestContext.error(HttpStatus.NOT_FOUND, exception.getMessage());
-    return exception;
+  /**
+   * Handle queued requests of this channel until one of them is
+   * dispatched off the event loop again, reads resume once all
+   * queued requests are handled
+   */
+  private void dispatchPending(ChannelHandlerContext ctx) {
+    this.dispatchSlot = null;
+    PendingRequest pending;
+    while (Objects.isNull(dispatchSlot) && (pending = pendingRequests.poll()) != null) {
+      if (pending.rejected) {
+        this.rejectRequest(ctx, pending.request);
+      } else {
+        this.handleRequest(ctx, pending.request);
+      }
+    }
+    if (Objects.isNull(dispatchSlot)) {
+      ChannelReads.resume(ctx.channel(), ChannelReads.PIPELINE);
+    }
   }
 
-  private void handleResult(RequestResult result) throws Exception {
+  /**
+   * Invoke the route and write its result, results of asynchronous
+   * routes are written and their exceptions handled on completion
+   *
+   * @param requestContext current request
+   * @param expired        runs on the event loop after the timeout response of an expired deadline
+   * @return completion of an asynchronous route, or null if the result is written
+   * @throws Throwable route exception
+   */
+  private CompletionStage<?> invokeRoute(RequestContext requestContext, Runnable expired) throws Throwable {
+    final List<Interceptor> interceptors = Aquiver.interceptors();
+    final AspectInterceptorChain chain = new AspectInterceptorChain(interceptors, requestContext, routeTimeout, cause -> {
+      this.handleException(requestContext, cause);
+      expired.run();
+    });
+
+    chain.invoke();
+    final CompletionStage<RequestResult> completion = chain.completion();
+    if (Objects.isNull(completion)) {
+      this.handleResult(requestContext, chain.result());
+      return null;
+    }
+    return completion.handle((result, throwable) -> {
+      final RequestContext previous = RequestContext.current();
+      RequestContext.current(requestContext);
+      try {
+        if (Objects.nonNull(throwable)) {
+          this.handleException(requestContext, AsyncResults.unwrap(throwable));
+        } else {
+          this.handleResult(requestContext, result);
+        }
+      } catch (Throwable e) {
+        this.handleException(requestContext, e);
+      } finally {
+        RequestContext.current(previous);
+      }
+      return null;
+    });
+  }
+
+  private NoRouteFoundException handlerException(RequestContext requestContext) {
+    return new NoRouteFoundException(requestContext.request().method(), requestContext.uri());
+  }
+
+  private void handleResult(RequestContext requestContext, RequestResult result) throws Exception {
     if (Objects.nonNull(result)) {
       ResultHandler handler = resultHandlerResolver.lookup(result);
       if (Objects.isNull(handler)) {
@@ -161,4 +507,14 @@ public class NettyServerHandler extends SimpleChannelInboundHandler<Object> {
       }
     }
   }
+
+  private static final class PendingRequest {
+    private final FullHttpRequest request;
+    private final boolean rejected;
+
+    private PendingRequest(FullHttpRequest request, boolean rejected) {
+      this.request = request;
+      this.rejected = rejected;
+    }
+  }
 }
@@ -23,31 +23,134 @@
  */
 package org.aquiver.server.netty;
 
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.handler.codec.http.HttpContentCompressor;
+import io.netty.handler.codec.compression.ZlibWrapper;
+import io.netty.handler.codec.http.HttpObjectDecoder;
+import io.netty.handler.codec.http.HttpRequest;
 import io.netty.handler.codec.http.HttpServerCodec;
-import io.netty.handler.codec.http.HttpServerExpectContinueHandler;
+import io.netty.handler.codec.http.HttpServerUpgradeHandler;
 import io.netty.handler.codec.http.cors.CorsConfig;
 import io.netty.handler.codec.http.cors.CorsConfigBuilder;
 import io.netty.handler.codec.http.cors.CorsHandler;
+import io.netty.handler.codec.http2.CleartextHttp2ServerUpgradeHandler;
+import io.netty.handler.codec.http2.Http2CodecUtil;
+import io.netty.handler.codec.http2.Http2FrameCodec;
+import io.netty.handler.codec.http2.Http2FrameCodecBuilder;
+import io.netty.handler.codec.http2.Http2MultiplexHandler;
+import io.netty.handler.codec.http2.Http2ServerUpgradeCodec;
+import io.netty.handler.codec.http2.Http2Settings;
+import io.netty.handler.codec.http2.Http2StreamChannel;
+import io.netty.handler.codec.http2.Http2StreamFrameToHttpObjectCodec;
+import io.netty.handler.ssl.ApplicationProtocolNames;
+import io.netty.handler.ssl.ApplicationProtocolNegotiationHandler;
 import io.netty.handler.ssl.SslContext;
+import io.netty.handler.stream.ChunkedWriteHandler;
+import io.netty.handler.timeout.IdleStateHandler;
+import io.netty.util.AsciiString;
+import org.apache.commons.lang3.Validate;
 import org.aquiver.Aquiver;
+import org.aquiver.server.RateLimiter;
 import org.aquiver.websocket.WebSocketHandler;
 
+import java.util.List;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
 
 /**
+ * Build the pipeline of accepted connections. With HTTP/2 enabled, TLS
+ * connections negotiate h2 through ALPN and cleartext connections accept
+ * both the h2c upgrade and prior knowledge. Every HTTP/2 stream becomes a
+ * child channel that converts its frames to HTTP/1 objects, so streams are
+ * handled by {@link NettyServerHandler} like any HTTP/1 request. HTTP/2
+ * connections without open streams are closed after the keep-alive idle
+ * timeout, and each stream has the request and read timeouts of HTTP/1.
+ *
  * @author WangYi
  * @since 2019/6/5
  */
 public class NettyServerInitializer extends ChannelInitializer<SocketChannel> {
   private final SslContext sslCtx;
+  private final GracefulShutdown shutdown;
+  private final long shutdownTimeoutMillis;
   private final Aquiver aquiver = Aquiver.of();
+  private final boolean keepAlive;
+  private final int keepAliveMaxRequests;
+  private final int keepAliveIdleTimeout;
+  private final boolean http2;
+  private final int requestBodyMaxSize;
+  private final int requestBodySpillThreshold;
+  private final boolean compression;
+  private final List<ZlibWrapper> compressionAlgorithms;
+  private final int compressionLevel;
+  private final int compressionMinSize;
+  private final Set<String> compressionMimeTypes;
+  private final int maxInitialLineLength;
+  private final int maxHeaderSize;
+  private final int requestHeaderTimeout;
+  private final int requestTimeout;
+  private final int readTimeout;
+  private final int writeTimeout;
+  private final RateLimiter rateLimiter;
+  private final BiFunction<ChannelHandlerContext, HttpRequest, Object> rateLimitKey;
 
-  NettyServerInitializer(SslContext sslCtx) {
+  NettyServerInitializer(SslContext sslCtx, GracefulShutdown shutdown) {
     this.sslCtx = sslCtx;
+    this.shutdown = shutdown;
+    this.shutdownTimeoutMillis = TimeUnit.SECONDS.toMillis(aquiver.shutdownTimeout());
+    this.keepAlive = aquiver.keepAlive();
+    this.keepAliveMaxRequests = aquiver.keepAliveMaxRequests();
+    this.keepAliveIdleTimeout = aquiver.keepAliveIdleTimeout();
+    this.http2 = aquiver.http2();
+    this.requestBodyMaxSize = aquiver.requestBodyMaxSize();
+    this.requestBodySpillThreshold = spillThreshold(aquiver.requestBodyMode(), aquiver.requestBodySpillThreshold());
+    this.compression = aquiver.gzip();
+    this.compressionAlgorithms = compression
+            ? HttpCompressionHandler.algorithms(aquiver.compressionAlgorithms()) : null;
+    this.compressionLevel = aquiver.compressionLevel();
+    this.compressionMinSize = aquiver.compressionMinSize();
+    this.compressionMimeTypes = HttpCompressionHandler.mimeTypes(aquiver.compressionMimeTypes());
+    Validate.isTrue(compressionLevel >= 0 && compressionLevel <= 9,
+            "Compression level must be between 0 and 9: %d", compressionLevel);
+    Validate.isTrue(compressionMinSize >= 0, "Compression min size can't be negative: %d", compressionMinSize);
+    this.maxInitialLineLength = aquiver.requestMaxInitialLineLength();
+    this.maxHeaderSize = aquiver.requestMaxHeaderSize();
+    this.requestHeaderTimeout = aquiver.requestHeaderTimeout();
+    this.requestTimeout = aquiver.requestTimeout();
+    this.readTimeout = aquiver.readTimeout();
+    this.writeTimeout = aquiver.writeTimeout();
+    Validate.isTrue(maxInitialLineLength > 0, "Request max initial line length must be greater than zero: %d", maxInitialLineLength);
+    Validate.isTrue(maxHeaderSize > 0, "Request max header size must be greater than zero: %d", maxHeaderSize);
+    Validate.isTrue(requestHeaderTimeout >= 0 && requestTimeout >= 0 && readTimeout >= 0 && writeTimeout >= 0,
+            "Timeouts can't be negative");
+    final RateLimiter rateLimiter = aquiver.rateLimit()
+            ? RateLimiter.parse(aquiver.rateLimitRules(), aquiver.rateLimitMaxKeys()) : null;
+    this.rateLimiter = Objects.nonNull(rateLimiter) && rateLimiter.hasRules() ? rateLimiter : null;
+    this.rateLimitKey = Objects.nonNull(this.rateLimiter) ? RateLimitHandler.keyResolver(aquiver.rateLimitKey()) : null;
+  }
+
+  /**
+   * The spill threshold of the request body mode
+   *
+   * @param mode           aggregate or spill
+   * @param spillThreshold configured spill threshold
+   * @return spill threshold, negative if bodies stay in memory
+   */
+  private static int spillThreshold(String mode, int spillThreshold) {
+    switch (mode.trim().toLowerCase()) {
+      case "aggregate":
+        return -1;
+      case "spill":
+        Validate.isTrue(spillThreshold >= 0, "Request body spill threshold can't be negative: %d", spillThreshold);
+        return spillThreshold;
+      default:
+        throw new IllegalArgumentException("Unknown request body mode: " + mode);
+    }
   }
 
   /**
@@ -59,20 +162,156 @@ public class NettyServerInitializer extends ChannelInitializer<SocketChannel> {
   @Override
   protected void initChannel(SocketChannel ch) {
     ChannelPipeline channelPipeline = ch.pipeline();
+    this.shutdown.connectionOpened(ch);
+    if (writeTimeout > 0) {
+      channelPipeline.addLast(new HttpTimeoutHandler.WriteTimeout(writeTimeout));
+    }
     if (Objects.nonNull(sslCtx)) {
       channelPipeline.addLast(sslCtx.newHandler(ch.alloc()));
+      if (http2) {
+        channelPipeline.addLast(new ProtocolNegotiationHandler());
+        return;
+      }
     }
-    if (aquiver.cors()) {
-      CorsConfig corsConfig = CorsConfigBuilder.forAnyOrigin()
-              .allowNullOrigin().allowCredentials().build();
-      channelPipeline.addLast(new CorsHandler(corsConfig));
+    this.initHttp1(channelPipeline, http2 && Objects.isNull(sslCtx));
+  }
+
+  /**
+   * Add the HTTP/1 handlers
+   *
+   * @param channelPipeline connection pipeline
+   * @param h2c             whether cleartext connections may switch to HTTP/2
+   */
+  private void initHttp1(ChannelPipeline channelPipeline, boolean h2c) {
+    if (keepAlive && keepAliveIdleTimeout > 0) {
+      channelPipeline.addLast(HttpKeepAliveHandler.IDLE_HANDLER_NAME,
+              new IdleStateHandler(0, 0, keepAliveIdleTimeout, TimeUnit.SECONDS));
+    }
+    final HttpTimeoutHandler timeoutHandler = new HttpTimeoutHandler(requestHeaderTimeout, requestTimeout, readTimeout);
+    channelPipeline.addLast(timeoutHandler.readHandler());
+    if (h2c) {
+      final HttpServerCodec sourceCodec = httpServerCodec();
+      final HttpServerUpgradeHandler upgradeHandler = new HttpServerUpgradeHandler(sourceCodec, protocol ->
+              AsciiString.contentEquals(Http2CodecUtil.HTTP_UPGRADE_PROTOCOL_NAME, protocol)
+                      ? new Http2ServerUpgradeCodec(http2FrameCodec(), http2Handlers()) : null);
+      channelPipeline.addLast(new CleartextHttp2ServerUpgradeHandler(sourceCodec, upgradeHandler,
+              new ChannelInitializer<SocketChannel>() {
+                @Override
+                protected void initChannel(SocketChannel ch) {
+                  final ChannelPipeline pipeline = ch.pipeline();
+                  final Http2FrameCodec frameCodec = http2FrameCodec();
+                  pipeline.replace(this, null, frameCodec);
+                  String previous = pipeline.context(frameCodec).name();
+                  for (ChannelHandler handler : http2Handlers()) {
+                    pipeline.addAfter(previous, null, handler);
+                    previous = pipeline.context(handler).name();
+                  }
+                }
+              }));
+    } else {
+      channelPipeline.addLast(httpServerCodec());
     }
-    if (aquiver.gzip()) {
-      channelPipeline.addLast(new HttpContentCompressor());
+    channelPipeline.addLast(timeoutHandler);
+    if (Objects.nonNull(rateLimiter)) {
+      channelPipeline.addLast(new RateLimitHandler(rateLimiter, rateLimitKey));
     }
-    channelPipeline.addLast(new HttpServerCodec());
-    channelPipeline.addLast(new HttpServerExpectContinueHandler());
+    channelPipeline.addLast(new HttpKeepAliveHandler(keepAlive, keepAliveMaxRequests, shutdown));
+    this.initHttpHandlers(channelPipeline);
+    channelPipeline.addLast(new HttpBodyHandler(requestBodyMaxSize, requestBodySpillThreshold));
+    channelPipeline.addLast(new ChunkedWriteHandler());
     channelPipeline.addLast(new WebSocketHandler());
     channelPipeline.addLast(new NettyServerHandler());
   }
+
+  /**
+   * Add the compression and cors handlers, both work on http objects and
+   * must come after the codec
+   *
+   * @param channelPipeline connection or stream pipeline
+   */
+  private void initHttpHandlers(ChannelPipeline channelPipeline) {
+    if (compression) {
+      channelPipeline.addLast(new HttpCompressionHandler(compressionAlgorithms,
+              compressionLevel, compressionMinSize, compressionMimeTypes));
+    }
+    if (aquiver.cors()) {
+      channelPipeline.addLast(new CorsHandler(corsConfig()));
+    }
+  }
+
+  private CorsConfig corsConfig() {
+    return CorsConfigBuilder.forAnyOrigin()
+            .allowNullOrigin().allowCredentials().build();
+  }
+
+  private HttpServerCodec httpServerCodec() {
+    return new HttpServerCodec(maxInitialLineLength, maxHeaderSize, HttpObjectDecoder.DEFAULT_MAX_CHUNK_SIZE);
+  }
+
+  private Http2FrameCodec http2FrameCodec() {
+    return Http2FrameCodecBuilder.forServer()
+            .initialSettings(Http2Settings.defaultSettings().maxHeaderListSize(maxHeaderSize))
+            .gracefulShutdownTimeoutMillis(shutdownTimeoutMillis)
+            .build();
+  }
+
+  /**
+   * The handlers that follow the frame codec of an HTTP/2 connection
+   *
+   * @return the idle handler if the idle timeout is on, then the stream multiplexer
+   */
+  private ChannelHandler[] http2Handlers() {
+    final Http2MultiplexHandler multiplexHandler = new Http2MultiplexHandler(new Http2StreamInitializer());
+    if (keepAlive && keepAliveIdleTimeout > 0) {
+      return new ChannelHandler[]{new Http2IdleHandler(keepAliveIdleTimeout), multiplexHandler};
+    }
+    return new ChannelHandler[]{multiplexHandler};
+  }
+
+  /**
+   * Choose the HTTP/1 or HTTP/2 pipeline by the protocol negotiated through ALPN
+   */
+  private final class ProtocolNegotiationHandler extends ApplicationProtocolNegotiationHandler {
+
+    ProtocolNegotiationHandler() {
+      super(ApplicationProtocolNames.HTTP_1_1);
+    }
+
+    @Override
+    protected void configurePipeline(ChannelHandlerContext ctx, String protocol) {
+      if (ApplicationProtocolNames.HTTP_2.equals(protocol)) {
+        ctx.pipeline().addLast(http2FrameCodec());
+        ctx.pipeline().addLast(http2Handlers());
+      } else if (ApplicationProtocolNames.HTTP_1_1.equals(protocol)) {
+        initHttp1(ctx.pipeline(), false);
+      } else {
+        throw new IllegalStateException("Unknown protocol: " + protocol);
+      }
+    }
+  }
+
+  /**
+   * Pipeline of an HTTP/2 stream, the stream frames are converted to HTTP/1
+   * objects so that routes, interceptors and result handlers work unchanged
+   */
+  private final class Http2StreamInitializer extends ChannelInitializer<Http2StreamChannel> {
+
+    @Override
+    protected void initChannel(Http2StreamChannel ch) {
+      shutdown.requestStarted();
+      ch.closeFuture().addListener(future -> shutdown.requestCompleted());
+      final ChannelPipeline channelPipeline = ch.pipeline();
+      final HttpTimeoutHandler timeoutHandler = new HttpTimeoutHandler(0, requestTimeout, readTimeout);
+      channelPipeline.addLast(timeoutHandler.readHandler());
+      channelPipeline.addLast(new Http2StreamFrameToHttpObjectCodec(true));
+      channelPipeline.addLast(timeoutHandler);
+      if (Objects.nonNull(rateLimiter)) {
+        channelPipeline.addLast(new RateLimitHandler(rateLimiter, rateLimitKey));
+      }
+      initHttpHandlers(channelPipeline);
+      channelPipeline.addLast(new HttpBodyHandler(requestBodyMaxSize, requestBodySpillThreshold));
+      channelPipeline.addLast(new ChunkedWriteHandler());
+      channelPipeline.addLast(new NettyServerHandler());
+    }
+  }
 }
@@ -50,6 +50,8 @@ public class NettyThreadFactory implements ThreadFactory {
    */
   @Override
   public Thread newThread(Runnable runnable) {
-    return new Thread(runnable, prefix + "thread-" + threadNumber.intValue());
+    final Thread thread = new Thread(runnable, prefix + "thread-" + threadNumber.intValue());
+    this.threadNumber.increment();
+    return thread;
   }
 }
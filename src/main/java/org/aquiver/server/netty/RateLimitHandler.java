@@ -0,0 +1,249 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.server.netty;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpStatusClass;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import io.netty.util.ReferenceCountUtil;
+import org.aquiver.server.RateLimiter;
+import org.aquiver.server.ServerMetrics;
+import org.aquiver.server.ServerMetrics.RejectReason;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+/**
+ * Reject requests of clients over their rate limit with 429 right after
+ * the http codec, before the body is aggregated or the request routed.
+ * Clients are told apart by their remote address, a request header or an
+ * API key, see {@link #keyResolver(String)}.
+ * <p>
+ * A rejected request is answered at once when no response of the
+ * connection is pending and its body is discarded. With pipelined
+ * responses pending, the rejection is sent after them and the connection
+ * is closed, so that responses keep the order of the requests.
+ *
+ * @author WangYi
+ * @since 2021/3/16
+ */
+final class RateLimitHandler extends ChannelDuplexHandler {
+  private static final String BEARER = "Bearer ";
+
+  private final RateLimiter rateLimiter;
+  private final BiFunction<ChannelHandlerContext, HttpRequest, Object> keyResolver;
+  private int pendingResponses;
+  private boolean responding;
+  private boolean discarding;
+  private boolean closing;
+  private FullHttpResponse deferredRejection;
+
+  RateLimitHandler(RateLimiter rateLimiter, BiFunction<ChannelHandlerContext, HttpRequest, Object> keyResolver) {
+    this.rateLimiter = rateLimiter;
+    this.keyResolver = keyResolver;
+  }
+
+  /**
+   * Get how clients are told apart:
+   * <ul>
+   * <li>{@code remote-address}: the address of the connection</li>
+   * <li>{@code header:<name>}: the last value of a header, e.g.
+   * {@code header:X-Forwarded-For}. Clients can send any value, so the
+   * header must be set by a trusted proxy in front of the server. Proxies
+   * append the address they saw to {@code X-Forwarded-For}, the last value
+   * is the one added by the nearest proxy and can't be forged.</li>
+   * <li>{@code api-key}: the bearer token of {@code Authorization}, the
+   * {@code X-API-Key} header or the {@code api_key} query parameter</li>
+   * </ul>
+   * Requests without the header or API key are told apart by their
+   * remote address.
+   *
+   * @param spec key configuration
+   * @return client key of a request
+   */
+  static BiFunction<ChannelHandlerContext, HttpRequest, Object> keyResolver(String spec) {
+    final String value = spec.trim();
+    if ("remote-address".equalsIgnoreCase(value)) {
+      return (ctx, request) -> remoteAddress(ctx);
+    }
+    if (value.regionMatches(true, 0, "header:", 0, 7) && value.length() > 7) {
+      final String name = value.substring(7).trim();
+      return (ctx, request) -> {
+        final List<String> values = request.headers().getAll(name);
+        final String header = values.isEmpty() ? null : values.get(values.size() - 1);
+        final String last = header == null ? "" : header.substring(header.lastIndexOf(',') + 1).trim();
+        return last.isEmpty() ? remoteAddress(ctx) : last;
+      };
+    }
+    if ("api-key".equalsIgnoreCase(value)) {
+      return (ctx, request) -> {
+        final String apiKey = apiKey(request);
+        return apiKey == null ? remoteAddress(ctx) : apiKey;
+      };
+    }
+    throw new IllegalArgumentException("Unknown rate limit key: " + spec);
+  }
+
+  private static Object remoteAddress(ChannelHandlerContext ctx) {
+    final SocketAddress address = ctx.channel().remoteAddress();
+    if (address instanceof InetSocketAddress && ((InetSocketAddress) address).getAddress() != null) {
+      return ((InetSocketAddress) address).getAddress();
+    }
+    return String.valueOf(address);
+  }
+
+  private static String apiKey(HttpRequest request) {
+    final String authorization = request.headers().get(HttpHeaderNames.AUTHORIZATION);
+    if (authorization != null && authorization.regionMatches(true, 0, BEARER, 0, BEARER.length())) {
+      return authorization.substring(BEARER.length()).trim();
+    }
+    final String header = request.headers().get("X-API-Key");
+    if (header != null && !header.isEmpty()) {
+      return header;
+    }
+    if (request.uri().indexOf('?') < 0) {
+      return null;
+    }
+    final List<String> parameter = new QueryStringDecoder(request.uri()).parameters().get("api_key");
+    return parameter == null || parameter.isEmpty() ? null : parameter.get(0);
+  }
+
+  private static String path(String uri) {
+    int start = 0;
+    if (!uri.startsWith("/")) {
+      // absolute form, skip the scheme and authority
+      final int scheme = uri.indexOf("://");
+      start = scheme < 0 ? 0 : uri.indexOf('/', scheme + 3);
+      if (start < 0) {
+        return "/";
+      }
+    }
+    int end = uri.length();
+    for (int i = start; i < uri.length(); i++) {
+      final char c = uri.charAt(i);
+      if (c == '?' || c == '#') {
+        end = i;
+        break;
+      }
+    }
+    return start == 0 && end == uri.length() ? uri : uri.substring(start, end);
+  }
+
+  @Override
+  public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+    if (closing) {
+      ReferenceCountUtil.release(msg);
+      return;
+    }
+    if (msg instanceof HttpRequest) {
+      final HttpRequest request = (HttpRequest) msg;
+      final long wait = rateLimiter.acquire(path(request.uri()), keyResolver.apply(ctx, request));
+      if (wait > 0) {
+        ReferenceCountUtil.release(msg);
+        this.reject(ctx, request, wait, !(msg instanceof LastHttpContent));
+        return;
+      }
+      this.pendingResponses++;
+    } else if (discarding && msg instanceof HttpContent) {
+      this.discarding = !(msg instanceof LastHttpContent);
+      ReferenceCountUtil.release(msg);
+      return;
+    }
+    super.channelRead(ctx, msg);
+  }
+
+  private void reject(ChannelHandlerContext ctx, HttpRequest request, long waitNanos, boolean hasContent) {
+    ServerMetrics.of().requestRejected(RejectReason.RATE_LIMIT);
+    final FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1,
+            HttpResponseStatus.TOO_MANY_REQUESTS, Unpooled.EMPTY_BUFFER);
+    response.headers().set(HttpHeaderNames.CONTENT_LENGTH, HttpHeaderValues.ZERO);
+    response.headers().set(HttpHeaderNames.RETRY_AFTER,
+            Math.max(1, (TimeUnit.NANOSECONDS.toMillis(waitNanos) + 999) / 1000));
+    if (pendingResponses > 0) {
+      response.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.CLOSE);
+      this.deferredRejection = response;
+      this.closing = true;
+      return;
+    }
+    final boolean keepAlive = HttpUtil.isKeepAlive(request);
+    HttpUtil.setKeepAlive(response, keepAlive);
+    final ChannelFuture future = ctx.writeAndFlush(response);
+    if (keepAlive) {
+      this.discarding = hasContent;
+    } else {
+      this.closing = true;
+      future.addListener(ChannelFutureListener.CLOSE);
+    }
+  }
+
+  @Override
+  public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+    if (msg instanceof HttpResponse) {
+      final HttpResponse response = (HttpResponse) msg;
+      if (HttpResponseStatus.SWITCHING_PROTOCOLS.equals(response.status())) {
+        ctx.pipeline().remove(this);
+      } else if (response.status().codeClass() != HttpStatusClass.INFORMATIONAL) {
+        this.responding = true;
+      }
+    }
+    if (msg instanceof LastHttpContent && responding) {
+      this.responding = false;
+      if (--pendingResponses == 0 && deferredRejection != null) {
+        super.write(ctx, msg, promise);
+        final FullHttpResponse rejection = deferredRejection;
+        this.deferredRejection = null;
+        ctx.writeAndFlush(rejection).addListener(ChannelFutureListener.CLOSE);
+        return;
+      }
+    }
+    super.write(ctx, msg, promise);
+  }
+
+  @Override
+  public void handlerRemoved(ChannelHandlerContext ctx) {
+    if (deferredRejection != null) {
+      this.deferredRejection.release();
+      this.deferredRejection = null;
+    }
+  }
+}
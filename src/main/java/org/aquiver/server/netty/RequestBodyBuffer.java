@@ -0,0 +1,221 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.server.netty;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Body of a request being received. The body is kept in memory until it
+ * grows past the spill threshold, then it is written to a temporary file
+ * which is mapped into memory once the body is complete, so large bodies
+ * never occupy the heap.
+ * <p>
+ * The file is created and written on the given executor, one chunk after
+ * the other, never on the event loop. The reads of the channel are
+ * suspended while a write is pending, so a slow disk holds back the client
+ * instead of the other connections of the event loop and the chunks
+ * waiting for the disk stay bounded.
+ *
+ * @author WangYi
+ * @since 2021/3/6
+ */
+final class RequestBodyBuffer {
+  private static final Logger log = LoggerFactory.getLogger(RequestBodyBuffer.class);
+
+  private final Channel channel;
+  private final Executor executor;
+  private final int spillThreshold;
+  private CompositeByteBuf memory;
+  /** Tail of the disk work, null until the body is spilled */
+  private CompletableFuture<Void> writes;
+  /** Disk operations not yet finished, only used on the event loop */
+  private int pendingWrites;
+  /** Only used by the disk work, which runs in order */
+  private Path file;
+  private FileChannel fileChannel;
+  private int size;
+
+  /**
+   * @param channel        channel the body is received from
+   * @param allocator      allocator of the in-memory body
+   * @param spillThreshold size above which the body is written to disk,
+   *                       negative to always keep the body in memory
+   * @param executor       executor of the disk work
+   */
+  RequestBodyBuffer(Channel channel, ByteBufAllocator allocator, int spillThreshold, Executor executor) {
+    this.channel = channel;
+    this.executor = executor;
+    this.memory = allocator.compositeBuffer(Integer.MAX_VALUE);
+    this.spillThreshold = spillThreshold;
+  }
+
+  int size() {
+    return size;
+  }
+
+  /**
+   * Append a received chunk, write failures are reported by {@link #content()}
+   *
+   * @param chunk body chunk, retained by this buffer
+   */
+  void append(ByteBuf chunk) {
+    final int readable = chunk.readableBytes();
+    if (readable == 0) {
+      return;
+    }
+    this.size += readable;
+    if (writes != null) {
+      this.writeLater(chunk.retainedDuplicate());
+      return;
+    }
+    this.memory.addComponent(true, chunk.retain());
+    if (spillThreshold >= 0 && size > spillThreshold) {
+      final ByteBuf spilled = memory;
+      this.memory = null;
+      this.writes = CompletableFuture.completedFuture(null);
+      this.writeLater(spilled);
+    }
+  }
+
+  /**
+   * Complete the body and take its content, the buffer must not be used
+   * afterwards. The content of a spilled body is available once every
+   * pending write finished.
+   *
+   * @return the body, in memory or mapped from the spill file
+   */
+  CompletableFuture<ByteBuf> content() {
+    if (writes == null) {
+      final ByteBuf content = memory;
+      this.memory = null;
+      return CompletableFuture.completedFuture(content);
+    }
+    final CompletableFuture<Void> written = writes;
+    this.writes = null;
+    this.started();
+    final CompletableFuture<ByteBuf> content = written.thenApplyAsync(ignored -> this.map(), executor);
+    content.whenCompleteAsync((mapped, e) -> this.delete(), executor)
+            .whenComplete((ignored, e) -> this.finished());
+    return content;
+  }
+
+  /**
+   * Discard the body and delete the spill file once its pending writes finished
+   */
+  void release() {
+    if (memory != null) {
+      this.memory.release();
+      this.memory = null;
+    }
+    if (writes != null) {
+      final CompletableFuture<Void> written = writes;
+      this.writes = null;
+      written.whenCompleteAsync((ignored, e) -> this.delete(), executor);
+    }
+  }
+
+  private void writeLater(ByteBuf data) {
+    this.started();
+    this.writes = writes.thenRunAsync(() -> this.write(data), executor)
+            .whenComplete((ignored, e) -> {
+              data.release();
+              this.finished();
+            });
+  }
+
+  private void started() {
+    if (pendingWrites++ == 0) {
+      ChannelReads.suspend(channel, ChannelReads.BODY_SPILL);
+    }
+  }
+
+  private void finished() {
+    if (!channel.eventLoop().inEventLoop()) {
+      this.channel.eventLoop().execute(this::finished);
+      return;
+    }
+    if (--pendingWrites == 0) {
+      ChannelReads.resume(channel, ChannelReads.BODY_SPILL);
+    }
+  }
+
+  private void write(ByteBuf data) {
+    try {
+      if (fileChannel == null) {
+        this.file = Files.createTempFile("aquiver-body-", ".tmp");
+        this.fileChannel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+      }
+      while (data.isReadable()) {
+        data.readBytes(fileChannel, data.readableBytes());
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private ByteBuf map() {
+    try {
+      final MappedByteBuffer mapped = fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+      return Unpooled.wrappedBuffer(mapped);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private void delete() {
+    if (fileChannel != null) {
+      try {
+        this.fileChannel.close();
+      } catch (IOException e) {
+        log.warn("Close request body file {} failed", file, e);
+      }
+      this.fileChannel = null;
+    }
+    if (file != null) {
+      try {
+        Files.deleteIfExists(file);
+      } catch (IOException e) {
+        // The file is still mapped on platforms that lock mapped files
+        this.file.toFile().deleteOnExit();
+      }
+      this.file = null;
+    }
+  }
+}
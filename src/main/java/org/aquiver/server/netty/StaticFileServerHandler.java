@@ -23,80 +23,496 @@
  */
 package org.aquiver.server.netty;
 
-import io.netty.channel.ChannelFuture;
-import io.netty.channel.ChannelFutureListener;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.DefaultFileRegion;
+import io.netty.handler.codec.DateFormatter;
 import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
 import io.netty.handler.codec.http.DefaultHttpResponse;
-import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.DefaultLastHttpContent;
+import io.netty.handler.codec.http.EmptyHttpHeaders;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpChunkedInput;
 import io.netty.handler.codec.http.HttpHeaderNames;
 import io.netty.handler.codec.http.HttpHeaderValues;
-import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpHeaders;
 import io.netty.handler.codec.http.HttpResponseStatus;
 import io.netty.handler.codec.http.HttpVersion;
 import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import io.netty.handler.codec.http2.Http2StreamChannel;
 import io.netty.handler.ssl.SslHandler;
 import io.netty.handler.stream.ChunkedNioFile;
+import io.netty.handler.stream.ChunkedStream;
+import io.netty.util.CharsetUtil;
+import org.aquiver.Aquiver;
+import org.aquiver.MethodNotAllowedException;
 import org.aquiver.RequestContext;
+import org.aquiver.mvc.http.HttpMethod;
+import org.aquiver.mvc.http.MimeTypes;
 
 import java.io.File;
-import java.io.RandomAccessFile;
-import java.net.URL;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.List;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
+ * Serve class path resources. Small resources are answered from memory,
+ * larger files are sent with zero-copy file regions, or in chunks when TLS
+ * or HTTP/2 has to transform the bytes. Responses carry a strong
+ * {@code ETag} and {@code Last-Modified}, conditional requests get 304
+ * and byte range requests get 206 with one or several ranges.
+ * <p>
+ * Compressible resources are sent in the best encoding the client accepts,
+ * from a precompressed {@code .br} or {@code .gz} sibling or else from a
+ * gzip copy compressed once in the background and cached.
+ *
  * @author WangYi
  * @since 2020/5/28
  */
 public class StaticFileServerHandler {
-  public void handle(RequestContext requestContext) throws Exception {
-    String uri = requestContext.uri();
-    final URL resource = this.getClass().getClassLoader().getResource(uri
-                    .replaceFirst("/", ""));
-    if (Objects.isNull(resource) || "favicon.ico".equals(uri)) {
+  private static final Set<HttpMethod> ALLOWED_METHODS = EnumSet.of(HttpMethod.GET, HttpMethod.HEAD);
+  private static final int CHUNK_SIZE = 8192;
+
+  private static final String[] ENCODINGS = {"br", "gzip"};
+
+  private final StaticResourceCache resourceCache;
+  private final boolean compression;
+
+  public StaticFileServerHandler() {
+    final Aquiver aquiver = Aquiver.of();
+    final DispatchExecutors dispatchExecutors = aquiver.apexContext().getBean(DispatchExecutors.class);
+    this.resourceCache = new StaticResourceCache(StaticFileServerHandler.class.getClassLoader(),
+            aquiver.staticCacheMaxSize(), aquiver.staticCacheMaxFileSize(),
+            aquiver.staticCompressionMaxFileSize(), aquiver.staticCacheCheckInterval(),
+            Objects.isNull(dispatchExecutors) ? Runnable::run : dispatchExecutors.io());
+    this.compression = aquiver.staticCompression();
+  }
+
+  public void handle(RequestContext requestContext, FullHttpRequest request) throws Exception {
+    final HttpMethod method = HttpMethod.of(request.method().name());
+    final boolean head = method == HttpMethod.HEAD;
+    if (!head && method != HttpMethod.GET) {
+      throw new MethodNotAllowedException(request.method().name(), request.uri(), ALLOWED_METHODS);
+    }
+    final String name = resourceName(request.uri());
+    final StaticResource original = name == null ? null : resourceCache.lookup(name);
+    if (original == null) {
+      requestContext.notFound();
+      return;
+    }
+
+    final HttpHeaders headers = new DefaultHttpHeaders();
+    StaticResource resource = original;
+    String etag = original.etag();
+    if (compression && MimeTypes.isCompressible(original.contentType())) {
+      headers.set(HttpHeaderNames.VARY, HttpHeaderNames.ACCEPT_ENCODING);
+      for (String encoding : encodings(request.headers().get(HttpHeaderNames.ACCEPT_ENCODING))) {
+        final StaticResource encoded = resourceCache.encoded(original, encoding);
+        if (encoded != null) {
+          resource = encoded;
+          // Siblings may share size and date with the original, their tags must still differ
+          etag = encoded.sourceEtag() != null ? encoded.etag()
+                  : encoded.etag().substring(0, encoded.etag().length() - 1) + "-" + encoding + "\"";
+          headers.set(HttpHeaderNames.CONTENT_ENCODING, encoding);
+          break;
+        }
+      }
+    }
+    this.respond(requestContext.nettyContext(), request, head, headers, original, resource, etag);
+  }
+
+  /**
+   * Write the response of a resource representation
+   *
+   * @param original the resource as requested
+   * @param resource the representation to send, the original or a compressed one
+   * @param etag     entity tag of the representation
+   */
+  private void respond(ChannelHandlerContext ctx, FullHttpRequest request, boolean head, HttpHeaders headers,
+                       StaticResource original, StaticResource resource, String etag) throws IOException {
+    final HttpVersion version = request.protocolVersion();
+    headers.set(HttpHeaderNames.ETAG, etag);
+    headers.set(HttpHeaderNames.LAST_MODIFIED, resource.lastModifiedHeader());
+    headers.set(HttpHeaderNames.ACCEPT_RANGES, HttpHeaderValues.BYTES);
+
+    if (isNotModified(request.headers(), resource, etag)) {
+      ctx.writeAndFlush(new DefaultFullHttpResponse(version, HttpResponseStatus.NOT_MODIFIED,
+              Unpooled.EMPTY_BUFFER, headers, EmptyHttpHeaders.INSTANCE));
+      return;
+    }
+
+    List<ByteRange> ranges = head ? null : ranges(request.headers(), resource, etag);
+    if (ranges != null && ranges.isEmpty()) {
+      headers.set(HttpHeaderNames.CONTENT_RANGE, "bytes */" + resource.length());
+      headers.setInt(HttpHeaderNames.CONTENT_LENGTH, 0);
+      ctx.writeAndFlush(new DefaultFullHttpResponse(version, HttpResponseStatus.REQUESTED_RANGE_NOT_SATISFIABLE,
+              Unpooled.EMPTY_BUFFER, headers, EmptyHttpHeaders.INSTANCE));
+      return;
+    }
+
+    // Read the content once, the resource may be evicted at any time after
+    final ByteBuf content = head ? null : resource.retainedContent();
+    if (content == null && !head && resource.sourceEtag() != null) {
+      // The compressed copy only lives in the cache and was evicted meanwhile
+      headers.remove(HttpHeaderNames.CONTENT_ENCODING);
+      this.respond(ctx, request, false, headers, original, original, original.etag());
       return;
     }
+    if (content == null && resource.file() == null && ranges != null && ranges.size() > 1) {
+      // Large resources inside a jar can only be read from the start once
+      ranges = null;
+    }
+
+    final Body body = new Body(resource, original.contentType(), ranges, ctx.alloc());
+    body.headers(headers);
+    final HttpResponseStatus status = ranges == null ? HttpResponseStatus.OK : HttpResponseStatus.PARTIAL_CONTENT;
+    if (head) {
+      ctx.write(new DefaultHttpResponse(version, status, headers));
+      ctx.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT);
+      return;
+    }
+
+    if (content != null) {
+      ctx.writeAndFlush(new DefaultFullHttpResponse(version, status,
+              body.fromMemory(content), headers, EmptyHttpHeaders.INSTANCE));
+    } else if (resource.file() == null) {
+      final InputStream in = ranges == null ? resource.url().openStream()
+              : new RangeInputStream(resource.url().openStream(), ranges.get(0));
+      ctx.write(new DefaultHttpResponse(version, status, headers));
+      ctx.writeAndFlush(new HttpChunkedInput(new ChunkedStream(in, CHUNK_SIZE)));
+    } else if (ctx.pipeline().get(SslHandler.class) == null && !(ctx.channel() instanceof Http2StreamChannel)) {
+      ctx.write(new DefaultHttpResponse(version, status, headers));
+      body.writeFileRegions(ctx);
+    } else if (ranges != null && ranges.size() > 1) {
+      ctx.writeAndFlush(new DefaultFullHttpResponse(version, status,
+              body.fromMappedFile(), headers, EmptyHttpHeaders.INSTANCE));
+    } else {
+      // Zero-copy needs the raw socket, TLS connections and HTTP/2 streams
+      // transform the bytes and get the file in chunks instead
+      final long start = ranges == null ? 0 : ranges.get(0).start();
+      final long length = ranges == null ? resource.length() : ranges.get(0).length();
+      final FileChannel fileChannel = FileChannel.open(resource.file().toPath(), StandardOpenOption.READ);
+      ctx.write(new DefaultHttpResponse(version, status, headers));
+      ctx.writeAndFlush(new HttpChunkedInput(new ChunkedNioFile(fileChannel, start, length, CHUNK_SIZE)));
+    }
+  }
+
+  /**
+   * Release the cached resource contents
+   */
+  public void clear() {
+    this.resourceCache.clear();
+  }
+
+  /**
+   * The encodings the client accepts, most preferred first
+   *
+   * @param acceptEncoding accept-encoding header value
+   * @return accepted encodings among {@code br} and {@code gzip}
+   */
+  private static List<String> encodings(String acceptEncoding) {
+    if (acceptEncoding == null) {
+      return Collections.emptyList();
+    }
+    final AcceptEncoding accepted = AcceptEncoding.parse(acceptEncoding);
+    final float br = accepted.quality(ENCODINGS[0]);
+    final float gzip = accepted.quality(ENCODINGS[1]);
+    final List<String> encodings = new ArrayList<>(ENCODINGS.length);
+    if (br > 0 && br >= gzip) {
+      encodings.add(ENCODINGS[0]);
+    }
+    if (gzip > 0) {
+      encodings.add(ENCODINGS[1]);
+    }
+    if (br > 0 && br < gzip) {
+      encodings.add(ENCODINGS[0]);
+    }
+    return encodings;
+  }
+
+  /**
+   * The class path resource name of a request uri, paths that could leave
+   * the resource root are refused
+   *
+   * @param uri request uri
+   * @return resource name, or null if the path is not allowed
+   */
+  private static String resourceName(String uri) {
+    final String path = new QueryStringDecoder(uri).path();
+    if (path.indexOf('\\') >= 0 || path.indexOf('\0') >= 0) {
+      return null;
+    }
+    for (String segment : path.split("/")) {
+      if (".".equals(segment) || "..".equals(segment)) {
+        return null;
+      }
+    }
+    int start = 0;
+    while (start < path.length() && path.charAt(start) == '/') {
+      start++;
+    }
+    return start == path.length() ? null : path.substring(start);
+  }
 
-    final ChannelHandlerContext ctx = requestContext.nettyContext();
-    final File html = new File(resource.toURI());
+  private static boolean isNotModified(HttpHeaders requestHeaders, StaticResource resource, String etag) {
+    final String ifNoneMatch = requestHeaders.get(HttpHeaderNames.IF_NONE_MATCH);
+    if (ifNoneMatch != null) {
+      for (String tag : ifNoneMatch.split(",")) {
+        tag = tag.trim();
+        if (tag.startsWith("W/")) {
+          tag = tag.substring(2);
+        }
+        if ("*".equals(tag) || etag.equals(tag)) {
+          return true;
+        }
+      }
+      return false;
+    }
+    final String ifModifiedSince = requestHeaders.get(HttpHeaderNames.IF_MODIFIED_SINCE);
+    if (ifModifiedSince != null) {
+      final Date since = DateFormatter.parseHttpDate(ifModifiedSince);
+      return since != null && resource.lastModified() <= since.getTime();
+    }
+    return false;
+  }
 
-    if (requestContext.is100ContinueExpected()) {
-      FullHttpResponse response = new DefaultFullHttpResponse(
-              HttpVersion.HTTP_1_1, HttpResponseStatus.CONTINUE);
+  private static List<ByteRange> ranges(HttpHeaders requestHeaders, StaticResource resource, String etag) {
+    final String range = requestHeaders.get(HttpHeaderNames.RANGE);
+    if (range == null) {
+      return null;
+    }
+    final String ifRange = requestHeaders.get(HttpHeaderNames.IF_RANGE);
+    if (ifRange != null && !etag.equals(ifRange)) {
+      final Date date = DateFormatter.parseHttpDate(ifRange);
+      if (date == null || date.getTime() != resource.lastModified()) {
+        return null;
+      }
+    }
+    return ByteRange.parse(range, resource.length());
+  }
 
-      requestContext.tryPush(response);
+  /**
+   * One range of a stream that can only be read from the start, the bytes
+   * before the range are skipped on the first read
+   */
+  private static final class RangeInputStream extends FilterInputStream {
+    private long skip;
+    private long remaining;
+
+    RangeInputStream(InputStream in, ByteRange range) {
+      super(in);
+      this.skip = range.start();
+      this.remaining = range.length();
     }
 
-    try (RandomAccessFile file = new RandomAccessFile(html, "r")) {
-      HttpResponse response = new DefaultHttpResponse(HttpVersion.HTTP_1_0, HttpResponseStatus.OK);
+    @Override
+    public int read() throws IOException {
+      if (!this.skipToRange() || remaining == 0) {
+        return -1;
+      }
+      final int read = in.read();
+      if (read >= 0) {
+        this.remaining--;
+      }
+      return read;
+    }
 
-      if (uri.endsWith(".html")) {
-        response.headers().set(HttpHeaderNames.CONTENT_TYPE, "text/html; charset=UTF-8");
-      } else if (uri.endsWith(".js")) {
-        response.headers().set(HttpHeaderNames.CONTENT_TYPE, "application/x-javascript");
-      } else if (uri.endsWith(".css")) {
-        response.headers().set(HttpHeaderNames.CONTENT_TYPE, "text/css; charset=UTF-8");
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (len == 0) {
+        return 0;
+      }
+      if (!this.skipToRange() || remaining == 0) {
+        return -1;
       }
+      final int read = in.read(b, off, (int) Math.min(len, remaining));
+      if (read > 0) {
+        this.remaining -= read;
+      }
+      return read;
+    }
 
-      Boolean keepAlive = requestContext.isKeepAlive();
+    @Override
+    public int available() throws IOException {
+      return skip > 0 ? 0 : (int) Math.min(in.available(), remaining);
+    }
 
-      if (keepAlive) {
-        response.headers().set(HttpHeaderNames.CONTENT_LENGTH, file.length());
-        response.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.KEEP_ALIVE);
+    @Override
+    public long skip(long n) throws IOException {
+      final byte[] buffer = new byte[(int) Math.min(n, CHUNK_SIZE)];
+      long skipped = 0;
+      int read;
+      while (skipped < n && (read = this.read(buffer, 0, (int) Math.min(buffer.length, n - skipped))) > 0) {
+        skipped += read;
       }
-      ctx.write(response);
+      return skipped;
+    }
 
-      if (ctx.pipeline().get(SslHandler.class) == null) {
-        ctx.write(new DefaultFileRegion(file.getChannel(), 0, file.length()));
+    @Override
+    public boolean markSupported() {
+      return false;
+    }
+
+    /**
+     * @return false if the stream ended before the range
+     */
+    private boolean skipToRange() throws IOException {
+      while (skip > 0) {
+        final long skipped = in.skip(skip);
+        if (skipped > 0) {
+          this.skip -= skipped;
+        } else if (in.read() < 0) {
+          return false;
+        } else {
+          this.skip--;
+        }
+      }
+      return true;
+    }
+  }
+
+  /**
+   * The response body of a resource, either the whole resource, one range
+   * or a {@code multipart/byteranges} body with several ranges
+   */
+  private static final class Body {
+    private final StaticResource resource;
+    private final String contentType;
+    private final List<ByteRange> ranges;
+    private final ByteBufAllocator allocator;
+    private final String boundary;
+    private final List<byte[]> partHeaders;
+    private final byte[] closeDelimiter;
+
+    Body(StaticResource resource, String contentType, List<ByteRange> ranges, ByteBufAllocator allocator) {
+      this.resource = resource;
+      this.contentType = contentType;
+      this.ranges = ranges;
+      this.allocator = allocator;
+      if (ranges != null && ranges.size() > 1) {
+        this.boundary = Long.toHexString(ThreadLocalRandom.current().nextLong())
+                + Long.toHexString(ThreadLocalRandom.current().nextLong());
+        this.partHeaders = new ArrayList<>(ranges.size());
+        for (ByteRange range : ranges) {
+          this.partHeaders.add(("\r\n--" + boundary + "\r\n"
+                  + HttpHeaderNames.CONTENT_TYPE + ": " + contentType + "\r\n"
+                  + HttpHeaderNames.CONTENT_RANGE + ": " + range.contentRange(resource.length())
+                  + "\r\n\r\n").getBytes(CharsetUtil.US_ASCII));
+        }
+        this.closeDelimiter = ("\r\n--" + boundary + "--\r\n").getBytes(CharsetUtil.US_ASCII);
+      } else {
+        this.boundary = null;
+        this.partHeaders = null;
+        this.closeDelimiter = null;
+      }
+    }
+
+    boolean isMultipart() {
+      return boundary != null;
+    }
+
+    void headers(HttpHeaders headers) {
+      if (ranges == null) {
+        headers.set(HttpHeaderNames.CONTENT_TYPE, contentType);
+        headers.set(HttpHeaderNames.CONTENT_LENGTH, resource.length());
+      } else if (!isMultipart()) {
+        headers.set(HttpHeaderNames.CONTENT_TYPE, contentType);
+        headers.set(HttpHeaderNames.CONTENT_RANGE, ranges.get(0).contentRange(resource.length()));
+        headers.set(HttpHeaderNames.CONTENT_LENGTH, ranges.get(0).length());
       } else {
-        ctx.write(new ChunkedNioFile(file.getChannel()));
+        long length = closeDelimiter.length;
+        for (int i = 0; i < ranges.size(); i++) {
+          length += partHeaders.get(i).length + ranges.get(i).length();
+        }
+        headers.set(HttpHeaderNames.CONTENT_TYPE, "multipart/byteranges; boundary=" + boundary);
+        headers.set(HttpHeaderNames.CONTENT_LENGTH, length);
       }
+    }
+
+    /**
+     * Body cut from the cached content
+     *
+     * @param content retained cached content, released by the body
+     */
+    ByteBuf fromMemory(ByteBuf content) {
+      if (ranges == null) {
+        return content;
+      }
+      if (!isMultipart()) {
+        final ByteRange range = ranges.get(0);
+        final ByteBuf slice = content.retainedSlice((int) range.start(), (int) range.length());
+        content.release();
+        return slice;
+      }
+      final CompositeByteBuf body = allocator.compositeBuffer(ranges.size() * 2 + 1);
+      for (int i = 0; i < ranges.size(); i++) {
+        final ByteRange range = ranges.get(i);
+        body.addComponent(true, Unpooled.wrappedBuffer(partHeaders.get(i)));
+        body.addComponent(true, content.retainedSlice((int) range.start(), (int) range.length()));
+      }
+      body.addComponent(true, Unpooled.wrappedBuffer(closeDelimiter));
+      content.release();
+      return body;
+    }
 
-      ChannelFuture future = ctx.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT);
-      if (!keepAlive) {
-        future.addListener(ChannelFutureListener.CLOSE);
+    /**
+     * Body mapped from the file, used for several ranges when the file
+     * can not be sent as file regions
+     */
+    ByteBuf fromMappedFile() throws IOException {
+      final CompositeByteBuf body = allocator.compositeBuffer(ranges.size() * 2 + 1);
+      try (FileChannel fileChannel = FileChannel.open(resource.file().toPath(), StandardOpenOption.READ)) {
+        for (int i = 0; i < ranges.size(); i++) {
+          final ByteRange range = ranges.get(i);
+          final MappedByteBuffer mapped = fileChannel.map(FileChannel.MapMode.READ_ONLY, range.start(), range.length());
+          body.addComponent(true, Unpooled.wrappedBuffer(partHeaders.get(i)));
+          body.addComponent(true, Unpooled.wrappedBuffer(mapped));
+        }
+      } catch (IOException | RuntimeException e) {
+        body.release();
+        throw e;
+      }
+      body.addComponent(true, Unpooled.wrappedBuffer(closeDelimiter));
+      return body;
+    }
+
+    /**
+     * Write the body as zero-copy file regions
+     */
+    void writeFileRegions(ChannelHandlerContext ctx) {
+      final File file = resource.file();
+      if (ranges == null) {
+        ctx.write(new DefaultFileRegion(file, 0, resource.length()));
+        ctx.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT);
+        return;
+      }
+      for (int i = 0; i < ranges.size(); i++) {
+        final ByteRange range = ranges.get(i);
+        if (isMultipart()) {
+          ctx.write(new DefaultHttpContent(Unpooled.wrappedBuffer(partHeaders.get(i))));
+        }
+        ctx.write(new DefaultFileRegion(file, range.start(), range.length()));
       }
+      ctx.writeAndFlush(isMultipart()
+              ? new DefaultLastHttpContent(Unpooled.wrappedBuffer(closeDelimiter))
+              : LastHttpContent.EMPTY_LAST_CONTENT);
     }
   }
 }
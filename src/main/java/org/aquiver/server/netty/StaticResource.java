@@ -0,0 +1,288 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.server.netty;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.handler.codec.DateFormatter;
+import io.netty.util.IllegalReferenceCountException;
+import org.aquiver.mvc.http.MimeTypes;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Date;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A static resource with its validators, small resources keep their
+ * content in a direct buffer so they are served without touching disk
+ *
+ * @author WangYi
+ * @since 2021/3/7
+ */
+final class StaticResource {
+  private final String name;
+  private final URL url;
+  private final File file;
+  private final long length;
+  private final long lastModified;
+  private final String etag;
+  private final String lastModifiedHeader;
+  private final String contentType;
+  private final ByteBuf content;
+  private final String sourceEtag;
+  private volatile long checkedAt;
+
+  private StaticResource(String name, URL url, File file, long length, long lastModified, ByteBuf content) {
+    this(name, url, file, length, lastModified, content,
+            "\"" + Long.toHexString(lastModified) + "-" + Long.toHexString(length) + "\"", null);
+  }
+
+  private StaticResource(String name, URL url, File file, long length, long lastModified,
+                         ByteBuf content, String etag, String sourceEtag) {
+    this.name = name;
+    this.url = url;
+    this.file = file;
+    this.length = length;
+    this.lastModified = lastModified;
+    this.etag = etag;
+    this.lastModifiedHeader = DateFormatter.format(new Date(lastModified));
+    this.contentType = MimeTypes.of(name);
+    this.content = content;
+    this.sourceEtag = sourceEtag;
+    this.checkedAt = System.nanoTime();
+  }
+
+  /**
+   * Read the metadata of a resource and its content if it is small enough
+   *
+   * @param name         resource name
+   * @param url          resource url from the class loader
+   * @param maxCacheSize largest resource whose content is kept in memory
+   * @return the resource, or null if the url is a directory
+   * @throws IOException if the resource can not be read
+   */
+  static StaticResource load(String name, URL url, int maxCacheSize) throws IOException {
+    if ("file".equals(url.getProtocol())) {
+      final File file;
+      try {
+        file = new File(url.toURI());
+      } catch (URISyntaxException e) {
+        throw new IOException("Invalid resource url " + url, e);
+      }
+      if (!file.isFile()) {
+        return null;
+      }
+      final long length = file.length();
+      final long lastModified = truncate(file.lastModified());
+      final ByteBuf content = length <= maxCacheSize ? read(file, (int) length) : null;
+      return new StaticResource(name, url, file, length, lastModified, content);
+    }
+    final URLConnection connection = url.openConnection();
+    if (connection instanceof JarURLConnection
+            && ((JarURLConnection) connection).getJarEntry().isDirectory()) {
+      return null;
+    }
+    final long length = connection.getContentLengthLong();
+    final long lastModified = truncate(connection.getLastModified());
+    final ByteBuf content = length >= 0 && length <= maxCacheSize ? read(connection, (int) length) : null;
+    return new StaticResource(name, url, null, length, lastModified, content);
+  }
+
+  private static ByteBuf read(URLConnection connection, int length) throws IOException {
+    final ByteBuf content = PooledByteBufAllocator.DEFAULT.directBuffer(length);
+    try (InputStream in = connection.getInputStream()) {
+      while (content.isWritable() && content.writeBytes(in, content.writableBytes()) > 0) {
+        // streams may return fewer bytes than requested
+      }
+      return content;
+    } catch (IOException e) {
+      content.release();
+      throw e;
+    }
+  }
+
+  /**
+   * Compress a resource with gzip. The result has no content if
+   * compression does not make the resource smaller.
+   *
+   * @param source resource to compress
+   * @return compressed representation of the resource
+   * @throws IOException if the resource can not be read
+   */
+  static StaticResource gzip(StaticResource source) throws IOException {
+    ByteBuf compressed = PooledByteBufAllocator.DEFAULT.directBuffer((int) Math.min(source.length(), 64 * 1024));
+    try (InputStream in = source.openStream();
+         OutputStream out = new GZIPOutputStream(new ByteBufOutputStream(compressed), 8192)) {
+      final byte[] buffer = new byte[8192];
+      int read;
+      while ((read = in.read(buffer)) > 0) {
+        out.write(buffer, 0, read);
+      }
+    } catch (IOException e) {
+      compressed.release();
+      throw e;
+    }
+    if (compressed.readableBytes() >= source.length()) {
+      compressed.release();
+      compressed = null;
+    }
+    final String sourceEtag = source.etag();
+    final String etag = sourceEtag.substring(0, sourceEtag.length() - 1) + "-gz\"";
+    return new StaticResource(source.name(), source.url(), null,
+            compressed == null ? source.length() : compressed.readableBytes(),
+            source.lastModified(), compressed, etag, sourceEtag);
+  }
+
+  private static ByteBuf read(File file, int length) throws IOException {
+    final ByteBuf content = PooledByteBufAllocator.DEFAULT.directBuffer(length);
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      long position = 0;
+      while (content.isWritable()) {
+        final int read = content.writeBytes(channel, position, content.writableBytes());
+        if (read < 0) {
+          break;
+        }
+        position += read;
+      }
+      return content;
+    } catch (IOException e) {
+      content.release();
+      throw e;
+    }
+  }
+
+  /**
+   * HTTP dates have a precision of one second
+   */
+  private static long truncate(long millis) {
+    return millis - millis % 1000;
+  }
+
+  String name() {
+    return name;
+  }
+
+  URL url() {
+    return url;
+  }
+
+  /**
+   * @return the file on disk, or null for resources inside a jar
+   */
+  File file() {
+    return file;
+  }
+
+  long length() {
+    return length;
+  }
+
+  long lastModified() {
+    return lastModified;
+  }
+
+  String etag() {
+    return etag;
+  }
+
+  String lastModifiedHeader() {
+    return lastModifiedHeader;
+  }
+
+  String contentType() {
+    return contentType;
+  }
+
+  /**
+   * @return the etag of the resource this one was compressed from, or null
+   */
+  String sourceEtag() {
+    return sourceEtag;
+  }
+
+  /**
+   * Open the content of the resource for reading
+   */
+  InputStream openStream() throws IOException {
+    final ByteBuf cached = this.retainedContent();
+    if (cached != null) {
+      return new ByteBufInputStream(cached, true);
+    }
+    return file != null ? Files.newInputStream(file.toPath()) : url.openStream();
+  }
+
+  boolean isCached() {
+    return content != null;
+  }
+
+  /**
+   * A retained view of the cached content, the caller releases it
+   *
+   * @return cached content, or null if the content is not or no longer cached
+   */
+  ByteBuf retainedContent() {
+    if (content == null) {
+      return null;
+    }
+    try {
+      return content.retainedDuplicate();
+    } catch (IllegalReferenceCountException e) {
+      // evicted concurrently
+      return null;
+    }
+  }
+
+  /**
+   * Whether the file changed since it was loaded, resources inside a jar never change
+   */
+  boolean isModified() {
+    return file != null && (file.length() != length || truncate(file.lastModified()) != lastModified);
+  }
+
+  long checkedAt() {
+    return checkedAt;
+  }
+
+  void checkedAt(long nanoTime) {
+    this.checkedAt = nanoTime;
+  }
+
+  void release() {
+    if (content != null && content.refCnt() > 0) {
+      this.content.release();
+    }
+  }
+}
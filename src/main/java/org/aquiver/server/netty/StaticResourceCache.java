@@ -0,0 +1,273 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.server.netty;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Static resources resolved from the class path. Metadata of every served
+ * resource is kept so that conditional requests are answered from memory,
+ * files on disk are checked for changes at most once per check interval.
+ * Contents of small resources are cached up to a total size, the entries
+ * are kept in access order and the least recently used are evicted first.
+ * <p>
+ * The event loop only reads the metadata of a resource on its first hit,
+ * its content is loaded into the cache on the file work executor and the
+ * resource is streamed from the file until then.
+ * <p>
+ * Compressed representations come from precompressed siblings such as
+ * {@code app.js.br} and {@code app.js.gz}, or else are compressed with
+ * gzip once and kept in the same cache, keyed by resource and encoding.
+ * Compression runs on the file work executor as well, and the resource is
+ * served without encoding until its copy is ready.
+ *
+ * @author WangYi
+ * @since 2021/3/7
+ */
+final class StaticResourceCache {
+  private static final Logger log = LoggerFactory.getLogger(StaticResourceCache.class);
+  private static final int MAX_ENTRIES = 4096;
+  private static final int MIN_COMPRESS_SIZE = 256;
+  private static final char ENCODING_SEPARATOR = '\0';
+
+  // guarded by this, in access order
+  private final Map<String, StaticResource> resources = new LinkedHashMap<>(64, 0.75f, true);
+  private long cachedBytes;
+
+  private final ConcurrentMap<String, Long> missing = new ConcurrentHashMap<>();
+  private final Set<String> pending = ConcurrentHashMap.newKeySet();
+  private final ClassLoader classLoader;
+  private final long maxSize;
+  private final int maxFileSize;
+  private final long maxCompressFileSize;
+  private final long checkIntervalNanos;
+  private final Executor fileExecutor;
+
+  /**
+   * @param classLoader         class loader of the resources
+   * @param maxSize             total size of the cached contents
+   * @param maxFileSize         largest resource whose content is cached
+   * @param maxCompressFileSize largest resource compressed on demand
+   * @param checkInterval       seconds between change checks of a file
+   * @param fileExecutor        executor loading and compressing resource contents
+   */
+  StaticResourceCache(ClassLoader classLoader, long maxSize, int maxFileSize,
+                      long maxCompressFileSize, int checkInterval, Executor fileExecutor) {
+    this.classLoader = classLoader;
+    this.maxSize = maxSize;
+    this.maxFileSize = (int) Math.min(maxFileSize, maxSize);
+    this.maxCompressFileSize = maxCompressFileSize;
+    this.checkIntervalNanos = TimeUnit.SECONDS.toNanos(checkInterval);
+    this.fileExecutor = fileExecutor;
+  }
+
+  /**
+   * Find a resource
+   *
+   * @param name resource name relative to the class path root
+   * @return the resource, or null if there is no such file
+   * @throws IOException if the resource can not be read
+   */
+  StaticResource lookup(String name) throws IOException {
+    final long now = System.nanoTime();
+    StaticResource resource = this.get(name);
+    if (resource != null && resource.file() != null && now - resource.checkedAt() > checkIntervalNanos) {
+      resource.checkedAt(now);
+      if (resource.isModified()) {
+        this.remove(name, resource);
+        resource = null;
+      }
+    }
+    if (resource != null) {
+      return resource;
+    }
+    final Long missingSince = missing.get(name);
+    if (missingSince != null && now - missingSince <= checkIntervalNanos) {
+      return null;
+    }
+    final URL url = classLoader.getResource(name);
+    resource = url == null ? null : StaticResource.load(name, url, 0);
+    if (resource == null) {
+      if (missing.size() >= MAX_ENTRIES) {
+        this.missing.clear();
+      }
+      this.missing.put(name, now);
+      return null;
+    }
+    this.missing.remove(name);
+    resource = this.add(name, resource);
+    if (!resource.isCached() && resource.length() >= 0 && resource.length() <= maxFileSize) {
+      this.loadContent(name, resource);
+    }
+    return resource;
+  }
+
+  /**
+   * Find the representation of a resource in a content encoding
+   *
+   * @param source   resource in its original form
+   * @param encoding {@code br} or {@code gzip}
+   * @return the encoded resource, or null if the encoding is not available,
+   * is still being compressed or does not make the resource smaller
+   * @throws IOException if the resource can not be read
+   */
+  StaticResource encoded(StaticResource source, String encoding) throws IOException {
+    final StaticResource sibling = this.lookup(source.name() + ("br".equals(encoding) ? ".br" : ".gz"));
+    if (sibling != null || !"gzip".equals(encoding)
+            || source.length() < MIN_COMPRESS_SIZE || source.length() > maxCompressFileSize) {
+      return sibling;
+    }
+    final String key = source.name() + ENCODING_SEPARATOR + encoding;
+    final StaticResource compressed = this.get(key);
+    if (compressed != null && !source.etag().equals(compressed.sourceEtag())) {
+      this.remove(key, compressed);
+    } else if (compressed != null) {
+      // Without content the resource does not compress well
+      return compressed.isCached() ? compressed : null;
+    }
+    this.compress(key, source);
+    return null;
+  }
+
+  /**
+   * Load the content of a resource found without it, and replace the
+   * resource if it is still cached
+   */
+  private void loadContent(String name, StaticResource resource) {
+    this.submit(name, () -> {
+      final StaticResource loaded = StaticResource.load(name, resource.url(), maxFileSize);
+      if (loaded != null && !this.replace(name, resource, loaded)) {
+        loaded.release();
+      }
+    });
+  }
+
+  private void compress(String key, StaticResource source) {
+    this.submit(key, () -> this.add(key, StaticResource.gzip(source)));
+  }
+
+  /**
+   * Run file work on the file executor, at most one task per key at a time
+   */
+  private void submit(String key, FileTask task) {
+    if (!pending.add(key)) {
+      return;
+    }
+    try {
+      this.fileExecutor.execute(() -> {
+        try {
+          task.run();
+        } catch (IOException e) {
+          log.warn("Load static resource {} failed", key.replace(ENCODING_SEPARATOR, ' '), e);
+        } finally {
+          this.pending.remove(key);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      this.pending.remove(key);
+    }
+  }
+
+  /**
+   * Drop every entry and release the cached contents
+   */
+  synchronized void clear() {
+    for (StaticResource resource : resources.values()) {
+      resource.release();
+    }
+    this.resources.clear();
+    this.cachedBytes = 0;
+    this.missing.clear();
+  }
+
+  private synchronized StaticResource get(String key) {
+    return resources.get(key);
+  }
+
+  private synchronized StaticResource add(String key, StaticResource resource) {
+    final StaticResource previous = resources.putIfAbsent(key, resource);
+    if (previous != null) {
+      resource.release();
+      return previous;
+    }
+    if (resource.isCached()) {
+      this.cachedBytes += resource.length();
+    }
+    this.evict();
+    return resource;
+  }
+
+  private synchronized boolean replace(String key, StaticResource expected, StaticResource resource) {
+    if (resources.get(key) != expected) {
+      return false;
+    }
+    this.remove(key, expected);
+    this.add(key, resource);
+    return true;
+  }
+
+  /**
+   * Evict the least recently used entries until the cache is within its
+   * budgets, entries without content only hold metadata and go as well
+   */
+  private void evict() {
+    final Iterator<StaticResource> eldest = resources.values().iterator();
+    while ((cachedBytes > maxSize || resources.size() > MAX_ENTRIES) && eldest.hasNext()) {
+      final StaticResource resource = eldest.next();
+      eldest.remove();
+      this.released(resource);
+    }
+  }
+
+  private synchronized void remove(String key, StaticResource resource) {
+    if (resources.remove(key, resource)) {
+      this.released(resource);
+    }
+  }
+
+  private void released(StaticResource resource) {
+    if (resource.isCached()) {
+      this.cachedBytes -= resource.length();
+    }
+    resource.release();
+  }
+
+  @FunctionalInterface
+  private interface FileTask {
+    void run() throws IOException;
+  }
+}
@@ -40,7 +40,7 @@ import io.netty.handler.codec.http.websocketx.WebSocketServerHandshakerFactory;
 import io.netty.util.ReferenceCountUtil;
 import org.apache.commons.lang3.StringUtils;
 import org.apex.ApexContext;
-import org.aquiver.mvc.argument.MethodArgumentGetter;
+import org.aquiver.server.netty.GracefulShutdown;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -56,12 +56,14 @@ public class WebSocketHandler extends SimpleChannelInboundHandler<Object> {
 
   private final ApexContext apexContext = ApexContext.of();
   private final WebSocketResolver webSocketResolver;
+  private final GracefulShutdown shutdown;
   private WebSocketContext webSocketContext;
   private WebSocketServerHandshaker handshaker;
   private WebSocketChannel webSocketChannel;
 
   public WebSocketHandler() {
     this.webSocketResolver = apexContext.getBean(WebSocketResolver.class);
+    this.shutdown = apexContext.getBean(GracefulShutdown.class);
   }
 
   @Override
@@ -93,8 +95,6 @@ public class WebSocketHandler extends SimpleChannelInboundHandler<Object> {
             req.protocolVersion(), req.method(), req.uri());
 
     this.webSocketContext = webSocketContext(fullHttpRequest, ctx);
-    MethodArgumentGetter methodArgumentGetter = new MethodArgumentGetter(webSocketContext);
-    this.apexContext.addBean(methodArgumentGetter);
 
     if (isWebSocketRequest(req)) {
       final WebSocketServerHandshakerFactory wsFactory =
@@ -105,6 +105,9 @@ public class WebSocketHandler extends SimpleChannelInboundHandler<Object> {
         WebSocketServerHandshakerFactory.sendUnsupportedVersionResponse(ctx.channel());
       } else {
         handshaker.handshake(ctx.channel(), req);
+        if (Objects.nonNull(shutdown)) {
+          this.shutdown.sessionOpened(ctx.channel());
+        }
         CompletableFuture.completedFuture(webSocketContext)
                 .thenAcceptAsync(session -> webSocketChannel
                         .onConnect(session), ctx.executor());
@@ -23,8 +23,7 @@
  */
 package org.aquiver.websocket;
 
-import org.apex.ApexContext;
-import org.aquiver.mvc.argument.MethodArgumentGetter;
+import org.aquiver.mvc.argument.MethodArgumentBinder;
 import org.aquiver.websocket.action.OnClose;
 import org.aquiver.websocket.action.OnConnect;
 import org.aquiver.websocket.action.OnError;
@@ -49,14 +48,14 @@ import java.util.stream.Stream;
 public class WebSocketWrapper implements WebSocketChannel {
   private static final Logger log = LoggerFactory.getLogger(WebSocketWrapper.class);
 
-  private final ApexContext apexContext = ApexContext.of();
   private final MethodHandles.Lookup lookup = MethodHandles.lookup();
   private final Map<Class<? extends Annotation>, Method> methodCache;
-  private MethodArgumentGetter methodArgumentGetter;
+  private final Map<Method, MethodArgumentBinder> argumentBinders;
   private Class<?> webSocketClass;
 
   public WebSocketWrapper() {
     this.methodCache = new HashMap<>();
+    this.argumentBinders = new HashMap<>();
   }
 
   public void initialize(Class<?> webSocketClass) {
@@ -78,6 +77,9 @@ public class WebSocketWrapper implements WebSocketChannel {
               "[@OnClose / @OnConnect / @OnError /@OnMessage] in class: " + webSocketClass.getName());
     }
     this.methodCache.putAll(cache);
+    for (Method method : cache.values()) {
+      this.argumentBinders.put(method, MethodArgumentBinder.of(method));
+    }
   }
 
   private void cacheMethod(Map<Class<? extends Annotation>, Method> cache, Method[] methods,
@@ -115,19 +117,15 @@ public class WebSocketWrapper implements WebSocketChannel {
   }
 
   private void invokeAction(Class<? extends Annotation> actionAnnotation, WebSocketContext webSocketContext) {
-    if (Objects.isNull(methodArgumentGetter)) {
-      this.methodArgumentGetter = apexContext.getBean(MethodArgumentGetter.class);
-    }
-
-    if (Objects.isNull(methodArgumentGetter)) {
-      throw new IllegalArgumentException("methodArgumentGetter can't be null");
+    if (Objects.isNull(webSocketContext)) {
+      throw new IllegalArgumentException("webSocketContext can't be null");
     }
     if (!methodCache.containsKey(actionAnnotation)) {
       return;
     }
     Method method = methodCache.get(actionAnnotation);
     try {
-      final List<Object> invokeArguments = this.methodArgumentGetter.getParams(method.getParameters());
+      final Object[] invokeArguments = argumentBinders.get(method).bind(webSocketContext);
       this.lookup.unreflect(method).bindTo(webSocketClass.newInstance())
               .invokeWithArguments(invokeArguments);
     } catch (Throwable e) {
@@ -0,0 +1,175 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.index;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+
+/**
+ * @author WangYi
+ * @since 2021/3/18
+ */
+public class ComponentIndexTest {
+  private Path app;
+  private Path dependency;
+
+  @Before
+  public void setUp() throws IOException {
+    this.app = Files.createTempDirectory("aquiver-app");
+    this.dependency = Files.createTempDirectory("aquiver-dependency");
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    delete(app);
+    delete(dependency);
+  }
+
+  @Test
+  public void writesAndReadsEntries() throws IOException {
+    final Map<String, Set<String>> entries = new LinkedHashMap<>();
+    entries.put("com.example.UserController", new TreeSet<>(Arrays.asList("Path", "RestPath")));
+    entries.put("com.example.Config", new TreeSet<>(Collections.singletonList("ConfigBean")));
+
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ComponentIndex.write(entries, out);
+    final ComponentIndex index = ComponentIndex.read(new ByteArrayInputStream(out.toByteArray()));
+    assertEquals(entries, index.entries());
+    assertEquals(Arrays.asList("com.example.UserController", "com.example.Config"),
+            Arrays.asList(index.entries().keySet().toArray()));
+  }
+
+  @Test
+  public void skipsCommentsAndMalformedLines() throws IOException {
+    final String content = "# comment\n\n=Path\nnoSeparator\n  com.example.A = Singleton , Scheduled \n";
+    final ComponentIndex index = ComponentIndex.read(
+            new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+    assertEquals(Collections.singletonMap("com.example.A",
+            new TreeSet<>(Arrays.asList("Scheduled", "Singleton"))), index.entries());
+  }
+
+  @Test
+  public void loadsIndexOfBootClass() throws Exception {
+    writeIndex(app, "com.other.Component=Singleton\n");
+    final ComponentIndex index = ComponentIndex.load(bootClass(), "org.example");
+    assertEquals(Collections.singleton("com.other.Component"), index.entries().keySet());
+    assertEquals(1, index.sources().size());
+  }
+
+  @Test
+  public void ignoresIndexOfDependency() throws Exception {
+    writeIndex(dependency, "com.library.Component=Singleton\n");
+    assertNull(ComponentIndex.load(bootClass(), "org.example"));
+  }
+
+  @Test
+  public void loadsIndexListingScannedPackage() throws Exception {
+    writeIndex(app, "org.example.web.Controller=RestPath\n");
+    writeIndex(dependency, "org.example.service.Service=Singleton\n");
+    final ComponentIndex index = ComponentIndex.load(bootClass(), "org.example");
+    assertEquals(2, index.sources().size());
+    assertEquals(new TreeSet<>(Arrays.asList("org.example.web.Controller", "org.example.service.Service")),
+            new TreeSet<>(index.entries().keySet()));
+  }
+
+  @Test
+  public void loadsNothingWithoutIndex() throws Exception {
+    assertNull(ComponentIndex.load(bootClass(), "org.example"));
+  }
+
+  @Test
+  public void loadsClassesOfPackage() throws IOException, ClassNotFoundException {
+    final ComponentIndex index = read("java.lang.String=Singleton\njava.util.List=Singleton\n");
+    final ClassLoader classLoader = getClass().getClassLoader();
+    assertEquals(Collections.singletonList(String.class), index.classes(classLoader, "java.lang"));
+    assertEquals(Arrays.asList(String.class, List.class), index.classes(classLoader, ""));
+    assertEquals(Collections.emptyList(), index.classes(classLoader, "java.lang.reflect"));
+  }
+
+  @Test
+  public void failsOnRemovedClass() throws IOException {
+    final ComponentIndex index = read("org.example.Removed=Singleton\n");
+    assertThrows(ClassNotFoundException.class,
+            () -> index.classes(getClass().getClassLoader(), "org.example"));
+  }
+
+  /**
+   * Load a boot class from the application directory, with the application
+   * and the dependency directories on the class path
+   */
+  private Class<?> bootClass() throws IOException, ClassNotFoundException {
+    final String resource = Boot.class.getName().replace('.', '/') + ".class";
+    final Path classFile = app.resolve(resource);
+    Files.createDirectories(classFile.getParent());
+    try (InputStream in = getClass().getClassLoader().getResourceAsStream(resource)) {
+      Files.copy(in, classFile);
+    }
+    final URLClassLoader classLoader = new URLClassLoader(new URL[]{
+            app.toUri().toURL(), dependency.toUri().toURL()}, null);
+    return Class.forName(Boot.class.getName(), false, classLoader);
+  }
+
+  private static void writeIndex(Path root, String content) throws IOException {
+    final Path index = root.resolve(ComponentIndex.LOCATION);
+    Files.createDirectories(index.getParent());
+    Files.write(index, content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static ComponentIndex read(String content) throws IOException {
+    return ComponentIndex.read(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+  }
+
+  private static void delete(Path root) throws IOException {
+    try (Stream<Path> paths = Files.walk(root)) {
+      paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+    }
+  }
+
+  public static class Boot {
+  }
+}
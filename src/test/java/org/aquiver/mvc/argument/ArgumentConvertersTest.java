@@ -0,0 +1,218 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.mvc.argument;
+
+import org.junit.Test;
+
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author WangYi
+ * @since 2021/3/20
+ */
+public class ArgumentConvertersTest {
+  private final ArgumentConverters converters = new ArgumentConverters();
+
+  @Test
+  public void parsesIntegers() {
+    assertEquals(42, ArgumentConverters.parseInt("42"));
+    assertEquals(42, ArgumentConverters.parseInt("+42"));
+    assertEquals(-42, ArgumentConverters.parseInt("-42"));
+    assertEquals(0, ArgumentConverters.parseInt("-0"));
+    assertEquals(Integer.MAX_VALUE, ArgumentConverters.parseInt("2147483647"));
+    assertEquals(Integer.MIN_VALUE, ArgumentConverters.parseInt("-2147483648"));
+    assertEquals(Long.MAX_VALUE, ArgumentConverters.parseLong("9223372036854775807"));
+    assertEquals(Long.MIN_VALUE, ArgumentConverters.parseLong("-9223372036854775808"));
+    assertEquals(Short.MIN_VALUE, ArgumentConverters.parseShort("-32768"));
+    assertEquals(Byte.MAX_VALUE, ArgumentConverters.parseByte("127"));
+  }
+
+  @Test
+  public void rejectsIntegerOverflow() {
+    assertThrows(NumberFormatException.class, () -> ArgumentConverters.parseInt("2147483648"));
+    assertThrows(NumberFormatException.class, () -> ArgumentConverters.parseInt("-2147483649"));
+    assertThrows(NumberFormatException.class, () -> ArgumentConverters.parseLong("9223372036854775808"));
+    assertThrows(NumberFormatException.class, () -> ArgumentConverters.parseLong("-9223372036854775809"));
+    assertThrows(NumberFormatException.class, () -> ArgumentConverters.parseLong("99999999999999999999"));
+    assertThrows(NumberFormatException.class, () -> ArgumentConverters.parseShort("32768"));
+    assertThrows(NumberFormatException.class, () -> ArgumentConverters.parseByte("-129"));
+  }
+
+  @Test
+  public void rejectsMalformedIntegers() {
+    assertThrows(NumberFormatException.class, () -> ArgumentConverters.parseInt(""));
+    assertThrows(NumberFormatException.class, () -> ArgumentConverters.parseInt("-"));
+    assertThrows(NumberFormatException.class, () -> ArgumentConverters.parseInt("+"));
+    assertThrows(NumberFormatException.class, () -> ArgumentConverters.parseInt("1a"));
+    assertThrows(NumberFormatException.class, () -> ArgumentConverters.parseInt(" 1"));
+    assertThrows(NumberFormatException.class, () -> ArgumentConverters.parseInt("1.0"));
+  }
+
+  @Test
+  public void parsesIntegersFromViews() {
+    final String path = "/users/123/posts";
+    assertEquals(123, ArgumentConverters.parseInt(path.subSequence(7, 10)));
+  }
+
+  @Test
+  public void parsesOtherPrimitives() {
+    assertEquals(1.5, ArgumentConverters.parseDouble("1.5"), 0);
+    assertEquals(-0.25f, ArgumentConverters.parseFloat("-0.25"), 0);
+    assertThrows(NumberFormatException.class, () -> ArgumentConverters.parseDouble("x"));
+
+    assertTrue(ArgumentConverters.parseBoolean("TRUE"));
+    assertFalse(ArgumentConverters.parseBoolean("false"));
+    assertThrows(IllegalArgumentException.class, () -> ArgumentConverters.parseBoolean("yes"));
+
+    assertEquals('x', ArgumentConverters.parseChar("x"));
+    assertThrows(IllegalArgumentException.class, () -> ArgumentConverters.parseChar(""));
+    assertThrows(IllegalArgumentException.class, () -> ArgumentConverters.parseChar("xy"));
+  }
+
+  @Test
+  public void parsesUuids() {
+    final UUID uuid = UUID.randomUUID();
+    assertEquals(uuid, ArgumentConverters.parseUuid(uuid.toString()));
+    assertEquals(uuid, ArgumentConverters.parseUuid(uuid.toString().toUpperCase()));
+    assertThrows(IllegalArgumentException.class, () -> ArgumentConverters.parseUuid("1-2-3-4-5"));
+    assertThrows(IllegalArgumentException.class,
+            () -> ArgumentConverters.parseUuid("0000000g-0000-0000-0000-000000000000"));
+    assertThrows(IllegalArgumentException.class,
+            () -> ArgumentConverters.parseUuid("00000000-0000-0000-0000+000000000000"));
+  }
+
+  @Test
+  public void resolvesBuiltIns() {
+    assertEquals("a", converters.resolve(String.class).convert("a"));
+    assertEquals(7, converters.resolve(int.class).convert("7"));
+    assertEquals(7L, converters.resolve(Long.class).convert("7"));
+    assertEquals(new BigDecimal("1.10"), converters.resolve(BigDecimal.class).convert("1.10"));
+    assertEquals(LocalDate.of(2021, 3, 20), converters.resolve(LocalDate.class).convert("2021-03-20"));
+    assertEquals(Duration.ofMinutes(5), converters.resolve(Duration.class).convert("PT5M"));
+    assertNull(converters.resolve(Object.class));
+    assertNull(converters.resolve(Map.class));
+  }
+
+  @Test
+  public void resolvesEnums() {
+    final ArgumentConverter<?> converter = converters.resolve(TimeUnit.class);
+    assertSame(converter, converters.resolve(TimeUnit.class));
+    assertEquals(TimeUnit.SECONDS, converter.convert("SECONDS"));
+    assertEquals(TimeUnit.SECONDS, converter.convert("seconds"));
+    assertThrows(IllegalArgumentException.class, () -> converter.convert("weeks"));
+  }
+
+  @Test
+  public void resolvesArraysAndCollections() throws NoSuchMethodException {
+    assertArrayEquals(new int[]{1, 2, 3}, (int[]) converters.resolve(int[].class).convert("1, 2,,3 "));
+    assertArrayEquals(new String[0], (String[]) converters.resolve(String[].class).convert(""));
+
+    assertEquals(Arrays.asList(1, 2), converters.resolve(type("integers")).convert("1,2"));
+    assertEquals(Arrays.asList(TimeUnit.DAYS), converters.resolve(type("units")).convert("days"));
+    assertEquals(new LinkedHashSet<>(Arrays.asList("b", "a")), converters.resolve(type("names")).convert("b,a,b"));
+    assertEquals(Arrays.asList("x", "y"), converters.resolve(List.class).convert("x,y"));
+    assertNull(converters.resolve(type("objects")));
+  }
+
+  @Test
+  public void convertsRepeatedValuesAsTheyAre() throws NoSuchMethodException {
+    final MultiValueArgumentConverter<?> names = (MultiValueArgumentConverter<?>) converters.resolve(type("names"));
+    assertEquals(new LinkedHashSet<>(Arrays.asList("x,y", "z")), names.convert(Arrays.asList("x,y", "z", "z")));
+
+    final MultiValueArgumentConverter<?> integers = (MultiValueArgumentConverter<?>) converters.resolve(int[].class);
+    assertArrayEquals(new int[]{1, 2}, (int[]) integers.convert(Arrays.asList("1", "2")));
+    assertThrows(IllegalArgumentException.class, () -> integers.convert(Arrays.asList("1", "2,3")));
+
+    final MultiValueArgumentConverter<?> strings = (MultiValueArgumentConverter<?>) converters.resolve(String[].class);
+    assertArrayEquals(new String[]{"a,b", ""}, (String[]) strings.convert(Arrays.asList("a,b", "")));
+  }
+
+  @Test
+  public void registersConverters() {
+    converters.register(LocalDate.class, value -> LocalDate.of(2000, 1, 1));
+    assertTrue(converters.builtInsReplaced());
+    assertEquals(LocalDate.of(2000, 1, 1), converters.resolve(LocalDate.class).convert("2021-03-20"));
+  }
+
+  @Test
+  public void registersWrapperForPrimitive() {
+    converters.register(Integer.class, value -> value.length());
+    assertEquals(3, converters.resolve(int.class).convert("abc"));
+    assertEquals(3, converters.resolve(Integer.class).convert("abc"));
+  }
+
+  @Test
+  public void registersCustomTypes() {
+    converters.register(Point.class, value -> new Point(ArgumentConverters.parseInt(value)));
+    assertFalse(converters.builtInsReplaced());
+    assertEquals(4, ((Point) converters.resolve(Point.class).convert("4")).x);
+  }
+
+  private static Type type(String name) throws NoSuchMethodException {
+    return ArgumentConvertersTest.class.getDeclaredMethod(name).getGenericReturnType();
+  }
+
+  private static List<Integer> integers() {
+    return null;
+  }
+
+  private static Collection<TimeUnit> units() {
+    return null;
+  }
+
+  private static Set<String> names() {
+    return null;
+  }
+
+  private static List<Object> objects() {
+    return null;
+  }
+
+  private static final class Point {
+    private final int x;
+
+    private Point(int x) {
+      this.x = x;
+    }
+  }
+}
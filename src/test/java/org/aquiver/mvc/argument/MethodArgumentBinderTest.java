@@ -0,0 +1,89 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.mvc.argument;
+
+import org.aquiver.Aquiver;
+import org.aquiver.RequestContext;
+import org.aquiver.mvc.annotation.bind.Param;
+import org.aquiver.mvc.http.HttpMethod;
+import org.aquiver.mvc.router.RouteInfo;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author WangYi
+ * @since 2021/3/4
+ */
+public class MethodArgumentBinderTest {
+
+  @Before
+  public void setUp() {
+    Aquiver.of();
+  }
+
+  @Test
+  public void resolvesBindableParameters() {
+    assertEquals(2, MethodArgumentBinder.of(method("hello", RequestContext.class, String.class)).size());
+  }
+
+  @Test
+  public void rejectsUnresolvableParameter() {
+    final Method method = method("count", int.class);
+    final IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+            () -> MethodArgumentBinder.of(method));
+    assertTrue(e.getMessage(), e.getMessage().contains("of type int"));
+    assertTrue(e.getMessage(), e.getMessage().contains(method.toString()));
+  }
+
+  @Test
+  public void rejectsRouteWithUnresolvableParameter() {
+    final IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> RouteInfo.create(
+            "/count", Routes.class, new Routes(), method("count", int.class), HttpMethod.GET));
+    assertTrue(e.getMessage(), e.getMessage().startsWith("Route GET /count can't be registered"));
+  }
+
+  private static Method method(String name, Class<?>... parameterTypes) {
+    try {
+      return Routes.class.getMethod(name, parameterTypes);
+    } catch (NoSuchMethodException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  public static class Routes {
+    public String hello(RequestContext requestContext, @Param("name") String name) {
+      return "hello " + name;
+    }
+
+    public int count(int count) {
+      return count;
+    }
+  }
+}
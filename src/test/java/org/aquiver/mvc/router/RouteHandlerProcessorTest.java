@@ -0,0 +1,223 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.mvc.router;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpVersion;
+import org.aquiver.Aquiver;
+import org.aquiver.RequestContext;
+import org.aquiver.mvc.argument.MethodArgumentBinder;
+import org.aquiver.mvc.http.HttpMethod;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author WangYi
+ * @since 2021/3/19
+ */
+public class RouteHandlerProcessorTest {
+  private static final String ROUTES = String.join("\n",
+          "package sample;",
+          "",
+          "import org.aquiver.mvc.annotation.Get;",
+          "import org.aquiver.mvc.annotation.Path;",
+          "import org.aquiver.mvc.annotation.RestPath;",
+          "import org.aquiver.mvc.annotation.bind.Header;",
+          "import org.aquiver.mvc.annotation.bind.Param;",
+          "import org.aquiver.mvc.annotation.bind.PathVar;",
+          "import org.aquiver.mvc.http.HttpMethod;",
+          "",
+          "@RestPath",
+          "public class Items {",
+          "  @Path(value = \"/direct\", method = HttpMethod.GET)",
+          "  public String direct(@Param(\"name\") String name, @Param(\"size\") int size) {",
+          "    return name + \":\" + size;",
+          "  }",
+          "",
+          "  @Get(\"/meta/{id}\")",
+          "  public String meta(@PathVar(\"id\") long id, @Header(\"X-Trace\") String trace) {",
+          "    return id + \":\" + trace;",
+          "  }",
+          "",
+          "  @Get(\"/find\")",
+          "  public String find(@Param(\"q\") String q) {",
+          "    return \"find:\" + q;",
+          "  }",
+          "",
+          "  @Get(\"/find/limited\")",
+          "  public String find(@Param(\"q\") String q, @Param(\"limit\") Integer limit) {",
+          "    return \"find:\" + q + \":\" + limit;",
+          "  }",
+          "",
+          "  @Get(\"/tags\")",
+          "  public String tags(@Param(\"tag\") String[] tags, @Param(\"id\") int[] ids) {",
+          "    return java.util.Arrays.toString(tags) + java.util.Arrays.toString(ids);",
+          "  }",
+          "",
+          "  public String helper(@Param(\"q\") String q) {",
+          "    return q;",
+          "  }",
+          "}",
+          "");
+
+  private Path root;
+  private Class<?> routeClass;
+  private Object routes;
+  private EmbeddedChannel channel;
+
+  @Before
+  public void setUp() throws Exception {
+    Aquiver.of();
+    this.root = Files.createTempDirectory("aquiver-processor");
+    final Path sources = Files.createDirectories(root.resolve("src/sample"));
+    final Path classes = Files.createDirectories(root.resolve("classes"));
+    final Path generated = Files.createDirectories(root.resolve("generated"));
+    Files.write(sources.resolve("Items.java"), ROUTES.getBytes(StandardCharsets.UTF_8));
+
+    final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    assertNotNull("The tests must run on a JDK", compiler);
+    try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8)) {
+      final List<String> options = Arrays.asList("-classpath", System.getProperty("java.class.path"),
+              "-d", classes.toString(), "-s", generated.toString());
+      final JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, null, options, null,
+              fileManager.getJavaFileObjects(sources.resolve("Items.java").toFile()));
+      task.setProcessors(Collections.singletonList(new RouteHandlerProcessor()));
+      assertTrue("Route class doesn't compile", task.call());
+    }
+
+    final URLClassLoader classLoader = new URLClassLoader(
+            new URL[]{classes.toUri().toURL()}, getClass().getClassLoader());
+    this.routeClass = Class.forName("sample.Items", true, classLoader);
+    this.routes = routeClass.getConstructor().newInstance();
+    this.channel = new EmbeddedChannel(new ChannelInboundHandlerAdapter());
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    channel.finishAndReleaseAll();
+    try (Stream<Path> paths = Files.walk(root)) {
+      paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+    }
+  }
+
+  @Test
+  public void generatesHandlerOfDirectPathMethod() throws Throwable {
+    assertSameResult(method("direct", String.class, int.class), "/direct", "/direct?name=box&size=3", "box:3");
+  }
+
+  @Test
+  public void generatesHandlerOfMetaAnnotatedMethod() throws Throwable {
+    assertSameResult(method("meta", long.class, String.class), "/meta/{id}", "/meta/42", "42:null");
+    assertSameResult(method("meta", long.class, String.class), "/meta/{id}", "/meta/7", "7:abc",
+            "X-Trace", "abc");
+  }
+
+  @Test
+  public void generatesHandlerPerOverload() throws Throwable {
+    final Method find = method("find", String.class);
+    final Method limited = method("find", String.class, Integer.class);
+    assertSameResult(find, "/find", "/find?q=a", "find:a");
+    assertSameResult(limited, "/find/limited", "/find/limited?q=a&limit=5", "find:a:5");
+    assertTrue(RouteHandlers.generated(routeClass, routes, find).getClass()
+            != RouteHandlers.generated(routeClass, routes, limited).getClass());
+  }
+
+  @Test
+  public void generatesHandlerOfArrayParameters() throws Throwable {
+    assertSameResult(method("tags", String[].class, int[].class), "/tags",
+            "/tags?tag=a,b&tag=c&id=1,2", "[a,b, c][1, 2]");
+    assertSameResult(method("tags", String[].class, int[].class), "/tags", "/tags?tag=x&id=3", "[x][3]");
+  }
+
+  @Test
+  public void skipsMethodsThatAreNoRoutes() throws Exception {
+    assertNull(RouteHandlers.generated(routeClass, routes, method("helper", String.class)));
+  }
+
+  /**
+   * Handle a request with the generated handler and with reflective binding
+   */
+  private void assertSameResult(Method method, String url, String uri, String expected,
+                                String... headers) throws Throwable {
+    final RouteHandler handler = RouteHandlers.generated(routeClass, routes, method);
+    assertNotNull("No handler generated for " + method, handler);
+    final List<String> parameterTypes = Arrays.stream(method.getParameterTypes())
+            .map(Class::getTypeName).collect(Collectors.toList());
+    assertEquals(RouteHandlers.generatedClassName(routeClass.getName(), method.getName(), parameterTypes),
+            handler.getClass().getName());
+
+    final RouteInfo routeInfo = RouteInfo.create(url, routeClass, routes, method, HttpMethod.GET);
+    final RouteTree tree = new RouteTree();
+    tree.add(routeInfo);
+    final String path = uri.indexOf('?') < 0 ? uri : uri.substring(0, uri.indexOf('?'));
+    final FullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1,
+            io.netty.handler.codec.http.HttpMethod.GET, uri);
+    for (int i = 0; i < headers.length; i += 2) {
+      request.headers().set(headers[i], headers[i + 1]);
+    }
+    final RequestContext requestContext = new RequestContext(request, context());
+    requestContext.routeMatch(tree.match(HttpMethod.GET, path));
+
+    final Object reflective = method.invoke(routes,
+            MethodArgumentBinder.of(method, routeInfo.getPathVariableNames()).bind(requestContext));
+    assertEquals(expected, reflective);
+    assertEquals(reflective, handler.handle(requestContext));
+  }
+
+  private ChannelHandlerContext context() {
+    return channel.pipeline().firstContext();
+  }
+
+  private Method method(String name, Class<?>... parameterTypes) throws NoSuchMethodException {
+    return routeClass.getMethod(name, parameterTypes);
+  }
+}
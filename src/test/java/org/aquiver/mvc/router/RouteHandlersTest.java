@@ -0,0 +1,189 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.mvc.router;
+
+import org.apex.ApexContext;
+import org.aquiver.Aquiver;
+import org.aquiver.RequestContext;
+import org.aquiver.mvc.annotation.bind.Param;
+import org.aquiver.mvc.argument.AnnotationArgumentGetter;
+import org.aquiver.mvc.argument.AnnotationArgumentGetterResolver;
+import org.aquiver.mvc.argument.ArgumentContext;
+import org.aquiver.mvc.argument.ParamArgumentGetter;
+import org.aquiver.mvc.http.HttpMethod;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+
+import static org.aquiver.ServerSpec.PATH_APP_GENERATED_ROUTE_HANDLERS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author WangYi
+ * @since 2021/3/19
+ */
+public class RouteHandlersTest {
+  private final Routes routes = new Routes();
+
+  @Before
+  public void setUp() {
+    Aquiver.of();
+  }
+
+  @Test
+  public void namesHandlerAfterSignature() {
+    assertEquals(Routes.$RouteHandler$hello$30063153.class.getName(), RouteHandlers.generatedClassName(
+            Routes.class.getName(), "hello", Collections.emptyList()));
+  }
+
+  @Test
+  public void usesGeneratedHandler() throws Throwable {
+    final RouteHandler handler = RouteHandlers.generated(Routes.class, routes, method("hello"));
+    assertTrue(handler instanceof Routes.$RouteHandler$hello$30063153);
+    assertEquals("hello", handler.handle(null));
+
+    final RouteInfo routeInfo = RouteInfo.create("/hello", Routes.class, routes, method("hello"), HttpMethod.GET);
+    assertTrue(routeInfo.getHandler() instanceof Routes.$RouteHandler$hello$30063153);
+  }
+
+  @Test
+  public void fallsBackWithoutGeneratedHandler() throws Throwable {
+    assertNull(RouteHandlers.generated(Routes.class, routes, method("plain")));
+
+    final RouteInfo routeInfo = RouteInfo.create("/plain", Routes.class, routes, method("plain"), HttpMethod.GET);
+    assertEquals("plain", routeInfo.getHandler().handle(null));
+  }
+
+  @Test
+  public void fallsBackWhenHandlerCantBeCreated() throws Throwable {
+    assertNull(RouteHandlers.generated(Routes.class, routes, method("broken")));
+
+    final RouteInfo routeInfo = RouteInfo.create("/broken", Routes.class, routes, method("broken"), HttpMethod.GET);
+    assertEquals("broken", routeInfo.getHandler().handle(null));
+  }
+
+  @Test
+  public void fallsBackWhenClassIsNoHandler() {
+    assertNull(RouteHandlers.generated(Routes.class, routes, method("wrong")));
+  }
+
+  @Test
+  public void fallsBackForInheritedMethod() {
+    assertNull(RouteHandlers.generated(SubRoutes.class, new SubRoutes(), method("hello")));
+  }
+
+  @Test
+  public void fallsBackWhenDisabled() {
+    Aquiver.of().environment().add(PATH_APP_GENERATED_ROUTE_HANDLERS, false);
+    try {
+      assertNull(RouteHandlers.generated(Routes.class, routes, method("hello")));
+    } finally {
+      Aquiver.of().environment().add(PATH_APP_GENERATED_ROUTE_HANDLERS, true);
+    }
+  }
+
+  @Test
+  public void fallsBackWhenGetterIsOverridden() {
+    final AnnotationArgumentGetterResolver resolver = ApexContext.of().getBean(AnnotationArgumentGetterResolver.class);
+    resolver.registerArgumentGetter(Param.class, CustomParamGetter.class);
+    try {
+      assertNull(RouteHandlers.generated(Routes.class, routes, method("hello")));
+    } finally {
+      resolver.registerArgumentGetter(Param.class, ParamArgumentGetter.class);
+    }
+    assertTrue(RouteHandlers.generated(Routes.class, routes, method("hello")) instanceof Routes.$RouteHandler$hello$30063153);
+  }
+
+  private static Method method(String name) {
+    try {
+      return Routes.class.getMethod(name);
+    } catch (NoSuchMethodException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  public static class Routes {
+    public String hello() {
+      return "hello";
+    }
+
+    public String plain() {
+      return "plain";
+    }
+
+    public String broken() {
+      return "broken";
+    }
+
+    public String wrong() {
+      return "wrong";
+    }
+
+    /**
+     * Stands in for the handler {@link RouteHandlerProcessor} generates for {@link #hello()}
+     */
+    public static class $RouteHandler$hello$30063153 implements RouteHandler {
+      private final Routes bean;
+
+      public $RouteHandler$hello$30063153(Object bean) {
+        this.bean = (Routes) bean;
+      }
+
+      @Override
+      public Object handle(RequestContext requestContext) {
+        return bean.hello();
+      }
+    }
+
+    public static class $RouteHandler$broken$1636db96 implements RouteHandler {
+      public $RouteHandler$broken$1636db96(Object bean) {
+        throw new IllegalStateException("compiled against another version");
+      }
+
+      @Override
+      public Object handle(RequestContext requestContext) {
+        return null;
+      }
+    }
+
+    public static class $RouteHandler$wrong$5fddbb6e {
+      public $RouteHandler$wrong$5fddbb6e(Object bean) {
+      }
+    }
+  }
+
+  public static class SubRoutes extends Routes {
+  }
+
+  public static class CustomParamGetter implements AnnotationArgumentGetter {
+    @Override
+    public Object get(ArgumentContext context, RequestContext requestContext) {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,179 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.mvc.router;
+
+import org.aquiver.mvc.http.HttpMethod;
+import org.junit.Test;
+
+import java.util.EnumSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author WangYi
+ * @since 2021/2/22
+ */
+public class RouteTreeTest {
+  private final RouteTree tree = new RouteTree();
+
+  @Test
+  public void matchesStaticRoute() {
+    final RouteInfo route = add("/users/list", HttpMethod.GET);
+    assertSame(route, tree.match(HttpMethod.GET, "/users/list").getRouteInfo());
+    assertNull(tree.match(HttpMethod.GET, "/users"));
+    assertNull(tree.match(HttpMethod.GET, "/users/list/more"));
+  }
+
+  @Test
+  public void capturesPathVariables() {
+    final RouteInfo route = add("/users/{id}/posts/{post}", HttpMethod.GET);
+    final RouteMatch match = tree.match(HttpMethod.GET, "/users/42/posts/hello");
+    assertSame(route, match.getRouteInfo());
+    assertEquals(2, match.getPathVariableCount());
+    assertEquals("42", match.getPathVariable("id"));
+    assertEquals("hello", match.getPathVariable(1));
+    assertEquals("hello", match.getPathVariableView("post").toString());
+    assertNull(match.getPathVariable("missing"));
+  }
+
+  @Test
+  public void prefersStaticOverVariableOverWildcard() {
+    final RouteInfo wildcard = add("/files/*", HttpMethod.GET);
+    final RouteInfo variable = add("/files/{name}", HttpMethod.GET);
+    final RouteInfo fixed = add("/files/index", HttpMethod.GET);
+
+    assertSame(fixed, tree.match(HttpMethod.GET, "/files/index").getRouteInfo());
+    assertSame(variable, tree.match(HttpMethod.GET, "/files/readme").getRouteInfo());
+    final RouteMatch match = tree.match(HttpMethod.GET, "/files/docs/readme");
+    assertSame(wildcard, match.getRouteInfo());
+    assertEquals("docs/readme", match.getPathVariable("*"));
+  }
+
+  @Test
+  public void backtracksWhenStaticBranchDoesNotMatch() {
+    final RouteInfo fixed = add("/users/me/settings", HttpMethod.GET);
+    final RouteInfo variable = add("/users/{id}/posts", HttpMethod.GET);
+
+    assertSame(fixed, tree.match(HttpMethod.GET, "/users/me/settings").getRouteInfo());
+    final RouteMatch match = tree.match(HttpMethod.GET, "/users/me/posts");
+    assertSame(variable, match.getRouteInfo());
+    assertEquals("me", match.getPathVariable("id"));
+  }
+
+  @Test
+  public void backtracksToWildcardWhenVariableBranchDoesNotMatch() {
+    final RouteInfo wildcard = add("/assets/*", HttpMethod.GET);
+    add("/assets/{version}/app.js", HttpMethod.GET);
+
+    final RouteMatch match = tree.match(HttpMethod.GET, "/assets/v1/app.css");
+    assertSame(wildcard, match.getRouteInfo());
+    assertEquals("v1/app.css", match.getPathVariable(0));
+  }
+
+  @Test
+  public void backtracksOnMethod() {
+    add("/items/new", HttpMethod.GET);
+    final RouteInfo update = add("/items/{id}", HttpMethod.POST);
+
+    final RouteMatch match = tree.match(HttpMethod.POST, "/items/new");
+    assertSame(update, match.getRouteInfo());
+    assertEquals("new", match.getPathVariable("id"));
+  }
+
+  @Test
+  public void answersHeadWithGetRoute() {
+    final RouteInfo get = add("/page", HttpMethod.GET);
+    assertSame(get, tree.match(HttpMethod.HEAD, "/page").getRouteInfo());
+
+    final RouteInfo head = add("/page", HttpMethod.HEAD);
+    assertSame(head, tree.match(HttpMethod.HEAD, "/page").getRouteInfo());
+  }
+
+  @Test
+  public void reportsAllowedMethods() {
+    add("/orders/{id}", HttpMethod.GET);
+    add("/orders/{id}", HttpMethod.DELETE);
+    add("/orders/latest", HttpMethod.PUT);
+    add("/orders/*", HttpMethod.POST);
+
+    final RouteMatch match = tree.match(HttpMethod.PATCH, "/orders/latest");
+    assertFalse(match.isMethodAllowed());
+    assertNull(match.getRouteInfo());
+    assertEquals(EnumSet.of(HttpMethod.GET, HttpMethod.HEAD, HttpMethod.DELETE,
+            HttpMethod.PUT, HttpMethod.POST), match.getAllowedMethods());
+  }
+
+  @Test
+  public void reportsAllowedMethodsOfUnknownMethod() {
+    add("/ping", HttpMethod.POST);
+    final RouteMatch match = tree.match(null, "/ping");
+    assertFalse(match.isMethodAllowed());
+    assertEquals(EnumSet.of(HttpMethod.POST), match.getAllowedMethods());
+    assertNull(tree.match(null, "/pong"));
+  }
+
+  @Test
+  public void rejectsDuplicateRoute() {
+    assertTrue(tree.add(route("/a/{x}", HttpMethod.GET)));
+    assertFalse(tree.add(route("/a/{y}", HttpMethod.GET)));
+    assertTrue(tree.add(route("/a/{y}", HttpMethod.PUT)));
+  }
+
+  @Test
+  public void rejectsWildcardBeforeLastSegment() {
+    assertThrows(IllegalArgumentException.class, () -> tree.add(route("/a/*/b", HttpMethod.GET)));
+  }
+
+  @Test
+  public void doesNotMatchEmptyVariable() {
+    add("/users/{id}", HttpMethod.GET);
+    assertNull(tree.match(HttpMethod.GET, "/users/"));
+  }
+
+  private RouteInfo add(String url, HttpMethod httpMethod) {
+    final RouteInfo routeInfo = route(url, httpMethod);
+    assertTrue(tree.add(routeInfo));
+    return routeInfo;
+  }
+
+  private static RouteInfo route(String url, HttpMethod httpMethod) {
+    try {
+      return RouteInfo.create(url, Routes.class, new Routes(),
+              Routes.class.getMethod("handle"), httpMethod);
+    } catch (NoSuchMethodException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  public static class Routes {
+    public String handle() {
+      return "ok";
+    }
+  }
+}
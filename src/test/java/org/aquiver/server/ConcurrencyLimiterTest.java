@@ -0,0 +1,165 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.server;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author WangYi
+ * @since 2021/3/15
+ */
+public class ConcurrencyLimiterTest {
+
+  @Test
+  public void admitsUpToLimit() {
+    final ConcurrencyLimiter limiter = new ConcurrencyLimiter(10, 1, 100);
+    final List<ConcurrencyLimiter.Permit> permits = acquire(limiter, RequestPriority.CRITICAL, 10);
+    assertEquals(10, limiter.inFlight());
+    assertNull(limiter.acquire(RequestPriority.CRITICAL));
+
+    permits.get(0).release();
+    assertEquals(9, limiter.inFlight());
+    assertNotNull(limiter.acquire(RequestPriority.CRITICAL));
+  }
+
+  @Test
+  public void shedsLowerPrioritiesFirst() {
+    final ConcurrencyLimiter limiter = new ConcurrencyLimiter(20, 1, 100);
+    acquire(limiter, RequestPriority.SHEDDABLE, 15);
+    assertNull(limiter.acquire(RequestPriority.SHEDDABLE));
+
+    acquire(limiter, RequestPriority.NORMAL, 3);
+    assertNull(limiter.acquire(RequestPriority.NORMAL));
+
+    acquire(limiter, RequestPriority.CRITICAL, 2);
+    assertNull(limiter.acquire(RequestPriority.CRITICAL));
+    assertEquals(20, limiter.inFlight());
+  }
+
+  @Test
+  public void admitsOneRequestOfEveryPriority() {
+    final ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 1, 1);
+    final ConcurrencyLimiter.Permit permit = limiter.acquire(RequestPriority.SHEDDABLE);
+    assertNotNull(permit);
+    assertNull(limiter.acquire(RequestPriority.CRITICAL));
+    permit.release();
+    assertEquals(0, limiter.inFlight());
+  }
+
+  @Test
+  public void growsWhileLatencyIsSteady() {
+    final AtomicLong clock = new AtomicLong();
+    final ConcurrencyLimiter limiter = new ConcurrencyLimiter(10, 1, 100, clock::get);
+    assertEquals(Arrays.asList(10, 11, 11, 12, 13, 14, 14, 15),
+            limits(limiter, clock, 8, TimeUnit.MILLISECONDS.toNanos(1)));
+  }
+
+  @Test
+  public void doesNotGrowWhileMostlyIdle() {
+    final ConcurrencyLimiter limiter = new ConcurrencyLimiter(40, 1, 100);
+    for (int i = 0; i < 200; i++) {
+      limiter.acquire(RequestPriority.CRITICAL).release();
+    }
+    assertEquals(40, limiter.limit());
+  }
+
+  @Test
+  public void shrinksWhenLatencyRises() {
+    final AtomicLong clock = new AtomicLong();
+    final ConcurrencyLimiter limiter = new ConcurrencyLimiter(10, 2, 10, clock::get);
+    assertEquals(Arrays.asList(10, 10, 10),
+            limits(limiter, clock, 3, TimeUnit.MILLISECONDS.toNanos(1)));
+    assertEquals(Arrays.asList(9, 9, 9, 8, 8, 8),
+            limits(limiter, clock, 6, TimeUnit.MILLISECONDS.toNanos(20)));
+    assertEquals(Arrays.asList(8, 8, 8, 9, 9, 10),
+            limits(limiter, clock, 6, TimeUnit.MILLISECONDS.toNanos(1)));
+  }
+
+  @Test
+  public void staysConsistentUnderConcurrentReleases() throws InterruptedException {
+    final ConcurrencyLimiter limiter = new ConcurrencyLimiter(50, 1, 100);
+    final Thread[] threads = new Thread[4];
+    for (int i = 0; i < threads.length; i++) {
+      threads[i] = new Thread(() -> {
+        for (int j = 0; j < 10_000; j++) {
+          final ConcurrencyLimiter.Permit permit = limiter.acquire(RequestPriority.CRITICAL);
+          if (permit != null) {
+            permit.release();
+          }
+        }
+      });
+      threads[i].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertEquals(0, limiter.inFlight());
+    assertTrue("limit " + limiter.limit(), limiter.limit() >= 1 && limiter.limit() <= 100);
+  }
+
+  @Test
+  public void rejectsInvalidLimits() {
+    assertThrows(IllegalArgumentException.class, () -> new ConcurrencyLimiter(1, 0, 1));
+    assertThrows(IllegalArgumentException.class, () -> new ConcurrencyLimiter(1, 2, 4));
+    assertThrows(IllegalArgumentException.class, () -> new ConcurrencyLimiter(5, 2, 4));
+  }
+
+  /**
+   * Run windows of as many requests as the limit admits, all taking the
+   * same time, and collect the limit after each
+   */
+  private static List<Integer> limits(ConcurrencyLimiter limiter, AtomicLong clock, int windows, long rtt) {
+    final List<Integer> limits = new ArrayList<>(windows);
+    for (int i = 0; i < windows; i++) {
+      final List<ConcurrencyLimiter.Permit> permits = acquire(limiter, RequestPriority.CRITICAL, limiter.limit());
+      clock.addAndGet(rtt);
+      permits.forEach(ConcurrencyLimiter.Permit::release);
+      limits.add(limiter.limit());
+    }
+    return limits;
+  }
+
+  private static List<ConcurrencyLimiter.Permit> acquire(ConcurrencyLimiter limiter,
+                                                         RequestPriority priority, int count) {
+    final List<ConcurrencyLimiter.Permit> permits = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      final ConcurrencyLimiter.Permit permit = limiter.acquire(priority);
+      assertNotNull(permit);
+      permits.add(permit);
+    }
+    return permits;
+  }
+}
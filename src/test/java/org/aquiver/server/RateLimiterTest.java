@@ -0,0 +1,143 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.server;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author WangYi
+ * @since 2021/3/16
+ */
+public class RateLimiterTest {
+
+  @Test
+  public void allowsBurstThenLimits() {
+    final RateLimiter limiter = RateLimiter.parse("/login=5/1m", 100);
+    for (int i = 0; i < 5; i++) {
+      assertEquals(0, limiter.acquire("/login", "client"));
+    }
+    final long wait = limiter.acquire("/login", "client");
+    assertTrue("wait " + wait, wait > TimeUnit.SECONDS.toNanos(11) && wait <= TimeUnit.SECONDS.toNanos(12));
+    assertEquals(0, limiter.acquire("/login", "other"));
+  }
+
+  @Test
+  public void refillsEvenlyOverPeriod() throws InterruptedException {
+    final RateLimiter limiter = RateLimiter.parse("/x=2/200ms", 100);
+    assertEquals(0, limiter.acquire("/x", "client"));
+    assertEquals(0, limiter.acquire("/x", "client"));
+    final long wait = limiter.acquire("/x", "client");
+    assertTrue("wait " + wait, wait > 0 && wait <= TimeUnit.MILLISECONDS.toNanos(100));
+
+    TimeUnit.NANOSECONDS.sleep(wait + TimeUnit.MILLISECONDS.toNanos(5));
+    assertEquals(0, limiter.acquire("/x", "client"));
+    assertTrue(limiter.acquire("/x", "client") > 0);
+  }
+
+  @Test
+  public void matchesExactPaths() {
+    final RateLimiter limiter = RateLimiter.parse("/login=1/1h", 100);
+    assertEquals(0, limiter.acquire("/login", "client"));
+    assertTrue(limiter.acquire("/login", "client") > 0);
+    assertEquals(0, limiter.acquire("/login/reset", "client"));
+    assertEquals(0, limiter.acquire("/logins", "client"));
+    assertEquals(0, limiter.acquire("/", "client"));
+  }
+
+  @Test
+  public void matchesSegmentWildcards() {
+    final RateLimiter limiter = RateLimiter.parse("/users/*/posts=1/1h", 100);
+    assertEquals(0, limiter.acquire("/users/1/posts", "client"));
+    assertTrue(limiter.acquire("/users/2/posts", "client") > 0);
+    assertEquals(0, limiter.acquire("/users/1/2/posts", "client"));
+    assertEquals(0, limiter.acquire("/users/posts", "client"));
+  }
+
+  @Test
+  public void matchesPrefixWildcards() {
+    final RateLimiter limiter = RateLimiter.parse("/api/**=1/1h", 100);
+    assertEquals(0, limiter.acquire("/api/a/b", "client"));
+    assertTrue(limiter.acquire("/api", "client") > 0);
+    assertTrue(limiter.acquire("/api/c", "client") > 0);
+    assertEquals(0, limiter.acquire("/apis", "client"));
+
+    final RateLimiter all = RateLimiter.parse("/**=1/1h", 100);
+    assertEquals(0, all.acquire("/anything", "client"));
+    assertTrue(all.acquire("/", "client") > 0);
+  }
+
+  @Test
+  public void appliesFirstMatchingRule() {
+    final RateLimiter limiter = RateLimiter.parse(" /api/admin=1/1h ; /api/**=100/1s ;", 100);
+    assertEquals(0, limiter.acquire("/api/admin", "client"));
+    assertTrue(limiter.acquire("/api/admin", "client") > 0);
+    for (int i = 0; i < 100; i++) {
+      assertEquals(0, limiter.acquire("/api/users", "client"));
+    }
+  }
+
+  @Test
+  public void parsesPeriodUnits() {
+    assertTrue(RateLimiter.parse("/a=1/s", 10).hasRules());
+    assertTrue(RateLimiter.parse("/a=1/500ms;/b=1/2m;/c=1/1h", 10).hasRules());
+    assertFalse(RateLimiter.parse("", 10).hasRules());
+    assertFalse(RateLimiter.parse(" ; ", 10).hasRules());
+  }
+
+  @Test
+  public void rejectsInvalidRules() {
+    assertThrows(IllegalArgumentException.class, () -> RateLimiter.parse("/a", 10));
+    assertThrows(IllegalArgumentException.class, () -> RateLimiter.parse("/a=5", 10));
+    assertThrows(IllegalArgumentException.class, () -> RateLimiter.parse("/a=x/1s", 10));
+    assertThrows(IllegalArgumentException.class, () -> RateLimiter.parse("/a=0/1s", 10));
+    assertThrows(IllegalArgumentException.class, () -> RateLimiter.parse("/a=1/1y", 10));
+    assertThrows(IllegalArgumentException.class, () -> RateLimiter.parse("/a=1/0s", 10));
+    assertThrows(IllegalArgumentException.class, () -> RateLimiter.parse("/a=1/1s", 0));
+  }
+
+  @Test
+  public void evictsFullestBucketsFirst() {
+    final RateLimiter limiter = RateLimiter.parse("/**=2/1h", 10);
+    assertEquals(0, limiter.acquire("/", "hot"));
+    assertEquals(0, limiter.acquire("/", "hot"));
+    assertTrue(limiter.acquire("/", "hot") > 0);
+
+    assertEquals(0, limiter.acquire("/", "first"));
+    for (int i = 0; i < 100; i++) {
+      assertEquals(0, limiter.acquire("/", "key" + i));
+    }
+    // the limited key outlived the flood of new keys
+    assertTrue(limiter.acquire("/", "hot") > 0);
+    // the earliest key was dropped and starts over with a full bucket
+    assertEquals(0, limiter.acquire("/", "first"));
+    assertEquals(0, limiter.acquire("/", "first"));
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.server.netty;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author WangYi
+ * @since 2021/3/7
+ */
+public class ByteRangeTest {
+
+  @Test
+  public void parsesSingleRange() {
+    final List<ByteRange> ranges = ByteRange.parse("bytes=10-19", 100);
+    assertEquals(1, ranges.size());
+    assertRange(ranges.get(0), 10, 19);
+    assertEquals(10, ranges.get(0).length());
+    assertEquals("bytes 10-19/100", ranges.get(0).contentRange(100));
+  }
+
+  @Test
+  public void parsesOpenAndSuffixRanges() {
+    assertRange(ByteRange.parse("bytes=90-", 100).get(0), 90, 99);
+    assertRange(ByteRange.parse("bytes=-10", 100).get(0), 90, 99);
+    assertRange(ByteRange.parse("bytes=-500", 100).get(0), 0, 99);
+    assertRange(ByteRange.parse("bytes=50-500", 100).get(0), 50, 99);
+  }
+
+  @Test
+  public void coalescesOverlappingAndAdjacentRanges() {
+    final List<ByteRange> ranges = ByteRange.parse("bytes=40-49, 0-9,5-14,15-19", 100);
+    assertEquals(2, ranges.size());
+    assertRange(ranges.get(0), 0, 19);
+    assertRange(ranges.get(1), 40, 49);
+  }
+
+  @Test
+  public void skipsUnsatisfiableRanges() {
+    assertTrue(ByteRange.parse("bytes=100-199", 100).isEmpty());
+    assertTrue(ByteRange.parse("bytes=-0", 100).isEmpty());
+    assertTrue(ByteRange.parse("bytes=-10", 0).isEmpty());
+    final List<ByteRange> ranges = ByteRange.parse("bytes=200-,0-0", 100);
+    assertEquals(1, ranges.size());
+    assertRange(ranges.get(0), 0, 0);
+  }
+
+  @Test
+  public void rejectsInvalidHeaders() {
+    assertNull(ByteRange.parse("items=0-1", 100));
+    assertNull(ByteRange.parse("bytes=5", 100));
+    assertNull(ByteRange.parse("bytes=9-1", 100));
+    assertNull(ByteRange.parse("bytes=a-b", 100));
+    assertNull(ByteRange.parse("bytes=--1", 100));
+  }
+
+  @Test
+  public void sendsWholeResourceForTooManyRanges() {
+    final StringBuilder header = new StringBuilder("bytes=0-0");
+    for (int i = 1; i <= ByteRange.MAX_RANGES; i++) {
+      header.append(',').append(i * 2).append('-').append(i * 2);
+    }
+    assertNull(ByteRange.parse(header.toString(), 1000));
+  }
+
+  @Test
+  public void sendsWholeResourceForOverlongRequest() {
+    assertNull(ByteRange.parse("bytes=0-,0-", 100));
+    assertNull(ByteRange.parse("bytes=-60,-60", 100));
+    assertNull(ByteRange.parse("bytes=0-59,-60", 100));
+  }
+
+  private static void assertRange(ByteRange range, long start, long end) {
+    assertEquals(start, range.start());
+    assertEquals(end, range.end());
+  }
+}
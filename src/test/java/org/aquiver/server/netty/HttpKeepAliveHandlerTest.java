@@ -0,0 +1,236 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.server.netty;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.DefaultHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.util.CharsetUtil;
+import io.netty.util.ReferenceCountUtil;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author WangYi
+ * @since 2021/3/21
+ */
+public class HttpKeepAliveHandlerTest {
+  private final GracefulShutdown shutdown = new GracefulShutdown();
+
+  @Test
+  public void keepsHttp11ConnectionOpen() {
+    final EmbeddedChannel channel = channel(true, 0);
+    channel.writeInbound(request(HttpVersion.HTTP_1_1));
+    channel.writeOutbound(response(HttpVersion.HTTP_1_1, "hello"));
+
+    final FullHttpResponse response = channel.readOutbound();
+    assertEquals("5", response.headers().get(HttpHeaderNames.CONTENT_LENGTH));
+    assertNull(response.headers().get(HttpHeaderNames.CONNECTION));
+    assertTrue(channel.isOpen());
+    response.release();
+    channel.finishAndReleaseAll();
+  }
+
+  @Test
+  public void closesWhenClientAsks() {
+    final EmbeddedChannel channel = channel(true, 0);
+    final FullHttpRequest request = request(HttpVersion.HTTP_1_1);
+    request.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.CLOSE);
+    channel.writeInbound(request);
+    channel.writeOutbound(response(HttpVersion.HTTP_1_1, "bye"));
+
+    final FullHttpResponse response = channel.readOutbound();
+    assertEquals("close", response.headers().get(HttpHeaderNames.CONNECTION));
+    assertFalse(channel.isOpen());
+    response.release();
+    channel.finishAndReleaseAll();
+  }
+
+  @Test
+  public void closesWhenKeepAliveIsDisabled() {
+    final EmbeddedChannel channel = channel(false, 0);
+    channel.writeInbound(request(HttpVersion.HTTP_1_1));
+    channel.writeOutbound(response(HttpVersion.HTTP_1_1, "bye"));
+
+    final FullHttpResponse response = channel.readOutbound();
+    assertEquals("close", response.headers().get(HttpHeaderNames.CONNECTION));
+    assertFalse(channel.isOpen());
+    response.release();
+    channel.finishAndReleaseAll();
+  }
+
+  @Test
+  public void answersHttp10KeepAlive() {
+    final EmbeddedChannel channel = channel(true, 0);
+    final FullHttpRequest request = request(HttpVersion.HTTP_1_0);
+    request.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.KEEP_ALIVE);
+    channel.writeInbound(request);
+    channel.writeOutbound(response(HttpVersion.HTTP_1_0, "hello"));
+
+    final FullHttpResponse response = channel.readOutbound();
+    assertEquals("keep-alive", response.headers().get(HttpHeaderNames.CONNECTION));
+    assertTrue(channel.isOpen());
+    response.release();
+
+    channel.writeInbound(request(HttpVersion.HTTP_1_0));
+    channel.writeOutbound(response(HttpVersion.HTTP_1_0, "bye"));
+    final FullHttpResponse last = channel.readOutbound();
+    assertFalse(channel.isOpen());
+    last.release();
+    channel.finishAndReleaseAll();
+  }
+
+  @Test
+  public void closesAfterMaxRequests() {
+    final EmbeddedChannel channel = channel(true, 2);
+    for (int i = 0; i < 2; i++) {
+      channel.writeInbound(request(HttpVersion.HTTP_1_1));
+      channel.writeOutbound(response(HttpVersion.HTTP_1_1, "hello"));
+      final FullHttpResponse response = channel.readOutbound();
+      assertEquals(i == 1, "close".equals(response.headers().get(HttpHeaderNames.CONNECTION)));
+      response.release();
+    }
+    assertFalse(channel.isOpen());
+    channel.finishAndReleaseAll();
+  }
+
+  @Test
+  public void keepsPipelinedRequestsUntilAnswered() {
+    final EmbeddedChannel channel = channel(true, 0);
+    final FullHttpRequest last = request(HttpVersion.HTTP_1_1);
+    last.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.CLOSE);
+    channel.writeInbound(request(HttpVersion.HTTP_1_1));
+    channel.writeInbound(last);
+
+    channel.writeOutbound(response(HttpVersion.HTTP_1_1, "first"));
+    final FullHttpResponse first = channel.readOutbound();
+    assertNull(first.headers().get(HttpHeaderNames.CONNECTION));
+    assertTrue(channel.isOpen());
+    first.release();
+
+    channel.writeOutbound(response(HttpVersion.HTTP_1_1, "second"));
+    final FullHttpResponse second = channel.readOutbound();
+    assertEquals("close", second.headers().get(HttpHeaderNames.CONNECTION));
+    assertFalse(channel.isOpen());
+    second.release();
+    channel.finishAndReleaseAll();
+  }
+
+  @Test
+  public void closesResponseWithoutFraming() {
+    final EmbeddedChannel channel = channel(true, 0);
+    channel.writeInbound(request(HttpVersion.HTTP_1_1));
+    channel.writeOutbound(new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK));
+    final HttpResponse response = channel.readOutbound();
+    assertEquals("close", response.headers().get(HttpHeaderNames.CONNECTION));
+
+    channel.writeOutbound(LastHttpContent.EMPTY_LAST_CONTENT);
+    assertFalse(channel.isOpen());
+    channel.finishAndReleaseAll();
+  }
+
+  @Test
+  public void closesIdleConnectionWithoutPendingResponse() {
+    final EmbeddedChannel channel = channel(true, 0);
+    channel.writeInbound(request(HttpVersion.HTTP_1_1));
+    channel.pipeline().fireUserEventTriggered(IdleStateEvent.ALL_IDLE_STATE_EVENT);
+    assertTrue(channel.isOpen());
+
+    channel.writeOutbound(response(HttpVersion.HTTP_1_1, "hello"));
+    channel.<FullHttpResponse>readOutbound().release();
+    channel.pipeline().fireUserEventTriggered(IdleStateEvent.ALL_IDLE_STATE_EVENT);
+    assertFalse(channel.isOpen());
+    channel.finishAndReleaseAll();
+  }
+
+  @Test
+  public void closesAfterPendingResponseWhenDraining() {
+    final EmbeddedChannel channel = channel(true, 0);
+    channel.writeInbound(request(HttpVersion.HTTP_1_1));
+    channel.pipeline().fireUserEventTriggered(GracefulShutdown.DRAIN);
+    assertTrue(channel.isOpen());
+
+    channel.writeOutbound(response(HttpVersion.HTTP_1_1, "hello"));
+    final FullHttpResponse response = channel.readOutbound();
+    assertEquals("close", response.headers().get(HttpHeaderNames.CONNECTION));
+    assertFalse(channel.isOpen());
+    response.release();
+    channel.finishAndReleaseAll();
+  }
+
+  @Test
+  public void tracksInFlightRequests() {
+    final EmbeddedChannel channel = channel(true, 0);
+    channel.writeInbound(request(HttpVersion.HTTP_1_1));
+    channel.writeInbound(request(HttpVersion.HTTP_1_1));
+    assertEquals(2, shutdown.inFlight());
+
+    channel.writeOutbound(response(HttpVersion.HTTP_1_1, "hello"));
+    channel.<FullHttpResponse>readOutbound().release();
+    assertEquals(1, shutdown.inFlight());
+
+    channel.close();
+    assertEquals(0, shutdown.inFlight());
+    channel.finishAndReleaseAll();
+  }
+
+  private EmbeddedChannel channel(boolean keepAlive, int maxRequests) {
+    final EmbeddedChannel channel = new EmbeddedChannel(new HttpKeepAliveHandler(keepAlive, maxRequests, shutdown));
+    // requests are consumed by the handlers behind the keep-alive handler
+    channel.pipeline().addLast(new ChannelInboundHandlerAdapter() {
+      @Override
+      public void channelRead(ChannelHandlerContext ctx, Object msg) {
+        ReferenceCountUtil.release(msg);
+      }
+    });
+    return channel;
+  }
+
+  private static FullHttpRequest request(HttpVersion version) {
+    return new DefaultFullHttpRequest(version, HttpMethod.GET, "/");
+  }
+
+  private static FullHttpResponse response(HttpVersion version, String content) {
+    return new DefaultFullHttpResponse(version, HttpResponseStatus.OK,
+            Unpooled.copiedBuffer(content, CharsetUtil.UTF_8));
+  }
+}
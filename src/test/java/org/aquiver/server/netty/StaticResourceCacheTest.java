@@ -0,0 +1,161 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.server.netty;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.CharsetUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author WangYi
+ * @since 2021/3/7
+ */
+public class StaticResourceCacheTest {
+  private final List<Runnable> fileWork = new ArrayList<>();
+  private Path root;
+  private URLClassLoader classLoader;
+
+  @Before
+  public void setUp() throws IOException {
+    this.root = Files.createTempDirectory("aquiver-static");
+    this.classLoader = new URLClassLoader(new URL[]{root.toUri().toURL()}, null);
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    classLoader.close();
+    try (Stream<Path> paths = Files.walk(root)) {
+      paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+    }
+  }
+
+  @Test
+  public void loadsContentOnFileExecutor() throws IOException {
+    write("a.txt", "hello");
+    final StaticResourceCache cache = cache(100, 10);
+    final StaticResource first = cache.lookup("a.txt");
+    assertFalse(first.isCached());
+    assertEquals(5, first.length());
+    assertSame(first, cache.lookup("a.txt"));
+    assertEquals(1, fileWork.size());
+
+    this.runFileWork();
+    final StaticResource loaded = cache.lookup("a.txt");
+    assertNotSame(first, loaded);
+    assertEquals(first.etag(), loaded.etag());
+    assertEquals("hello", content(loaded));
+  }
+
+  @Test
+  public void doesNotLoadLargeContent() throws IOException {
+    write("large.txt", "0123456789abc");
+    final StaticResourceCache cache = cache(100, 10);
+    assertFalse(cache.lookup("large.txt").isCached());
+    assertTrue(fileWork.isEmpty());
+  }
+
+  @Test
+  public void remembersMissingResources() throws IOException {
+    final StaticResourceCache cache = cache(100, 10);
+    assertNull(cache.lookup("missing.txt"));
+    write("missing.txt", "now");
+    assertNull(cache.lookup("missing.txt"));
+  }
+
+  @Test
+  public void evictsLeastRecentlyUsedContent() throws IOException {
+    final StaticResourceCache cache = cache(10, 5);
+    write("a.txt", "aaaa");
+    write("b.txt", "bbbb");
+    write("c.txt", "cccc");
+    cache.lookup("a.txt");
+    cache.lookup("b.txt");
+    this.runFileWork();
+    final StaticResource a = cache.lookup("a.txt");
+    assertTrue(a.isCached());
+
+    cache.lookup("c.txt");
+    this.runFileWork();
+    assertTrue(cache.lookup("c.txt").isCached());
+    assertSame(a, cache.lookup("a.txt"));
+    // b was the least recently used, it is found again without content
+    assertFalse(cache.lookup("b.txt").isCached());
+  }
+
+  @Test
+  public void releasesContentOnClear() throws IOException {
+    write("a.txt", "aaaa");
+    final StaticResourceCache cache = cache(10, 5);
+    cache.lookup("a.txt");
+    this.runFileWork();
+    final StaticResource a = cache.lookup("a.txt");
+    cache.clear();
+    assertNull(a.retainedContent());
+    assertNotSame(a, cache.lookup("a.txt"));
+  }
+
+  private StaticResourceCache cache(long maxSize, int maxFileSize) {
+    return new StaticResourceCache(classLoader, maxSize, maxFileSize, 0, 60, fileWork::add);
+  }
+
+  private void runFileWork() {
+    while (!fileWork.isEmpty()) {
+      fileWork.remove(0).run();
+    }
+  }
+
+  private void write(String name, String content) throws IOException {
+    Files.write(root.resolve(name), content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static String content(StaticResource resource) {
+    final ByteBuf content = resource.retainedContent();
+    try {
+      return content.toString(CharsetUtil.UTF_8);
+    } finally {
+      content.release();
+    }
+  }
+}